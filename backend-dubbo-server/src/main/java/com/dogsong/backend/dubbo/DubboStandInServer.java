@@ -0,0 +1,155 @@
+package com.dogsong.backend.dubbo;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.dogsong.common.dubbo.DubboCodec;
+import com.dogsong.common.dubbo.DubboRequest;
+import com.dogsong.common.dubbo.DubboResponse;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本地的 Dubbo 服务提供方替身，用于网关 Dubbo 路由的联调和压测
+ * <p>
+ * 说 dubbo 协议（fastjson 序列化），只支持泛化调用 $invoke，直接在 I/O 线程上调用服务实现，
+ * 不依赖注册中心和 Dubbo 本身。启动参数为端口，默认 20880。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Slf4j
+public class DubboStandInServer {
+
+    private static final String GENERIC_METHOD = "$invoke";
+
+    private static final SerializerFeature[] FEATURES = {SerializerFeature.WriteEnumUsingToString};
+
+    /** 接口名 -> 服务 */
+    private final Map<String, GenericServiceProvider> providers = new ConcurrentHashMap<>();
+
+    private final int port;
+
+    private EventLoopGroup bossGroup;
+
+    private EventLoopGroup workerGroup;
+
+    public DubboStandInServer(int port) {
+        this.port = port;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 20880;
+        DubboStandInServer server = new DubboStandInServer(port);
+        server.export(new GenericServiceProvider(UserService.class, new UserServiceImpl()));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::shutdown));
+    }
+
+    public void export(GenericServiceProvider provider) {
+        providers.put(provider.getInterfaceName(), provider);
+    }
+
+    public void start() throws InterruptedException {
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup();
+        RequestHandler handler = new RequestHandler();
+        new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new DubboCodec(), handler);
+                    }
+                })
+                .bind(port).sync();
+        log.info("dubbo stand-in server started on port {}, services: {}", port, providers.keySet());
+    }
+
+    public void shutdown() {
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully();
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully();
+        }
+    }
+
+    private DubboResponse invoke(DubboRequest request) {
+        DubboResponse response = new DubboResponse();
+        response.setId(request.getId());
+        GenericServiceProvider provider = providers.get(request.getServiceName());
+        if (provider == null || !GENERIC_METHOD.equals(request.getMethodName()) || request.getArgs().length != 3) {
+            response.setStatus(DubboCodec.SERVICE_NOT_FOUND);
+            response.setErrorMessage("service not found: " + request.getServiceName() + "." + request.getMethodName());
+            return response;
+        }
+        Object[] args = request.getArgs();
+        try {
+            String[] parameterTypes = args[1] == null ? new String[0] : ((JSONArray) args[1]).toArray(new String[0]);
+            Object[] values = args[2] == null ? new Object[0] : ((JSONArray) args[2]).toArray();
+            Object result = provider.invoke((String) args[0], parameterTypes, values);
+            if (result == null) {
+                response.setResultType(DubboCodec.RESPONSE_NULL_VALUE_WITH_ATTACHMENTS);
+            } else {
+                response.setResultType(DubboCodec.RESPONSE_VALUE_WITH_ATTACHMENTS);
+                response.setValue(JSON.toJSONBytes(result, FEATURES));
+            }
+        } catch (NoSuchMethodException e) {
+            response.setStatus(DubboCodec.SERVICE_NOT_FOUND);
+            response.setErrorMessage("method not found: " + e.getMessage());
+        } catch (InvocationTargetException e) {
+            response.setResultType(DubboCodec.RESPONSE_WITH_EXCEPTION_WITH_ATTACHMENTS);
+            response.setErrorMessage(String.valueOf(e.getCause()));
+        } catch (Exception e) {
+            response.setStatus(DubboCodec.BAD_REQUEST);
+            response.setErrorMessage(e.toString());
+        }
+        return response;
+    }
+
+    @ChannelHandler.Sharable
+    private final class RequestHandler extends SimpleChannelInboundHandler<Object> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
+            if (!(msg instanceof DubboRequest)) {
+                return;
+            }
+            DubboRequest request = (DubboRequest) msg;
+            DubboResponse response;
+            if (request.isEvent()) {
+                response = new DubboResponse();
+                response.setId(request.getId());
+                response.setEvent(true);
+            } else {
+                response = invoke(request);
+            }
+            if (request.isTwoWay()) {
+                ctx.writeAndFlush(response, ctx.voidPromise());
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.warn("dubbo stand-in connection error, close {}", ctx.channel(), cause);
+            ctx.close();
+        }
+    }
+}
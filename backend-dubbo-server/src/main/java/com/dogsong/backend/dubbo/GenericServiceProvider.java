@@ -0,0 +1,81 @@
+package com.dogsong.backend.dubbo;
+
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.util.TypeUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按泛化调用的方法名和参数类型调用服务实现
+ * <p>
+ * 方法按 "方法名(参数类型,...)" 缓存，只在第一次调用时查找；参数由 fastjson 转换成方法声明的类型，
+ * 相当于 Dubbo GenericFilter 里的 PojoUtils.realize。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class GenericServiceProvider {
+
+    private final Class<?> interfaceClass;
+
+    private final Object implementation;
+
+    private final Map<String, Method> methods = new ConcurrentHashMap<>();
+
+    public <T> GenericServiceProvider(Class<T> interfaceClass, T implementation) {
+        this.interfaceClass = interfaceClass;
+        this.implementation = implementation;
+    }
+
+    public String getInterfaceName() {
+        return interfaceClass.getName();
+    }
+
+    /**
+     * 泛化调用
+     *
+     * @param methodName     方法名
+     * @param parameterTypes 参数类型全名
+     * @param args           参数，json 反序列化出来的基本类型、JSONObject、JSONArray
+     * @throws NoSuchMethodException     方法不存在
+     * @throws InvocationTargetException 服务实现抛出异常
+     */
+    public Object invoke(String methodName, String[] parameterTypes, Object[] args) throws Exception {
+        Method method = findMethod(methodName, parameterTypes);
+        Type[] types = method.getGenericParameterTypes();
+        Object[] values = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            values[i] = args != null && i < args.length
+                    ? TypeUtils.cast(args[i], types[i], ParserConfig.getGlobalInstance()) : null;
+        }
+        return method.invoke(implementation, values);
+    }
+
+    private Method findMethod(String methodName, String[] parameterTypes) throws NoSuchMethodException {
+        String key = methodName + "(" + String.join(",", parameterTypes) + ")";
+        Method method = methods.get(key);
+        if (method != null) {
+            return method;
+        }
+        for (Method candidate : interfaceClass.getMethods()) {
+            if (!candidate.getName().equals(methodName) || candidate.getParameterCount() != parameterTypes.length) {
+                continue;
+            }
+            Class<?>[] types = candidate.getParameterTypes();
+            boolean matched = true;
+            for (int i = 0; i < types.length && matched; i++) {
+                matched = types[i].getName().equals(parameterTypes[i]);
+            }
+            if (matched) {
+                methods.put(key, candidate);
+                return candidate;
+            }
+        }
+        throw new NoSuchMethodException(interfaceClass.getName() + "." + key);
+    }
+}
@@ -0,0 +1,23 @@
+package com.dogsong.backend.dubbo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 示例服务的返回对象
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class User {
+
+    private Long id;
+
+    private String name;
+
+    private int age;
+}
@@ -0,0 +1,20 @@
+package com.dogsong.backend.dubbo;
+
+import java.util.List;
+
+/**
+ * 示例服务接口
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public interface UserService {
+
+    User getUser(Long id);
+
+    User rename(Long id, String name);
+
+    List<User> list();
+
+    String echo(String message);
+}
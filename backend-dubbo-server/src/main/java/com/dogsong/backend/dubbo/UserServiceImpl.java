@@ -0,0 +1,40 @@
+package com.dogsong.backend.dubbo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 示例服务实现，不访问任何外部资源，只用于压测网关本身的开销
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class UserServiceImpl implements UserService {
+
+    @Override
+    public User getUser(Long id) {
+        if (id == null || id < 0) {
+            throw new IllegalArgumentException("invalid user id: " + id);
+        }
+        return new User(id, "user-" + id, (int) (id % 100));
+    }
+
+    @Override
+    public User rename(Long id, String name) {
+        return new User(id, name, (int) (id % 100));
+    }
+
+    @Override
+    public List<User> list() {
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            users.add(getUser(id));
+        }
+        return users;
+    }
+
+    @Override
+    public String echo(String message) {
+        return message;
+    }
+}
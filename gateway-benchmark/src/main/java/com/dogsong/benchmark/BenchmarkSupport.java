@@ -0,0 +1,59 @@
+package com.dogsong.benchmark;
+
+import com.dogsong.common.config.Rule;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测的公共配置和共用的客户端连接、规则
+ * <p>
+ * 预热、测量轮次和 fork 参数都声明在这里，由各个压测类继承，个别压测需要时在自己的类或方法上覆盖。
+ * 运行方式见模块的 pom，通常带上 -prof gc 看每次操作分配的字节数。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+abstract class BenchmarkSupport {
+
+    /**
+     * 不经过网络的客户端连接，远端地址是一个普通的 IPv4 地址
+     */
+    static ChannelHandlerContext clientContext() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter()) {
+            @Override
+            protected SocketAddress remoteAddress0() {
+                return new InetSocketAddress("203.0.113.7", 40000);
+            }
+        };
+        return channel.pipeline().firstContext();
+    }
+
+    /**
+     * 只按路径匹配的 http 规则
+     *
+     * @param id   规则ID
+     * @param path 路径，支持 /** 通配
+     */
+    static Rule rule(String id, String path) {
+        Rule rule = new Rule();
+        rule.setId(id);
+        rule.setOrder(1);
+        rule.setProtocol("http");
+        rule.setPaths(new ArrayList<>(Collections.singletonList(path)));
+        return rule;
+    }
+}
@@ -0,0 +1,123 @@
+package com.dogsong.benchmark;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.HttpRequestWrapper;
+import com.dogsong.core.helper.RequestHelper;
+import com.dogsong.core.request.GatewayRequest;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对象池（contextPoolEnabled）开启和关闭时，请求包装、网关请求、上下文的生命周期开销
+ * <p>
+ * lifecycle 单线程逐个创建、归还，用 -prof gc 的 gc.alloc.rate.norm 看每个请求分配的字节数。
+ * sustained 模拟持续负载：四个线程对应四个 EventLoop，每个线程保留 {@value #IN_FLIGHT} 个在途请求，
+ * 新请求进来时归还最早的一个，对象活得和真实请求一样久才被回收。
+ * 吞吐量跑满时 -prof gc 报告的 gc.count、gc.time 换算到每秒五万请求，就是这部分对象在该负载下带来的 GC 次数和停顿。
+ * 过滤器链和下游调用不在测量范围内。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@State(Scope.Thread)
+public class ContextPoolBenchmark extends BenchmarkSupport {
+
+    /** 每个线程的在途请求数，四个线程合计约一千，相当于每秒五万请求、平均 20ms 的下游耗时 */
+    private static final int IN_FLIGHT = 256;
+
+    @Param({"false", "true"})
+    private boolean pooled;
+
+    private ChannelHandlerContext ctx;
+
+    private final Rule rule = new Rule();
+
+    /** 请求体为空，release 不会真正释放，可以反复使用 */
+    private FullHttpRequest request;
+
+    private final GatewayContext[] inFlight = new GatewayContext[IN_FLIGHT];
+
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        rule.setId("pool");
+        ctx = clientContext();
+        request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+                "/api/orders?page=1&size=20", Unpooled.EMPTY_BUFFER);
+        request.headers()
+                .set(HttpHeaderNames.HOST, "gateway.dogsong.com")
+                .set(HttpHeaderNames.USER_AGENT, "jmh")
+                .set(HttpHeaderNames.ACCEPT, "application/json")
+                .set(HttpHeaderNames.COOKIE, "session=abc; theme=dark");
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            if (inFlight[i] != null) {
+                inFlight[i].releaseRequest();
+                inFlight[i] = null;
+            }
+        }
+    }
+
+    @Benchmark
+    public String lifecycle() {
+        GatewayRequest gatewayRequest = newRequest();
+        String page = gatewayRequest.getQueryParametersMultiples("page").get(0);
+        newContext(gatewayRequest).releaseRequest();
+        return page;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public String sustained() {
+        GatewayRequest gatewayRequest = newRequest();
+        String page = gatewayRequest.getQueryParametersMultiples("page").get(0);
+        int slot = cursor++ & (IN_FLIGHT - 1);
+        if (inFlight[slot] != null) {
+            inFlight[slot].releaseRequest();
+        }
+        inFlight[slot] = newContext(gatewayRequest);
+        return page;
+    }
+
+    /**
+     * 和 NettyHttpServerHandler 的顺序一致：包装请求，取出后归还包装，再构建网关请求
+     */
+    private GatewayRequest newRequest() {
+        HttpRequestWrapper wrapper;
+        if (pooled) {
+            wrapper = HttpRequestWrapper.newInstance(request, ctx);
+        } else {
+            wrapper = new HttpRequestWrapper();
+            wrapper.setRequest(request);
+            wrapper.setCtx(ctx);
+        }
+        FullHttpRequest fullHttpRequest = wrapper.getRequest();
+        ChannelHandlerContext channelCtx = wrapper.getCtx();
+        wrapper.recycle();
+
+        return RequestHelper.doRequest(fullHttpRequest, channelCtx, pooled);
+    }
+
+    private GatewayContext newContext(GatewayRequest gatewayRequest) {
+        if (pooled) {
+            return GatewayContext.newInstance("http", ctx, true, gatewayRequest, rule);
+        }
+        return new GatewayContext("http", ctx, true, gatewayRequest, rule);
+    }
+}
@@ -0,0 +1,110 @@
+package com.dogsong.benchmark;
+
+import com.dogsong.core.helper.RequestHelper;
+import com.dogsong.core.request.GatewayRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 聚合后的请求体交给下游时在堆上复制了多少字节
+ * <p>
+ * forward：过滤器没有读取请求体，只构建交给 AsyncHttpClient 的下游请求；
+ * forwardAndDecode：过滤器调用过一次 getBody()。
+ * 请求体分单段（single）和多段（composite，聚合器把多个 HttpContent 拼成的 CompositeByteBuf）两种，
+ * 每次操作都用池化的直接内存重新拼出请求体，和服务端聚合器的分配方式一致，操作结束时随请求一起释放。
+ * gc.alloc.rate.norm 里随 size 增长的部分就是复制到堆上的请求体。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@State(Scope.Thread)
+public class RequestBodyBenchmark extends BenchmarkSupport {
+
+    private static final int PARTS = 4;
+
+    @Param({"1024", "65536"})
+    private int size;
+
+    @Param({"single", "composite"})
+    private String layout;
+
+    private ChannelHandlerContext ctx;
+
+    /** 请求体的各段，每次操作引用一份 */
+    private final ByteBuf[] parts = new ByteBuf[PARTS];
+
+    private ByteBuf whole;
+
+    @Setup
+    public void setUp() {
+        ctx = clientContext();
+        whole = PooledByteBufAllocator.DEFAULT.directBuffer(size).writeZero(size);
+        for (int i = 0; i < PARTS; i++) {
+            parts[i] = PooledByteBufAllocator.DEFAULT.directBuffer(size / PARTS).writeZero(size / PARTS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        whole.release();
+        for (ByteBuf part : parts) {
+            part.release();
+        }
+    }
+
+    @Benchmark
+    public int forward() {
+        FullHttpRequest request = request();
+        try {
+            return gatewayRequest(request).build().hashCode();
+        } finally {
+            request.release();
+        }
+    }
+
+    @Benchmark
+    public int forwardAndDecode() {
+        FullHttpRequest request = request();
+        try {
+            GatewayRequest gatewayRequest = gatewayRequest(request);
+            return gatewayRequest.getBody().length() + gatewayRequest.build().hashCode();
+        } finally {
+            request.release();
+        }
+    }
+
+    private FullHttpRequest request() {
+        ByteBuf body;
+        if ("composite".equals(layout)) {
+            CompositeByteBuf composite = PooledByteBufAllocator.DEFAULT.compositeDirectBuffer(PARTS);
+            for (ByteBuf part : parts) {
+                composite.addComponent(true, part.retainedDuplicate());
+            }
+            body = composite;
+        } else {
+            body = whole.retainedDuplicate();
+        }
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/api/upload", body);
+        request.headers()
+                .set(HttpHeaderNames.HOST, "gateway.dogsong.com")
+                .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_OCTET_STREAM)
+                .set(HttpHeaderNames.CONTENT_LENGTH, size);
+        return request;
+    }
+
+    private GatewayRequest gatewayRequest(FullHttpRequest request) {
+        GatewayRequest gatewayRequest = RequestHelper.doRequest(request, ctx, false);
+        gatewayRequest.setModifyHost("127.0.0.1:8080");
+        return gatewayRequest;
+    }
+}
@@ -0,0 +1,69 @@
+package com.dogsong.benchmark;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.core.route.RouteManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 一万条规则下，规则全量刷新对路由匹配延迟的影响
+ * <p>
+ * 规则一半是精确路径，一半是前缀通配。idle 只匹配，作为基线；reload 组里三个线程持续匹配，
+ * 另一个线程不停地调用 putAllRules 全量替换规则。按 SampleTime 采样，比较两者 match 的 p99。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@BenchmarkMode(Mode.SampleTime)
+@State(Scope.Benchmark)
+public class RouteReloadBenchmark extends BenchmarkSupport {
+
+    private static final int RULES = 10_000;
+
+    private final List<Rule> rules = new ArrayList<>(RULES);
+
+    private final String[] paths = new String[RULES];
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < RULES; i++) {
+            if (i % 2 == 0) {
+                rules.add(rule("rule-" + i, "/svc" + i + "/api/detail"));
+                paths[i] = "/svc" + i + "/api/detail";
+            } else {
+                rules.add(rule("rule-" + i, "/svc" + i + "/**"));
+                paths[i] = "/svc" + i + "/api/items/42";
+            }
+        }
+        RouteManager.getInstance().putAllRules(rules);
+    }
+
+    @Benchmark
+    public Rule idle() {
+        return match();
+    }
+
+    @Benchmark
+    @Group("reload")
+    @GroupThreads(3)
+    public Rule reloadMatch() {
+        return match();
+    }
+
+    @Benchmark
+    @Group("reload")
+    @GroupThreads(1)
+    public long reloadPut() {
+        RouteManager.getInstance().putAllRules(rules);
+        return RouteManager.getInstance().getVersion();
+    }
+
+    private Rule match() {
+        String path = paths[ThreadLocalRandom.current().nextInt(RULES)];
+        return RouteManager.getInstance().match("gateway.dogsong.com", path);
+    }
+}
@@ -1,12 +1,14 @@
 package com.dogsong.common.config;
 
+import com.dogsong.common.utils.JSONUtil;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 
 /**
  * 规则对象
@@ -25,8 +27,32 @@ public class Rule implements Comparable<Rule>, Serializable {
 
     private Integer order;
 
+    /** 规则版本，规则变更时递增，过滤器链据此判断是否需要重新编译 */
+    private long version;
+
+    /** 匹配的域名，为空时匹配所有域名 */
+    private String host;
+
+    /** 前缀匹配，例如 /user 匹配 /user 以及 /user/ 下的所有路径 */
+    private String prefix;
+
+    /** 路径匹配，支持 * 匹配单段、** 匹配剩余所有段，例如 /user/*、/order/** */
+    private List<String> paths = new ArrayList<>();
+
+    /** 后端服务的唯一ID(uniqueId)，配置后从服务发现缓存中按负载均衡策略选择下游实例 */
+    private String serviceId;
+
+    /** 是否流式转发，开启后请求体不再聚合，按块直接转发到下游 */
+    private boolean streaming;
+
     private Set<FilterConfig> filterConfigs = new HashSet<>();
 
+    /** 过滤器配置索引，key 为过滤器ID及其小写形式，只读，配置变更时整体重建 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile Map<String, FilterConfig> filterConfigIndex;
+
     public Rule() {
         super();
     }
@@ -46,19 +72,48 @@ public class Rule implements Comparable<Rule>, Serializable {
      * @param filterConfig 规则配置
      */
     public boolean addFilterConfig(FilterConfig filterConfig) {
-        return filterConfigs.add(filterConfig);
+        boolean added = filterConfigs.add(filterConfig);
+        filterConfigIndex = null;
+        return added;
+    }
+
+    public void setFilterConfigs(Set<FilterConfig> filterConfigs) {
+        this.filterConfigs = filterConfigs;
+        this.filterConfigIndex = null;
     }
 
     /**
-     * 通过指定的ID获取指定的配置信息
+     * 通过指定的ID获取指定的配置信息，ID不区分大小写
      *
      * @param id id
      */
     public FilterConfig getFilterConfig(String id) {
-        Optional<FilterConfig> configOptional = filterConfigs.stream()
-                .filter(filterConfig -> filterConfig.getId().equalsIgnoreCase(id))
-                .findAny();
-        return configOptional.orElse(null);
+        Map<String, FilterConfig> index = filterConfigIndex;
+        if (index == null) {
+            index = indexFilterConfigs();
+        }
+        FilterConfig filterConfig = index.get(id);
+        if (filterConfig == null && !index.isEmpty()) {
+            // 小写的ID不会产生新的字符串
+            filterConfig = index.get(id.toLowerCase(Locale.ROOT));
+        }
+        return filterConfig;
+    }
+
+    /**
+     * 构建过滤器配置索引，规则加载时调用一次，之后的查找都是一次哈希查找
+     */
+    public Map<String, FilterConfig> indexFilterConfigs() {
+        Map<String, FilterConfig> index = new HashMap<>();
+        if (filterConfigs != null) {
+            for (FilterConfig filterConfig : filterConfigs) {
+                index.put(filterConfig.getId(), filterConfig);
+                index.putIfAbsent(filterConfig.getId().toLowerCase(Locale.ROOT), filterConfig);
+            }
+        }
+        index = index.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(index);
+        filterConfigIndex = index;
+        return index;
     }
 
     @Override
@@ -101,6 +156,31 @@ public class Rule implements Comparable<Rule>, Serializable {
 
         private String config;
 
+        /** 解析后的配置对象，第一次使用时解析，之后直接复用 */
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        @ToString.Exclude
+        private transient volatile ParsedConfig parsedConfig;
+
+        public void setConfig(String config) {
+            this.config = config;
+            this.parsedConfig = null;
+        }
+
+        /**
+         * 获取解析成指定类型的配置，同一个类型只解析一次
+         *
+         * @param type 配置类型
+         */
+        public <T> T getTypedConfig(Class<T> type) {
+            ParsedConfig parsed = parsedConfig;
+            if (parsed == null || parsed.type != type) {
+                parsed = new ParsedConfig(type, JSONUtil.parse(config, type));
+                parsedConfig = parsed;
+            }
+            return type.cast(parsed.value);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) {
@@ -119,4 +199,19 @@ public class Rule implements Comparable<Rule>, Serializable {
         }
 
     }
+
+    /**
+     * 解析后的配置及其类型
+     */
+    private static final class ParsedConfig {
+
+        private final Class<?> type;
+
+        private final Object value;
+
+        private ParsedConfig(Class<?> type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
 }
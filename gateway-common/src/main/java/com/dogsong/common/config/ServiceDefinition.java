@@ -0,0 +1,45 @@
+package com.dogsong.common.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 服务定义
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/31
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceDefinition implements Serializable {
+
+    private static final long serialVersionUID = -8263365765897285189L;
+
+    /** 唯一的服务ID: serviceId:version */
+    private String uniqueId;
+
+    /** 服务唯一id */
+    private String serviceId;
+
+    /** 服务的版本号 */
+    private String version;
+
+    /** 服务的具体协议：http(mvc http) dubbo .. */
+    private String protocol;
+
+    /** 路径匹配规则：访问真实ANT表达式：定义具体的服务路径的匹配规则 */
+    private String patternPath;
+
+    /** 环境名称 */
+    private String envType;
+
+    /** 服务启用禁用 */
+    @Builder.Default
+    private boolean enable = true;
+}
@@ -0,0 +1,61 @@
+package com.dogsong.common.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 一个服务定义会对应多个服务实例
+ * <p>
+ * 实例放进网关的服务快照之后视为只读，变更时替换为新的对象，不在原对象上修改
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/31
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceInstance implements Serializable {
+
+    private static final long serialVersionUID = -7559569289189228478L;
+
+    /** 服务实例ID: ip:port */
+    private String serviceInstanceId;
+
+    /** 服务定义唯一id */
+    private String uniqueId;
+
+    /** 服务实例地址 */
+    private String ip;
+
+    private int port;
+
+    /** 标签信息 */
+    private String tags;
+
+    /** 权重信息 */
+    @Builder.Default
+    private int weight = 100;
+
+    /** 服务注册的时间戳：后面我们做负载均衡，warmup预热 */
+    private long registerTime;
+
+    /** 服务实例启用禁用 */
+    @Builder.Default
+    private boolean enable = true;
+
+    /** 服务实例对应的版本号 */
+    private String version;
+
+    /**
+     * 服务实例的地址 ip:port
+     */
+    public String getAddress() {
+        return ip + ":" + port;
+    }
+}
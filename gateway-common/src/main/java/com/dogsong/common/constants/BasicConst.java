@@ -10,5 +10,13 @@ public interface BasicConst {
 
     String HTTP_PREFIX_SEPARATOR = "http://";
 
+    String HTTP_FORWARD_SEPARATOR = "X-Forwarded-For";
+
+    String UNIQUE_ID = "uniqueId";
+
+    String PROTOCOL_HTTP = "http";
+
+    String COLON_SEPARATOR = ":";
+
 
 }
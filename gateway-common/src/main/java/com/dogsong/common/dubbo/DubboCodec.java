@@ -0,0 +1,347 @@
+package com.dogsong.common.dubbo;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageCodec;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dubbo 协议编解码，客户端和服务端共用
+ * <p>
+ * 帧格式和 Dubbo 2.x 的 dubbo 协议一致：16 字节的头（魔数 0xdabb、标志位与序列化方式、状态、请求ID、数据长度）加数据。
+ * 数据只支持 fastjson 序列化（序列化ID 6），每个字段是一行 json，和 Dubbo 的 FastJsonObjectOutput 相同，
+ * 服务提供方需要配置 serialization="fastjson"。
+ * </p>
+ * 编码 {@link DubboRequest}、{@link DubboResponse}，解码时按标志位还原成二者之一。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class DubboCodec extends ByteToMessageCodec<Object> {
+
+    public static final short MAGIC = (short) 0xdabb;
+
+    public static final int HEADER_LENGTH = 16;
+
+    public static final byte FLAG_REQUEST = (byte) 0x80;
+
+    public static final byte FLAG_TWOWAY = (byte) 0x40;
+
+    public static final byte FLAG_EVENT = (byte) 0x20;
+
+    public static final int SERIALIZATION_MASK = 0x1f;
+
+    public static final byte FASTJSON_SERIALIZATION_ID = 6;
+
+    public static final String DUBBO_VERSION = "2.0.2";
+
+    /** 响应状态 */
+    public static final byte OK = 20;
+    public static final byte CLIENT_TIMEOUT = 30;
+    public static final byte SERVER_TIMEOUT = 31;
+    public static final byte BAD_REQUEST = 40;
+    public static final byte BAD_RESPONSE = 50;
+    public static final byte SERVICE_NOT_FOUND = 60;
+    public static final byte SERVICE_ERROR = 70;
+    public static final byte SERVER_ERROR = 80;
+    public static final byte CLIENT_ERROR = 90;
+
+    /** 调用结果类型 */
+    public static final byte RESPONSE_WITH_EXCEPTION = 0;
+    public static final byte RESPONSE_VALUE = 1;
+    public static final byte RESPONSE_NULL_VALUE = 2;
+    public static final byte RESPONSE_WITH_EXCEPTION_WITH_ATTACHMENTS = 3;
+    public static final byte RESPONSE_VALUE_WITH_ATTACHMENTS = 4;
+    public static final byte RESPONSE_NULL_VALUE_WITH_ATTACHMENTS = 5;
+
+    /** 默认的最大数据长度，和 Dubbo 的 payload 默认值一致 */
+    public static final int DEFAULT_MAX_PAYLOAD = 8 * 1024 * 1024;
+
+    private static final byte LF = '\n';
+
+    private static final byte[] NULL_LINE = "null\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final SerializerFeature[] FEATURES = {SerializerFeature.WriteEnumUsingToString};
+
+    private final int maxPayload;
+
+    public DubboCodec() {
+        this(DEFAULT_MAX_PAYLOAD);
+    }
+
+    public DubboCodec(int maxPayload) {
+        this.maxPayload = maxPayload;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
+        int headerIndex = out.writerIndex();
+        out.writerIndex(headerIndex + HEADER_LENGTH);
+        byte flag;
+        long id;
+        byte status = 0;
+        if (msg instanceof DubboRequest) {
+            DubboRequest request = (DubboRequest) msg;
+            flag = (byte) (FLAG_REQUEST | FASTJSON_SERIALIZATION_ID);
+            if (request.isTwoWay()) {
+                flag |= FLAG_TWOWAY;
+            }
+            if (request.isEvent()) {
+                flag |= FLAG_EVENT;
+            }
+            id = request.getId();
+            encodeRequestData(request, out);
+        } else if (msg instanceof DubboResponse) {
+            DubboResponse response = (DubboResponse) msg;
+            flag = FASTJSON_SERIALIZATION_ID;
+            if (response.isEvent()) {
+                flag |= FLAG_EVENT;
+            }
+            id = response.getId();
+            status = response.getStatus();
+            encodeResponseData(response, out);
+        } else {
+            throw new EncoderException("unsupported message type: " + msg.getClass().getName());
+        }
+        int length = out.writerIndex() - headerIndex - HEADER_LENGTH;
+        if (length > maxPayload) {
+            throw new EncoderException("dubbo payload too large: " + length + ", max: " + maxPayload);
+        }
+        out.setShort(headerIndex, MAGIC);
+        out.setByte(headerIndex + 2, flag);
+        out.setByte(headerIndex + 3, status);
+        out.setLong(headerIndex + 4, id);
+        out.setInt(headerIndex + 12, length);
+    }
+
+    private static void encodeRequestData(DubboRequest request, ByteBuf out) throws IOException {
+        if (request.isEvent()) {
+            out.writeBytes(NULL_LINE);
+            return;
+        }
+        ByteBufOutputStream stream = new ByteBufOutputStream(out);
+        writeObject(stream, request.getDubboVersion());
+        writeObject(stream, request.getServiceName());
+        writeObject(stream, request.getServiceVersion());
+        writeObject(stream, request.getMethodName());
+        writeObject(stream, request.getParameterDesc());
+        Object[] args = request.getArgs();
+        if (args != null) {
+            for (Object arg : args) {
+                writeObject(stream, arg);
+            }
+        }
+        writeObject(stream, request.getAttachments());
+    }
+
+    private static void encodeResponseData(DubboResponse response, ByteBuf out) throws IOException {
+        if (response.isEvent()) {
+            out.writeBytes(NULL_LINE);
+            return;
+        }
+        ByteBufOutputStream stream = new ByteBufOutputStream(out);
+        if (response.getStatus() != OK) {
+            writeObject(stream, response.getErrorMessage());
+            return;
+        }
+        byte resultType = response.getResultType();
+        writeObject(stream, resultType);
+        if (resultType == RESPONSE_VALUE || resultType == RESPONSE_VALUE_WITH_ATTACHMENTS) {
+            out.writeBytes(response.getValue()).writeByte(LF);
+        } else if (resultType == RESPONSE_WITH_EXCEPTION || resultType == RESPONSE_WITH_EXCEPTION_WITH_ATTACHMENTS) {
+            JSONObject exception = new JSONObject();
+            exception.put("message", response.getErrorMessage());
+            writeObject(stream, exception);
+        }
+        if (resultType >= RESPONSE_WITH_EXCEPTION_WITH_ATTACHMENTS) {
+            writeObject(stream, new JSONObject());
+        }
+    }
+
+    /**
+     * 写一行 json，和 Dubbo 的 FastJsonObjectOutput.writeObject 一致
+     */
+    private static void writeObject(ByteBufOutputStream stream, Object value) throws IOException {
+        JSON.writeJSONString(stream, value, FEATURES);
+        stream.writeByte(LF);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (in.readableBytes() < HEADER_LENGTH) {
+            return;
+        }
+        int headerIndex = in.readerIndex();
+        if (in.getShort(headerIndex) != MAGIC) {
+            throw new CorruptedFrameException("bad dubbo magic: " + Integer.toHexString(in.getShort(headerIndex) & 0xffff));
+        }
+        int length = in.getInt(headerIndex + 12);
+        if (length < 0 || length > maxPayload) {
+            throw new TooLongFrameException("dubbo payload too large: " + length + ", max: " + maxPayload);
+        }
+        if (in.readableBytes() < HEADER_LENGTH + length) {
+            return;
+        }
+        byte flag = in.getByte(headerIndex + 2);
+        byte status = in.getByte(headerIndex + 3);
+        long id = in.getLong(headerIndex + 4);
+        int bodyIndex = headerIndex + HEADER_LENGTH;
+        int bodyEnd = bodyIndex + length;
+        in.readerIndex(bodyEnd);
+
+        boolean event = (flag & FLAG_EVENT) != 0;
+        if ((flag & SERIALIZATION_MASK) != FASTJSON_SERIALIZATION_ID && !(event && length <= NULL_LINE.length)) {
+            throw new CorruptedFrameException("unsupported dubbo serialization id: " + (flag & SERIALIZATION_MASK));
+        }
+        LineReader reader = new LineReader(in, bodyIndex, bodyEnd);
+        if ((flag & FLAG_REQUEST) != 0) {
+            DubboRequest request = new DubboRequest();
+            request.setId(id);
+            request.setTwoWay((flag & FLAG_TWOWAY) != 0);
+            request.setEvent(event);
+            if (!event) {
+                decodeRequestData(request, reader);
+            }
+            out.add(request);
+        } else {
+            DubboResponse response = new DubboResponse();
+            response.setId(id);
+            response.setEvent(event);
+            response.setStatus(status);
+            if (!event) {
+                decodeResponseData(response, reader);
+            }
+            out.add(response);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void decodeRequestData(DubboRequest request, LineReader reader) {
+        request.setDubboVersion(reader.readString());
+        request.setServiceName(reader.readString());
+        request.setServiceVersion(reader.readString());
+        request.setMethodName(reader.readString());
+        String parameterDesc = reader.readString();
+        request.setParameterDesc(parameterDesc);
+        Object[] args = new Object[countParameters(parameterDesc)];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = JSON.parse(reader.readLine());
+        }
+        request.setArgs(args);
+        if (reader.hasMore()) {
+            request.setAttachments(JSON.parseObject(reader.readLine(), Map.class));
+        }
+    }
+
+    private static void decodeResponseData(DubboResponse response, LineReader reader) {
+        if (response.getStatus() != OK) {
+            response.setErrorMessage(reader.readString());
+            return;
+        }
+        byte resultType = Byte.parseByte(reader.readLine().trim());
+        response.setResultType(resultType);
+        switch (resultType) {
+            case RESPONSE_VALUE:
+            case RESPONSE_VALUE_WITH_ATTACHMENTS:
+                response.setValue(reader.readBytes());
+                break;
+            case RESPONSE_WITH_EXCEPTION:
+            case RESPONSE_WITH_EXCEPTION_WITH_ATTACHMENTS:
+                Object exception = JSON.parse(reader.readLine());
+                response.setErrorMessage(exception instanceof JSONObject
+                        ? ((JSONObject) exception).getString("message") : String.valueOf(exception));
+                break;
+            case RESPONSE_NULL_VALUE:
+            case RESPONSE_NULL_VALUE_WITH_ATTACHMENTS:
+                break;
+            default:
+                throw new CorruptedFrameException("unknown dubbo result type: " + resultType);
+        }
+    }
+
+    /**
+     * 参数类型描述符中的参数个数，例如 Ljava/lang/String;[I 为 2
+     *
+     * @param desc 描述符
+     */
+    public static int countParameters(String desc) {
+        if (desc == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < desc.length(); i++) {
+            char c = desc.charAt(i);
+            if (c == '[') {
+                continue;
+            }
+            if (c == 'L') {
+                i = desc.indexOf(';', i);
+                if (i < 0) {
+                    throw new CorruptedFrameException("bad parameter desc: " + desc);
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 按行读取数据部分
+     */
+    private static final class LineReader {
+
+        private final ByteBuf buf;
+
+        private int index;
+
+        private final int end;
+
+        LineReader(ByteBuf buf, int index, int end) {
+            this.buf = buf;
+            this.index = index;
+            this.end = end;
+        }
+
+        boolean hasMore() {
+            return index < end;
+        }
+
+        String readString() {
+            return JSON.parseObject(readLine(), String.class);
+        }
+
+        String readLine() {
+            int lineEnd = lineEnd();
+            String line = buf.toString(index, lineEnd - index, StandardCharsets.UTF_8);
+            index = lineEnd + 1;
+            return line;
+        }
+
+        byte[] readBytes() {
+            int lineEnd = lineEnd();
+            byte[] bytes = ByteBufUtil.getBytes(buf, index, lineEnd - index);
+            index = lineEnd + 1;
+            return bytes;
+        }
+
+        private int lineEnd() {
+            if (index >= end) {
+                throw new CorruptedFrameException("unexpected end of dubbo data");
+            }
+            int lineEnd = buf.indexOf(index, end, LF);
+            return lineEnd < 0 ? end : lineEnd;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.dogsong.common.dubbo;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Dubbo 协议的请求帧
+ * <p>
+ * event 为 true 时是心跳等事件，只有 id 有意义；否则为一次方法调用，
+ * 泛化调用时 methodName 为 $invoke，args 为 [方法名, 参数类型数组, 参数数组]。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Data
+public class DubboRequest {
+
+    private long id;
+
+    /** 是否需要响应 */
+    private boolean twoWay = true;
+
+    /** 是否是心跳事件 */
+    private boolean event;
+
+    /** 协议版本 */
+    private String dubboVersion = DubboCodec.DUBBO_VERSION;
+
+    /** 服务路径，一般为接口全名 */
+    private String serviceName;
+
+    /** 服务版本 */
+    private String serviceVersion;
+
+    private String methodName;
+
+    /** 参数类型描述符，例如 Ljava/lang/String;I */
+    private String parameterDesc;
+
+    private Object[] args;
+
+    private Map<String, String> attachments;
+}
@@ -0,0 +1,42 @@
+package com.dogsong.common.dubbo;
+
+import lombok.Data;
+
+/**
+ * Dubbo 协议的响应帧
+ * <p>
+ * 返回值保留序列化后的 json 字节，网关不需要理解返回值，原样写回客户端即可，省掉一次反序列化和序列化。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Data
+public class DubboResponse {
+
+    private long id;
+
+    /** 是否是心跳事件的响应 */
+    private boolean event;
+
+    /** 响应状态，{@link DubboCodec#OK} 表示调用完成（结果仍然可能是业务异常） */
+    private byte status = DubboCodec.OK;
+
+    /** 调用结果类型：返回值、空值、异常，见 DubboCodec.RESPONSE_* */
+    private byte resultType = DubboCodec.RESPONSE_NULL_VALUE;
+
+    /** json 格式的返回值，没有返回值时为 null */
+    private byte[] value;
+
+    /** 调用异常或者状态不为 OK 时的错误信息 */
+    private String errorMessage;
+
+    /**
+     * 调用是否成功返回（包括返回 null）
+     */
+    public boolean isSuccess() {
+        return status == DubboCodec.OK
+                && resultType != DubboCodec.RESPONSE_WITH_EXCEPTION
+                && resultType != DubboCodec.RESPONSE_WITH_EXCEPTION_WITH_ATTACHMENTS;
+    }
+}
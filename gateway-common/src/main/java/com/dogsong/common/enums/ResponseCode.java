@@ -25,6 +25,7 @@ public enum ResponseCode {
     FILTER_CONFIG_PARSE_ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR,10006, "过滤器配置解析异常"),
 
     REQUEST_TIMEOUT(HttpResponseStatus.GATEWAY_TIMEOUT, 10007, "连接下游服务超时"),
+    FLOW_CONTROL_ERROR(HttpResponseStatus.TOO_MANY_REQUESTS, 10008, "请求过量, 请稍后再试"),
 
     HTTP_RESPONSE_ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR, 10030, "服务返回异常"),
 
@@ -35,6 +36,13 @@ public enum ResponseCode {
     DUBBO_CONNECT_ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR, 10022, "下游服务发生异常,请稍后再试"),
     DUBBO_REQUEST_ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR, 10028, "服务请求异常"),
     DUBBO_RESPONSE_ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR, 10029, "服务返回异常"),
+
+    GRPC_ROUTE_CONFIG_ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR, 10040, "gRPC路由配置错误"),
+    GRPC_METHOD_NOT_FOUND(HttpResponseStatus.NOT_FOUND, 10041, "方法不存在"),
+    GRPC_PARAMETER_VALUE_ERROR(HttpResponseStatus.BAD_REQUEST, 10042, "请求参数解析错误"),
+    GRPC_CONNECT_ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR, 10043, "下游服务发生异常,请稍后再试"),
+    GRPC_RESPONSE_ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR, 10044, "服务返回异常"),
+
     VERIFICATION_FAILED(HttpResponseStatus.BAD_REQUEST,10030, "请求参数校验失败"),
     BLACKLIST(HttpResponseStatus.FORBIDDEN,10004, "请求IP在黑名单"),
     WHITELIST(HttpResponseStatus.FORBIDDEN,10005, "请求IP不在白名单")
@@ -0,0 +1,37 @@
+package com.dogsong.common.exception;
+
+import com.dogsong.common.enums.ResponseCode;
+import lombok.Getter;
+
+/**
+ * 网关异常基类，携带对应的响应码
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/28
+ */
+public class BaseException extends RuntimeException {
+
+    private static final long serialVersionUID = -5658789202563433456L;
+
+    @Getter
+    protected ResponseCode code;
+
+    public BaseException() {
+    }
+
+    public BaseException(String message, ResponseCode code) {
+        super(message);
+        this.code = code;
+    }
+
+    public BaseException(String message, Throwable cause, ResponseCode code) {
+        super(message, cause);
+        this.code = code;
+    }
+
+    public BaseException(ResponseCode code, Throwable cause) {
+        super(cause);
+        this.code = code;
+    }
+
+}
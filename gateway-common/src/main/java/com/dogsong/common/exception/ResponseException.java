@@ -0,0 +1,27 @@
+package com.dogsong.common.exception;
+
+import com.dogsong.common.enums.ResponseCode;
+
+/**
+ * 需要直接按响应码返回给客户端的异常
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/28
+ */
+public class ResponseException extends BaseException {
+
+    private static final long serialVersionUID = -5658789202509039759L;
+
+    public ResponseException(ResponseCode code) {
+        super(code.getMessage(), code);
+    }
+
+    public ResponseException(String message, ResponseCode code) {
+        super(message, code);
+    }
+
+    public ResponseException(Throwable cause, ResponseCode code) {
+        super(code.getMessage(), cause, code);
+    }
+
+}
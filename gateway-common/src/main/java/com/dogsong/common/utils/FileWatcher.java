@@ -0,0 +1,126 @@
+package com.dogsong.common.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 监听一个目录下的文件变化，在单独的守护线程上执行重新加载
+ * <p>
+ * 目录下有文件名满足 filter 的文件被创建、修改或删除时，先等待 delayMillis，丢弃这段时间里堆积的事件，
+ * 再执行一次 onChange：编辑器保存、批量替换文件时会连续触发多次事件，合并成一次加载。
+ * onChange 抛出的异常只记录日志，不影响之后的监听。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Slf4j
+public class FileWatcher {
+
+    private final String name;
+
+    private final Path directory;
+
+    private final Predicate<Path> filter;
+
+    private final long delayMillis;
+
+    private final Runnable onChange;
+
+    private WatchService watchService;
+
+    private Thread watchThread;
+
+    private volatile boolean running;
+
+    /**
+     * @param name        监听线程的名字，同时用于日志
+     * @param directory   监听的目录
+     * @param filter      按文件名（相对 directory 的 Path）过滤关心的文件
+     * @param delayMillis 收到变化后等待合并的时间
+     * @param onChange    重新加载
+     */
+    public FileWatcher(String name, Path directory, Predicate<Path> filter, long delayMillis, Runnable onChange) {
+        this.name = name;
+        this.directory = directory;
+        this.filter = filter;
+        this.delayMillis = delayMillis;
+        this.onChange = onChange;
+    }
+
+    /**
+     * 开始监听，目录无法监听时抛出 IllegalStateException
+     */
+    public void start() {
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            throw new IllegalStateException(name + " watch directory error: " + directory, e);
+        }
+        this.running = true;
+        this.watchThread = new Thread(this::watch, name);
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * 停止监听
+     */
+    public void shutdown() {
+        running = false;
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            log.warn("{} close watch service error", name, e);
+        }
+    }
+
+    private void watch() {
+        while (running) {
+            try {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path && filter.test((Path) event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    TimeUnit.MILLISECONDS.sleep(delayMillis);
+                    drainEvents();
+                    onChange.run();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (Throwable t) {
+                log.error("{} watch directory error: {}", name, directory, t);
+            }
+        }
+    }
+
+    private void drainEvents() {
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            key.pollEvents();
+            key.reset();
+        }
+    }
+}
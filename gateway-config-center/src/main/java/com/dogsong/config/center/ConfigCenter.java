@@ -0,0 +1,33 @@
+package com.dogsong.config.center;
+
+/**
+ * 配置中心接口
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+public interface ConfigCenter {
+
+    /**
+     * 初始化
+     *
+     * @param serverAddr 配置中心地址
+     * @param env        环境
+     */
+    void init(String serverAddr, String env);
+
+    /**
+     * 订阅规则变更
+     * <p>
+     * 订阅时先推送一次当前的全量规则，之后每次变更都推送新版本的全量规则
+     * </p>
+     *
+     * @param listener 监听器
+     */
+    void subscribeRulesChange(RulesChangeListener listener);
+
+    /**
+     * 关闭
+     */
+    void shutdown();
+}
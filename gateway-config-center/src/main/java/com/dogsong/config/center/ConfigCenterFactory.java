@@ -0,0 +1,39 @@
+package com.dogsong.config.center;
+
+import com.dogsong.config.center.local.FileConfigCenter;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 根据配置中心地址选择配置中心实现
+ * <p>
+ * file: 开头的地址使用本地文件（或目录）配置中心，地址为空时不使用配置中心
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+public class ConfigCenterFactory {
+
+    public static final String FILE_PREFIX = "file:";
+
+    private ConfigCenterFactory() {}
+
+    /**
+     * 创建并初始化配置中心
+     *
+     * @param serverAddr 配置中心地址
+     * @param env        环境
+     * @return 地址为空时返回 null
+     */
+    public static ConfigCenter create(String serverAddr, String env) {
+        if (StringUtils.isBlank(serverAddr)) {
+            return null;
+        }
+        if (!serverAddr.startsWith(FILE_PREFIX)) {
+            throw new IllegalArgumentException("unsupported config center address: " + serverAddr);
+        }
+        ConfigCenter configCenter = new FileConfigCenter();
+        configCenter.init(serverAddr, env);
+        return configCenter;
+    }
+}
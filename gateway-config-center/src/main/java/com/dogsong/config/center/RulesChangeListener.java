@@ -0,0 +1,22 @@
+package com.dogsong.config.center;
+
+import com.dogsong.common.config.Rule;
+
+import java.util.List;
+
+/**
+ * 规则变更监听器
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+public interface RulesChangeListener {
+
+    /**
+     * 规则变更
+     *
+     * @param version 规则版本，单调递增，接收方据此丢弃过期的变更
+     * @param rules   变更后的全量规则
+     */
+    void onRulesChange(long version, List<Rule> rules);
+}
@@ -0,0 +1,135 @@
+package com.dogsong.config.center.local;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.utils.FileWatcher;
+import com.dogsong.common.utils.JSONUtil;
+import com.dogsong.config.center.ConfigCenter;
+import com.dogsong.config.center.ConfigCenterFactory;
+import com.dogsong.config.center.RulesChangeListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 基于本地文件的配置中心，用于没有远程配置中心时的替代
+ * <p>
+ * 地址格式为 file:/path/rules.json 或 file:/path/rules/，
+ * 文件内容是 Rule 的 json 数组（也可以是单个 Rule），目录时读取目录下所有 .json 文件。
+ * 通过 FileWatcher 监听变化，每次变化都重新解析全量规则，解析成功后推送一个新版本；
+ * 解析失败时保留当前版本，不推送。解析在监听线程上完成，不占用请求线程。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+@Slf4j
+public class FileConfigCenter implements ConfigCenter {
+
+    private static final String JSON_SUFFIX = ".json";
+
+    private Path path;
+
+    private boolean directory;
+
+    private FileWatcher watcher;
+
+    /** 规则版本，以启动时间为起点递增，重启后仍然大于之前推送过的版本 */
+    private long version;
+
+    private List<Rule> rules = Collections.emptyList();
+
+    private final List<RulesChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void init(String serverAddr, String env) {
+        this.path = Paths.get(serverAddr.substring(ConfigCenterFactory.FILE_PREFIX.length())).toAbsolutePath();
+        this.directory = Files.isDirectory(path);
+        this.version = System.currentTimeMillis();
+        reload();
+        // 批量修改文件时会连续触发多次事件，稍等一下合并成一次加载
+        this.watcher = new FileWatcher("config-center-file-watcher", directory ? path : path.getParent(),
+                this::isRuleFile, 100, this::reload);
+        watcher.start();
+    }
+
+    @Override
+    public synchronized void subscribeRulesChange(RulesChangeListener listener) {
+        listeners.add(listener);
+        notify(listener, version, rules);
+    }
+
+    @Override
+    public void shutdown() {
+        if (watcher != null) {
+            watcher.shutdown();
+        }
+        listeners.clear();
+    }
+
+    private boolean isRuleFile(Path name) {
+        return directory
+                ? name.toString().endsWith(JSON_SUFFIX)
+                : path.getFileName().equals(name);
+    }
+
+    /**
+     * 重新解析全量规则并推送新版本
+     */
+    private synchronized void reload() {
+        List<Rule> latest;
+        long start = System.nanoTime();
+        try {
+            latest = load();
+        } catch (Throwable t) {
+            log.error("load rules error, keep current version {}: {}", version, path, t);
+            return;
+        }
+        this.version++;
+        this.rules = Collections.unmodifiableList(latest);
+        log.info("load rules from {}, version: {}, rules: {}, cost: {}ms",
+                path, version, latest.size(), (System.nanoTime() - start) / 1000_000);
+        for (RulesChangeListener listener : listeners) {
+            notify(listener, version, rules);
+        }
+    }
+
+    private List<Rule> load() throws IOException {
+        if (!directory) {
+            return Files.exists(path) ? parse(path) : Collections.emptyList();
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(path)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(JSON_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        List<Rule> latest = new ArrayList<>();
+        for (Path file : files) {
+            latest.addAll(parse(file));
+        }
+        return latest;
+    }
+
+    private static List<Rule> parse(Path file) throws IOException {
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        return JSONUtil.parseToList(json, Rule.class);
+    }
+
+    private static void notify(RulesChangeListener listener, long version, List<Rule> rules) {
+        try {
+            listener.onRulesChange(version, rules);
+        } catch (Throwable t) {
+            log.error("notify rules change listener error, version: {}", version, t);
+        }
+    }
+}
@@ -1,5 +1,18 @@
 package com.dogsong.core;
 
+import com.dogsong.common.config.ServiceDefinition;
+import com.dogsong.common.config.ServiceInstance;
+import com.dogsong.common.constants.BasicConst;
+import com.dogsong.common.utils.RemotingUtil;
+import com.dogsong.common.utils.TimeUtil;
+import com.dogsong.config.center.ConfigCenter;
+import com.dogsong.config.center.ConfigCenterFactory;
+import com.dogsong.core.discovery.ServiceManager;
+import com.dogsong.core.filter.GatewayFilterChainFactory;
+import com.dogsong.core.route.RouteManager;
+import com.dogsong.register.center.RegisterCenter;
+import com.dogsong.register.center.RegisterCenterFactory;
+
 /**
  * 网关启动类
  *
@@ -13,9 +26,49 @@ public class Bootstrap {
         Config config = ConfigLoader.getInstance().load(args);
         System.out.println(config.getPort());
         //插件初始化
+        GatewayFilterChainFactory.getInstance();
         //配置中心管理器初始化，连接配置中心，监听配置的新增、修改、删除
+        ConfigCenter configCenter = ConfigCenterFactory.create(config.getConfigAddress(), config.getEnv());
+        if (configCenter != null) {
+            configCenter.subscribeRulesChange((version, rules) -> RouteManager.getInstance().putAllRules(version, rules));
+        }
         //启动容器
+        Container container = new Container(config);
+        container.start();
         //连接注册中心，将注册中心的实例加载到本地
+        RegisterCenter registerCenter = RegisterCenterFactory.create(config.getRegistryAddress(), config.getEnv());
+        ServiceDefinition serviceDefinition = buildGatewayServiceDefinition(config);
+        ServiceInstance serviceInstance = buildGatewayServiceInstance(config);
+        registerCenter.register(serviceDefinition, serviceInstance);
+        registerCenter.subscribeAllServices(ServiceManager.getInstance());
         //服务优雅关机
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            registerCenter.deregister(serviceDefinition, serviceInstance);
+            registerCenter.shutdown();
+            if (configCenter != null) {
+                configCenter.shutdown();
+            }
+            container.shutdown();
+        }));
+    }
+
+    private static ServiceDefinition buildGatewayServiceDefinition(Config config) {
+        return ServiceDefinition.builder()
+                .uniqueId(config.getApplicationName())
+                .serviceId(config.getApplicationName())
+                .protocol(BasicConst.PROTOCOL_HTTP)
+                .envType(config.getEnv())
+                .build();
+    }
+
+    private static ServiceInstance buildGatewayServiceInstance(Config config) {
+        String localIp = RemotingUtil.getLocalAddress();
+        return ServiceInstance.builder()
+                .serviceInstanceId(localIp + BasicConst.COLON_SEPARATOR + config.getPort())
+                .uniqueId(config.getApplicationName())
+                .ip(localIp)
+                .port(config.getPort())
+                .registerTime(TimeUtil.currentTimeMillis())
+                .build();
     }
 }
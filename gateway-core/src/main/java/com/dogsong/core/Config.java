@@ -17,14 +17,161 @@ public class Config {
 
     private String registryAddress = "127.0.0.1:7001";
 
+    /** 配置中心地址，例如 file:/path/rules.json 或 file:/path/rules/，为空时不使用配置中心 */
+    private String configAddress = "";
+
     private String env = "dev";
 
+    /** 管理端口，提供 /metrics 指标抓取，小于等于 0 时不启动 */
+    private int adminPort = 7002;
+
+    /** 是否输出访问日志（logger 名为 accessLog），包含每个处理阶段的耗时 */
+    private boolean accessLogEnabled = true;
+
+    /** boss 线程数，epoll 下开启 SO_REUSEPORT 时每个 boss 线程绑定一个监听 channel */
     private int eventLoopGroupBossNum = 1;
 
     private int eventLoopGroupWorkerNum = Runtime.getRuntime().availableProcessors();
 
     private int maxContentLength = 64 * 1024 * 1024;
 
-    /** 默认单异步模式 */
+    /**
+     * 默认单异步模式：下游响应在 AsyncHttpClient 的 I/O 线程上直接回调；
+     * 关闭后为双异步模式：回调投递到客户端连接所在的 EventLoop 上执行
+     */
     private boolean whenComplete = true;
+
+    /**
+     * 可信代理的网段，逗号分隔，例如 10.0.0.0/8,192.168.1.1；直连地址在其中时才按 X-Forwarded-For 取客户端地址，
+     * 为空时不信任 X-Forwarded-For，客户端地址就是直连地址
+     */
+    private String trustedProxies = "";
+
+    //	连接参数选项：
+
+    /** 监听 channel 的全连接队列长度（SO_BACKLOG） */
+    private int serverBacklog = 1024;
+
+    /**
+     * epoll 下是否开启 SO_REUSEPORT：同一端口按 boss 线程数绑定多个监听 channel，
+     * 由内核把新连接分散到各个 channel，避免只有一个线程 accept
+     */
+    private boolean serverReusePort = true;
+
+    /** 客户端连接是否关闭 Nagle 算法（TCP_NODELAY） */
+    private boolean tcpNoDelay = true;
+
+    /** 客户端连接写缓冲的低水位，写缓冲降到低水位以下后重新可写 */
+    private int writeBufferLowWaterMark = 32 * 1024;
+
+    /** 客户端连接写缓冲的高水位，超过后不可写，流式转发暂停读取下游 */
+    private int writeBufferHighWaterMark = 64 * 1024;
+
+    /** 是否使用池化的 ByteBuf 分配器，关闭后使用非池化的分配器 */
+    private boolean pooledAllocatorEnabled = true;
+
+    /** 客户端连接空闲（没有读写）超时时间，超时后关闭连接，小于等于 0 时不检测 */
+    private int serverIdleTimeout = 60 * 1000;
+
+    //	HTTP/2 参数选项：
+
+    /** 是否支持 HTTP/2，明文端口上支持 h2c 升级（Upgrade: h2c）和 prior knowledge */
+    private boolean http2Enabled = true;
+
+    /** 每个 HTTP/2 连接上同时进行的最大流数 */
+    private int http2MaxConcurrentStreams = 128;
+
+    /** HTTP/2 流的初始流控窗口 */
+    private int http2InitialWindowSize = 1024 * 1024;
+
+    /** HTTP/2 连接级流控窗口，所有流共享 */
+    private int http2ConnectionWindowSize = 4 * 1024 * 1024;
+
+    //	TLS 参数选项：
+
+    /** TLS 端口，小于等于 0 时不启动；和明文端口共用 EventLoopGroup 和处理流程 */
+    private int tlsPort = 0;
+
+    /** 证书目录，每个域名一对 PEM 文件：域名.crt 和 PKCS#8 格式的域名.key，例如 *.dogsong.com.crt，default.crt 是默认证书 */
+    private String tlsCertDir = "";
+
+    /** 是否优先使用 OpenSSL（netty-tcnative），不可用时使用 JDK 实现 */
+    private boolean tlsOpenSslEnabled = true;
+
+    /** 启用的 TLS 协议版本，逗号分隔；使用 JDK 实现时忽略当前 JDK 不支持的版本 */
+    private String tlsProtocols = "TLSv1.3,TLSv1.2";
+
+    /** 每个证书的服务端会话缓存大小 */
+    private long tlsSessionCacheSize = 20 * 1024;
+
+    /** 会话缓存、会话票据的有效时间，单位秒 */
+    private long tlsSessionTimeout = 300;
+
+    //	Http Async 参数选项：
+
+    /** 连接超时时间 */
+    private int httpConnectTimeout = 30 * 1000;
+
+    /** 请求超时时间 */
+    private int httpRequestTimeout = 30 * 1000;
+
+    /** 客户端请求重试次数 */
+    private int httpMaxRequestRetry = 2;
+
+    /** 客户端请求最大连接数 */
+    private int httpMaxConnections = 10000;
+
+    /** 客户端每个地址支持的最大连接数 */
+    private int httpConnectionsPerHost = 8000;
+
+    /** 客户端空闲连接超时时间, 默认60秒 */
+    private int httpPooledConnectionIdleTimeout = 60 * 1000;
+
+    /** 是否和下游保持长连接 */
+    private boolean httpKeepAlive = true;
+
+    //	Dubbo 参数选项：
+
+    /** 连接服务提供方的超时时间 */
+    private int dubboConnectTimeout = 3 * 1000;
+
+    /** 路由没有配置超时时间时的请求超时时间 */
+    private int dubboRequestTimeout = 3 * 1000;
+
+    /** 单个请求、响应的最大数据长度 */
+    private int dubboMaxPayload = 8 * 1024 * 1024;
+
+    //	gRPC 参数选项：
+
+    /** 连接 gRPC 服务的超时时间 */
+    private int grpcConnectTimeout = 3 * 1000;
+
+    /** 路由没有配置超时时间时的请求超时时间 */
+    private int grpcRequestTimeout = 3 * 1000;
+
+    /** 单个请求、响应消息的最大长度 */
+    private int grpcMaxMessageSize = 4 * 1024 * 1024;
+
+    /** HTTP/2 流的初始流控窗口，连接级窗口按同样大小扩大 */
+    private int grpcInitialWindowSize = 1024 * 1024;
+
+    //	业务分发参数选项：
+
+    /** 请求分发方式：inline（在 EventLoop 上执行）、worker（业务线程池）、virtual（JDK 21 虚拟线程） */
+    private String dispatchMode = "inline";
+
+    /** worker 模式下的业务线程数 */
+    private int dispatchWorkerNum = Runtime.getRuntime().availableProcessors() * 2;
+
+    /** worker 模式下每个业务线程的队列长度，virtual 模式下为最大在途请求数，超过后直接返回服务不可用 */
+    private int dispatchQueueSize = 16 * 1024;
+
+    /** 流控时每条按 IP、服务ID 限流的规则最多保留的 key 数量，超过后淘汰最少使用的 */
+    private long flowCtlMaxKeys = 100_000;
+
+    /** 响应缓存最多占用的堆外内存，单位字节 */
+    private long responseCacheMaxBytes = 256L * 1024 * 1024;
+
+    /** 是否开启对象池，开启后请求包装、网关请求和上下文都从 EventLoop 本地的对象池中复用 */
+    private boolean contextPoolEnabled = false;
 }
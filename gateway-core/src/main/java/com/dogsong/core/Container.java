@@ -0,0 +1,96 @@
+package com.dogsong.core;
+
+import com.dogsong.core.metrics.GatewayMetrics;
+import com.dogsong.core.metrics.MetricsHttpServer;
+import com.dogsong.core.netty.NettyCoreProcessor;
+import com.dogsong.core.netty.NettyDispatchProcessor;
+import com.dogsong.core.netty.NettyDubboClient;
+import com.dogsong.core.netty.NettyGrpcClient;
+import com.dogsong.core.netty.NettyHttpClient;
+import com.dogsong.core.netty.NettyHttpServer;
+import com.dogsong.core.response.ErrorResponses;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 容器，组装网关的各个组件
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/29
+ */
+@Slf4j
+public class Container implements LifeCycle {
+
+    private final Config config;
+
+    private NettyHttpServer nettyHttpServer;
+
+    private NettyHttpClient nettyHttpClient;
+
+    private NettyDubboClient nettyDubboClient;
+
+    private NettyGrpcClient nettyGrpcClient;
+
+    private NettyDispatchProcessor nettyProcessor;
+
+    private MetricsHttpServer metricsHttpServer;
+
+    public Container(Config config) {
+        this.config = config;
+        init();
+    }
+
+    /**
+     * 初始化
+     */
+    @Override
+    public void init() {
+        ErrorResponses.init();
+        // 按配置的分发方式把请求交给核心处理器
+        this.nettyProcessor = new NettyDispatchProcessor(config, new NettyCoreProcessor(config));
+        this.nettyHttpServer = new NettyHttpServer(config, nettyProcessor);
+        // 下游客户端复用服务端的 worker 线程
+        this.nettyHttpClient = new NettyHttpClient(config, nettyHttpServer.getEventLoopGroupWorker());
+        this.nettyDubboClient = new NettyDubboClient(config, nettyHttpServer.getEventLoopGroupWorker());
+        this.nettyGrpcClient = new NettyGrpcClient(config, nettyHttpServer.getEventLoopGroupWorker());
+        if (config.getAdminPort() > 0) {
+            this.metricsHttpServer = new MetricsHttpServer(config);
+        }
+        GatewayMetrics.getInstance().register(writer -> {
+            writer.family("gateway_dispatch_queue_depth", "gauge", "Requests waiting in dispatch queues.")
+                    .sample("gateway_dispatch_queue_depth", null, nettyProcessor.getQueueDepth());
+            writer.family("gateway_dispatch_rejected_total", "counter", "Requests rejected because dispatch queues were full.")
+                    .sample("gateway_dispatch_rejected_total", null, nettyProcessor.getRejectedCount());
+        });
+    }
+
+    /**
+     * 启动
+     */
+    @Override
+    public void start() {
+        nettyHttpClient.start();
+        nettyDubboClient.start();
+        nettyGrpcClient.start();
+        nettyProcessor.start();
+        nettyHttpServer.start();
+        if (metricsHttpServer != null) {
+            metricsHttpServer.start();
+        }
+        log.info("api gateway started!");
+    }
+
+    /**
+     * 关闭
+     */
+    @Override
+    public void shutdown() {
+        if (metricsHttpServer != null) {
+            metricsHttpServer.shutdown();
+        }
+        nettyHttpServer.shutdown();
+        nettyProcessor.shutdown();
+        nettyHttpClient.shutdown();
+        nettyDubboClient.shutdown();
+        nettyGrpcClient.shutdown();
+    }
+}
@@ -4,6 +4,7 @@ import com.dogsong.common.config.Rule;
 import io.netty.channel.ChannelHandlerContext;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,14 +19,14 @@ import java.util.function.Consumer;
  */
 public abstract class BasicContext implements IContext {
 
-    /** 转发协议, 例如http或dubbo等，因为是一开始就决定了，所以加上final */
-    protected final String protocol;
+    /** 转发协议, 例如http或dubbo等，一开始就决定了，池化模式下随对象复用重新设置 */
+    protected String protocol;
 
     /** 上下文状态, 因为后面可能涉及到多线程共享，所以加上volatile关键字 */
     protected volatile int status  = IContext.RUNNING;
 
     /** Netty上下文 */
-    protected final ChannelHandlerContext nettyCtx;
+    protected ChannelHandlerContext nettyCtx;
 
     /** 上下文参数集合 */
     protected final Map<String, Object> attributes = new HashMap<>();
@@ -34,7 +35,7 @@ public abstract class BasicContext implements IContext {
     protected Throwable throwable;
 
     /** 是否保持长连接 */
-    protected final boolean keepAlive;
+    protected boolean keepAlive;
 
     /** 是否已经释放资源 */
     protected final AtomicBoolean requestReleased = new AtomicBoolean(false);
@@ -42,12 +43,97 @@ public abstract class BasicContext implements IContext {
     /** 存放回调函数的集合 */
     protected List<Consumer<IContext>> completedCallbacks;
 
+    /** 各个时间点的 System.nanoTime()，下标为 {@link RequestPhase#ordinal()}，没有记录的为 0 */
+    protected final long[] phaseNanos = new long[RequestPhase.COUNT];
+
     public BasicContext(String protocol, ChannelHandlerContext nettyCtx, boolean keepAlive) {
         this.protocol = protocol;
         this.nettyCtx = nettyCtx;
         this.keepAlive = keepAlive;
     }
 
+    /**
+     * 池化复用时重新设置上下文
+     */
+    protected void init(String protocol, ChannelHandlerContext nettyCtx, boolean keepAlive) {
+        this.protocol = protocol;
+        this.nettyCtx = nettyCtx;
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * 归还对象池之前清理上下文，集合只清空不丢弃，复用时不再重新分配
+     */
+    protected void reset() {
+        protocol = null;
+        nettyCtx = null;
+        keepAlive = false;
+        status = IContext.RUNNING;
+        throwable = null;
+        attributes.clear();
+        if (completedCallbacks != null) {
+            completedCallbacks.clear();
+        }
+        requestReleased.set(false);
+        Arrays.fill(phaseNanos, 0L);
+    }
+
+    /**
+     * 记录当前时间为某个时间点
+     *
+     * @param phase 时间点
+     */
+    public void markPhase(RequestPhase phase) {
+        phaseNanos[phase.ordinal()] = System.nanoTime();
+    }
+
+    /**
+     * 记录某个时间点，用于在别处（I/O 线程、下游回调）取得的时间
+     *
+     * @param phase 时间点
+     * @param nanos System.nanoTime()，为 0 时忽略
+     */
+    public void markPhase(RequestPhase phase, long nanos) {
+        if (nanos != 0) {
+            phaseNanos[phase.ordinal()] = nanos;
+        }
+    }
+
+    /**
+     * 获取某个时间点，没有记录时为 0
+     *
+     * @param phase 时间点
+     */
+    public long getPhaseNanos(RequestPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * 以某个时间点结束的阶段耗时，没有记录时返回 -1
+     *
+     * @param phase 时间点
+     */
+    public long getStageNanos(RequestPhase phase) {
+        return RequestPhase.stageNanos(phaseNanos, phase.ordinal());
+    }
+
+    /**
+     * 从第一个记录的时间点到最后一个记录的时间点的总耗时，没有记录时返回 -1
+     */
+    public long getElapsedNanos() {
+        long first = 0;
+        long last = 0;
+        for (long nanos : phaseNanos) {
+            if (nanos != 0) {
+                if (first == 0) {
+                    first = nanos;
+                }
+                last = nanos;
+            }
+        }
+        return first != 0 ? last - first : -1;
+    }
+
 
     /**
      * 设置运行状态
@@ -218,11 +304,9 @@ public abstract class BasicContext implements IContext {
 
     /**
      * 调用回调函数
-     *
-     * @param consumer
      */
     @Override
-    public void invokeCompletedCallBack(Consumer<IContext> consumer) {
+    public void invokeCompletedCallBack() {
         if (completedCallbacks == null) {
             return;
         }
@@ -5,6 +5,7 @@ import com.dogsong.common.utils.AssertUtil;
 import com.dogsong.core.request.GatewayRequest;
 import com.dogsong.core.response.GatewayResponse;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Recycler;
 import io.netty.util.ReferenceCountUtil;
 
 /**
@@ -15,17 +16,50 @@ import io.netty.util.ReferenceCountUtil;
  */
 public class GatewayContext extends BasicContext {
 
-    private final GatewayRequest request;
+    private GatewayRequest request;
 
     private GatewayResponse response;
 
-    private final Rule rule;
+    private Rule rule;
+
+    /** 挂起后、过滤器链退出时执行的动作 */
+    private Runnable suspendedAction;
+
+    private static final Recycler<GatewayContext> RECYCLER = new Recycler<GatewayContext>() {
+        @Override
+        protected GatewayContext newObject(Handle<GatewayContext> handle) {
+            return new GatewayContext(handle);
+        }
+    };
+
+    /** 对象池回收句柄，非池化创建的对象为 null */
+    private final Recycler.Handle<GatewayContext> handle;
 
     public GatewayContext(String protocol, ChannelHandlerContext nettyCtx, boolean keepAlive,
                           GatewayRequest request, Rule rule) {
         super(protocol, nettyCtx, keepAlive);
         this.request = request;
         this.rule = rule;
+        this.handle = null;
+    }
+
+    private GatewayContext(Recycler.Handle<GatewayContext> handle) {
+        super(null, null, false);
+        this.handle = handle;
+    }
+
+    /**
+     * 从当前线程（EventLoop）的对象池中获取上下文，{@link #releaseRequest()} 时连同请求对象一起归还
+     */
+    public static GatewayContext newInstance(String protocol, ChannelHandlerContext nettyCtx, boolean keepAlive,
+                                             GatewayRequest request, Rule rule) {
+        AssertUtil.notNull(request, "request不能为空");
+        AssertUtil.notNull(rule, "rule不能为空");
+        GatewayContext context = RECYCLER.get();
+        context.init(protocol, nettyCtx, keepAlive);
+        context.request = request;
+        context.rule = rule;
+        return context;
     }
 
     /**
@@ -59,6 +93,21 @@ public class GatewayContext extends BasicContext {
         return rule.getFilterConfig(filterId);
     }
 
+    @Override
+    public GatewayRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public GatewayResponse getResponse() {
+        return response;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
     /**
      * 获取上下文中唯一的UniqueId
      */
@@ -68,14 +117,49 @@ public class GatewayContext extends BasicContext {
 
     /**
      * 重写覆盖父类：basicContext的该方法，主要用于真正的释放操作
+     * <p>
+     * 池化模式下这里是上下文生命周期的终点：请求和上下文都会归还对象池，调用之后不能再使用该上下文
+     * </p>
      */
     @Override
     public void releaseRequest() {
         if(requestReleased.compareAndSet(false, true)) {
             ReferenceCountUtil.release(request.getFullHttpRequest());
+            if (handle != null) {
+                request.recycle();
+                request = null;
+                response = null;
+                rule = null;
+                suspendedAction = null;
+                reset();
+                handle.recycle(this);
+            }
         }
     }
 
+    /**
+     * 挂起请求：当前过滤器之后的过滤器不再执行，过滤器链退出后执行 action，
+     * 由 action 在结果就绪时调用 {@link com.dogsong.core.filter.GatewayFilterChain#resume} 继续或者直接写回响应
+     * <p>
+     * 在过滤器链退出之后才执行 action，保证恢复执行和原来的过滤器链不会同时操作上下文
+     * </p>
+     *
+     * @param action 挂起后执行的动作
+     */
+    public void suspend(Runnable action) {
+        setTerminated();
+        this.suspendedAction = action;
+    }
+
+    /**
+     * 取出挂起后要执行的动作，没有挂起时返回 null
+     */
+    public Runnable takeSuspendedAction() {
+        Runnable action = suspendedAction;
+        suspendedAction = null;
+        return action;
+    }
+
     /**
      * 设置请求返回结果
      */
@@ -2,7 +2,10 @@ package com.dogsong.core.context;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.util.Recycler;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 
 /**
  * HttpRequestWrapper
@@ -13,8 +16,57 @@ import lombok.Data;
 @Data
 public class HttpRequestWrapper {
 
+    private static final Recycler<HttpRequestWrapper> RECYCLER = new Recycler<HttpRequestWrapper>() {
+        @Override
+        protected HttpRequestWrapper newObject(Handle<HttpRequestWrapper> handle) {
+            return new HttpRequestWrapper(handle);
+        }
+    };
+
     private FullHttpRequest request;
 
     private ChannelHandlerContext ctx;
 
+    /** 读到请求第一批字节的时间 System.nanoTime()，没有记录时为 0 */
+    private long receivedNanos;
+
+    /** 请求解码完成的时间 System.nanoTime() */
+    private long decodedNanos;
+
+    /** 对象池回收句柄，非池化创建的对象为 null */
+    @Getter(AccessLevel.NONE)
+    private final transient Recycler.Handle<HttpRequestWrapper> handle;
+
+    public HttpRequestWrapper() {
+        this.handle = null;
+    }
+
+    private HttpRequestWrapper(Recycler.Handle<HttpRequestWrapper> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 从当前线程（EventLoop）的对象池中获取
+     */
+    public static HttpRequestWrapper newInstance(FullHttpRequest request, ChannelHandlerContext ctx) {
+        HttpRequestWrapper wrapper = RECYCLER.get();
+        wrapper.request = request;
+        wrapper.ctx = ctx;
+        return wrapper;
+    }
+
+    /**
+     * 处理器取出 request 和 ctx 之后归还对象池，非池化创建的对象什么也不做
+     */
+    public void recycle() {
+        if (handle == null) {
+            return;
+        }
+        request = null;
+        ctx = null;
+        receivedNanos = 0;
+        decodedNanos = 0;
+        handle.recycle(this);
+    }
+
 }
@@ -156,6 +156,6 @@ public interface IContext {
     /**
      * 调用回调函数
      */
-    void invokeCompletedCallBack(Consumer<IContext> consumer);
+    void invokeCompletedCallBack();
 
 }
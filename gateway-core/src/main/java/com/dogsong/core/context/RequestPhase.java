@@ -0,0 +1,76 @@
+package com.dogsong.core.context;
+
+/**
+ * 请求处理过程中的时间点
+ * <p>
+ * 上下文用一个按 ordinal 下标的 long 数组记录每个时间点的 System.nanoTime()，没有记录的为 0。
+ * 每个时间点和它之前最近一个已记录的时间点之差就是对应阶段的耗时，阶段名见 {@link #getStage()}；
+ * 缓存命中、过滤器拦截等没有经过下游的请求，下游相关的时间点为 0，耗时记在后一个已记录的阶段上。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public enum RequestPhase {
+
+    /** 读到请求的第一批字节 */
+    RECEIVED(null),
+
+    /** 请求解码、聚合完成，到达网关处理器 */
+    DECODED("decode"),
+
+    /** 业务处理器开始处理，和上一个时间点之差是分发队列里的等待时间 */
+    DISPATCHED("queue"),
+
+    /** 网关请求对象构建完成、匹配到规则 */
+    CONTEXT_READY("context"),
+
+    /** 过滤器执行完：路由过滤器开始转发，或者请求被过滤器挂起（缓存命中、等待合并请求的结果） */
+    ROUTE_START("filters"),
+
+    /** 拿到下游连接（新建或者从连接池取出） */
+    UPSTREAM_CONNECTED("connect"),
+
+    /** 请求写到下游连接 */
+    UPSTREAM_REQUEST_SENT("send"),
+
+    /** 收到下游响应的状态行，合并请求的等待者为拿到共享结果的时间 */
+    UPSTREAM_RESPONSE("upstream"),
+
+    /** 响应写回客户端，请求结束 */
+    COMPLETED("writeback");
+
+    public static final int COUNT = values().length;
+
+    private final String stage;
+
+    RequestPhase(String stage) {
+        this.stage = stage;
+    }
+
+    /**
+     * 以该时间点结束的阶段名，RECEIVED 为 null
+     */
+    public String getStage() {
+        return stage;
+    }
+
+    /**
+     * 以第 index 个时间点结束的阶段耗时，该时间点或者之前的时间点都没有记录时返回 -1
+     *
+     * @param phaseNanos 时间点数组
+     * @param index      时间点下标
+     */
+    public static long stageNanos(long[] phaseNanos, int index) {
+        long end = phaseNanos[index];
+        if (end == 0) {
+            return -1;
+        }
+        for (int i = index - 1; i >= 0; i--) {
+            if (phaseNanos[i] != 0) {
+                return end - phaseNanos[i];
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,72 @@
+package com.dogsong.core.discovery;
+
+import com.dogsong.common.config.ServiceDefinition;
+import com.dogsong.common.config.ServiceInstance;
+import com.dogsong.core.filter.loadbalance.InstanceStats;
+import com.dogsong.register.center.RegisterCenterListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 网关本地的服务发现缓存
+ * <p>
+ * 订阅注册中心，注册中心推送某个服务变化时，在锁内基于当前快照生成新快照并整体替换；
+ * 请求处理时只读 volatile 快照，一次读取即可拿到服务实例，不加锁也不轮询注册中心。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/31
+ */
+@Slf4j
+public class ServiceManager implements RegisterCenterListener {
+
+    private static final ServiceManager INSTANCE = new ServiceManager();
+
+    private ServiceManager() {}
+
+    public static ServiceManager getInstance() {
+        return INSTANCE;
+    }
+
+    private volatile ServiceSnapshot snapshot = ServiceSnapshot.EMPTY;
+
+    @Override
+    public synchronized void onChange(ServiceDefinition serviceDefinition, Set<ServiceInstance> serviceInstanceSet) {
+        String uniqueId = serviceDefinition.getUniqueId();
+        List<ServiceInstance> previous = snapshot.getServiceInstances(uniqueId);
+        if (serviceInstanceSet == null || serviceInstanceSet.isEmpty()) {
+            // 服务已经没有实例，定义和实例一起删除
+            snapshot = snapshot.without(uniqueId);
+            InstanceStats.onInstancesChanged(previous, Collections.emptyList());
+            log.info("service removed {}, snapshot version: {}", uniqueId, snapshot.getVersion());
+            return;
+        }
+        snapshot = snapshot.with(serviceDefinition, serviceInstanceSet);
+        InstanceStats.onInstancesChanged(previous, snapshot.getServiceInstances(uniqueId));
+        log.info("service changed {}, instances: {}, snapshot version: {}",
+                uniqueId, serviceInstanceSet.size(), snapshot.getVersion());
+    }
+
+    /**
+     * 当前快照，需要多次读取且要求前后一致时先取快照再读
+     */
+    public ServiceSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public ServiceDefinition getServiceDefinition(String uniqueId) {
+        return snapshot.getServiceDefinition(uniqueId);
+    }
+
+    /**
+     * 获取服务启用的实例，只读，没有时返回空列表
+     *
+     * @param uniqueId 服务唯一ID
+     */
+    public List<ServiceInstance> getServiceInstances(String uniqueId) {
+        return snapshot.getServiceInstances(uniqueId);
+    }
+}
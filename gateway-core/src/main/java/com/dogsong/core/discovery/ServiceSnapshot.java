@@ -0,0 +1,96 @@
+package com.dogsong.core.discovery;
+
+import com.dogsong.common.config.ServiceDefinition;
+import com.dogsong.common.config.ServiceInstance;
+
+import java.util.*;
+
+/**
+ * 服务定义和服务实例的不可变快照
+ * <p>
+ * 每次变更都生成新的快照整体替换，读取时不需要加锁；实例列表只包含启用的实例，热路径上不用再过滤。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/31
+ */
+public final class ServiceSnapshot {
+
+    static final ServiceSnapshot EMPTY = new ServiceSnapshot(0, Collections.emptyMap(), Collections.emptyMap());
+
+    /** 快照版本，每次变更递增 */
+    private final long version;
+
+    private final Map<String, ServiceDefinition> serviceDefinitionMap;
+
+    private final Map<String, List<ServiceInstance>> serviceInstanceMap;
+
+    private ServiceSnapshot(long version, Map<String, ServiceDefinition> serviceDefinitionMap,
+                            Map<String, List<ServiceInstance>> serviceInstanceMap) {
+        this.version = version;
+        this.serviceDefinitionMap = serviceDefinitionMap;
+        this.serviceInstanceMap = serviceInstanceMap;
+    }
+
+    /**
+     * 在当前快照的基础上替换一个服务，生成新的快照
+     *
+     * @param serviceDefinition 服务定义
+     * @param serviceInstances  服务的全部实例
+     */
+    ServiceSnapshot with(ServiceDefinition serviceDefinition, Collection<ServiceInstance> serviceInstances) {
+        String uniqueId = serviceDefinition.getUniqueId();
+        Map<String, ServiceDefinition> definitions = new HashMap<>(serviceDefinitionMap);
+        Map<String, List<ServiceInstance>> instances = new HashMap<>(serviceInstanceMap);
+        definitions.put(uniqueId, serviceDefinition);
+
+        List<ServiceInstance> enabled = new ArrayList<>(serviceInstances.size());
+        for (ServiceInstance instance : serviceInstances) {
+            if (instance.isEnable()) {
+                enabled.add(instance);
+            }
+        }
+        if (enabled.isEmpty()) {
+            instances.remove(uniqueId);
+        } else {
+            instances.put(uniqueId, Collections.unmodifiableList(enabled));
+        }
+        return new ServiceSnapshot(version + 1, Collections.unmodifiableMap(definitions),
+                Collections.unmodifiableMap(instances));
+    }
+
+    /**
+     * 在当前快照的基础上删除一个服务的定义和实例，生成新的快照
+     *
+     * @param uniqueId 服务唯一ID
+     */
+    ServiceSnapshot without(String uniqueId) {
+        Map<String, ServiceDefinition> definitions = new HashMap<>(serviceDefinitionMap);
+        Map<String, List<ServiceInstance>> instances = new HashMap<>(serviceInstanceMap);
+        definitions.remove(uniqueId);
+        instances.remove(uniqueId);
+        return new ServiceSnapshot(version + 1, Collections.unmodifiableMap(definitions),
+                Collections.unmodifiableMap(instances));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public ServiceDefinition getServiceDefinition(String uniqueId) {
+        return serviceDefinitionMap.get(uniqueId);
+    }
+
+    /**
+     * 获取服务启用的实例，没有时返回空列表
+     *
+     * @param uniqueId 服务唯一ID
+     */
+    public List<ServiceInstance> getServiceInstances(String uniqueId) {
+        return serviceInstanceMap.getOrDefault(uniqueId, Collections.emptyList());
+    }
+
+    public Map<String, ServiceDefinition> getServiceDefinitionMap() {
+        return serviceDefinitionMap;
+    }
+}
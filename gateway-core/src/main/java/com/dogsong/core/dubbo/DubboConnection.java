@@ -0,0 +1,119 @@
+package com.dogsong.core.dubbo;
+
+import com.dogsong.common.dubbo.DubboRequest;
+import com.dogsong.common.dubbo.DubboResponse;
+import io.netty.channel.Channel;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 到一个服务提供方地址的长连接，多个请求按请求ID复用同一个连接
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class DubboConnection {
+
+    private static final AtomicLong ID_GENERATOR = new AtomicLong();
+
+    private final String address;
+
+    private final Channel channel;
+
+    private final Timer timer;
+
+    /** 请求ID -> 等待响应的请求 */
+    private final Map<Long, PendingCall> pending = new ConcurrentHashMap<>();
+
+    public DubboConnection(String address, Channel channel, Timer timer) {
+        this.address = address;
+        this.channel = channel;
+        this.timer = timer;
+    }
+
+    /**
+     * 发送请求
+     *
+     * @param request       请求，ID 在这里分配
+     * @param timeoutMillis 超时时间，超时后以 TimeoutException 结束
+     */
+    public CompletableFuture<DubboResponse> send(DubboRequest request, long timeoutMillis) {
+        long id = ID_GENERATOR.incrementAndGet();
+        request.setId(id);
+        PendingCall call = new PendingCall(id);
+        pending.put(id, call);
+        call.timeout = timer.newTimeout(call, timeoutMillis, TimeUnit.MILLISECONDS);
+        // 写失败时连接会被关闭，等待中的请求在 closed 里统一失败
+        channel.writeAndFlush(request, channel.voidPromise());
+        return call;
+    }
+
+    public boolean isActive() {
+        return channel.isActive();
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    /**
+     * 收到响应
+     */
+    public void received(DubboResponse response) {
+        PendingCall call = pending.remove(response.getId());
+        if (call != null) {
+            call.timeout.cancel();
+            call.complete(response);
+        }
+    }
+
+    /**
+     * 连接关闭，等待中的请求全部失败
+     */
+    public void closed() {
+        IOException cause = new IOException("dubbo connection closed: " + address);
+        for (Long id : pending.keySet()) {
+            PendingCall call = pending.remove(id);
+            if (call != null) {
+                if (call.timeout != null) {
+                    call.timeout.cancel();
+                }
+                call.completeExceptionally(cause);
+            }
+        }
+    }
+
+    /**
+     * 等待响应的请求，同时作为超时任务
+     */
+    private final class PendingCall extends CompletableFuture<DubboResponse> implements TimerTask {
+
+        private final long id;
+
+        private volatile Timeout timeout;
+
+        PendingCall(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            if (pending.remove(id) != null) {
+                completeExceptionally(new TimeoutException("dubbo request timeout: " + address));
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.dogsong.core.dubbo;
+
+import com.dogsong.common.dubbo.DubboRequest;
+import com.dogsong.common.dubbo.DubboResponse;
+import com.dogsong.core.netty.NettyDubboClient;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 一个服务提供方地址上的一个服务接口的泛化调用引用，相当于 Dubbo 的 ReferenceConfig + GenericService
+ * <p>
+ * 接口名、版本、分组、超时和请求附件在创建时确定，按路由配置和地址缓存，每次调用只需要组装参数。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class DubboReference {
+
+    public static final String GENERIC_METHOD = "$invoke";
+
+    public static final String GENERIC_PARAMETER_DESC = "Ljava/lang/String;[Ljava/lang/String;[Ljava/lang/Object;";
+
+    private final NettyDubboClient client;
+
+    private final String address;
+
+    private final String interfaceName;
+
+    private final String version;
+
+    private final long timeoutMillis;
+
+    /** 每次请求都一样的附件，只读共享 */
+    private final Map<String, String> attachments;
+
+    public DubboReference(NettyDubboClient client, String address, String interfaceName,
+                          String version, String group, long timeoutMillis) {
+        this.client = client;
+        this.address = address;
+        this.interfaceName = interfaceName;
+        this.version = StringUtils.defaultString(version, "0.0.0");
+        this.timeoutMillis = timeoutMillis;
+
+        Map<String, String> attachments = new HashMap<>();
+        attachments.put("path", interfaceName);
+        attachments.put("interface", interfaceName);
+        attachments.put("version", this.version);
+        attachments.put("generic", "true");
+        attachments.put("timeout", String.valueOf(timeoutMillis));
+        if (StringUtils.isNotEmpty(group)) {
+            attachments.put("group", group);
+        }
+        this.attachments = Collections.unmodifiableMap(attachments);
+    }
+
+    /**
+     * 泛化调用，等价于 GenericService.$invoke
+     *
+     * @param method 方法签名
+     * @param args   参数，个数和签名一致
+     */
+    public CompletableFuture<DubboResponse> invoke(MethodSignature method, Object[] args) {
+        DubboRequest request = new DubboRequest();
+        request.setServiceName(interfaceName);
+        request.setServiceVersion(version);
+        request.setMethodName(GENERIC_METHOD);
+        request.setParameterDesc(GENERIC_PARAMETER_DESC);
+        request.setArgs(new Object[]{method.getName(), method.getParameterTypes(), args});
+        request.setAttachments(attachments);
+        return client.getConnection(address).thenCompose(connection -> connection.send(request, timeoutMillis));
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getInterfaceName() {
+        return interfaceName;
+    }
+}
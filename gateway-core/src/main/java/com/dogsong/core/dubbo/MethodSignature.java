@@ -0,0 +1,64 @@
+package com.dogsong.core.dubbo;
+
+import lombok.Getter;
+
+/**
+ * 解析后的方法签名，例如 getUser(java.lang.Long,int) 解析为方法名 getUser 和参数类型 [java.lang.Long, int]
+ * <p>
+ * 随路由配置编译一次，每次调用直接使用，不再解析字符串，也不需要反射。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Getter
+public final class MethodSignature {
+
+    private static final String[] NO_TYPES = new String[0];
+
+    private final String name;
+
+    /** 参数类型全名，泛化调用时原样传给服务提供方 */
+    private final String[] parameterTypes;
+
+    private MethodSignature(String name, String[] parameterTypes) {
+        this.name = name;
+        this.parameterTypes = parameterTypes;
+    }
+
+    /**
+     * 解析方法签名
+     *
+     * @param signature 方法签名，例如 getUser(java.lang.Long,int)、list()
+     * @throws IllegalArgumentException 格式不正确
+     */
+    public static MethodSignature parse(String signature) {
+        String value = signature.trim();
+        int open = value.indexOf('(');
+        if (open <= 0 || !value.endsWith(")")) {
+            throw new IllegalArgumentException("invalid method signature: " + signature);
+        }
+        String name = value.substring(0, open).trim();
+        String types = value.substring(open + 1, value.length() - 1).trim();
+        if (types.isEmpty()) {
+            return new MethodSignature(name, NO_TYPES);
+        }
+        String[] parameterTypes = types.split(",");
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterTypes[i] = parameterTypes[i].trim();
+            if (parameterTypes[i].isEmpty()) {
+                throw new IllegalArgumentException("invalid method signature: " + signature);
+            }
+        }
+        return new MethodSignature(name, parameterTypes);
+    }
+
+    public int getParameterCount() {
+        return parameterTypes.length;
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + String.join(",", parameterTypes) + ")";
+    }
+}
@@ -0,0 +1,45 @@
+package com.dogsong.core.filter;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.core.context.GatewayContext;
+
+/**
+ * 过滤器顶级接口，实现类需要标注 {@link FilterAspect}，并通过 SPI 注册
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/28
+ */
+public interface Filter {
+
+    /**
+     * 执行过滤
+     *
+     * @param ctx 网关上下文
+     */
+    void doFilter(GatewayContext ctx) throws Exception;
+
+    /**
+     * 规则是否启用该过滤器，只在编译过滤器链时调用
+     * <p>
+     * 默认规则中配置了同 id 的 FilterConfig 才启用
+     * </p>
+     *
+     * @param rule 规则
+     */
+    default boolean supports(Rule rule) {
+        FilterAspect aspect = getClass().getAnnotation(FilterAspect.class);
+        return aspect != null && rule.getFilterConfig(aspect.id()) != null;
+    }
+
+    /**
+     * 过滤器能否用于流式转发的请求
+     * <p>
+     * 流式请求的上下文只有请求行和请求头，没有请求体，过滤器不能挂起请求或者自己写回响应，只能抛出异常拒绝；
+     * 规则的过滤器链中有不支持的过滤器时，流式规则退回聚合模式，保证所有过滤器都会执行
+     * </p>
+     */
+    default boolean supportsStreaming() {
+        return false;
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.dogsong.core.filter;
+
+import java.lang.annotation.*;
+
+/**
+ * 过滤器注解
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/28
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+public @interface FilterAspect {
+
+    /**
+     * 过滤器ID，和规则中 FilterConfig 的 id 对应
+     */
+    String id();
+
+    /**
+     * 过滤器名称
+     */
+    String name() default "";
+
+    /**
+     * 同一阶段内的执行顺序，越小越先执行
+     */
+    int order() default 0;
+
+    /**
+     * 执行阶段
+     */
+    FilterPhase phase() default FilterPhase.PRE;
+
+}
@@ -0,0 +1,20 @@
+package com.dogsong.core.filter;
+
+/**
+ * 过滤器执行阶段
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/28
+ */
+public enum FilterPhase {
+
+    /** 路由之前执行，例如鉴权、流控、黑白名单 */
+    PRE,
+
+    /** 路由，把请求转发到下游，一个规则只会有一个路由过滤器生效 */
+    ROUTE,
+
+    /** 请求完成之后执行，例如统计、日志 */
+    POST
+
+}
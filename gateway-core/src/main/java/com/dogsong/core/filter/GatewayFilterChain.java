@@ -0,0 +1,174 @@
+package com.dogsong.core.filter;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.ResponseException;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.IContext;
+import com.dogsong.core.context.RequestPhase;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.function.Consumer;
+
+/**
+ * 编译后的过滤器链，每个规则一条，构建完成后不可变
+ * <p>
+ * PRE 和 ROUTE 阶段的过滤器按顺序平铺在一个数组里，请求线程只是一个数组循环；
+ * POST 阶段的过滤器注册为上下文的完成回调，在请求完成时执行。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/28
+ */
+@Slf4j
+public class GatewayFilterChain {
+
+    /** 编译时使用的规则对象 */
+    private final Rule rule;
+
+    /** 编译时规则的版本 */
+    private final long version;
+
+    /** PRE + ROUTE 阶段的过滤器 */
+    private final Filter[] filters;
+
+    /** POST 阶段的过滤器 */
+    private final Filter[] postFilters;
+
+    /** 是否包含路由过滤器 */
+    private final boolean routable;
+
+    /**
+     * 是否可以流式转发：规则配置了 serviceId，下游地址由负载均衡从服务实例中选出，
+     * 并且所有过滤器都支持流式转发，见 {@link Filter#supportsStreaming()}
+     */
+    private final boolean streamable;
+
+    /** POST 阶段的回调，每条链只创建一次 */
+    private final Consumer<IContext> postCallback = this::doPostFilter;
+
+    public GatewayFilterChain(Rule rule, Filter[] filters, Filter[] postFilters, boolean routable) {
+        this.rule = rule;
+        this.version = rule.getVersion();
+        this.filters = filters;
+        this.postFilters = postFilters;
+        this.routable = routable;
+        this.streamable = routable && StringUtils.isNotEmpty(rule.getServiceId())
+                && supportsStreaming(filters) && supportsStreaming(postFilters);
+    }
+
+    private static boolean supportsStreaming(Filter[] filters) {
+        for (Filter filter : filters) {
+            if (!filter.supportsStreaming()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 执行过滤器链
+     *
+     * @param ctx 网关上下文
+     */
+    public void doFilter(GatewayContext ctx) throws Exception {
+        if (!routable) {
+            throw new ResponseException(ResponseCode.SERVICE_INVOKER_NOT_FOUND);
+        }
+        if (postFilters.length > 0) {
+            ctx.setCompletedCallBack(postCallback);
+        }
+        for (Filter filter : filters) {
+            filter.doFilter(ctx);
+            if (!ctx.isRunning()) {
+                // 过滤器已经写回了响应或者挂起了请求，后面的过滤器不再执行
+                break;
+            }
+        }
+        runSuspendedAction(ctx);
+    }
+
+    /**
+     * 只执行路由过滤器之前的过滤器，用于流式转发的请求：请求体不经过聚合，由流式转发处理器代替路由过滤器转发到下游
+     * <p>
+     * 支持流式转发的过滤器只会抛出异常拒绝请求，不会挂起请求或者写回响应
+     * </p>
+     *
+     * @param ctx 只有请求头的网关上下文
+     */
+    public void doPreFilter(GatewayContext ctx) throws Exception {
+        if (!streamable) {
+            throw new ResponseException(ResponseCode.SERVICE_INVOKER_NOT_FOUND);
+        }
+        if (postFilters.length > 0) {
+            ctx.setCompletedCallBack(postCallback);
+        }
+        // 路由过滤器在最后
+        for (int i = 0; i < filters.length - 1; i++) {
+            filters[i].doFilter(ctx);
+        }
+    }
+
+    /**
+     * 从指定过滤器之后继续执行，用于被挂起（如等待合并请求的结果）后恢复的请求
+     *
+     * @param ctx   网关上下文
+     * @param after 挂起请求的过滤器
+     */
+    public void resume(GatewayContext ctx, Filter after) throws Exception {
+        int start = 0;
+        for (int i = 0; i < filters.length; i++) {
+            if (filters[i] == after) {
+                start = i + 1;
+                break;
+            }
+        }
+        ctx.setRunning();
+        for (int i = start; i < filters.length; i++) {
+            filters[i].doFilter(ctx);
+            if (!ctx.isRunning()) {
+                break;
+            }
+        }
+        runSuspendedAction(ctx);
+    }
+
+    private static void runSuspendedAction(GatewayContext ctx) {
+        if (ctx.isTerminated()) {
+            Runnable action = ctx.takeSuspendedAction();
+            if (action != null) {
+                // 挂起的请求不再经过路由过滤器，在这里记录过滤器阶段结束
+                ctx.markPhase(RequestPhase.ROUTE_START);
+                action.run();
+            }
+        }
+    }
+
+    private void doPostFilter(IContext ctx) {
+        for (Filter filter : postFilters) {
+            try {
+                filter.doFilter((GatewayContext) ctx);
+            } catch (Throwable t) {
+                log.error("post filter {} error", filter.getClass().getName(), t);
+            }
+        }
+    }
+
+    /**
+     * 过滤器链是否由当前版本的规则编译而来
+     *
+     * @param rule 规则
+     */
+    public boolean isCompiledFrom(Rule rule) {
+        return this.rule == rule && this.version == rule.getVersion();
+    }
+
+    public boolean isStreamable() {
+        return streamable;
+    }
+
+    public int size() {
+        return filters.length + postFilters.length;
+    }
+}
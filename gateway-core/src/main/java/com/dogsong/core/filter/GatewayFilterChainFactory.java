@@ -0,0 +1,134 @@
+package com.dogsong.core.filter;
+
+import com.dogsong.common.config.Rule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 过滤器链工厂
+ * <p>
+ * 启动时通过 SPI 加载所有过滤器并排好序，每个规则的过滤器链只编译一次并缓存，
+ * 规则对象被替换或者版本变化时才重新编译。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/28
+ */
+@Slf4j
+public class GatewayFilterChainFactory {
+
+    private static final GatewayFilterChainFactory INSTANCE = new GatewayFilterChainFactory();
+
+    public static GatewayFilterChainFactory getInstance() {
+        return INSTANCE;
+    }
+
+    /** 按阶段、顺序排好序的过滤器 */
+    private final List<Filter> filters;
+
+    /** filterId -> filter */
+    private final Map<String, Filter> filterIdMap = new HashMap<>();
+
+    /** ruleId -> 过滤器链 */
+    private final Cache<String, GatewayFilterChain> chainCache = Caffeine.newBuilder()
+            .recordStats()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    private GatewayFilterChainFactory() {
+        List<Filter> loaded = new ArrayList<>();
+        for (Filter filter : ServiceLoader.load(Filter.class)) {
+            FilterAspect aspect = filter.getClass().getAnnotation(FilterAspect.class);
+            if (aspect == null) {
+                log.warn("filter {} has no @FilterAspect, ignored", filter.getClass().getName());
+                continue;
+            }
+            log.info("load filter success: {}, {}, {}, {}, {}",
+                    filter.getClass().getName(), aspect.id(), aspect.name(), aspect.phase(), aspect.order());
+            loaded.add(filter);
+            filterIdMap.put(aspect.id(), filter);
+        }
+        loaded.sort(Comparator
+                .comparing((Filter filter) -> aspectOf(filter).phase())
+                .thenComparingInt(filter -> aspectOf(filter).order()));
+        this.filters = Collections.unmodifiableList(loaded);
+    }
+
+    private static FilterAspect aspectOf(Filter filter) {
+        return filter.getClass().getAnnotation(FilterAspect.class);
+    }
+
+    /**
+     * 获取规则对应的过滤器链
+     *
+     * @param rule 规则
+     */
+    public GatewayFilterChain buildFilterChain(Rule rule) {
+        GatewayFilterChain chain = chainCache.getIfPresent(rule.getId());
+        if (chain == null || !chain.isCompiledFrom(rule)) {
+            chain = compile(rule);
+            chainCache.put(rule.getId(), chain);
+        }
+        return chain;
+    }
+
+    /**
+     * 把规则启用的过滤器编译成数组，ROUTE 阶段只取第一个支持该规则的过滤器
+     */
+    private GatewayFilterChain compile(Rule rule) {
+        List<Filter> chainFilters = new ArrayList<>();
+        List<Filter> postFilters = new ArrayList<>();
+        boolean routable = false;
+        for (Filter filter : filters) {
+            if (!filter.supports(rule)) {
+                continue;
+            }
+            switch (aspectOf(filter).phase()) {
+                case ROUTE:
+                    if (!routable) {
+                        chainFilters.add(filter);
+                        routable = true;
+                    }
+                    break;
+                case POST:
+                    postFilters.add(filter);
+                    break;
+                default:
+                    chainFilters.add(filter);
+                    break;
+            }
+        }
+        log.info("compile filter chain for rule {}, version {}, filters: {}",
+                rule.getId(), rule.getVersion(), chainFilters.size() + postFilters.size());
+        GatewayFilterChain chain = new GatewayFilterChain(rule,
+                chainFilters.toArray(new Filter[0]), postFilters.toArray(new Filter[0]), routable);
+        if (rule.isStreaming() && !chain.isStreamable()) {
+            log.warn("rule {} is streaming but has no serviceId or its filters need the aggregated request, "
+                    + "fall back to aggregation", rule.getId());
+        }
+        return chain;
+    }
+
+    /**
+     * 根据过滤器ID获取过滤器
+     *
+     * @param filterId 过滤器ID
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Filter> T getFilter(String filterId) {
+        return (T) filterIdMap.get(filterId);
+    }
+
+    /**
+     * 删除规则对应的过滤器链
+     *
+     * @param ruleId 规则ID
+     */
+    public void invalidate(String ruleId) {
+        chainCache.invalidate(ruleId);
+    }
+}
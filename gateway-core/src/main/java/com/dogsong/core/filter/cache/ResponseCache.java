@@ -0,0 +1,122 @@
+package com.dogsong.core.filter.cache;
+
+import com.dogsong.core.ConfigLoader;
+import com.dogsong.core.metrics.GatewayMetrics;
+import com.dogsong.core.metrics.PrometheusWriter;
+import com.dogsong.core.response.SharedResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 网关响应缓存
+ * <p>
+ * Caffeine 只做索引，响应体在堆外内存中，按响应体大小计算权重，总量受 Config.responseCacheMaxBytes 限制；
+ * 每个条目按自己的有效期过期，被淘汰或者过期时释放堆外内存。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class ResponseCache {
+
+    private static final ResponseCache INSTANCE = new ResponseCache();
+
+    public static ResponseCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final Cache<String, SharedResponse> cache;
+
+    /** ruleId -> 统计 */
+    private final Map<String, ResponseCacheStats> stats = new ConcurrentHashMap<>();
+
+    private ResponseCache() {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(ConfigLoader.getConfig().getResponseCacheMaxBytes())
+                .weigher((String key, SharedResponse response) -> response.weight())
+                .expireAfter(new Expiry<String, SharedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, SharedResponse response, long currentTime) {
+                        return response.getTtlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, SharedResponse response,
+                                                  long currentTime, long currentDuration) {
+                        return response.getTtlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, SharedResponse response,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .removalListener((String key, SharedResponse response, RemovalCause cause) -> {
+                    if (response == null) {
+                        return;
+                    }
+                    if (cause.wasEvicted()) {
+                        getStats(response.getRuleId()).evictions.increment();
+                    }
+                    response.getBody().release();
+                })
+                .build();
+        GatewayMetrics.getInstance().register(this::collectMetrics);
+    }
+
+    SharedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * 放入缓存，缓存接管响应体的引用
+     */
+    void put(String key, SharedResponse response) {
+        cache.put(key, response);
+    }
+
+    /**
+     * 获取规则的缓存统计
+     *
+     * @param ruleId 规则ID
+     */
+    public ResponseCacheStats getStats(String ruleId) {
+        ResponseCacheStats ruleStats = stats.get(ruleId);
+        return ruleStats != null ? ruleStats : stats.computeIfAbsent(ruleId, id -> new ResponseCacheStats());
+    }
+
+    /**
+     * 所有规则的缓存统计
+     */
+    public Map<String, ResponseCacheStats> getAllStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * 缓存占用的堆外内存（近似值）
+     */
+    public long getWeightedSize() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    private void collectMetrics(PrometheusWriter writer) {
+        writer.family("gateway_response_cache_bytes", "gauge", "Off-heap bytes held by the response cache.")
+                .sample("gateway_response_cache_bytes", null, getWeightedSize());
+        writer.family("gateway_response_cache_hits_total", "counter", "Response cache hits.");
+        stats.forEach((ruleId, ruleStats) -> writer.sample("gateway_response_cache_hits_total",
+                PrometheusWriter.label("rule", ruleId), ruleStats.getHitCount()));
+        writer.family("gateway_response_cache_misses_total", "counter", "Response cache misses.");
+        stats.forEach((ruleId, ruleStats) -> writer.sample("gateway_response_cache_misses_total",
+                PrometheusWriter.label("rule", ruleId), ruleStats.getMissCount()));
+        writer.family("gateway_response_cache_evictions_total", "counter", "Response cache evictions.");
+        stats.forEach((ruleId, ruleStats) -> writer.sample("gateway_response_cache_evictions_total",
+                PrometheusWriter.label("rule", ruleId), ruleStats.getEvictionCount()));
+    }
+}
@@ -0,0 +1,30 @@
+package com.dogsong.core.filter.cache;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 响应缓存过滤器配置，例如：
+ * <pre>
+ * {"ttlMillis": 30000, "queryParams": ["page", "size"], "headers": ["Accept-Encoding"], "maxBodyBytes": 1048576}
+ * </pre>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Data
+public class ResponseCacheConfig {
+
+    /** 下游没有通过 Cache-Control 指定有效期时的缓存时间，单位毫秒 */
+    private long ttlMillis = 60_000;
+
+    /** 参与缓存 key 的查询参数，不配置时使用完整的查询字符串 */
+    private List<String> queryParams;
+
+    /** 参与缓存 key 的请求头，下游响应的 Vary 只能包含这里列出的头 */
+    private List<String> headers;
+
+    /** 可缓存的最大响应体，超过时不缓存 */
+    private int maxBodyBytes = 1024 * 1024;
+}
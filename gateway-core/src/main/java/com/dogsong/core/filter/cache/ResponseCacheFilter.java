@@ -0,0 +1,109 @@
+package com.dogsong.core.filter.cache;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.filter.Filter;
+import com.dogsong.core.filter.FilterAspect;
+import com.dogsong.core.filter.singleflight.SingleFlight;
+import com.dogsong.core.request.GatewayRequest;
+import com.dogsong.core.response.CacheControl;
+import com.dogsong.core.response.ResponseListener;
+import com.dogsong.core.response.ResponseRecorder;
+import com.dogsong.core.response.SharedResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+
+/**
+ * 响应缓存过滤器，只缓存 GET、HEAD 请求
+ * <p>
+ * 缓存 key 由规则、请求方法、Host、路径以及配置的查询参数、请求头组成。请求带 Cache-Control: no-store 时不走缓存，
+ * no-cache 时不读缓存；下游响应带 no-store、private、Set-Cookie 或者 Vary 了 key 之外的头时不缓存，
+ * 有效期优先取 s-maxage、max-age，没有时使用配置的 ttlMillis。
+ * 请求带 Authorization、Cookie 时（RFC 7234 3.2），只有带 public、s-maxage 或者 must-revalidate 的响应才会被缓存和命中。
+ * HEAD 请求可以用 GET 的缓存回答，只写响应头；HEAD 的响应没有响应体，不会用来回答 GET。
+ * </p>
+ * 未命中时通过 {@link SingleFlight} 合并：同一个 key 只有第一个请求去下游，响应在写回的同时复制到堆外内存；
+ * 其它请求挂起等待，拿到结果后直接写回，结果不可共享时再各自继续执行后面的过滤器。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@FilterAspect(id = ResponseCacheFilter.FILTER_ID, name = "响应缓存过滤器", order = 2500)
+public class ResponseCacheFilter implements Filter {
+
+    public static final String FILTER_ID = "response_cache_filter";
+
+    /** 合并请求时 key 的前缀，和单独的合并请求过滤器区分开 */
+    private static final String CACHE_KEY_PREFIX = "cache:";
+
+    private final ResponseCache responseCache = ResponseCache.getInstance();
+
+    @Override
+    public void doFilter(GatewayContext ctx) throws Exception {
+        GatewayRequest request = ctx.getRequest();
+        HttpMethod method = request.getMethod();
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+            return;
+        }
+        CacheControl cacheControl = CacheControl.parse(request.getHeaders().get(HttpHeaderNames.CACHE_CONTROL));
+        if (cacheControl.noStore) {
+            return;
+        }
+        Rule rule = ctx.getRule();
+        String ruleId = rule.getId();
+        ResponseCacheConfig config = rule.getFilterConfig(FILTER_ID).getTypedConfig(ResponseCacheConfig.class);
+        ResponseCacheStats stats = responseCache.getStats(ruleId);
+        String key = SingleFlight.buildKey(ruleId, request, config.getQueryParams(), config.getHeaders());
+        boolean credentialed = CacheControl.hasCredentials(request.getHeaders());
+
+        if (!cacheControl.noCache) {
+            SharedResponse cached = lookup(key, ruleId, request, config);
+            if (cached != null && (!credentialed || sharedWithCredentials(cached))) {
+                ByteBuf body = cached.retainedBody();
+                if (body != null) {
+                    stats.hits.increment();
+                    // 过滤器链退出后再写回，写回后上下文可能被回收复用，不能再回到过滤器链里
+                    ctx.suspend(() -> SingleFlight.writeSharedResponse(ctx, cached, body));
+                    return;
+                }
+            }
+        }
+        stats.misses.increment();
+
+        SingleFlight.Call call = SingleFlight.getInstance().join(ctx, CACHE_KEY_PREFIX + key, this);
+        if (call == null) {
+            return;
+        }
+        ResponseRecorder recorder = new ResponseRecorder(config.getMaxBodyBytes(), method, request.getHeaders());
+        ctx.putAttribute(ResponseListener.ATTRIBUTE_KEY, recorder);
+        ctx.setCompletedCallBack(context -> {
+            SharedResponse response = recorder.finish(ruleId, config.getHeaders(), config.getTtlMillis());
+            boolean cached = response != null && response.isCacheable();
+            if (cached) {
+                // 缓存持有原始引用，等待者在回调里各自 retain
+                responseCache.put(key, response);
+            }
+            call.complete(response);
+            if (response != null && !cached) {
+                response.getBody().release();
+            }
+        });
+    }
+
+    /**
+     * 查找缓存，HEAD 请求没有自己的缓存时查找 GET 的缓存
+     */
+    private SharedResponse lookup(String key, String ruleId, GatewayRequest request, ResponseCacheConfig config) {
+        SharedResponse cached = responseCache.get(key);
+        if (cached == null && request.getMethod() == HttpMethod.HEAD) {
+            cached = responseCache.get(SingleFlight.buildKey(ruleId, HttpMethod.GET, request,
+                    config.getQueryParams(), config.getHeaders()));
+        }
+        return cached;
+    }
+
+    private static boolean sharedWithCredentials(SharedResponse cached) {
+        return CacheControl.parse(cached.getHeaders().get(HttpHeaderNames.CACHE_CONTROL)).isSharedWithCredentials();
+    }
+}
@@ -0,0 +1,30 @@
+package com.dogsong.core.filter.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一条规则的响应缓存统计
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class ResponseCacheStats {
+
+    final LongAdder hits = new LongAdder();
+
+    final LongAdder misses = new LongAdder();
+
+    final LongAdder evictions = new LongAdder();
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+}
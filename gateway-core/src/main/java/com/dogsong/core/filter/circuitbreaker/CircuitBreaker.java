@@ -0,0 +1,161 @@
+package com.dogsong.core.filter.circuitbreaker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 基于最近 N 次调用的熔断器
+ * <p>
+ * 熔断器的全部状态放在一个不可变状态的 {@link Window} 里，状态切换就是对 AtomicReference 的一次 CAS，
+ * 放行判断不加锁。关闭状态下用环形缓冲区记录最近 windowSize 次调用的结果，写入时 getAndSet 覆盖最老的结果，
+ * 同时按差值维护失败数、慢调用数，计算失败率是 O(1) 的。
+ * </p>
+ * 调用结果记录到发起调用时所在的窗口，状态切换后迟到的结果不会影响新窗口。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int RECORDED = 1;
+
+    private static final int FAILURE = 1 << 1;
+
+    private static final int SLOW = 1 << 2;
+
+    private final int failureRateThreshold;
+
+    private final int slowCallRateThreshold;
+
+    private final long slowCallDurationNanos;
+
+    private final int windowSize;
+
+    private final int minimumCalls;
+
+    private final long waitDurationInOpenNanos;
+
+    private final int permittedCallsInHalfOpen;
+
+    private final AtomicReference<Window> window;
+
+    public CircuitBreaker(CircuitBreakerConfig config) {
+        this.failureRateThreshold = config.getFailureRateThreshold();
+        this.slowCallRateThreshold = config.getSlowCallRateThreshold();
+        this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallDurationMillis());
+        this.windowSize = Math.max(config.getWindowSize(), 1);
+        this.minimumCalls = Math.max(Math.min(config.getMinimumCalls(), windowSize), 1);
+        this.waitDurationInOpenNanos = TimeUnit.MILLISECONDS.toNanos(config.getWaitDurationInOpenMillis());
+        this.permittedCallsInHalfOpen = Math.max(config.getPermittedCallsInHalfOpen(), 1);
+        this.window = new AtomicReference<>(new Window(State.CLOSED, windowSize, System.nanoTime()));
+    }
+
+    /**
+     * 尝试放行一次调用
+     *
+     * @param nowNanos 当前时间 System.nanoTime()
+     * @return 放行时返回调用所属的窗口，结束时交给 {@link #onComplete}；熔断中返回 null
+     */
+    public Window tryAcquire(long nowNanos) {
+        for (;;) {
+            Window current = window.get();
+            switch (current.state) {
+                case CLOSED:
+                    return current;
+                case HALF_OPEN:
+                    return current.permits.getAndDecrement() > 0 ? current : null;
+                default:
+                    if (nowNanos - current.createdNanos < waitDurationInOpenNanos) {
+                        return null;
+                    }
+                    window.compareAndSet(current, new Window(State.HALF_OPEN, permittedCallsInHalfOpen, nowNanos));
+            }
+        }
+    }
+
+    /**
+     * 记录一次调用的结果
+     *
+     * @param acquired       {@link #tryAcquire} 返回的窗口
+     * @param failed         是否失败
+     * @param durationNanos  调用耗时
+     */
+    public void onComplete(Window acquired, boolean failed, long durationNanos) {
+        int outcome = RECORDED | (failed ? FAILURE : 0) | (durationNanos >= slowCallDurationNanos ? SLOW : 0);
+        if (acquired.state == State.CLOSED) {
+            int calls = acquired.record(outcome);
+            if (calls >= minimumCalls && exceedsThreshold(acquired, calls)) {
+                window.compareAndSet(acquired, new Window(State.OPEN, 0, System.nanoTime()));
+            }
+        } else if (acquired.state == State.HALF_OPEN) {
+            int calls = acquired.record(outcome);
+            if (calls == permittedCallsInHalfOpen) {
+                State next = exceedsThreshold(acquired, calls) ? State.OPEN : State.CLOSED;
+                window.compareAndSet(acquired, new Window(next, next == State.CLOSED ? windowSize : 0, System.nanoTime()));
+            }
+        }
+    }
+
+    public State getState() {
+        return window.get().state;
+    }
+
+    private boolean exceedsThreshold(Window w, int calls) {
+        return w.failures.get() * 100L >= (long) failureRateThreshold * calls
+                || w.slowCalls.get() * 100L >= (long) slowCallRateThreshold * calls;
+    }
+
+    /**
+     * 一个状态周期内的统计
+     */
+    public static final class Window {
+
+        private final State state;
+
+        private final long createdNanos;
+
+        /** 环形缓冲区，每个元素是一次调用的结果位 */
+        private final AtomicIntegerArray outcomes;
+
+        private final AtomicLong cursor = new AtomicLong();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private final AtomicInteger slowCalls = new AtomicInteger();
+
+        /** 半开状态下剩余的探测许可 */
+        private final AtomicInteger permits;
+
+        Window(State state, int size, long createdNanos) {
+            this.state = state;
+            this.createdNanos = createdNanos;
+            this.outcomes = state == State.OPEN ? null : new AtomicIntegerArray(size);
+            this.permits = new AtomicInteger(state == State.HALF_OPEN ? size : 0);
+        }
+
+        /**
+         * 写入一次调用结果，覆盖最老的一条
+         *
+         * @return 窗口内已记录的调用数
+         */
+        private int record(int outcome) {
+            int size = outcomes.length();
+            long index = cursor.getAndIncrement();
+            int previous = outcomes.getAndSet((int) (index % size), outcome);
+            failures.addAndGet(bit(outcome, FAILURE) - bit(previous, FAILURE));
+            slowCalls.addAndGet(bit(outcome, SLOW) - bit(previous, SLOW));
+            return (int) Math.min(index + 1, size);
+        }
+
+        private static int bit(int outcome, int mask) {
+            return (outcome & mask) != 0 ? 1 : 0;
+        }
+    }
+}
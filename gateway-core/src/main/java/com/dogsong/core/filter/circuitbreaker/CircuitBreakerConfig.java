@@ -0,0 +1,42 @@
+package com.dogsong.core.filter.circuitbreaker;
+
+import lombok.Data;
+
+/**
+ * 熔断隔离过滤器配置，例如：
+ * <pre>
+ * {"failureRateThreshold": 50, "slowCallRateThreshold": 80, "slowCallDurationMillis": 1000,
+ *  "windowSize": 100, "minimumCalls": 20, "waitDurationInOpenMillis": 5000,
+ *  "permittedCallsInHalfOpen": 10, "maxConcurrentCalls": 200}
+ * </pre>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Data
+public class CircuitBreakerConfig {
+
+    /** 失败率阈值（百分比），达到后熔断 */
+    private int failureRateThreshold = 50;
+
+    /** 慢调用率阈值（百分比），达到后熔断 */
+    private int slowCallRateThreshold = 100;
+
+    /** 耗时超过该值视为慢调用，单位毫秒 */
+    private long slowCallDurationMillis = 60_000;
+
+    /** 统计最近多少次调用 */
+    private int windowSize = 100;
+
+    /** 窗口内至少有多少次调用才计算失败率 */
+    private int minimumCalls = 20;
+
+    /** 熔断后多久进入半开状态，单位毫秒 */
+    private long waitDurationInOpenMillis = 5_000;
+
+    /** 半开状态下放行的探测请求数 */
+    private int permittedCallsInHalfOpen = 10;
+
+    /** 每个服务最大并发调用数，0 表示不限制 */
+    private int maxConcurrentCalls;
+}
@@ -0,0 +1,129 @@
+package com.dogsong.core.filter.circuitbreaker;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.ResponseException;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.IContext;
+import com.dogsong.core.filter.Filter;
+import com.dogsong.core.filter.FilterAspect;
+import com.dogsong.core.response.GatewayResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 熔断隔离过滤器：按下游服务熔断并限制并发，服务故障时直接返回 SERVICE_UNAVAILABLE，
+ * 不再占用连接、等待超时
+ * <p>
+ * 下游服务优先取规则的 serviceId，没有时取请求的目标地址。每个服务一个熔断器和一个信号量舱壁，
+ * 放行后在上下文的完成回调中归还许可并记录结果：抛出异常或者下游返回 5xx 记为失败，
+ * 耗时超过 slowCallDurationMillis 记为慢调用。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@FilterAspect(id = CircuitBreakerFilter.FILTER_ID, name = "熔断隔离过滤器", order = 3000)
+public class CircuitBreakerFilter implements Filter {
+
+    public static final String FILTER_ID = "circuit_breaker_filter";
+
+    /** 每条规则最多跟踪的下游服务数，按目标地址区分时避免无限增长 */
+    private static final int MAX_SERVICES = 10_000;
+
+    private final Cache<CircuitBreakerConfig, Cache<String, ServiceGuard>> guardCache =
+            Caffeine.newBuilder().weakKeys().build();
+
+    private final Function<CircuitBreakerConfig, Cache<String, ServiceGuard>> guardsFactory =
+            config -> Caffeine.newBuilder().maximumSize(MAX_SERVICES).build();
+
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
+    @Override
+    public void doFilter(GatewayContext ctx) throws Exception {
+        Rule rule = ctx.getRule();
+        CircuitBreakerConfig config = rule.getFilterConfig(FILTER_ID).getTypedConfig(CircuitBreakerConfig.class);
+        Cache<String, ServiceGuard> guards = guardCache.getIfPresent(config);
+        if (guards == null) {
+            guards = guardCache.get(config, guardsFactory);
+        }
+        String service = StringUtils.isNotEmpty(rule.getServiceId())
+                ? rule.getServiceId() : StringUtils.defaultString(ctx.getRequest().getModifyHost(), rule.getId());
+        ServiceGuard guard = guards.getIfPresent(service);
+        if (guard == null) {
+            guard = guards.get(service, key -> new ServiceGuard(config));
+        }
+
+        long now = System.nanoTime();
+        if (guard.bulkhead != null && !guard.bulkhead.tryAcquire()) {
+            throw new ResponseException(ResponseCode.SERVICE_UNAVAILABLE);
+        }
+        CircuitBreaker.Window window = guard.circuitBreaker.tryAcquire(now);
+        if (window == null) {
+            if (guard.bulkhead != null) {
+                guard.bulkhead.release();
+            }
+            throw new ResponseException(ResponseCode.SERVICE_UNAVAILABLE);
+        }
+        ctx.setCompletedCallBack(new GuardedCall(guard, window, now));
+    }
+
+    /**
+     * 一个下游服务的熔断器和舱壁
+     */
+    private static final class ServiceGuard {
+
+        private final CircuitBreaker circuitBreaker;
+
+        private final Semaphore bulkhead;
+
+        ServiceGuard(CircuitBreakerConfig config) {
+            this.circuitBreaker = new CircuitBreaker(config);
+            this.bulkhead = config.getMaxConcurrentCalls() > 0 ? new Semaphore(config.getMaxConcurrentCalls()) : null;
+        }
+    }
+
+    /**
+     * 一次被放行的调用，请求完成时归还舱壁许可并记录结果
+     */
+    private static final class GuardedCall implements Consumer<IContext> {
+
+        private final ServiceGuard guard;
+
+        private final CircuitBreaker.Window window;
+
+        private final long startNanos;
+
+        GuardedCall(ServiceGuard guard, CircuitBreaker.Window window, long startNanos) {
+            this.guard = guard;
+            this.window = window;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void accept(IContext context) {
+            if (guard.bulkhead != null) {
+                guard.bulkhead.release();
+            }
+            guard.circuitBreaker.onComplete(window, isFailed(context), System.nanoTime() - startNanos);
+        }
+
+        private static boolean isFailed(IContext context) {
+            if (context.getThrowable() != null) {
+                return true;
+            }
+            Object response = context.getResponse();
+            return !(response instanceof GatewayResponse)
+                    || ((GatewayResponse) response).getHttpResponseStatus() == null
+                    || ((GatewayResponse) response).getHttpResponseStatus().code() >= 500;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.dogsong.core.filter.flowctl;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流控过滤器配置，例如：
+ * <pre>
+ * {"rules": [
+ *     {"type": "route", "algorithm": "token_bucket", "permits": 1000, "periodMillis": 1000, "burst": 200},
+ *     {"type": "ip", "algorithm": "sliding_window", "permits": 20, "periodMillis": 1000},
+ *     {"type": "uniqueId", "permits": 5000, "periodMillis": 60000, "cluster": true}
+ * ]}
+ * </pre>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Data
+public class FlowCtlConfig {
+
+    public static final String TYPE_ROUTE = "route";
+
+    public static final String TYPE_IP = "ip";
+
+    public static final String TYPE_UNIQUE_ID = "uniqueId";
+
+    public static final String ALGORITHM_TOKEN_BUCKET = "token_bucket";
+
+    public static final String ALGORITHM_SLIDING_WINDOW = "sliding_window";
+
+    private List<FlowCtlRule> rules = new ArrayList<>();
+
+    @Data
+    public static class FlowCtlRule {
+
+        /**
+         * 限流维度：route（整个路由）、ip（客户端IP）、uniqueId（服务ID）；
+         * 客户端IP 只在直连地址是可信代理（Config.trustedProxies）时才取自 X-Forwarded-For，客户端无法伪造地址绕过限流
+         */
+        private String type = TYPE_ROUTE;
+
+        /** 限流算法：token_bucket、sliding_window；集群模式下固定为存储端的固定窗口 */
+        private String algorithm = ALGORITHM_TOKEN_BUCKET;
+
+        /** 周期内允许的请求数 */
+        private long permits;
+
+        /** 周期，单位毫秒 */
+        private long periodMillis = 1000;
+
+        /** 令牌桶容量，不配置时等于 permits */
+        private long burst;
+
+        /** 是否集群限流，开启后计数放在 FlowCtlStore 中由所有节点共享 */
+        private boolean cluster;
+    }
+}
@@ -0,0 +1,76 @@
+package com.dogsong.core.filter.flowctl;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.ResponseException;
+import com.dogsong.core.ConfigLoader;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.filter.Filter;
+import com.dogsong.core.filter.FilterAspect;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * 流控过滤器，支持按路由、客户端IP、服务ID限流，超过阈值时返回 FLOW_CONTROL_ERROR
+ * <p>
+ * 规则的流控配置解析一次后编译成 {@link FlowCtlLimiter} 数组，以配置对象本身为 key（弱引用）缓存，
+ * 规则更新后旧配置被回收，对应的限流器随之淘汰。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Slf4j
+@FilterAspect(id = FlowCtlFilter.FILTER_ID, name = "流控过滤器", order = 2000)
+public class FlowCtlFilter implements Filter {
+
+    public static final String FILTER_ID = "flow_ctl_filter";
+
+    private final Cache<FlowCtlConfig, FlowCtlLimiter[]> limiterCache = Caffeine.newBuilder().weakKeys().build();
+
+    private final FlowCtlStore store = loadStore();
+
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
+    @Override
+    public void doFilter(GatewayContext ctx) throws Exception {
+        Rule rule = ctx.getRule();
+        FlowCtlConfig flowCtlConfig = rule.getFilterConfig(FILTER_ID).getTypedConfig(FlowCtlConfig.class);
+        FlowCtlLimiter[] limiters = limiterCache.getIfPresent(flowCtlConfig);
+        if (limiters == null) {
+            limiters = limiterCache.get(flowCtlConfig, config -> compile(rule.getId(), config));
+        }
+        long now = System.nanoTime();
+        for (FlowCtlLimiter limiter : limiters) {
+            if (!limiter.tryAcquire(ctx, now)) {
+                throw new ResponseException(ResponseCode.FLOW_CONTROL_ERROR);
+            }
+        }
+    }
+
+    private FlowCtlLimiter[] compile(String ruleId, FlowCtlConfig flowCtlConfig) {
+        List<FlowCtlConfig.FlowCtlRule> rules = flowCtlConfig.getRules();
+        long maxKeys = ConfigLoader.getConfig().getFlowCtlMaxKeys();
+        FlowCtlLimiter[] limiters = new FlowCtlLimiter[rules.size()];
+        for (int i = 0; i < limiters.length; i++) {
+            limiters[i] = new FlowCtlLimiter(ruleId, rules.get(i), store, maxKeys);
+        }
+        return limiters;
+    }
+
+    private static FlowCtlStore loadStore() {
+        Iterator<FlowCtlStore> iterator = ServiceLoader.load(FlowCtlStore.class).iterator();
+        FlowCtlStore store = iterator.hasNext() ? iterator.next()
+                : new LocalFlowCtlStore(ConfigLoader.getConfig().getFlowCtlMaxKeys());
+        log.info("flow control store: {}", store.getClass().getName());
+        return store;
+    }
+}
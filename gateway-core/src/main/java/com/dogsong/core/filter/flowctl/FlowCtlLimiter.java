@@ -0,0 +1,97 @@
+package com.dogsong.core.filter.flowctl;
+
+import com.dogsong.common.constants.BasicConst;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.request.GatewayRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 一条流控规则编译后的限流器
+ * <p>
+ * route 维度只有一个限流器；ip、uniqueId 维度按取值分别限流，限流器放在有界的 Caffeine 缓存中，
+ * 超过容量或者闲置超过两个周期的 key 会被淘汰（闲置这么久的限流器状态和新建的没有区别），
+ * 海量客户端 IP 也不会撑爆内存。直接用请求中已有的字符串做 key，单机模式下请求路径上不分配对象。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class FlowCtlLimiter {
+
+    private final String ruleId;
+
+    private final FlowCtlConfig.FlowCtlRule flowCtlRule;
+
+    private final FlowCtlStore store;
+
+    /** route 维度的限流器 */
+    private final RateLimiter routeLimiter;
+
+    /** ip、uniqueId 维度的限流器 */
+    private final Cache<String, RateLimiter> keyedLimiters;
+
+    private final Function<String, RateLimiter> limiterFactory = key -> newRateLimiter();
+
+    public FlowCtlLimiter(String ruleId, FlowCtlConfig.FlowCtlRule flowCtlRule, FlowCtlStore store, long maxKeys) {
+        this.ruleId = ruleId;
+        this.flowCtlRule = flowCtlRule;
+        this.store = store;
+        boolean route = FlowCtlConfig.TYPE_ROUTE.equalsIgnoreCase(flowCtlRule.getType());
+        this.routeLimiter = route ? newRateLimiter() : null;
+        this.keyedLimiters = route || flowCtlRule.isCluster() ? null : Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Math.max(flowCtlRule.getPeriodMillis(), 1) * 2, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * 尝试获取许可
+     *
+     * @param ctx      上下文
+     * @param nowNanos 当前时间 System.nanoTime()
+     * @return 是否放行
+     */
+    public boolean tryAcquire(GatewayContext ctx, long nowNanos) {
+        String key = resolveKey(ctx.getRequest());
+        if (key == null) {
+            // 请求中没有对应维度的值，例如没有 uniqueId，不限流
+            return true;
+        }
+        if (flowCtlRule.isCluster()) {
+            return store.tryAcquire(ruleId + BasicConst.COLON_SEPARATOR + flowCtlRule.getType()
+                            + BasicConst.COLON_SEPARATOR + key, flowCtlRule.getPermits(), flowCtlRule.getPeriodMillis());
+        }
+        if (routeLimiter != null) {
+            return routeLimiter.tryAcquire(nowNanos);
+        }
+        RateLimiter limiter = keyedLimiters.getIfPresent(key);
+        if (limiter == null) {
+            limiter = keyedLimiters.get(key, limiterFactory);
+        }
+        return limiter.tryAcquire(nowNanos);
+    }
+
+    private String resolveKey(GatewayRequest request) {
+        String type = flowCtlRule.getType();
+        if (FlowCtlConfig.TYPE_IP.equalsIgnoreCase(type)) {
+            return request.getClientIp();
+        }
+        if (FlowCtlConfig.TYPE_UNIQUE_ID.equalsIgnoreCase(type)) {
+            return request.getUniqueId();
+        }
+        return ruleId;
+    }
+
+    private RateLimiter newRateLimiter() {
+        long periodNanos = TimeUnit.MILLISECONDS.toNanos(flowCtlRule.getPeriodMillis());
+        if (FlowCtlConfig.ALGORITHM_SLIDING_WINDOW.equalsIgnoreCase(flowCtlRule.getAlgorithm())) {
+            return new SlidingWindowRateLimiter(flowCtlRule.getPermits(), periodNanos);
+        }
+        long burst = flowCtlRule.getBurst() > 0 ? flowCtlRule.getBurst() : flowCtlRule.getPermits();
+        return new TokenBucketRateLimiter(flowCtlRule.getPermits(), periodNanos, burst);
+    }
+}
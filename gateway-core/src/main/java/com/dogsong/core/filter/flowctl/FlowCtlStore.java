@@ -0,0 +1,22 @@
+package com.dogsong.core.filter.flowctl;
+
+/**
+ * 集群限流的计数存储，多个网关节点共享同一份计数，例如 redis
+ * <p>
+ * 通过 SPI 加载第一个实现，没有时使用 {@link LocalFlowCtlStore}
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public interface FlowCtlStore {
+
+    /**
+     * 在固定窗口内对 key 计数，未超过 permits 时返回 true
+     *
+     * @param key          限流 key
+     * @param permits      窗口内允许的请求数
+     * @param periodMillis 窗口长度
+     */
+    boolean tryAcquire(String key, long permits, long periodMillis);
+}
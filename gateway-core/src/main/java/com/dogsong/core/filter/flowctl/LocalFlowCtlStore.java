@@ -0,0 +1,89 @@
+package com.dogsong.core.filter.flowctl;
+
+import com.dogsong.common.utils.TimeUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 集群限流存储的本地替代实现，用进程内的固定窗口计数模拟 redis 的 INCR + EXPIRE，
+ * 只在单节点部署或者没有接入共享存储时使用
+ * <p>
+ * 计数器最多保留 maxKeys 个；每个计数器在两个窗口长度内没有请求就过期，和 EXPIRE 一样按各自的窗口计算，
+ * 窗口再长也不会在窗口内被提前清掉。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class LocalFlowCtlStore implements FlowCtlStore {
+
+    private final Cache<String, WindowCounter> counters;
+
+    /**
+     * @param maxKeys 最多保留的计数器个数，即 Config.flowCtlMaxKeys
+     */
+    public LocalFlowCtlStore(long maxKeys) {
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfter(new WindowExpiry())
+                .build();
+    }
+
+    @Override
+    public boolean tryAcquire(String key, long permits, long periodMillis) {
+        long period = Math.max(periodMillis, 1);
+        long window = TimeUtil.currentTimeMillis() / period;
+        WindowCounter counter = counters.get(key, k -> new WindowCounter(period));
+        return counter.incrementAndGet(window) <= permits;
+    }
+
+    /**
+     * 按计数器自己的窗口长度，最后一次访问之后保留两个窗口
+     */
+    private static final class WindowExpiry implements Expiry<String, WindowCounter> {
+
+        @Override
+        public long expireAfterCreate(String key, WindowCounter counter, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(counter.periodMillis) * 2;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, WindowCounter counter, long currentTime, long currentDuration) {
+            return TimeUnit.MILLISECONDS.toNanos(counter.periodMillis) * 2;
+        }
+
+        @Override
+        public long expireAfterRead(String key, WindowCounter counter, long currentTime, long currentDuration) {
+            return TimeUnit.MILLISECONDS.toNanos(counter.periodMillis) * 2;
+        }
+    }
+
+    private static final class WindowCounter {
+
+        private final long periodMillis;
+
+        private volatile long window;
+
+        private final AtomicLong count = new AtomicLong();
+
+        WindowCounter(long periodMillis) {
+            this.periodMillis = periodMillis;
+        }
+
+        long incrementAndGet(long currentWindow) {
+            if (window != currentWindow) {
+                synchronized (this) {
+                    if (window != currentWindow) {
+                        count.set(0);
+                        window = currentWindow;
+                    }
+                }
+            }
+            return count.incrementAndGet();
+        }
+    }
+}
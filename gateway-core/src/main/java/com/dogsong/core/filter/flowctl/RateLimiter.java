@@ -0,0 +1,18 @@
+package com.dogsong.core.filter.flowctl;
+
+/**
+ * 单机限流器，实现类需要无锁且不分配对象
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public interface RateLimiter {
+
+    /**
+     * 尝试获取一个许可
+     *
+     * @param nowNanos 当前时间 System.nanoTime()
+     * @return 是否获取成功
+     */
+    boolean tryAcquire(long nowNanos);
+}
@@ -0,0 +1,283 @@
+package com.dogsong.core.filter.ipaccess;
+
+import io.netty.util.NetUtil;
+
+import java.util.Arrays;
+
+/**
+ * IPv4/IPv6 网段前缀树
+ * <p>
+ * 二叉前缀树，每个节点只占 children 数组里的两个 int 和 terminal 位图里的一位，没有节点对象，
+ * 几十万个网段也只有几个连续的基本类型数组。IPv4、IPv6 各一棵树，地址按位从高到低逐层向下，
+ * 经过的任一节点是某个网段的终点即命中。
+ * </p>
+ * 构建完成后只读，可以在多个线程间共享；网段列表变化时整棵重建后替换。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public final class CidrTrie {
+
+    private final Tree ipv4 = new Tree();
+
+    private final Tree ipv6 = new Tree();
+
+    private int size;
+
+    /**
+     * 添加一个网段，例如 10.0.0.0/8、192.168.1.1、2001:db8::/32，没有前缀长度时视为单个地址
+     *
+     * @param cidr 网段
+     * @throws IllegalArgumentException 格式不正确
+     */
+    public void add(String cidr) {
+        String value = cidr.trim();
+        int slash = value.indexOf('/');
+        String address = slash < 0 ? value : value.substring(0, slash);
+        byte[] bytes = NetUtil.createByteArrayFromIpAddressString(address);
+        if (bytes == null) {
+            throw new IllegalArgumentException("invalid ip address: " + cidr);
+        }
+        int maxBits = bytes.length * 8;
+        int prefix;
+        try {
+            prefix = slash < 0 ? maxBits : Integer.parseInt(value.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid prefix length: " + cidr);
+        }
+        if (prefix < 0 || prefix > maxBits) {
+            throw new IllegalArgumentException("invalid prefix length: " + cidr);
+        }
+        long hi = toLong(bytes, 0);
+        long lo = bytes.length > 8 ? toLong(bytes, 8) : 0L;
+        (bytes.length == 4 ? ipv4 : ipv6).insert(hi, lo, prefix);
+        size++;
+    }
+
+    /**
+     * 构建完成，回收数组多余的容量
+     */
+    public CidrTrie compact() {
+        ipv4.compact();
+        ipv6.compact();
+        return this;
+    }
+
+    /**
+     * 地址是否落在任一网段内，地址格式不正确时返回 false
+     *
+     * @param ip 客户端地址
+     */
+    public boolean contains(String ip) {
+        long ipv4Address = parseIpv4(ip);
+        if (ipv4Address >= 0) {
+            return ipv4.contains(ipv4Address << 32, 0L, 32);
+        }
+        byte[] bytes = NetUtil.createByteArrayFromIpAddressString(ip);
+        if (bytes == null) {
+            return false;
+        }
+        if (bytes.length == 4) {
+            return ipv4.contains(toLong(bytes, 0), 0L, 32);
+        }
+        long hi = toLong(bytes, 0);
+        long lo = toLong(bytes, 8);
+        if (hi == 0L && (lo >>> 32) == 0xFFFFL) {
+            // IPv4 映射地址 ::ffff:a.b.c.d 按 IPv4 匹配
+            return ipv4.contains(lo << 32, 0L, 32);
+        }
+        return ipv6.contains(hi, lo, 128);
+    }
+
+    /**
+     * 网段数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 不分配对象解析点分十进制的 IPv4 地址，不是 IPv4 时返回 -1
+     */
+    private static long parseIpv4(String ip) {
+        int length = ip.length();
+        if (length < 7 || length > 15) {
+            return -1;
+        }
+        long address = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < length; i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && ++dots <= 3) {
+                address = (address << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return (address << 8) | octet;
+    }
+
+    /**
+     * 从 offset 开始的最多 8 个字节按大端转成 long，不足 8 个字节时放在高位
+     */
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0L;
+        int end = Math.min(offset + 8, bytes.length);
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (i < end ? bytes[i] & 0xFFL : 0L);
+        }
+        return value;
+    }
+
+    /**
+     * 一棵前缀树，地址用两个 long 表示，IPv4 只用 hi 的高 32 位
+     * <p>
+     * 从根节点开始每层一位。网段达到 {@value #ROOT_TABLE_THRESHOLD} 个时，compact() 额外建一张前 16 位的 roots 表，
+     * 查找直接从第 16 层开始，最多 16 / 112 步；表本身约 260KB，网段少时不建，空树也不占这部分内存。
+     * </p>
+     */
+    private static final class Tree {
+
+        private static final int ROOT_BITS = 16;
+
+        private static final int ROOT_TABLE_THRESHOLD = 1024;
+
+        /** 根节点（0 号节点不使用） */
+        private static final int ROOT = 1;
+
+        /** 前 16 位对应的第 16 层节点，0 表示没有；没有建表时为 null */
+        private int[] roots;
+
+        /** 前 16 位是否已被某个网段覆盖，和 roots 一起建 */
+        private long[] rootTerminal;
+
+        /** children[2n]、children[2n+1] 为节点 n 的 0、1 子节点，0 表示没有 */
+        private int[] children = new int[64];
+
+        /** 节点是否是某个网段的终点 */
+        private long[] terminal = new long[1];
+
+        private int nodeCount = ROOT + 1;
+
+        private int prefixes;
+
+        void insert(long hi, long lo, int prefix) {
+            // 构建完成之后再添加，roots 表作废，下次 compact() 时重建
+            roots = null;
+            rootTerminal = null;
+            prefixes++;
+            int node = ROOT;
+            for (int i = 0; i < prefix; i++) {
+                if (isSet(terminal, node)) {
+                    // 已经被更大的网段覆盖
+                    return;
+                }
+                int slot = (node << 1) | bit(hi, lo, i);
+                int child = children[slot];
+                if (child == 0) {
+                    child = newNode();
+                    children[slot] = child;
+                }
+                node = child;
+            }
+            terminal[node >>> 6] |= 1L << node;
+        }
+
+        boolean contains(long hi, long lo, int bits) {
+            int node = ROOT;
+            int i = 0;
+            int[] table = roots;
+            if (table != null) {
+                int top = (int) (hi >>> (64 - ROOT_BITS));
+                if (isSet(rootTerminal, top)) {
+                    return true;
+                }
+                node = table[top];
+                if (node == 0) {
+                    return false;
+                }
+                i = ROOT_BITS;
+            }
+            for (; ; i++) {
+                if (isSet(terminal, node)) {
+                    return true;
+                }
+                if (i == bits) {
+                    return false;
+                }
+                node = children[(node << 1) | bit(hi, lo, i)];
+                if (node == 0) {
+                    return false;
+                }
+            }
+        }
+
+        void compact() {
+            children = Arrays.copyOf(children, nodeCount << 1);
+            terminal = Arrays.copyOf(terminal, (nodeCount + 63) >>> 6);
+            if (prefixes >= ROOT_TABLE_THRESHOLD && roots == null) {
+                int[] table = new int[1 << ROOT_BITS];
+                long[] tableTerminal = new long[1 << (ROOT_BITS - 6)];
+                fillRoots(table, tableTerminal, ROOT, 0, 0);
+                rootTerminal = tableTerminal;
+                roots = table;
+            }
+        }
+
+        /**
+         * 把第 depth 层的节点 node（前 depth 位为 top）展开到 roots 表，
+         * 16 层以内就到达的终点展开成 rootTerminal 上的一段标记
+         */
+        private void fillRoots(int[] table, long[] tableTerminal, int node, int depth, int top) {
+            if (isSet(terminal, node)) {
+                int span = 1 << (ROOT_BITS - depth);
+                int start = top << (ROOT_BITS - depth);
+                for (int i = start; i < start + span; i++) {
+                    tableTerminal[i >>> 6] |= 1L << i;
+                }
+                return;
+            }
+            if (depth == ROOT_BITS) {
+                table[top] = node;
+                return;
+            }
+            for (int b = 0; b < 2; b++) {
+                int child = children[(node << 1) | b];
+                if (child != 0) {
+                    fillRoots(table, tableTerminal, child, depth + 1, (top << 1) | b);
+                }
+            }
+        }
+
+        private static boolean isSet(long[] bitmap, int index) {
+            return (bitmap[index >>> 6] & (1L << index)) != 0;
+        }
+
+        private int newNode() {
+            int node = nodeCount++;
+            if ((node << 1) + 1 >= children.length) {
+                children = Arrays.copyOf(children, children.length << 1);
+            }
+            if ((node >>> 6) >= terminal.length) {
+                terminal = Arrays.copyOf(terminal, terminal.length << 1);
+            }
+            return node;
+        }
+
+        private static int bit(long hi, long lo, int index) {
+            return (int) (index < 64 ? (hi >>> (63 - index)) & 1L : (lo >>> (127 - index)) & 1L);
+        }
+    }
+}
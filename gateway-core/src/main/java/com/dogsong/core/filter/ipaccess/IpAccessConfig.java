@@ -0,0 +1,29 @@
+package com.dogsong.core.filter.ipaccess;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IP 访问控制过滤器配置，例如：
+ * <pre>
+ * {"mode": "blacklist", "ips": ["10.0.0.0/8", "192.168.1.1", "2001:db8::/32"]}
+ * </pre>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Data
+public class IpAccessConfig {
+
+    public static final String MODE_BLACKLIST = "blacklist";
+
+    public static final String MODE_WHITELIST = "whitelist";
+
+    /** blacklist：命中的拒绝；whitelist：不命中的拒绝 */
+    private String mode = MODE_BLACKLIST;
+
+    /** IP 或者 CIDR 网段 */
+    private List<String> ips = new ArrayList<>();
+}
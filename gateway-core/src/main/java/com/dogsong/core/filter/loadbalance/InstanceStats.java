@@ -0,0 +1,127 @@
+package com.dogsong.core.filter.loadbalance;
+
+import com.dogsong.common.config.ServiceInstance;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 服务实例的运行时统计：在途请求数和响应耗时的指数加权移动平均（EWMA）
+ * <p>
+ * 按实例ID全局共享，更新都是无锁的；EWMA 的并发更新允许偶尔丢失一次样本，不影响选择效果。
+ * 服务实例变化时由 ServiceManager 调用 {@link #onInstancesChanged}：新实例以同服务其他实例耗时的中位数作为初始值，
+ * 不会因为没有样本在二选一中一直胜出；下线的实例删除统计。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+public final class InstanceStats {
+
+    /** EWMA 的平滑系数，越大越偏向最近的样本 */
+    private static final double ALPHA = 0.3;
+
+    /** 没有新样本时 EWMA 衰减的时间常数，变慢过的实例闲置一段时间后会重新被探测 */
+    private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final ConcurrentHashMap<String, InstanceStats> STATS = new ConcurrentHashMap<>();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    /** 耗时的 EWMA，单位纳秒，为 0 表示还没有样本 */
+    private volatile long ewmaNanos;
+
+    /** 最近一次更新 EWMA 的时间 */
+    private volatile long lastUpdateNanos;
+
+    private InstanceStats() {}
+
+    private InstanceStats(long ewmaNanos) {
+        this.ewmaNanos = ewmaNanos;
+        this.lastUpdateNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取实例的统计对象
+     *
+     * @param serviceInstanceId 实例ID
+     */
+    public static InstanceStats of(String serviceInstanceId) {
+        InstanceStats stats = STATS.get(serviceInstanceId);
+        if (stats == null) {
+            stats = STATS.computeIfAbsent(serviceInstanceId, k -> new InstanceStats());
+        }
+        return stats;
+    }
+
+    /**
+     * 服务的实例发生变化，为新实例设置初始耗时，删除已经不在的实例的统计
+     *
+     * @param previous 变化前的实例
+     * @param current  变化后的实例
+     */
+    public static void onInstancesChanged(Collection<ServiceInstance> previous, Collection<ServiceInstance> current) {
+        Set<String> currentIds = new HashSet<>(current.size());
+        for (ServiceInstance instance : current) {
+            currentIds.add(instance.getServiceInstanceId());
+        }
+        List<Double> samples = new ArrayList<>(previous.size());
+        for (ServiceInstance instance : previous) {
+            String id = instance.getServiceInstanceId();
+            if (!currentIds.contains(id)) {
+                STATS.remove(id);
+                continue;
+            }
+            InstanceStats stats = STATS.get(id);
+            double ewma = stats == null ? 0 : stats.getEwmaNanos();
+            if (ewma > 0) {
+                samples.add(ewma);
+            }
+        }
+        if (samples.isEmpty()) {
+            return;
+        }
+        Collections.sort(samples);
+        long median = samples.get(samples.size() / 2).longValue();
+        for (String id : currentIds) {
+            STATS.putIfAbsent(id, new InstanceStats(Math.max(median, 1)));
+        }
+    }
+
+    /**
+     * 请求开始
+     */
+    public void begin() {
+        active.incrementAndGet();
+    }
+
+    /**
+     * 请求结束
+     *
+     * @param costNanos 请求耗时
+     */
+    public void end(long costNanos) {
+        active.decrementAndGet();
+        long ewma = ewmaNanos;
+        ewmaNanos = ewma == 0 ? costNanos : (long) (ewma + (costNanos - ewma) * ALPHA);
+        lastUpdateNanos = System.nanoTime();
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * 获取耗时的 EWMA，按距离最近一次更新的时间指数衰减
+     */
+    public double getEwmaNanos() {
+        long ewma = ewmaNanos;
+        if (ewma == 0) {
+            return 0;
+        }
+        long idle = System.nanoTime() - lastUpdateNanos;
+        return idle <= 0 ? ewma : ewma * Math.exp(-idle / DECAY_NANOS);
+    }
+}
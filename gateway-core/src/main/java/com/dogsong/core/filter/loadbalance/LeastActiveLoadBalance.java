@@ -0,0 +1,42 @@
+package com.dogsong.core.filter.loadbalance;
+
+import com.dogsong.common.config.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最少在途请求，在途请求数相同的实例之间随机选择
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+public class LeastActiveLoadBalance implements LoadBalance {
+
+    public static final String NAME = "least_active";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public ServiceInstance choose(String serviceId, List<ServiceInstance> instances) {
+        ServiceInstance chosen = null;
+        int leastActive = Integer.MAX_VALUE;
+        int leastCount = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (ServiceInstance instance : instances) {
+            int active = InstanceStats.of(instance.getServiceInstanceId()).getActive();
+            if (active < leastActive) {
+                leastActive = active;
+                leastCount = 1;
+                chosen = instance;
+            } else if (active == leastActive && random.nextInt(++leastCount) == 0) {
+                // 蓄水池抽样，相同在途数的实例被选中的概率相等
+                chosen = instance;
+            }
+        }
+        return chosen;
+    }
+}
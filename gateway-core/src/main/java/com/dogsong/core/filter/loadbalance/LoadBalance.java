@@ -0,0 +1,30 @@
+package com.dogsong.core.filter.loadbalance;
+
+import com.dogsong.common.config.ServiceInstance;
+
+import java.util.List;
+
+/**
+ * 负载均衡策略，实现类需要无状态或线程安全，所有规则共用一个实例
+ * <p>
+ * 自定义策略通过 SPI 注册，按 {@link #name()} 在规则的过滤器配置中引用
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+public interface LoadBalance {
+
+    /**
+     * 策略名称，不区分大小写
+     */
+    String name();
+
+    /**
+     * 从服务实例中选择一个
+     *
+     * @param serviceId 服务ID
+     * @param instances 启用的服务实例，只读且不为空
+     */
+    ServiceInstance choose(String serviceId, List<ServiceInstance> instances);
+}
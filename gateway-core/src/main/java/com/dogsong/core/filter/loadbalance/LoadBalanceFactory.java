@@ -0,0 +1,58 @@
+package com.dogsong.core.filter.loadbalance;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 负载均衡策略工厂，内置轮询、加权随机、最少在途请求、二选一，其余策略通过 SPI 加载
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+@Slf4j
+public class LoadBalanceFactory {
+
+    private static final LoadBalanceFactory INSTANCE = new LoadBalanceFactory();
+
+    public static LoadBalanceFactory getInstance() {
+        return INSTANCE;
+    }
+
+    /** 策略名称(小写) -> 策略 */
+    private final Map<String, LoadBalance> loadBalanceMap = new ConcurrentHashMap<>();
+
+    private final LoadBalance defaultLoadBalance = new RoundRobinLoadBalance();
+
+    private LoadBalanceFactory() {
+        register(defaultLoadBalance);
+        register(new WeightedRandomLoadBalance());
+        register(new LeastActiveLoadBalance());
+        register(new P2cEwmaLoadBalance());
+        ServiceLoader.load(LoadBalance.class).forEach(this::register);
+    }
+
+    private void register(LoadBalance loadBalance) {
+        loadBalanceMap.put(loadBalance.name().toLowerCase(Locale.ROOT), loadBalance);
+        log.info("load balance loaded: {} {}", loadBalance.name(), loadBalance.getClass().getName());
+    }
+
+    /**
+     * 按名称获取策略，名称为空或者不存在时使用轮询
+     *
+     * @param name 策略名称
+     */
+    public LoadBalance getLoadBalance(String name) {
+        if (name == null) {
+            return defaultLoadBalance;
+        }
+        LoadBalance loadBalance = loadBalanceMap.get(name);
+        if (loadBalance == null) {
+            loadBalance = loadBalanceMap.getOrDefault(name.toLowerCase(Locale.ROOT), defaultLoadBalance);
+        }
+        return loadBalance;
+    }
+}
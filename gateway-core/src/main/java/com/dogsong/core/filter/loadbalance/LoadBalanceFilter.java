@@ -0,0 +1,102 @@
+package com.dogsong.core.filter.loadbalance;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.config.ServiceInstance;
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.ResponseException;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.IContext;
+import com.dogsong.core.discovery.ServiceManager;
+import com.dogsong.core.filter.Filter;
+import com.dogsong.core.filter.FilterAspect;
+import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 负载均衡过滤器：从服务发现缓存中取出规则对应服务的实例，按规则配置的策略选出一个作为下游地址
+ * <p>
+ * 规则配置了 serviceId 时启用，策略通过过滤器配置指定，例如 {"strategy": "p2c"}，不配置时使用轮询。
+ * 选中的实例在请求完成时回调更新在途请求数和耗时统计，供最少在途、二选一策略使用。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+@FilterAspect(id = LoadBalanceFilter.FILTER_ID, name = "负载均衡过滤器", order = Integer.MAX_VALUE)
+public class LoadBalanceFilter implements Filter {
+
+    public static final String FILTER_ID = "load_balance_filter";
+
+    /** 上下文属性：选中的实例，流式转发按它的 ip、端口连接下游 */
+    public static final String SELECTED_INSTANCE = "selectedInstance";
+
+    private final LoadBalanceFactory loadBalanceFactory = LoadBalanceFactory.getInstance();
+
+    @Override
+    public boolean supports(Rule rule) {
+        return StringUtils.isNotEmpty(rule.getServiceId());
+    }
+
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
+    @Override
+    public void doFilter(GatewayContext ctx) throws Exception {
+        Rule rule = ctx.getRule();
+        String serviceId = rule.getServiceId();
+        List<ServiceInstance> instances = ServiceManager.getInstance().getServiceInstances(serviceId);
+        if (instances.isEmpty()) {
+            throw new ResponseException(ResponseCode.SERVICE_INSTANCE_NOT_FOUND);
+        }
+
+        ServiceInstance instance = getLoadBalance(rule).choose(serviceId, instances);
+        ctx.getRequest().setModifyHost(instance.getAddress());
+        ctx.putAttribute(SELECTED_INSTANCE, instance);
+
+        InstanceStats stats = InstanceStats.of(instance.getServiceInstanceId());
+        stats.begin();
+        ctx.setCompletedCallBack(new InstanceCall(stats));
+    }
+
+    private LoadBalance getLoadBalance(Rule rule) {
+        Rule.FilterConfig filterConfig = rule.getFilterConfig(FILTER_ID);
+        if (filterConfig == null || StringUtils.isEmpty(filterConfig.getConfig())) {
+            return loadBalanceFactory.getLoadBalance(null);
+        }
+        return loadBalanceFactory.getLoadBalance(filterConfig.getTypedConfig(LoadBalanceConfig.class).getStrategy());
+    }
+
+    /**
+     * 负载均衡过滤器配置
+     */
+    @Data
+    public static class LoadBalanceConfig {
+
+        /** 策略名称：round_robin、weighted_random、least_active、p2c 或者 SPI 扩展的名称 */
+        private String strategy;
+    }
+
+    /**
+     * 一次对选中实例的调用，请求完成时更新实例统计
+     */
+    private static final class InstanceCall implements Consumer<IContext> {
+
+        private final InstanceStats stats;
+
+        private final long startNanos = System.nanoTime();
+
+        InstanceCall(InstanceStats stats) {
+            this.stats = stats;
+        }
+
+        @Override
+        public void accept(IContext context) {
+            stats.end(System.nanoTime() - startNanos);
+        }
+    }
+}
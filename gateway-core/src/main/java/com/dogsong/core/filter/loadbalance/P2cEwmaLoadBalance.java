@@ -0,0 +1,53 @@
+package com.dogsong.core.filter.loadbalance;
+
+import com.dogsong.common.config.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 二选一（power of two choices）：随机取两个实例，选择 耗时EWMA × (在途请求数 + 1) 较小的一个
+ * <p>
+ * 只看两个实例，开销和实例数量无关，又能让流量避开变慢的实例。
+ * 还没有耗时样本的实例按另一个实例的耗时估算，在途请求数照样参与比较，不会让新实例接下所有请求。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+public class P2cEwmaLoadBalance implements LoadBalance {
+
+    public static final String NAME = "p2c";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public ServiceInstance choose(String serviceId, List<ServiceInstance> instances) {
+        int size = instances.size();
+        if (size == 1) {
+            return instances.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        InstanceStats statsA = InstanceStats.of(a.getServiceInstanceId());
+        InstanceStats statsB = InstanceStats.of(b.getServiceInstanceId());
+        double ewmaA = statsA.getEwmaNanos();
+        double ewmaB = statsB.getEwmaNanos();
+        if (ewmaA == 0) {
+            ewmaA = ewmaB == 0 ? 1 : ewmaB;
+        }
+        if (ewmaB == 0) {
+            ewmaB = ewmaA;
+        }
+        return ewmaA * (statsA.getActive() + 1) <= ewmaB * (statsB.getActive() + 1) ? a : b;
+    }
+}
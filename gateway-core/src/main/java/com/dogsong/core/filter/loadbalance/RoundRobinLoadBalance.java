@@ -0,0 +1,35 @@
+package com.dogsong.core.filter.loadbalance;
+
+import com.dogsong.common.config.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 轮询，每个服务一个原子计数器，不加锁
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+public class RoundRobinLoadBalance implements LoadBalance {
+
+    public static final String NAME = "round_robin";
+
+    private final ConcurrentHashMap<String, AtomicInteger> positions = new ConcurrentHashMap<>();
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public ServiceInstance choose(String serviceId, List<ServiceInstance> instances) {
+        AtomicInteger position = positions.get(serviceId);
+        if (position == null) {
+            position = positions.computeIfAbsent(serviceId, k -> new AtomicInteger());
+        }
+        int index = (position.getAndIncrement() & Integer.MAX_VALUE) % instances.size();
+        return instances.get(index);
+    }
+}
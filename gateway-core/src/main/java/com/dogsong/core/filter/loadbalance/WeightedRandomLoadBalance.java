@@ -0,0 +1,48 @@
+package com.dogsong.core.filter.loadbalance;
+
+import com.dogsong.common.config.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按实例权重随机，权重都相同时退化为普通随机
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/1
+ */
+public class WeightedRandomLoadBalance implements LoadBalance {
+
+    public static final String NAME = "weighted_random";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public ServiceInstance choose(String serviceId, List<ServiceInstance> instances) {
+        int size = instances.size();
+        int totalWeight = 0;
+        boolean sameWeight = true;
+        for (int i = 0; i < size; i++) {
+            int weight = Math.max(instances.get(i).getWeight(), 0);
+            totalWeight += weight;
+            if (sameWeight && i > 0 && weight != instances.get(i - 1).getWeight()) {
+                sameWeight = false;
+            }
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (sameWeight || totalWeight <= 0) {
+            return instances.get(random.nextInt(size));
+        }
+        int offset = random.nextInt(totalWeight);
+        for (ServiceInstance instance : instances) {
+            offset -= Math.max(instance.getWeight(), 0);
+            if (offset < 0) {
+                return instance;
+            }
+        }
+        return instances.get(size - 1);
+    }
+}
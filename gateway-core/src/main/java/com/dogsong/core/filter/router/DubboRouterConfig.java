@@ -0,0 +1,37 @@
+package com.dogsong.core.filter.router;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Dubbo 路由配置，例如：
+ * <pre>
+ * {"interfaceName": "com.dogsong.backend.dubbo.UserService", "version": "1.0.0", "timeoutMillis": 1000,
+ *  "methods": {"/user/get": "getUser(java.lang.Long)", "/user/rename": "rename(java.lang.Long,java.lang.String)"}}
+ * </pre>
+ * 请求路径按 methods 找到要调用的方法；请求体为 json，只有一个参数时整个请求体就是这个参数，
+ * 多个参数时请求体是按顺序排列的 json 数组，没有参数时请求体为空。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Data
+public class DubboRouterConfig {
+
+    /** 服务接口全名 */
+    private String interfaceName;
+
+    /** 服务版本 */
+    private String version;
+
+    /** 服务分组 */
+    private String group;
+
+    /** 请求超时时间，小于等于 0 时使用 Config.dubboRequestTimeout */
+    private long timeoutMillis;
+
+    /** 请求路径 -> 方法签名 */
+    private Map<String, String> methods = new LinkedHashMap<>();
+}
@@ -0,0 +1,241 @@
+package com.dogsong.core.filter.router;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONException;
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.dubbo.DubboCodec;
+import com.dogsong.common.dubbo.DubboResponse;
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.ResponseException;
+import com.dogsong.core.Config;
+import com.dogsong.core.ConfigLoader;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.RequestPhase;
+import com.dogsong.core.dubbo.DubboReference;
+import com.dogsong.core.dubbo.MethodSignature;
+import com.dogsong.core.filter.Filter;
+import com.dogsong.core.filter.FilterAspect;
+import com.dogsong.core.filter.FilterPhase;
+import com.dogsong.core.helper.DubboHelper;
+import com.dogsong.core.helper.ResponseHelper;
+import com.dogsong.core.netty.NettyDubboClient;
+import com.dogsong.core.response.GatewayResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Dubbo 路由过滤器，把 http json 请求转换成 Dubbo 泛化调用
+ * <p>
+ * 路由配置以配置对象本身为 key（弱引用）编译一次：路径到方法签名的映射在编译时解析好，
+ * 下游地址对应的 {@link DubboReference}（相当于 ReferenceConfig + GenericService）按地址缓存，
+ * 每次请求只需要查表、解析请求体和发送请求，不再解析签名、创建引用，也没有反射。
+ * </p>
+ * 返回值保留服务提供方序列化好的 json，原样写回客户端。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Slf4j
+@FilterAspect(id = DubboRouterFilter.FILTER_ID, name = "Dubbo路由过滤器", order = Integer.MAX_VALUE, phase = FilterPhase.ROUTE)
+public class DubboRouterFilter implements Filter {
+
+    public static final String FILTER_ID = "dubbo_router_filter";
+
+    public static final String PROTOCOL_DUBBO = "dubbo";
+
+    /** 每条路由最多缓存的下游地址数，超过后不再缓存新的地址 */
+    private static final int MAX_REFERENCES = 1024;
+
+    private static final byte[] NULL_VALUE = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Cache<DubboRouterConfig, CompiledRoute> routeCache = Caffeine.newBuilder().weakKeys().build();
+
+    @Override
+    public boolean supports(Rule rule) {
+        return PROTOCOL_DUBBO.equalsIgnoreCase(rule.getProtocol());
+    }
+
+    @Override
+    public void doFilter(GatewayContext gatewayContext) throws Exception {
+        gatewayContext.markPhase(RequestPhase.ROUTE_START);
+        CompiledRoute route = getRoute(gatewayContext.getRule());
+        MethodSignature method = route.methods.get(gatewayContext.getRequest().getPath());
+        if (method == null) {
+            throw new ResponseException(ResponseCode.DUBBO_METHOD_NOT_FOUNT);
+        }
+        Object[] args = parseArgs(method, gatewayContext.getRequest().getBody());
+        DubboReference reference = route.getReference(gatewayContext.getRequest().getModifyHost());
+
+        CompletableFuture<DubboResponse> future = reference.invoke(method, args);
+        if (ConfigLoader.getConfig().isWhenComplete()) {
+            future.whenComplete((response, throwable) -> complete(response, throwable, System.nanoTime(), gatewayContext));
+        } else {
+            future.whenComplete((response, throwable) -> {
+                long responseNanos = System.nanoTime();
+                gatewayContext.getNettyCtx().channel().eventLoop()
+                        .execute(() -> complete(response, throwable, responseNanos, gatewayContext));
+            });
+        }
+    }
+
+    private CompiledRoute getRoute(Rule rule) {
+        Rule.FilterConfig filterConfig = rule.getFilterConfig(FILTER_ID);
+        if (filterConfig == null || StringUtils.isEmpty(filterConfig.getConfig())) {
+            throw new ResponseException(ResponseCode.DUBBO_DISPATCH_CONFIG_EMPTY);
+        }
+        DubboRouterConfig config = filterConfig.getTypedConfig(DubboRouterConfig.class);
+        CompiledRoute route = routeCache.getIfPresent(config);
+        return route != null ? route : routeCache.get(config, DubboRouterFilter::compile);
+    }
+
+    private static CompiledRoute compile(DubboRouterConfig config) {
+        if (StringUtils.isEmpty(config.getInterfaceName())) {
+            throw new ResponseException(ResponseCode.DUBBO_DISPATCH_CONFIG_EMPTY);
+        }
+        Map<String, MethodSignature> methods = new HashMap<>();
+        config.getMethods().forEach((path, signature) -> {
+            try {
+                methods.put(path, MethodSignature.parse(signature));
+            } catch (IllegalArgumentException e) {
+                log.warn("ignore dubbo method {}: {}", path, e.getMessage());
+            }
+        });
+        long timeoutMillis = config.getTimeoutMillis() > 0
+                ? config.getTimeoutMillis() : ConfigLoader.getConfig().getDubboRequestTimeout();
+        log.info("compiled dubbo route {}, methods: {}", config.getInterfaceName(), methods.values());
+        return new CompiledRoute(config, Collections.unmodifiableMap(methods), timeoutMillis);
+    }
+
+    /**
+     * 把请求体转换成调用参数：一个参数时整个请求体就是参数，多个参数时请求体是 json 数组
+     */
+    private static Object[] parseArgs(MethodSignature method, String body) {
+        int count = method.getParameterCount();
+        if (count == 0) {
+            return NO_ARGS;
+        }
+        if (StringUtils.isBlank(body)) {
+            throw new ResponseException(ResponseCode.DUBBO_PARAMETER_VALUE_ERROR);
+        }
+        try {
+            Object value = JSON.parse(body);
+            if (count == 1) {
+                return new Object[]{value};
+            }
+            if (!(value instanceof JSONArray) || ((JSONArray) value).size() != count) {
+                throw new ResponseException(ResponseCode.DUBBO_PARAMETER_VALUE_ERROR);
+            }
+            return ((JSONArray) value).toArray();
+        } catch (JSONException e) {
+            throw new ResponseException(e, ResponseCode.DUBBO_PARAMETER_VALUE_ERROR);
+        }
+    }
+
+    private void complete(DubboResponse response, Throwable throwable, long responseNanos,
+                          GatewayContext gatewayContext) {
+        gatewayContext.markPhase(RequestPhase.UPSTREAM_RESPONSE, responseNanos);
+        gatewayContext.setWritten();
+        if (throwable == null && response.isSuccess()) {
+            byte[] value = response.getValue() != null ? response.getValue() : NULL_VALUE;
+            DefaultFullHttpResponse httpResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                    HttpResponseStatus.OK, Unpooled.wrappedBuffer(value));
+            HttpHeaders headers = new DefaultHttpHeaders()
+                    .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON + ";charset=utf-8")
+                    .set(HttpHeaderNames.CONTENT_LENGTH, value.length);
+            httpResponse.headers().set(headers);
+            gatewayContext.setResponse(GatewayResponse.builderGatewayResponse(HttpResponseStatus.OK, headers));
+            ResponseHelper.writeResponse(gatewayContext, httpResponse);
+            return;
+        }
+
+        ResponseCode code;
+        if (throwable != null) {
+            Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+            code = cause instanceof TimeoutException ? ResponseCode.REQUEST_TIMEOUT : ResponseCode.DUBBO_CONNECT_ERROR;
+            log.warn("dubbo invoke error {}", gatewayContext.getRequest().getPath(), cause);
+            gatewayContext.setThrowable(new ResponseException(cause, code));
+        } else {
+            code = toResponseCode(response.getStatus());
+            log.warn("dubbo invoke failed {}, status: {}, message: {}",
+                    gatewayContext.getRequest().getPath(), response.getStatus(), response.getErrorMessage());
+            gatewayContext.setThrowable(new ResponseException(code));
+        }
+        gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(code));
+        ResponseHelper.writeResponse(gatewayContext);
+    }
+
+    private static ResponseCode toResponseCode(byte status) {
+        switch (status) {
+            case DubboCodec.OK:
+                // 调用完成但服务端抛出了异常
+                return ResponseCode.DUBBO_RESPONSE_ERROR;
+            case DubboCodec.CLIENT_TIMEOUT:
+            case DubboCodec.SERVER_TIMEOUT:
+                return ResponseCode.REQUEST_TIMEOUT;
+            case DubboCodec.BAD_REQUEST:
+                return ResponseCode.DUBBO_PARAMETER_VALUE_ERROR;
+            case DubboCodec.SERVICE_NOT_FOUND:
+                return ResponseCode.DUBBO_METHOD_NOT_FOUNT;
+            default:
+                return ResponseCode.DUBBO_REQUEST_ERROR;
+        }
+    }
+
+    /**
+     * 编译后的路由：方法签名表和按下游地址缓存的引用
+     */
+    private static final class CompiledRoute {
+
+        private final DubboRouterConfig config;
+
+        private final Map<String, MethodSignature> methods;
+
+        private final long timeoutMillis;
+
+        private final Map<String, DubboReference> references = new ConcurrentHashMap<>();
+
+        CompiledRoute(DubboRouterConfig config, Map<String, MethodSignature> methods, long timeoutMillis) {
+            this.config = config;
+            this.methods = methods;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        DubboReference getReference(String address) {
+            DubboReference reference = references.get(address);
+            if (reference != null) {
+                return reference;
+            }
+            if (references.size() >= MAX_REFERENCES) {
+                return newReference(address);
+            }
+            return references.computeIfAbsent(address, this::newReference);
+        }
+
+        private DubboReference newReference(String address) {
+            NettyDubboClient client = DubboHelper.getInstance().getDubboClient();
+            return new DubboReference(client, address, config.getInterfaceName(),
+                    config.getVersion(), config.getGroup(), timeoutMillis);
+        }
+    }
+}
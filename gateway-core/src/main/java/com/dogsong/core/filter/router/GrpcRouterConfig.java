@@ -0,0 +1,34 @@
+package com.dogsong.core.filter.router;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * gRPC 路由配置，例如：
+ * <pre>
+ * {"descriptorSet": "/etc/gateway/proto/user.desc", "service": "dogsong.user.UserService", "timeoutMillis": 1000,
+ *  "methods": {"/user/get": "GetUser", "/user/rename": "Rename"}}
+ * </pre>
+ * descriptorSet 是 protoc --include_imports --descriptor_set_out 生成的描述文件；
+ * 请求路径按 methods 找到要调用的一元方法，请求体是请求消息的 json，响应是响应消息的 json。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Data
+public class GrpcRouterConfig {
+
+    /** 描述文件路径 */
+    private String descriptorSet;
+
+    /** 服务全名，包名.服务名 */
+    private String service;
+
+    /** 请求超时时间，小于等于 0 时使用 Config.grpcRequestTimeout */
+    private long timeoutMillis;
+
+    /** 请求路径 -> 方法名 */
+    private Map<String, String> methods = new LinkedHashMap<>();
+}
@@ -0,0 +1,233 @@
+package com.dogsong.core.filter.router;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.ResponseException;
+import com.dogsong.core.ConfigLoader;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.RequestPhase;
+import com.dogsong.core.filter.Filter;
+import com.dogsong.core.filter.FilterAspect;
+import com.dogsong.core.filter.FilterPhase;
+import com.dogsong.core.grpc.GrpcMethod;
+import com.dogsong.core.grpc.GrpcResponse;
+import com.dogsong.core.grpc.JsonProtoTranscoder;
+import com.dogsong.core.grpc.ProtoDescriptorRegistry;
+import com.dogsong.core.helper.GrpcHelper;
+import com.dogsong.core.helper.ResponseHelper;
+import com.dogsong.core.response.GatewayResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.protobuf.Descriptors.MethodDescriptor;
+import com.google.protobuf.Descriptors.ServiceDescriptor;
+import com.google.protobuf.DynamicMessage;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * gRPC 路由过滤器，把 http json 请求转码成 protobuf 后以 gRPC 一元调用转发
+ * <p>
+ * 路由配置以配置对象本身为 key（弱引用）编译一次：描述文件由 {@link ProtoDescriptorRegistry} 按路径加载并缓存，
+ * 路径到方法、消息类型的映射在编译时解析好，每次请求只需要查表、转码和发送；
+ * 调用走 {@link com.dogsong.core.netty.NettyGrpcClient} 每个地址一个的 HTTP/2 连接，按流多路复用。
+ * </p>
+ * 调用失败时按 grpc-status 映射响应码，原始的 grpc-status、grpc-message 放在响应头里。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Slf4j
+@FilterAspect(id = GrpcRouterFilter.FILTER_ID, name = "gRPC路由过滤器", order = Integer.MAX_VALUE, phase = FilterPhase.ROUTE)
+public class GrpcRouterFilter implements Filter {
+
+    public static final String FILTER_ID = "grpc_router_filter";
+
+    public static final String PROTOCOL_GRPC = "grpc";
+
+    private static final String GRPC_STATUS = "grpc-status";
+
+    private static final String GRPC_MESSAGE = "grpc-message";
+
+    private final Cache<GrpcRouterConfig, CompiledRoute> routeCache = Caffeine.newBuilder().weakKeys().build();
+
+    @Override
+    public boolean supports(Rule rule) {
+        return PROTOCOL_GRPC.equalsIgnoreCase(rule.getProtocol());
+    }
+
+    @Override
+    public void doFilter(GatewayContext gatewayContext) throws Exception {
+        gatewayContext.markPhase(RequestPhase.ROUTE_START);
+        CompiledRoute route = getRoute(gatewayContext.getRule());
+        GrpcMethod method = route.methods.get(gatewayContext.getRequest().getPath());
+        if (method == null) {
+            throw new ResponseException(ResponseCode.GRPC_METHOD_NOT_FOUND);
+        }
+        DynamicMessage request = parseRequest(method, gatewayContext.getRequest().getBody());
+
+        CompletableFuture<GrpcResponse> future = GrpcHelper.getInstance().getGrpcClient()
+                .getConnection(gatewayContext.getRequest().getModifyHost())
+                .thenCompose(connection -> connection.call(method, request, route.timeoutMillis));
+        if (ConfigLoader.getConfig().isWhenComplete()) {
+            future.whenComplete((response, throwable) -> complete(response, throwable, System.nanoTime(), gatewayContext));
+        } else {
+            future.whenComplete((response, throwable) -> {
+                long responseNanos = System.nanoTime();
+                gatewayContext.getNettyCtx().channel().eventLoop()
+                        .execute(() -> complete(response, throwable, responseNanos, gatewayContext));
+            });
+        }
+    }
+
+    private CompiledRoute getRoute(Rule rule) {
+        Rule.FilterConfig filterConfig = rule.getFilterConfig(FILTER_ID);
+        if (filterConfig == null || StringUtils.isEmpty(filterConfig.getConfig())) {
+            throw new ResponseException(ResponseCode.GRPC_ROUTE_CONFIG_ERROR);
+        }
+        GrpcRouterConfig config = filterConfig.getTypedConfig(GrpcRouterConfig.class);
+        CompiledRoute route = routeCache.getIfPresent(config);
+        return route != null ? route : routeCache.get(config, GrpcRouterFilter::compile);
+    }
+
+    private static CompiledRoute compile(GrpcRouterConfig config) {
+        if (StringUtils.isAnyEmpty(config.getDescriptorSet(), config.getService())) {
+            throw new ResponseException(ResponseCode.GRPC_ROUTE_CONFIG_ERROR);
+        }
+        ServiceDescriptor service;
+        try {
+            service = ProtoDescriptorRegistry.getInstance().findService(config.getDescriptorSet(), config.getService());
+        } catch (IOException e) {
+            log.warn("load proto descriptors {} error", config.getDescriptorSet(), e);
+            throw new ResponseException(e, ResponseCode.GRPC_ROUTE_CONFIG_ERROR);
+        }
+        if (service == null) {
+            log.warn("grpc service {} not found in {}", config.getService(), config.getDescriptorSet());
+            throw new ResponseException(ResponseCode.GRPC_ROUTE_CONFIG_ERROR);
+        }
+        Map<String, GrpcMethod> methods = new HashMap<>();
+        config.getMethods().forEach((path, name) -> {
+            MethodDescriptor descriptor = service.findMethodByName(name);
+            if (descriptor == null) {
+                log.warn("ignore grpc method {}: {} not found in {}", path, name, service.getFullName());
+                return;
+            }
+            try {
+                methods.put(path, new GrpcMethod(descriptor));
+            } catch (IllegalArgumentException e) {
+                log.warn("ignore grpc method {}: {}", path, e.getMessage());
+            }
+        });
+        long timeoutMillis = config.getTimeoutMillis() > 0
+                ? config.getTimeoutMillis() : ConfigLoader.getConfig().getGrpcRequestTimeout();
+        log.info("compiled grpc route {}, methods: {}", service.getFullName(), methods.values());
+        return new CompiledRoute(Collections.unmodifiableMap(methods), timeoutMillis);
+    }
+
+    /**
+     * 请求体 json 转换成请求消息，请求体为空时是所有字段都为默认值的消息
+     */
+    private static DynamicMessage parseRequest(GrpcMethod method, String body) {
+        if (StringUtils.isBlank(body)) {
+            return DynamicMessage.getDefaultInstance(method.getInputType());
+        }
+        try {
+            Object value = JSON.parse(body);
+            if (!(value instanceof JSONObject)) {
+                throw new ResponseException(ResponseCode.GRPC_PARAMETER_VALUE_ERROR);
+            }
+            return JsonProtoTranscoder.toMessage(method.getInputType(), (JSONObject) value);
+        } catch (JSONException | IllegalArgumentException e) {
+            throw new ResponseException(e, ResponseCode.GRPC_PARAMETER_VALUE_ERROR);
+        }
+    }
+
+    private void complete(GrpcResponse response, Throwable throwable, long responseNanos,
+                          GatewayContext gatewayContext) {
+        gatewayContext.markPhase(RequestPhase.UPSTREAM_RESPONSE, responseNanos);
+        gatewayContext.setWritten();
+        if (throwable == null && response.isSuccess()) {
+            byte[] value = JsonProtoTranscoder.toJson(response.getValue());
+            DefaultFullHttpResponse httpResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                    HttpResponseStatus.OK, Unpooled.wrappedBuffer(value));
+            HttpHeaders headers = new DefaultHttpHeaders()
+                    .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON + ";charset=utf-8")
+                    .set(HttpHeaderNames.CONTENT_LENGTH, value.length);
+            httpResponse.headers().set(headers);
+            gatewayContext.setResponse(GatewayResponse.builderGatewayResponse(HttpResponseStatus.OK, headers));
+            ResponseHelper.writeResponse(gatewayContext, httpResponse);
+            return;
+        }
+
+        ResponseCode code;
+        GatewayResponse gatewayResponse;
+        if (throwable != null) {
+            Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+            code = cause instanceof TimeoutException ? ResponseCode.REQUEST_TIMEOUT : ResponseCode.GRPC_CONNECT_ERROR;
+            log.warn("grpc invoke error {}", gatewayContext.getRequest().getPath(), cause);
+            gatewayContext.setThrowable(new ResponseException(cause, code));
+            gatewayResponse = GatewayResponse.buildGatewayResponse(code);
+        } else {
+            code = toResponseCode(response.getStatus());
+            log.warn("grpc invoke failed {}, status: {}, message: {}",
+                    gatewayContext.getRequest().getPath(), response.getStatus(), response.getMessage());
+            gatewayContext.setThrowable(new ResponseException(code));
+            gatewayResponse = GatewayResponse.buildGatewayResponse(code);
+            gatewayResponse.getExtraResponseHeaders().set(GRPC_STATUS, response.getStatus());
+            if (response.getMessage() != null) {
+                gatewayResponse.getExtraResponseHeaders().set(GRPC_MESSAGE, response.getMessage());
+            }
+        }
+        gatewayContext.setResponse(gatewayResponse);
+        ResponseHelper.writeResponse(gatewayContext);
+    }
+
+    private static ResponseCode toResponseCode(int status) {
+        switch (status) {
+            case GrpcResponse.INVALID_ARGUMENT:
+                return ResponseCode.GRPC_PARAMETER_VALUE_ERROR;
+            case GrpcResponse.DEADLINE_EXCEEDED:
+                return ResponseCode.REQUEST_TIMEOUT;
+            case GrpcResponse.UNIMPLEMENTED:
+                return ResponseCode.GRPC_METHOD_NOT_FOUND;
+            case GrpcResponse.RESOURCE_EXHAUSTED:
+                return ResponseCode.FLOW_CONTROL_ERROR;
+            case GrpcResponse.UNAVAILABLE:
+                return ResponseCode.SERVICE_UNAVAILABLE;
+            default:
+                return ResponseCode.GRPC_RESPONSE_ERROR;
+        }
+    }
+
+    /**
+     * 编译后的路由：路径到方法的映射和超时时间
+     */
+    private static final class CompiledRoute {
+
+        private final Map<String, GrpcMethod> methods;
+
+        private final long timeoutMillis;
+
+        CompiledRoute(Map<String, GrpcMethod> methods, long timeoutMillis) {
+            this.methods = methods;
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+}
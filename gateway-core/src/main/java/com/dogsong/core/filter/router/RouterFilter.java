@@ -0,0 +1,104 @@
+package com.dogsong.core.filter.router;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.constants.BasicConst;
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.ResponseException;
+import com.dogsong.core.ConfigLoader;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.RequestPhase;
+import com.dogsong.core.filter.Filter;
+import com.dogsong.core.filter.FilterAspect;
+import com.dogsong.core.filter.FilterPhase;
+import com.dogsong.core.helper.AsyncHttpHelper;
+import com.dogsong.core.helper.ResponseHelper;
+import com.dogsong.core.response.GatewayResponse;
+import com.dogsong.core.response.HttpResponseWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.asynchttpclient.Request;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 路由过滤器，把请求异步转发到下游 http 服务
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/29
+ */
+@Slf4j
+@FilterAspect(id = RouterFilter.FILTER_ID, name = "路由过滤器", order = Integer.MAX_VALUE, phase = FilterPhase.ROUTE)
+public class RouterFilter implements Filter {
+
+    public static final String FILTER_ID = "router_filter";
+
+    @Override
+    public boolean supports(Rule rule) {
+        return StringUtils.isEmpty(rule.getProtocol())
+                || BasicConst.PROTOCOL_HTTP.equalsIgnoreCase(rule.getProtocol());
+    }
+
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
+    @Override
+    public void doFilter(GatewayContext gatewayContext) throws Exception {
+        gatewayContext.markPhase(RequestPhase.ROUTE_START);
+        Request request = gatewayContext.getRequest().build();
+        // 下游响应由 writer 边收边写回客户端，这里只处理异常和收尾
+        HttpResponseWriter writer = new HttpResponseWriter(gatewayContext);
+        CompletableFuture<GatewayResponse> future = AsyncHttpHelper.getInstance().executeRequest(request, writer);
+
+        if (ConfigLoader.getConfig().isWhenComplete()) {
+            // 单异步：在 AsyncHttpClient 的 I/O 线程上直接完成
+            future.whenComplete((response, throwable) -> complete(request, writer, response, throwable, gatewayContext));
+        } else {
+            // 双异步：回到客户端连接所在的 EventLoop 上完成
+            future.whenCompleteAsync((response, throwable) -> complete(request, writer, response, throwable, gatewayContext),
+                    gatewayContext.getNettyCtx().channel().eventLoop());
+        }
+    }
+
+    private void complete(Request request, HttpResponseWriter writer, GatewayResponse response,
+                          Throwable throwable, GatewayContext gatewayContext) {
+        writer.recordPhases();
+        if (writer.isHeaderWritten()) {
+            // 响应已经(部分)写回客户端，出错时 writer 已关闭连接，只需收尾
+            if (throwable != null) {
+                log.warn("complete error after response written {}", request.getUrl(), throwable);
+                gatewayContext.setThrowable(new ResponseException(throwable, ResponseCode.HTTP_RESPONSE_ERROR));
+            }
+            gatewayContext.setResponse(response);
+            ResponseHelper.completeResponse(gatewayContext);
+            return;
+        }
+        try {
+            if (throwable != null) {
+                String url = request.getUrl();
+                if (throwable instanceof TimeoutException) {
+                    log.warn("complete time out {}", url);
+                    gatewayContext.setThrowable(new ResponseException(throwable, ResponseCode.REQUEST_TIMEOUT));
+                    gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(ResponseCode.REQUEST_TIMEOUT));
+                } else {
+                    log.warn("complete error {}", url, throwable);
+                    gatewayContext.setThrowable(new ResponseException(throwable, ResponseCode.HTTP_RESPONSE_ERROR));
+                    gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(ResponseCode.HTTP_RESPONSE_ERROR));
+                }
+            } else {
+                // 下游连接没有返回响应头就结束了
+                gatewayContext.setThrowable(new ResponseException(ResponseCode.HTTP_RESPONSE_ERROR));
+                gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(ResponseCode.HTTP_RESPONSE_ERROR));
+            }
+        } catch (Throwable t) {
+            log.error("complete error", t);
+            gatewayContext.setThrowable(new ResponseException(t, ResponseCode.INTERNAL_ERROR));
+            gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(ResponseCode.INTERNAL_ERROR));
+        } finally {
+            gatewayContext.setWritten();
+            ResponseHelper.writeResponse(gatewayContext);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.dogsong.core.filter.singleflight;
+
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.BaseException;
+import com.dogsong.common.utils.TimeUtil;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.RequestPhase;
+import com.dogsong.core.filter.Filter;
+import com.dogsong.core.filter.GatewayFilterChainFactory;
+import com.dogsong.core.helper.ResponseHelper;
+import com.dogsong.core.metrics.GatewayMetrics;
+import com.dogsong.core.metrics.PrometheusWriter;
+import com.dogsong.core.request.GatewayRequest;
+import com.dogsong.core.response.GatewayResponse;
+import com.dogsong.core.response.SharedResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AsciiString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 合并相同的并发请求：同一个 key 同时只有一个请求（发起者）去下游，其它请求挂起等待，
+ * 发起者的响应在写回的同时被记录下来，结束后分发给所有等待者
+ * <p>
+ * 等待者在自己连接所在的 EventLoop 上写回共享的响应；发起者失败或者响应不可共享时，
+ * 等待者从挂起的过滤器之后各自继续执行。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Slf4j
+public class SingleFlight {
+
+    private static final SingleFlight INSTANCE = new SingleFlight();
+
+    /**
+     * 不论配置如何都参与 key 的请求头：下游按 Accept-Encoding 压缩，压缩后的响应体只能给同样编码的请求；
+     * 带 Authorization、Cookie 的响应可能是按用户生成的，只在凭证相同的请求之间共享
+     */
+    private static final AsciiString[] KEY_HEADERS = {HttpHeaderNames.ACCEPT_ENCODING,
+            HttpHeaderNames.AUTHORIZATION, HttpHeaderNames.COOKIE};
+
+    public static SingleFlight getInstance() {
+        return INSTANCE;
+    }
+
+    /** 正在请求下游的 key，等待者挂在 future 上 */
+    private final Map<String, CompletableFuture<SharedResponse>> inflight = new ConcurrentHashMap<>();
+
+    /** ruleId -> 统计 */
+    private final Map<String, SingleFlightStats> stats = new ConcurrentHashMap<>();
+
+    private SingleFlight() {
+        GatewayMetrics.getInstance().register(this::collectMetrics);
+    }
+
+    /**
+     * 以 key 加入合并
+     *
+     * @param ctx    上下文
+     * @param key    key
+     * @param filter 调用方过滤器，等待者恢复时从它之后继续执行
+     * @return 当前请求是发起者时返回 Call，结束时必须调用 {@link Call#complete}；
+     * 已经有相同的请求在进行时挂起当前请求并返回 null
+     */
+    public Call join(GatewayContext ctx, String key, Filter filter) {
+        CompletableFuture<SharedResponse> future = new CompletableFuture<>();
+        CompletableFuture<SharedResponse> leader = inflight.putIfAbsent(key, future);
+        SingleFlightStats ruleStats = getStats(ctx.getRule().getId());
+        if (leader == null) {
+            ruleStats.leaders.increment();
+            return new Call(key, future);
+        }
+        ruleStats.coalesced.increment();
+        // 挂起，过滤器链在这里停下，拿到结果后在客户端连接的 EventLoop 上继续
+        ctx.suspend(() -> leader.whenComplete((response, throwable) -> {
+            ByteBuf body = response != null ? response.retainedBody() : null;
+            ctx.getNettyCtx().executor().execute(() -> {
+                if (body != null) {
+                    ctx.markPhase(RequestPhase.UPSTREAM_RESPONSE);
+                    writeSharedResponse(ctx, response, body);
+                } else {
+                    resume(ctx, filter);
+                }
+            });
+        }));
+        return null;
+    }
+
+    /**
+     * 获取规则的合并请求统计
+     *
+     * @param ruleId 规则ID
+     */
+    public SingleFlightStats getStats(String ruleId) {
+        SingleFlightStats ruleStats = stats.get(ruleId);
+        return ruleStats != null ? ruleStats : stats.computeIfAbsent(ruleId, id -> new SingleFlightStats());
+    }
+
+    /**
+     * 所有规则的合并请求统计
+     */
+    public Map<String, SingleFlightStats> getAllStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * 当前正在进行的合并数
+     */
+    public int getInflightCount() {
+        return inflight.size();
+    }
+
+    private void collectMetrics(PrometheusWriter writer) {
+        writer.family("gateway_single_flight_inflight", "gauge", "Upstream calls currently shared by single flight.")
+                .sample("gateway_single_flight_inflight", null, getInflightCount());
+        writer.family("gateway_single_flight_leaders_total", "counter", "Requests that called the upstream as leader.");
+        stats.forEach((ruleId, ruleStats) -> writer.sample("gateway_single_flight_leaders_total",
+                PrometheusWriter.label("rule", ruleId), ruleStats.getLeaderCount()));
+        writer.family("gateway_single_flight_coalesced_total", "counter", "Requests that waited for a leader's response.");
+        stats.forEach((ruleId, ruleStats) -> writer.sample("gateway_single_flight_coalesced_total",
+                PrometheusWriter.label("rule", ruleId), ruleStats.getCoalescedCount()));
+    }
+
+    /**
+     * 写回共享的响应
+     *
+     * @param ctx      上下文
+     * @param response 共享的响应
+     * @param body     {@link SharedResponse#retainedBody()} 取得的响应体，写出后释放
+     */
+    public static void writeSharedResponse(GatewayContext ctx, SharedResponse response, ByteBuf body) {
+        if (ctx.getRequest().getMethod() == HttpMethod.HEAD && body.isReadable()) {
+            // GET 的响应回答 HEAD 请求，只写响应头，Content-Length 保持 GET 响应体的长度
+            body.release();
+            body = Unpooled.EMPTY_BUFFER;
+        }
+        DefaultFullHttpResponse httpResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                response.getStatus(), body);
+        httpResponse.headers().set(response.getHeaders());
+        long age = (TimeUtil.currentTimeMillis() - response.getCreatedMillis()) / 1000;
+        httpResponse.headers().set(HttpHeaderNames.AGE, Math.max(age, 0));
+        ctx.setResponse(GatewayResponse.builderGatewayResponse(response.getStatus(), response.getHeaders()));
+        ctx.setWritten();
+        ResponseHelper.writeResponse(ctx, httpResponse);
+    }
+
+    /**
+     * 从挂起的过滤器之后继续执行
+     */
+    private static void resume(GatewayContext ctx, Filter filter) {
+        try {
+            GatewayFilterChainFactory.getInstance().buildFilterChain(ctx.getRule()).resume(ctx, filter);
+        } catch (BaseException e) {
+            writeError(ctx, e.getCode(), e);
+        } catch (Throwable t) {
+            log.error("resume filter chain error", t);
+            writeError(ctx, ResponseCode.INTERNAL_ERROR, t);
+        }
+    }
+
+    private static void writeError(GatewayContext ctx, ResponseCode code, Throwable t) {
+        ctx.setThrowable(t);
+        ctx.setResponse(GatewayResponse.buildGatewayResponse(code));
+        ctx.setWritten();
+        ResponseHelper.writeResponse(ctx);
+    }
+
+    /**
+     * 由请求方法、Host、路径以及指定的查询参数、请求头生成 key
+     *
+     * @param prefix      前缀，区分规则和使用方
+     * @param request     请求
+     * @param queryParams 参与 key 的查询参数，null 时使用完整的查询字符串
+     * @param headers     参与 key 的请求头，可以为 null；{@link #KEY_HEADERS} 总是参与
+     */
+    public static String buildKey(String prefix, GatewayRequest request, List<String> queryParams, List<String> headers) {
+        return buildKey(prefix, request.getMethod(), request, queryParams, headers);
+    }
+
+    /**
+     * 按指定的请求方法生成 key，例如 HEAD 请求查找 GET 的缓存
+     *
+     * @param prefix      前缀，区分规则和使用方
+     * @param method      请求方法
+     * @param request     请求
+     * @param queryParams 参与 key 的查询参数，null 时使用完整的查询字符串
+     * @param headers     参与 key 的请求头，可以为 null；{@link #KEY_HEADERS} 总是参与
+     */
+    public static String buildKey(String prefix, HttpMethod method, GatewayRequest request, List<String> queryParams,
+                                  List<String> headers) {
+        StringBuilder key = new StringBuilder(128)
+                .append(prefix).append(' ')
+                .append(method.name()).append(' ')
+                .append(request.getHost())
+                .append(request.getPath());
+        if (queryParams == null) {
+            String uri = request.getUri();
+            int query = uri.indexOf('?');
+            if (query >= 0) {
+                key.append(uri, query, uri.length());
+            }
+        } else {
+            key.append('?');
+            for (String name : queryParams) {
+                List<String> values = request.getQueryParametersMultiples(name);
+                key.append(name).append('=');
+                if (values != null) {
+                    key.append(String.join(",", values));
+                }
+                key.append('&');
+            }
+        }
+        if (headers != null) {
+            for (String name : headers) {
+                key.append('\n').append(name).append(':').append(String.join(",", request.getHeaders().getAll(name)));
+            }
+        }
+        for (AsciiString name : KEY_HEADERS) {
+            List<String> values = request.getHeaders().getAll(name);
+            if (!values.isEmpty()) {
+                key.append('\n').append(name).append(':').append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * 发起者的一次下游调用
+     */
+    public final class Call {
+
+        private final String key;
+
+        private final CompletableFuture<SharedResponse> future;
+
+        private Call(String key, CompletableFuture<SharedResponse> future) {
+            this.key = key;
+            this.future = future;
+        }
+
+        /**
+         * 结束合并，把响应分发给等待者；等待者在回调里同步 retain 响应体，返回后调用方可以释放自己的引用
+         *
+         * @param response 可共享的响应，没有时为 null
+         */
+        public void complete(SharedResponse response) {
+            inflight.remove(key, future);
+            future.complete(response);
+        }
+    }
+}
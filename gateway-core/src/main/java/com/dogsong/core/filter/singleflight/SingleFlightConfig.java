@@ -0,0 +1,33 @@
+package com.dogsong.core.filter.singleflight;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 合并请求过滤器配置，例如：
+ * <pre>
+ * {"queryParams": ["id"], "headers": ["Accept-Encoding"], "maxBodyBytes": 1048576}
+ * </pre>
+ * key 不包含请求体，只应该给幂等、没有请求体的方法开启。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Data
+public class SingleFlightConfig {
+
+    /** 参与合并的请求方法 */
+    private List<String> methods = new ArrayList<>(Arrays.asList("GET", "HEAD"));
+
+    /** 参与 key 的查询参数，不配置时使用完整的查询字符串 */
+    private List<String> queryParams;
+
+    /** 参与 key 的请求头，下游响应的 Vary 只能包含这里列出的头 */
+    private List<String> headers;
+
+    /** 可共享的最大响应体，超过时等待者各自请求下游 */
+    private int maxBodyBytes = 1024 * 1024;
+}
@@ -0,0 +1,74 @@
+package com.dogsong.core.filter.singleflight;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.filter.Filter;
+import com.dogsong.core.filter.FilterAspect;
+import com.dogsong.core.request.GatewayRequest;
+import com.dogsong.core.response.CacheControl;
+import com.dogsong.core.response.ResponseListener;
+import com.dogsong.core.response.ResponseRecorder;
+import com.dogsong.core.response.SharedResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+
+/**
+ * 合并请求过滤器：相同的并发请求共用一次下游调用，结果分发给所有等待的请求
+ * <p>
+ * 放在熔断隔离、负载均衡之前，等待中的请求不占用舱壁许可和下游连接。请求带 Cache-Control: no-cache、no-store
+ * 时不参与合并；已经由响应缓存发起合并的请求不再重复合并。Authorization、Cookie 总是参与 key，
+ * 凭证不同的请求各自请求下游，不会拿到别人的响应。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@FilterAspect(id = SingleFlightFilter.FILTER_ID, name = "合并请求过滤器", order = 2600)
+public class SingleFlightFilter implements Filter {
+
+    public static final String FILTER_ID = "single_flight_filter";
+
+    private final SingleFlight singleFlight = SingleFlight.getInstance();
+
+    @Override
+    public void doFilter(GatewayContext ctx) throws Exception {
+        if (ctx.getAttribute(ResponseListener.ATTRIBUTE_KEY) != null) {
+            return;
+        }
+        Rule rule = ctx.getRule();
+        SingleFlightConfig config = rule.getFilterConfig(FILTER_ID).getTypedConfig(SingleFlightConfig.class);
+        GatewayRequest request = ctx.getRequest();
+        if (!supportsMethod(config, request.getMethod().name())) {
+            return;
+        }
+        CacheControl cacheControl = CacheControl.parse(request.getHeaders().get(HttpHeaderNames.CACHE_CONTROL));
+        if (cacheControl.noCache || cacheControl.noStore) {
+            return;
+        }
+
+        String ruleId = rule.getId();
+        String key = SingleFlight.buildKey(ruleId, request, config.getQueryParams(), config.getHeaders());
+        SingleFlight.Call call = singleFlight.join(ctx, key, this);
+        if (call == null) {
+            return;
+        }
+        ResponseRecorder recorder = new ResponseRecorder(config.getMaxBodyBytes(), request.getMethod(),
+                request.getHeaders());
+        ctx.putAttribute(ResponseListener.ATTRIBUTE_KEY, recorder);
+        ctx.setCompletedCallBack(context -> {
+            SharedResponse response = recorder.finish(ruleId, config.getHeaders(), 0);
+            call.complete(response);
+            if (response != null) {
+                response.getBody().release();
+            }
+        });
+    }
+
+    private static boolean supportsMethod(SingleFlightConfig config, String method) {
+        for (String supported : config.getMethods()) {
+            if (supported.equalsIgnoreCase(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
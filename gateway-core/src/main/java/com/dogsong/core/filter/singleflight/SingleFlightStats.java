@@ -0,0 +1,26 @@
+package com.dogsong.core.filter.singleflight;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一条规则的合并请求统计
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class SingleFlightStats {
+
+    /** 作为发起者请求下游的次数 */
+    final LongAdder leaders = new LongAdder();
+
+    /** 挂起等待其它请求结果的次数 */
+    final LongAdder coalesced = new LongAdder();
+
+    public long getLeaderCount() {
+        return leaders.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,293 @@
+package com.dogsong.core.grpc;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.DynamicMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http2.DefaultHttp2DataFrame;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
+import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.util.AsciiString;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.Future;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 到一个 gRPC 服务地址的 HTTP/2 连接，每次调用在同一个连接上新开一个流
+ * <p>
+ * 请求消息直接序列化进带 5 字节 gRPC 消息头的缓冲区；响应的 DATA 帧拼成组合缓冲区后按段交给 CodedInputStream 解析，
+ * 各段都是直接内存时原地读取，否则经过它自带的小块缓冲区，都不会把整个消息复制进一个 byte[]。超时后取消流（RST_STREAM），不影响同一连接上的其他调用。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class GrpcConnection {
+
+    private static final AsciiString CONTENT_TYPE_GRPC = AsciiString.cached("application/grpc");
+    private static final AsciiString TE = AsciiString.cached("te");
+    private static final AsciiString TRAILERS = AsciiString.cached("trailers");
+    private static final AsciiString GRPC_TIMEOUT = AsciiString.cached("grpc-timeout");
+    private static final AsciiString GRPC_ACCEPT_ENCODING = AsciiString.cached("grpc-accept-encoding");
+    private static final AsciiString IDENTITY = AsciiString.cached("identity");
+    private static final AsciiString GRPC_STATUS = AsciiString.cached("grpc-status");
+    private static final AsciiString GRPC_MESSAGE = AsciiString.cached("grpc-message");
+    private static final AsciiString SCHEME_HTTP = AsciiString.cached("http");
+
+    /** gRPC 消息头：1 字节压缩标记 + 4 字节长度 */
+    private static final int MESSAGE_HEADER_LENGTH = 5;
+
+    private final String address;
+
+    private final Channel channel;
+
+    private final Timer timer;
+
+    private final int maxMessageSize;
+
+    private final AsciiString authority;
+
+    private final Http2StreamChannelBootstrap streamBootstrap;
+
+    public GrpcConnection(String address, Channel channel, Timer timer, int maxMessageSize) {
+        this.address = address;
+        this.channel = channel;
+        this.timer = timer;
+        this.maxMessageSize = maxMessageSize;
+        this.authority = new AsciiString(address);
+        this.streamBootstrap = new Http2StreamChannelBootstrap(channel);
+    }
+
+    /**
+     * 一元调用
+     *
+     * @param method        方法
+     * @param request       请求消息
+     * @param timeoutMillis 超时时间，同时作为 grpc-timeout 发给服务端，超时后以 TimeoutException 结束
+     */
+    public CompletableFuture<GrpcResponse> call(GrpcMethod method, DynamicMessage request, long timeoutMillis) {
+        GrpcCall call = new GrpcCall(method);
+        int size = request.getSerializedSize();
+        if (size > maxMessageSize) {
+            call.completeExceptionally(new IllegalArgumentException("grpc request too large: " + size));
+            return call;
+        }
+        call.timeout = timer.newTimeout(call, timeoutMillis, TimeUnit.MILLISECONDS);
+        streamBootstrap.open().addListener((Future<Http2StreamChannel> future) -> {
+            if (!future.isSuccess()) {
+                call.fail(future.cause());
+                return;
+            }
+            Http2StreamChannel stream = future.getNow();
+            call.stream = stream;
+            if (call.isDone()) {
+                // 流建立前已经超时
+                stream.close();
+                return;
+            }
+            stream.pipeline().addLast(call.handler);
+
+            Http2Headers headers = new DefaultHttp2Headers()
+                    .method(HttpMethod.POST.asciiName())
+                    .scheme(SCHEME_HTTP)
+                    .path(method.getPath())
+                    .authority(authority)
+                    .set(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE_GRPC)
+                    .set(TE, TRAILERS)
+                    .set(GRPC_ACCEPT_ENCODING, IDENTITY)
+                    .set(GRPC_TIMEOUT, timeoutMillis + "m");
+            ByteBuf data = stream.alloc().buffer(MESSAGE_HEADER_LENGTH + size);
+            try {
+                data.writeByte(0).writeInt(size);
+                CodedOutputStream output = CodedOutputStream.newInstance(data.nioBuffer(MESSAGE_HEADER_LENGTH, size));
+                request.writeTo(output);
+                output.flush();
+                data.writerIndex(MESSAGE_HEADER_LENGTH + size);
+            } catch (IOException e) {
+                data.release();
+                call.fail(e);
+                stream.close();
+                return;
+            }
+            stream.write(new DefaultHttp2HeadersFrame(headers));
+            stream.writeAndFlush(new DefaultHttp2DataFrame(data, true)).addListener((ChannelFutureListener) f -> {
+                if (!f.isSuccess()) {
+                    call.fail(f.cause());
+                    f.channel().close();
+                }
+            });
+        });
+        return call;
+    }
+
+    public boolean isActive() {
+        return channel.isActive();
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    /**
+     * 一次调用：等待结果的 future，同时是超时任务，持有所在流的处理器
+     */
+    private final class GrpcCall extends CompletableFuture<GrpcResponse> implements TimerTask {
+
+        private final GrpcMethod method;
+
+        private volatile Timeout timeout;
+
+        private volatile Http2StreamChannel stream;
+
+        private final StreamHandler handler = new StreamHandler();
+
+        GrpcCall(GrpcMethod method) {
+            this.method = method;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            if (completeExceptionally(new TimeoutException("grpc request timeout: " + address + method.getPath()))) {
+                Http2StreamChannel current = stream;
+                if (current != null) {
+                    current.close();
+                }
+            }
+        }
+
+        void succeed(GrpcResponse response) {
+            timeout.cancel();
+            complete(response);
+        }
+
+        void fail(Throwable cause) {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            completeExceptionally(cause);
+        }
+
+        /**
+         * 流的入站处理：第一个 HEADERS 帧是响应头，DATA 帧是消息，带 END_STREAM 的 HEADERS 帧是 trailers，
+         * 只有一个带 END_STREAM 的 HEADERS 帧时是 Trailers-Only 响应
+         */
+        private final class StreamHandler extends ChannelInboundHandlerAdapter {
+
+            private int httpStatus;
+
+            private CompositeByteBuf body;
+
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                try {
+                    if (msg instanceof Http2HeadersFrame) {
+                        Http2HeadersFrame frame = (Http2HeadersFrame) msg;
+                        if (httpStatus == 0) {
+                            CharSequence status = frame.headers().status();
+                            httpStatus = status != null ? HttpResponseStatus.parseLine(status).code() : 0;
+                        }
+                        if (frame.isEndStream()) {
+                            finish(ctx, frame.headers());
+                        }
+                    } else if (msg instanceof Http2DataFrame) {
+                        Http2DataFrame frame = (Http2DataFrame) msg;
+                        if (body == null) {
+                            body = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+                        }
+                        body.addComponent(true, frame.content().retain());
+                        if (body.readableBytes() > MESSAGE_HEADER_LENGTH + maxMessageSize) {
+                            fail(new IOException("grpc response too large: " + address + method.getPath()));
+                            ctx.close();
+                        } else if (frame.isEndStream()) {
+                            finish(ctx, null);
+                        }
+                    }
+                } finally {
+                    ReferenceCountUtil.release(msg);
+                }
+            }
+
+            private void finish(ChannelHandlerContext ctx, Http2Headers trailers) {
+                try {
+                    CharSequence grpcStatus = trailers != null ? trailers.get(GRPC_STATUS) : null;
+                    if (grpcStatus == null) {
+                        int status = httpStatus == 200 ? GrpcResponse.INTERNAL : GrpcResponse.fromHttpStatus(httpStatus);
+                        succeed(new GrpcResponse(status, "missing grpc-status, http status " + httpStatus, null));
+                        return;
+                    }
+                    int status = Integer.parseInt(grpcStatus.toString());
+                    CharSequence grpcMessage = trailers.get(GRPC_MESSAGE);
+                    String message = grpcMessage != null ? QueryStringDecoder.decodeComponent(grpcMessage.toString()) : null;
+                    succeed(new GrpcResponse(status, message, status == GrpcResponse.OK ? parseBody() : null));
+                } catch (Exception e) {
+                    fail(e);
+                } finally {
+                    if (body != null) {
+                        body.release();
+                        body = null;
+                    }
+                    ctx.close();
+                }
+            }
+
+            private DynamicMessage parseBody() throws IOException {
+                if (body == null || body.readableBytes() < MESSAGE_HEADER_LENGTH) {
+                    throw new IOException("grpc response without message: " + address + method.getPath());
+                }
+                if (body.readByte() != 0) {
+                    throw new IOException("compressed grpc response is not supported: " + address + method.getPath());
+                }
+                int length = body.readInt();
+                if (length != body.readableBytes()) {
+                    throw new IOException("grpc response length mismatch: " + address + method.getPath());
+                }
+                CodedInputStream input = body.nioBufferCount() == 1
+                        ? CodedInputStream.newInstance(body.nioBuffer())
+                        : CodedInputStream.newInstance(Arrays.asList(body.nioBuffers()));
+                return DynamicMessage.parseFrom(method.getOutputType(), input);
+            }
+
+            @Override
+            public void channelInactive(ChannelHandlerContext ctx) {
+                if (body != null) {
+                    body.release();
+                    body = null;
+                }
+                fail(new IOException("grpc stream closed: " + address + method.getPath()));
+                ctx.fireChannelInactive();
+            }
+
+            @Override
+            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                fail(cause);
+                ctx.close();
+            }
+        }
+    }
+}
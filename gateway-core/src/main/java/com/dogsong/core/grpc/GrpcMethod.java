@@ -0,0 +1,46 @@
+package com.dogsong.core.grpc;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.MethodDescriptor;
+
+/**
+ * 编译好的 gRPC 一元方法：请求路径和请求、响应的消息类型
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class GrpcMethod {
+
+    /** HTTP/2 请求路径，/包名.服务名/方法名 */
+    private final String path;
+
+    private final Descriptor inputType;
+
+    private final Descriptor outputType;
+
+    public GrpcMethod(MethodDescriptor method) {
+        if (method.toProto().getClientStreaming() || method.toProto().getServerStreaming()) {
+            throw new IllegalArgumentException("streaming method is not supported: " + method.getFullName());
+        }
+        this.path = "/" + method.getService().getFullName() + "/" + method.getName();
+        this.inputType = method.getInputType();
+        this.outputType = method.getOutputType();
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Descriptor getInputType() {
+        return inputType;
+    }
+
+    public Descriptor getOutputType() {
+        return outputType;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,78 @@
+package com.dogsong.core.grpc;
+
+import com.google.protobuf.DynamicMessage;
+
+/**
+ * gRPC 调用结果：trailers 中的 grpc-status、grpc-message，成功时还有解析好的响应消息
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class GrpcResponse {
+
+    public static final int OK = 0;
+    public static final int CANCELLED = 1;
+    public static final int UNKNOWN = 2;
+    public static final int INVALID_ARGUMENT = 3;
+    public static final int DEADLINE_EXCEEDED = 4;
+    public static final int NOT_FOUND = 5;
+    public static final int PERMISSION_DENIED = 7;
+    public static final int RESOURCE_EXHAUSTED = 8;
+    public static final int UNIMPLEMENTED = 12;
+    public static final int INTERNAL = 13;
+    public static final int UNAVAILABLE = 14;
+    public static final int UNAUTHENTICATED = 16;
+
+    private final int status;
+
+    private final String message;
+
+    private final DynamicMessage value;
+
+    public GrpcResponse(int status, String message, DynamicMessage value) {
+        this.status = status;
+        this.message = message;
+        this.value = value;
+    }
+
+    public boolean isSuccess() {
+        return status == OK && value != null;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public DynamicMessage getValue() {
+        return value;
+    }
+
+    /**
+     * 下游没有返回 grpc-status 时，按 gRPC 规范由 HTTP 状态码推断
+     *
+     * @param httpStatus HTTP 状态码
+     */
+    public static int fromHttpStatus(int httpStatus) {
+        switch (httpStatus) {
+            case 400:
+                return INTERNAL;
+            case 401:
+                return UNAUTHENTICATED;
+            case 403:
+                return PERMISSION_DENIED;
+            case 404:
+                return UNIMPLEMENTED;
+            case 429:
+            case 502:
+            case 503:
+            case 504:
+                return UNAVAILABLE;
+            default:
+                return UNKNOWN;
+        }
+    }
+}
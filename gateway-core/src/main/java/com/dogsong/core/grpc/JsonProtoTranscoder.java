@@ -0,0 +1,373 @@
+package com.dogsong.core.grpc;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Message;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * json 和 protobuf 消息的相互转换，按 proto3 的 json 映射规则
+ * <p>
+ * 字段名同时接受 json 名（lowerCamelCase）和 proto 中的原名，未知字段忽略；
+ * 64 位整数输出为字符串，bytes 为 base64，枚举为名称，map 为 json 对象，默认值不输出。
+ * 每个消息类型的字段名表第一次用到时建立，按描述对象缓存（弱引用），描述文件重新加载后自然失效。
+ * Timestamp、Duration、Struct 等 well-known 类型按普通消息处理，不做特殊格式转换。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public final class JsonProtoTranscoder {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final BigInteger UINT64_MAX = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+    private static final Cache<Descriptor, Map<String, FieldDescriptor>> FIELD_NAMES = Caffeine.newBuilder().weakKeys().build();
+
+    private JsonProtoTranscoder() {}
+
+    /**
+     * json 对象转换成消息
+     *
+     * @param descriptor 消息类型
+     * @param json       json 对象
+     * @throws IllegalArgumentException 字段值和类型不匹配
+     */
+    public static DynamicMessage toMessage(Descriptor descriptor, JSONObject json) {
+        Map<String, FieldDescriptor> fields = fieldNames(descriptor);
+        DynamicMessage.Builder builder = DynamicMessage.newBuilder(descriptor);
+        for (Map.Entry<String, Object> entry : json.entrySet()) {
+            FieldDescriptor field = fields.get(entry.getKey());
+            Object value = entry.getValue();
+            if (field == null || value == null) {
+                continue;
+            }
+            if (field.isMapField()) {
+                mergeMap(builder, field, expect(value, JSONObject.class, field));
+            } else if (field.isRepeated()) {
+                for (Object element : expect(value, JSONArray.class, field)) {
+                    if (element != null) {
+                        builder.addRepeatedField(field, toFieldValue(field, element));
+                    }
+                }
+            } else {
+                builder.setField(field, toFieldValue(field, value));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 消息转换成 utf-8 编码的 json
+     */
+    public static byte[] toJson(Message message) {
+        StringBuilder out = new StringBuilder(256);
+        writeMessage(message, out);
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, FieldDescriptor> fieldNames(Descriptor descriptor) {
+        Map<String, FieldDescriptor> names = FIELD_NAMES.getIfPresent(descriptor);
+        if (names != null) {
+            return names;
+        }
+        return FIELD_NAMES.get(descriptor, d -> {
+            Map<String, FieldDescriptor> map = new HashMap<>();
+            for (FieldDescriptor field : d.getFields()) {
+                map.put(field.getName(), field);
+                map.put(field.getJsonName(), field);
+            }
+            return map;
+        });
+    }
+
+    private static void mergeMap(DynamicMessage.Builder builder, FieldDescriptor field, JSONObject json) {
+        Descriptor entryType = field.getMessageType();
+        FieldDescriptor keyField = entryType.findFieldByNumber(1);
+        FieldDescriptor valueField = entryType.findFieldByNumber(2);
+        for (Map.Entry<String, Object> entry : json.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            DynamicMessage mapEntry = DynamicMessage.newBuilder(entryType)
+                    .setField(keyField, toFieldValue(keyField, entry.getKey()))
+                    .setField(valueField, toFieldValue(valueField, entry.getValue()))
+                    .build();
+            builder.addRepeatedField(field, mapEntry);
+        }
+    }
+
+    private static Object toFieldValue(FieldDescriptor field, Object value) {
+        switch (field.getType()) {
+            case INT32:
+            case SINT32:
+            case SFIXED32:
+                return toLong(field, value, Integer.MIN_VALUE, Integer.MAX_VALUE).intValue();
+            case UINT32:
+            case FIXED32:
+                return toLong(field, value, 0, 0xFFFFFFFFL).intValue();
+            case INT64:
+            case SINT64:
+            case SFIXED64:
+                return toLong(field, value, Long.MIN_VALUE, Long.MAX_VALUE);
+            case UINT64:
+            case FIXED64:
+                BigInteger unsigned = toBigInteger(field, value);
+                if (unsigned.signum() < 0 || unsigned.compareTo(UINT64_MAX) > 0) {
+                    throw mismatch(field, value);
+                }
+                return unsigned.longValue();
+            case FLOAT:
+                return (float) toDouble(field, value);
+            case DOUBLE:
+                return toDouble(field, value);
+            case BOOL:
+                if (value instanceof Boolean) {
+                    return value;
+                }
+                if ("true".equals(value) || "false".equals(value)) {
+                    return Boolean.valueOf((String) value);
+                }
+                throw mismatch(field, value);
+            case STRING:
+                return expect(value, String.class, field);
+            case BYTES:
+                String base64 = expect(value, String.class, field);
+                try {
+                    boolean urlSafe = base64.indexOf('-') >= 0 || base64.indexOf('_') >= 0;
+                    return ByteString.copyFrom((urlSafe ? Base64.getUrlDecoder() : Base64.getDecoder()).decode(base64));
+                } catch (IllegalArgumentException e) {
+                    throw mismatch(field, value);
+                }
+            case ENUM:
+                EnumValueDescriptor enumValue = value instanceof Number
+                        ? field.getEnumType().findValueByNumber(toLong(field, value, Integer.MIN_VALUE, Integer.MAX_VALUE).intValue())
+                        : field.getEnumType().findValueByName(String.valueOf(value));
+                if (enumValue == null) {
+                    throw mismatch(field, value);
+                }
+                return enumValue;
+            case MESSAGE:
+            case GROUP:
+                return toMessage(field.getMessageType(), expect(value, JSONObject.class, field));
+            default:
+                throw mismatch(field, value);
+        }
+    }
+
+    private static Long toLong(FieldDescriptor field, Object value, long min, long max) {
+        BigInteger number = toBigInteger(field, value);
+        if (number.bitLength() > 63 || number.longValue() < min || number.longValue() > max) {
+            throw mismatch(field, value);
+        }
+        return number.longValue();
+    }
+
+    private static BigInteger toBigInteger(FieldDescriptor field, Object value) {
+        try {
+            if (value instanceof Integer || value instanceof Long) {
+                return BigInteger.valueOf(((Number) value).longValue());
+            }
+            if (value instanceof BigInteger) {
+                return (BigInteger) value;
+            }
+            // 1.0、"1e3" 这样值为整数的写法也接受
+            BigDecimal decimal = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(String.valueOf(value));
+            return decimal.toBigIntegerExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw mismatch(field, value);
+        }
+    }
+
+    private static double toDouble(FieldDescriptor field, Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            switch ((String) value) {
+                case "NaN":
+                    return Double.NaN;
+                case "Infinity":
+                    return Double.POSITIVE_INFINITY;
+                case "-Infinity":
+                    return Double.NEGATIVE_INFINITY;
+                default:
+                    try {
+                        return Double.parseDouble((String) value);
+                    } catch (NumberFormatException e) {
+                        throw mismatch(field, value);
+                    }
+            }
+        }
+        throw mismatch(field, value);
+    }
+
+    private static <T> T expect(Object value, Class<T> type, FieldDescriptor field) {
+        if (!type.isInstance(value)) {
+            throw mismatch(field, value);
+        }
+        return type.cast(value);
+    }
+
+    private static IllegalArgumentException mismatch(FieldDescriptor field, Object value) {
+        return new IllegalArgumentException("invalid value for field " + field.getFullName()
+                + " (" + field.getType() + "): " + value);
+    }
+
+    private static void writeMessage(Message message, StringBuilder out) {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<FieldDescriptor, Object> entry : message.getAllFields().entrySet()) {
+            FieldDescriptor field = entry.getKey();
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            writeString(field.getJsonName(), out);
+            out.append(':');
+            if (field.isMapField()) {
+                writeMap(field, (List<?>) entry.getValue(), out);
+            } else if (field.isRepeated()) {
+                out.append('[');
+                boolean firstElement = true;
+                for (Object element : (Collection<?>) entry.getValue()) {
+                    if (!firstElement) {
+                        out.append(',');
+                    }
+                    firstElement = false;
+                    writeValue(field, element, out);
+                }
+                out.append(']');
+            } else {
+                writeValue(field, entry.getValue(), out);
+            }
+        }
+        out.append('}');
+    }
+
+    private static void writeMap(FieldDescriptor field, List<?> entries, StringBuilder out) {
+        Descriptor entryType = field.getMessageType();
+        FieldDescriptor keyField = entryType.findFieldByNumber(1);
+        FieldDescriptor valueField = entryType.findFieldByNumber(2);
+        out.append('{');
+        boolean first = true;
+        for (Object element : entries) {
+            Message mapEntry = (Message) element;
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            Object key = mapEntry.getField(keyField);
+            writeString(keyField.getType() == FieldDescriptor.Type.STRING ? (String) key : scalarText(keyField, key), out);
+            out.append(':');
+            writeValue(valueField, mapEntry.getField(valueField), out);
+        }
+        out.append('}');
+    }
+
+    private static void writeValue(FieldDescriptor field, Object value, StringBuilder out) {
+        switch (field.getType()) {
+            case INT32:
+            case SINT32:
+            case SFIXED32:
+            case UINT32:
+            case FIXED32:
+            case BOOL:
+                out.append(scalarText(field, value));
+                break;
+            case INT64:
+            case SINT64:
+            case SFIXED64:
+            case UINT64:
+            case FIXED64:
+                // 64 位整数超出 javascript 的安全整数范围，按 proto3 规则输出为字符串
+                out.append('"').append(scalarText(field, value)).append('"');
+                break;
+            case FLOAT:
+            case DOUBLE:
+                double number = ((Number) value).doubleValue();
+                if (Double.isNaN(number) || Double.isInfinite(number)) {
+                    out.append('"').append(number > 0 ? "Infinity" : number < 0 ? "-Infinity" : "NaN").append('"');
+                } else {
+                    out.append(value);
+                }
+                break;
+            case STRING:
+                writeString((String) value, out);
+                break;
+            case BYTES:
+                out.append('"').append(Base64.getEncoder().encodeToString(((ByteString) value).toByteArray())).append('"');
+                break;
+            case ENUM:
+                writeString(((EnumValueDescriptor) value).getName(), out);
+                break;
+            case MESSAGE:
+            case GROUP:
+                writeMessage((Message) value, out);
+                break;
+            default:
+                out.append("null");
+        }
+    }
+
+    private static String scalarText(FieldDescriptor field, Object value) {
+        switch (field.getType()) {
+            case UINT32:
+            case FIXED32:
+                return Integer.toUnsignedString((Integer) value);
+            case UINT64:
+            case FIXED64:
+                return Long.toUnsignedString((Long) value);
+            default:
+                return String.valueOf(value);
+        }
+    }
+
+    private static void writeString(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.append("\\u").append(HEX[c >> 12]).append(HEX[(c >> 8) & 0xF])
+                                .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,121 @@
+package com.dogsong.core.grpc;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.Descriptors.ServiceDescriptor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * protobuf 描述文件注册表
+ * <p>
+ * 描述文件是 protoc --include_imports --descriptor_set_out 生成的 FileDescriptorSet，
+ * 按文件路径加载一次、解析出其中所有的服务后缓存；文件修改时间变化时重新加载。
+ * 只在路由编译时查询，请求处理过程中不会读文件或者解析描述。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Slf4j
+public class ProtoDescriptorRegistry {
+
+    private static final ProtoDescriptorRegistry INSTANCE = new ProtoDescriptorRegistry();
+
+    private ProtoDescriptorRegistry() {}
+
+    public static ProtoDescriptorRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /** 描述文件路径 -> 已加载的描述 */
+    private final Map<String, LoadedDescriptors> loaded = new ConcurrentHashMap<>();
+
+    /**
+     * 查找服务描述
+     *
+     * @param descriptorSetPath 描述文件路径
+     * @param serviceName       服务全名，例如 dogsong.user.UserService
+     * @return 服务描述，不存在时返回 null
+     * @throws IOException 描述文件不存在或者格式不正确
+     */
+    public ServiceDescriptor findService(String descriptorSetPath, String serviceName) throws IOException {
+        File file = new File(descriptorSetPath);
+        long lastModified = file.lastModified();
+        LoadedDescriptors descriptors = loaded.get(descriptorSetPath);
+        if (descriptors == null || descriptors.lastModified != lastModified) {
+            descriptors = load(file, lastModified);
+            loaded.put(descriptorSetPath, descriptors);
+        }
+        return descriptors.services.get(serviceName);
+    }
+
+    private static LoadedDescriptors load(File file, long lastModified) throws IOException {
+        FileDescriptorSet descriptorSet;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            descriptorSet = FileDescriptorSet.parseFrom(in);
+        }
+        Map<String, FileDescriptorProto> protos = new HashMap<>();
+        for (FileDescriptorProto proto : descriptorSet.getFileList()) {
+            protos.put(proto.getName(), proto);
+        }
+        Map<String, FileDescriptor> built = new HashMap<>();
+        Map<String, ServiceDescriptor> services = new HashMap<>();
+        for (FileDescriptorProto proto : descriptorSet.getFileList()) {
+            FileDescriptor fileDescriptor = build(proto.getName(), protos, built);
+            for (ServiceDescriptor service : fileDescriptor.getServices()) {
+                services.put(service.getFullName(), service);
+            }
+        }
+        log.info("loaded proto descriptors {}, services: {}", file, services.keySet());
+        return new LoadedDescriptors(lastModified, Collections.unmodifiableMap(services));
+    }
+
+    /**
+     * 按依赖顺序构建文件描述，依赖必须包含在同一个描述文件中
+     */
+    private static FileDescriptor build(String name, Map<String, FileDescriptorProto> protos,
+                                        Map<String, FileDescriptor> built) throws IOException {
+        FileDescriptor fileDescriptor = built.get(name);
+        if (fileDescriptor != null) {
+            return fileDescriptor;
+        }
+        FileDescriptorProto proto = protos.get(name);
+        if (proto == null) {
+            throw new IOException("missing proto dependency " + name + ", generate the descriptor set with --include_imports");
+        }
+        FileDescriptor[] dependencies = new FileDescriptor[proto.getDependencyCount()];
+        for (int i = 0; i < dependencies.length; i++) {
+            dependencies[i] = build(proto.getDependency(i), protos, built);
+        }
+        try {
+            fileDescriptor = FileDescriptor.buildFrom(proto, dependencies);
+        } catch (DescriptorValidationException e) {
+            throw new IOException("invalid proto descriptor " + name, e);
+        }
+        built.put(name, fileDescriptor);
+        return fileDescriptor;
+    }
+
+    private static final class LoadedDescriptors {
+
+        private final long lastModified;
+
+        private final Map<String, ServiceDescriptor> services;
+
+        LoadedDescriptors(long lastModified, Map<String, ServiceDescriptor> services) {
+            this.lastModified = lastModified;
+            this.services = services;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.dogsong.core.helper;
+
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.Request;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步的http辅助类，持有全局共享的 AsyncHttpClient
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/29
+ */
+public class AsyncHttpHelper {
+
+    private static final AsyncHttpHelper INSTANCE = new AsyncHttpHelper();
+
+    private AsyncHttpHelper() {}
+
+    public static AsyncHttpHelper getInstance() {
+        return INSTANCE;
+    }
+
+    private AsyncHttpClient asyncHttpClient;
+
+    public void initialized(AsyncHttpClient asyncHttpClient) {
+        this.asyncHttpClient = asyncHttpClient;
+    }
+
+    /**
+     * 执行下游请求，响应由 handler 边收边处理
+     * <p>
+     * 客户端按 LAZY 方式交付响应体分片，分片的 ByteBuf 只在回调期间有效，
+     * 因此不再提供聚合成 Response 的默认处理方式，需要保留的分片由 handler 自行 retain
+     * </p>
+     *
+     * @param request 下游请求
+     * @param handler 响应处理器
+     */
+    public <T> CompletableFuture<T> executeRequest(Request request, AsyncHandler<T> handler) {
+        return asyncHttpClient.executeRequest(request, handler).toCompletableFuture();
+    }
+
+}
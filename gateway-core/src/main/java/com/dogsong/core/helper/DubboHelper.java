@@ -0,0 +1,30 @@
+package com.dogsong.core.helper;
+
+import com.dogsong.core.netty.NettyDubboClient;
+
+/**
+ * Dubbo 调用的辅助类，持有全局共享的 NettyDubboClient
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class DubboHelper {
+
+    private static final DubboHelper INSTANCE = new DubboHelper();
+
+    private DubboHelper() {}
+
+    public static DubboHelper getInstance() {
+        return INSTANCE;
+    }
+
+    private NettyDubboClient dubboClient;
+
+    public void initialized(NettyDubboClient dubboClient) {
+        this.dubboClient = dubboClient;
+    }
+
+    public NettyDubboClient getDubboClient() {
+        return dubboClient;
+    }
+}
@@ -0,0 +1,30 @@
+package com.dogsong.core.helper;
+
+import com.dogsong.core.netty.NettyGrpcClient;
+
+/**
+ * gRPC 调用的辅助类，持有全局共享的 NettyGrpcClient
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class GrpcHelper {
+
+    private static final GrpcHelper INSTANCE = new GrpcHelper();
+
+    private GrpcHelper() {}
+
+    public static GrpcHelper getInstance() {
+        return INSTANCE;
+    }
+
+    private NettyGrpcClient grpcClient;
+
+    public void initialized(NettyGrpcClient grpcClient) {
+        this.grpcClient = grpcClient;
+    }
+
+    public NettyGrpcClient getGrpcClient() {
+        return grpcClient;
+    }
+}
@@ -0,0 +1,153 @@
+package com.dogsong.core.helper;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.constants.BasicConst;
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.ResponseException;
+import com.dogsong.core.Config;
+import com.dogsong.core.ConfigLoader;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.filter.ipaccess.CidrTrie;
+import com.dogsong.core.request.GatewayRequest;
+import com.dogsong.core.route.RouteManager;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.*;
+import io.netty.util.NetUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 请求的辅助类
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/26
+ */
+@Slf4j
+public class RequestHelper {
+
+    private RequestHelper() {}
+
+    /**
+     * 构建网关上下文，路径匹配不到规则时快速失败
+     *
+     * @param fullHttpRequest 聚合后的请求
+     * @param ctx             netty 上下文
+     * @param pooled          是否从对象池中获取
+     */
+    public static GatewayContext doContext(FullHttpRequest fullHttpRequest, ChannelHandlerContext ctx, boolean pooled) {
+        GatewayRequest gatewayRequest = doRequest(fullHttpRequest, ctx, pooled);
+        Rule rule = RouteManager.getInstance().match(gatewayRequest.getHost(), gatewayRequest.getPath());
+        if (rule == null) {
+            gatewayRequest.recycle();
+            throw new ResponseException(ResponseCode.PATH_NO_MATCHED);
+        }
+        String protocol = StringUtils.defaultIfEmpty(rule.getProtocol(), BasicConst.PROTOCOL_HTTP);
+        boolean keepAlive = HttpUtil.isKeepAlive(fullHttpRequest);
+        if (pooled) {
+            return GatewayContext.newInstance(protocol, ctx, keepAlive, gatewayRequest, rule);
+        }
+        return new GatewayContext.Builder()
+                .setProtocol(protocol)
+                .setNettyCtx(ctx)
+                .setKeepAlive(keepAlive)
+                .setGatewayRequest(gatewayRequest)
+                .setRule(rule)
+                .build();
+    }
+
+    /**
+     * 构建网关请求对象
+     *
+     * @param fullHttpRequest 聚合后的请求
+     * @param ctx             netty 上下文
+     * @param pooled          是否从对象池中获取
+     */
+    public static GatewayRequest doRequest(FullHttpRequest fullHttpRequest, ChannelHandlerContext ctx, boolean pooled) {
+        HttpHeaders headers = fullHttpRequest.headers();
+        String uniqueId = headers.get(BasicConst.UNIQUE_ID);
+        String host = headers.get(HttpHeaderNames.HOST);
+        HttpMethod method = fullHttpRequest.method();
+        String uri = fullHttpRequest.uri();
+        String clientIp = getClientIp(ctx, fullHttpRequest);
+        String contentType = StringUtils.defaultString(headers.get(HttpHeaderNames.CONTENT_TYPE));
+        Charset charset = HttpUtil.getCharset(fullHttpRequest, StandardCharsets.UTF_8);
+
+        if (pooled) {
+            return GatewayRequest.newInstance(uniqueId, charset, clientIp, host, uri, method,
+                    contentType, headers, fullHttpRequest);
+        }
+        return new GatewayRequest(uniqueId, charset, clientIp, host, null, uri, method,
+                contentType, headers, null, fullHttpRequest);
+    }
+
+    /**
+     * 获取客户端ip，优先取 X-Forwarded-For 中的第一个地址
+     */
+    private static String getClientIp(ChannelHandlerContext ctx, FullHttpRequest request) {
+        InetSocketAddress inetSocketAddress = (InetSocketAddress) ctx.channel().remoteAddress();
+        String remoteIp = inetSocketAddress.getAddress().getHostAddress();
+        return getClientIp(remoteIp, request.headers().getAll(BasicConst.HTTP_FORWARD_SEPARATOR), TrustedProxies.TRIE);
+    }
+
+    /**
+     * 获取客户端地址
+     * <p>
+     * X-Forwarded-For 可以被客户端任意填写，只有直连地址是可信代理时才使用：从最右边往左跳过可信代理，
+     * 第一个不可信的地址就是客户端地址；遇到格式不对的地址时停止，使用最后一个确认过的地址。
+     * </p>
+     *
+     * @param remoteIp       直连地址
+     * @param forwardedFor   X-Forwarded-For 请求头，可能有多个
+     * @param trustedProxies 可信代理网段
+     */
+    static String getClientIp(String remoteIp, List<String> forwardedFor, CidrTrie trustedProxies) {
+        if (forwardedFor.isEmpty() || !trustedProxies.contains(remoteIp)) {
+            return remoteIp;
+        }
+        String clientIp = remoteIp;
+        for (int i = forwardedFor.size() - 1; i >= 0; i--) {
+            String[] hops = StringUtils.split(forwardedFor.get(i), ',');
+            for (int j = hops.length - 1; j >= 0; j--) {
+                String hop = hops[j].trim();
+                if (!NetUtil.isValidIpV4Address(hop) && !NetUtil.isValidIpV6Address(hop)) {
+                    return clientIp;
+                }
+                clientIp = hop;
+                if (!trustedProxies.contains(hop)) {
+                    return clientIp;
+                }
+            }
+        }
+        return clientIp;
+    }
+
+    /**
+     * 可信代理网段，第一次解析客户端地址时按配置构建
+     */
+    private static final class TrustedProxies {
+
+        private static final CidrTrie TRIE = build();
+
+        private static CidrTrie build() {
+            CidrTrie trie = new CidrTrie();
+            Config config = ConfigLoader.getConfig();
+            if (config != null) {
+                for (String cidr : StringUtils.split(StringUtils.defaultString(config.getTrustedProxies()), ',')) {
+                    try {
+                        trie.add(cidr);
+                    } catch (IllegalArgumentException e) {
+                        log.warn("ignore trusted proxy entry: {}", e.getMessage());
+                    }
+                }
+            }
+            log.info("trusted proxies size: {}", trie.size());
+            return trie.compact();
+        }
+    }
+
+}
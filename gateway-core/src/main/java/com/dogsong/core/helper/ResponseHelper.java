@@ -0,0 +1,151 @@
+package com.dogsong.core.helper;
+
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.IContext;
+import com.dogsong.core.context.RequestPhase;
+import com.dogsong.core.metrics.AccessLog;
+import com.dogsong.core.metrics.GatewayMetrics;
+import com.dogsong.core.response.ErrorResponses;
+import com.dogsong.core.response.GatewayResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.*;
+import org.asynchttpclient.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * 响应的辅助类
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/25
+ */
+public class ResponseHelper {
+
+    /**
+     * 逐跳头（RFC 7230 6.1），只对网关和下游之间的这一段连接有效，写回客户端或放进缓存之前去掉。
+     * Keep-Alive、Proxy-Connection 在 Netty 里的常量已经废弃，直接写名字
+     */
+    private static final String[] HOP_BY_HOP_HEADERS = {
+            HttpHeaderNames.CONNECTION.toString(), "keep-alive", "proxy-connection",
+            HttpHeaderNames.TE.toString(), HttpHeaderNames.TRAILER.toString(),
+            HttpHeaderNames.TRANSFER_ENCODING.toString(), HttpHeaderNames.UPGRADE.toString()
+    };
+
+    private ResponseHelper() {}
+
+    /**
+     * 去掉下游响应里的逐跳头，包括 Connection 头里列出的头
+     *
+     * @param headers 下游响应头
+     */
+    public static void removeHopByHopHeaders(HttpHeaders headers) {
+        for (String connection : headers.getAll(HttpHeaderNames.CONNECTION)) {
+            for (String name : connection.split(",")) {
+                headers.remove(name.trim());
+            }
+        }
+        for (String name : HOP_BY_HOP_HEADERS) {
+            headers.remove(name);
+        }
+    }
+
+    /**
+     * 根据响应码构建一个完整的 FullHttpResponse，失败时候使用
+     *
+     * @param responseCode 响应码
+     */
+    public static FullHttpResponse getHttpResponse(ResponseCode responseCode) {
+        return ErrorResponses.newHttpResponse(responseCode);
+    }
+
+    /**
+     * 通过上下文对象和网关响应对象构建 FullHttpResponse，下游响应正常时由 HttpResponseWriter 流式写回，不走这里
+     *
+     * @param gatewayResponse 网关响应
+     */
+    private static FullHttpResponse getHttpResponse(GatewayResponse gatewayResponse) {
+        Response futureResponse = gatewayResponse.getFutureResponse();
+        if (Objects.nonNull(futureResponse)) {
+            ByteBuf content = Unpooled.wrappedBuffer(futureResponse.getResponseBodyAsByteBuffer());
+            DefaultFullHttpResponse httpResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                    HttpResponseStatus.valueOf(futureResponse.getStatusCode()), content);
+            httpResponse.headers().add(futureResponse.getHeaders());
+            httpResponse.headers().add(gatewayResponse.getExtraResponseHeaders());
+            // 下游的分块编码已经被客户端解开，按聚合后的长度重新设置
+            httpResponse.headers().remove(HttpHeaderNames.TRANSFER_ENCODING);
+            httpResponse.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+            return httpResponse;
+        }
+
+        ResponseCode responseCode = gatewayResponse.getResponseCode();
+        if (responseCode != null && gatewayResponse.getContent() == ErrorResponses.getContent(responseCode)) {
+            // 内容没有被改过的错误响应，直接复用预先编码好的缓冲区
+            FullHttpResponse httpResponse = ErrorResponses.newHttpResponse(responseCode);
+            httpResponse.headers().add(gatewayResponse.getExtraResponseHeaders());
+            return httpResponse;
+        }
+
+        ByteBuf content = gatewayResponse.getContent() != null
+                ? Unpooled.wrappedBuffer(gatewayResponse.getContent().getBytes(StandardCharsets.UTF_8))
+                : Unpooled.EMPTY_BUFFER;
+        DefaultFullHttpResponse httpResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                gatewayResponse.getHttpResponseStatus(), content);
+        httpResponse.headers().add(gatewayResponse.getResponseHeaders());
+        httpResponse.headers().add(gatewayResponse.getExtraResponseHeaders());
+        httpResponse.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        return httpResponse;
+    }
+
+    /**
+     * 写回响应信息，写回之后依次：标记完成、执行完成回调、释放请求
+     *
+     * @param context 上下文
+     */
+    public static void writeResponse(IContext context) {
+        if (!context.isWritten()) {
+            return;
+        }
+        writeResponse(context, getHttpResponse((GatewayResponse) context.getResponse()));
+    }
+
+    /**
+     * 写回已经构建好的响应（如缓存命中的响应），写回之后依次：标记完成、执行完成回调、释放请求
+     *
+     * @param context      上下文
+     * @param httpResponse 响应
+     */
+    public static void writeResponse(IContext context, FullHttpResponse httpResponse) {
+        if (!context.isKeepAlive()) {
+            context.getNettyCtx().writeAndFlush(httpResponse).addListener(ChannelFutureListener.CLOSE);
+        } else {
+            httpResponse.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            context.getNettyCtx().writeAndFlush(httpResponse);
+        }
+        completeResponse(context);
+    }
+
+    /**
+     * 响应已经写回（如 HttpResponseWriter 流式写回）之后收尾：标记完成、执行完成回调、记录指标和访问日志、释放请求
+     *
+     * @param context 上下文
+     */
+    public static void completeResponse(IContext context) {
+        GatewayContext gatewayContext = context instanceof GatewayContext ? (GatewayContext) context : null;
+        if (gatewayContext != null) {
+            // POST 过滤器等完成回调的耗时不算在写回阶段里
+            gatewayContext.markPhase(RequestPhase.COMPLETED);
+        }
+        context.setCompleted();
+        context.invokeCompletedCallBack();
+        if (gatewayContext != null) {
+            GatewayMetrics.getInstance().onRequestComplete(gatewayContext);
+            AccessLog.log(gatewayContext);
+        }
+        context.releaseRequest();
+    }
+
+}
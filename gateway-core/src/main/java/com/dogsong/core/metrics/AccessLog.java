@@ -0,0 +1,65 @@
+package com.dogsong.core.metrics;
+
+import com.dogsong.core.Config;
+import com.dogsong.core.ConfigLoader;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.RequestPhase;
+import com.dogsong.core.request.GatewayRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 访问日志，每个请求结束时输出一行
+ * <p>
+ * 格式：客户端地址 方法 URI 状态码 route=规则ID backend=下游地址 total=总耗时 各阶段耗时，耗时单位微秒，
+ * 没有经过的阶段不输出，例如：
+ * 10.0.0.1 GET /user/1 200 route=r1 backend=10.0.0.2:8080 total=1520 decode=12 queue=3 context=8 filters=21 connect=4 send=35 upstream=1380 writeback=57
+ * </p>
+ * logger 名为 accessLog，输出位置由 log4j2.xml 配置，可以通过 Config.accessLogEnabled 关闭。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public final class AccessLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("accessLog");
+
+    private static final RequestPhase[] PHASES = RequestPhase.values();
+
+    private AccessLog() {}
+
+    /**
+     * 输出一个请求的访问日志
+     *
+     * @param ctx 上下文
+     */
+    public static void log(GatewayContext ctx) {
+        // 每次读取配置，不在类加载时固定下来：类可能先于配置加载
+        Config config = ConfigLoader.getConfig();
+        if (config == null || !config.isAccessLogEnabled() || !LOGGER.isInfoEnabled()) {
+            return;
+        }
+        GatewayRequest request = ctx.getRequest();
+        StringBuilder line = new StringBuilder(256)
+                .append(request.getClientIp()).append(' ')
+                .append(request.getMethod()).append(' ')
+                .append(request.getUri()).append(' ')
+                .append(GatewayMetrics.statusOf(ctx))
+                .append(" route=").append(ctx.getRule().getId())
+                .append(" backend=").append(request.getModifyHost() != null ? request.getModifyHost() : "-")
+                .append(" total=").append(Math.max(ctx.getElapsedNanos(), 0L) / 1000);
+        for (RequestPhase phase : PHASES) {
+            if (phase.getStage() == null) {
+                continue;
+            }
+            long nanos = ctx.getStageNanos(phase);
+            if (nanos >= 0) {
+                line.append(' ').append(phase.getStage()).append('=').append(nanos / 1000);
+            }
+        }
+        if (ctx.getThrowable() != null) {
+            line.append(" error=").append(ctx.getThrowable().getClass().getSimpleName());
+        }
+        LOGGER.info(line.toString());
+    }
+}
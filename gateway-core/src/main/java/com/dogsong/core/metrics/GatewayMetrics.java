@@ -0,0 +1,185 @@
+package com.dogsong.core.metrics;
+
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.response.GatewayResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 网关指标
+ * <p>
+ * 按路由（规则ID）和下游地址记录耗时直方图、请求数、状态码计数，路由另外记录各个处理阶段的耗时直方图，
+ * 另外记录在途请求数、客户端连接数；
+ * 其它模块通过 {@link #register(MetricsCollector)} 挂上自己的指标（分发队列、响应缓存等），抓取时一起输出。
+ * 请求结束时记录，已存在的路由、地址只做一次 ConcurrentHashMap 查找和几次原子自增，不分配对象。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Slf4j
+public class GatewayMetrics {
+
+    private static final GatewayMetrics INSTANCE = new GatewayMetrics();
+
+    public static GatewayMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /** 超过后新的下游地址不再单独统计，避免按 Host 转发时无限增长 */
+    private static final int MAX_BACKENDS = 10_000;
+
+    private final Map<String, RequestMetrics> routes = new ConcurrentHashMap<>();
+
+    private final Map<String, RequestMetrics> backends = new ConcurrentHashMap<>();
+
+    private final Function<String, RequestMetrics> routeFactory =
+            id -> new RequestMetrics(PrometheusWriter.label("route", id), true);
+
+    private final Function<String, RequestMetrics> backendFactory =
+            address -> new RequestMetrics(PrometheusWriter.label("backend", address), false);
+
+    private final LongAdder inflight = new LongAdder();
+
+    private final LongAdder connections = new LongAdder();
+
+    private final LongAdder connectionsTotal = new LongAdder();
+
+    private final CopyOnWriteArrayList<MetricsCollector> collectors = new CopyOnWriteArrayList<>();
+
+    private GatewayMetrics() {
+    }
+
+    /**
+     * 注册指标收集器
+     *
+     * @param collector 收集器
+     */
+    public void register(MetricsCollector collector) {
+        collectors.add(collector);
+    }
+
+    /**
+     * 请求进入处理
+     */
+    public void onRequestStart() {
+        inflight.increment();
+    }
+
+    /**
+     * 请求结束，记录路由和下游地址的指标
+     *
+     * @param ctx 上下文
+     */
+    public void onRequestComplete(GatewayContext ctx) {
+        inflight.decrement();
+        long micros = Math.max(ctx.getElapsedNanos(), 0L) / 1000;
+        int status = statusOf(ctx);
+        boolean failed = ctx.getThrowable() != null;
+
+        RequestMetrics routeMetrics = getRouteMetrics(ctx.getRule().getId());
+        routeMetrics.record(micros, status, failed);
+        routeMetrics.recordStages(ctx);
+        String backend = ctx.getRequest().getModifyHost();
+        if (backend != null) {
+            RequestMetrics backendMetrics = getBackendMetrics(backend);
+            if (backendMetrics != null) {
+                backendMetrics.record(micros, status, failed);
+            }
+        }
+    }
+
+    /**
+     * 响应状态码，没有响应时为 0
+     */
+    static int statusOf(GatewayContext ctx) {
+        GatewayResponse response = ctx.getResponse();
+        return response != null && response.getHttpResponseStatus() != null
+                ? response.getHttpResponseStatus().code() : 0;
+    }
+
+    public void onConnectionOpened() {
+        connections.increment();
+        connectionsTotal.increment();
+    }
+
+    public void onConnectionClosed() {
+        connections.decrement();
+    }
+
+    public RequestMetrics getRouteMetrics(String ruleId) {
+        RequestMetrics metrics = routes.get(ruleId);
+        return metrics != null ? metrics : routes.computeIfAbsent(ruleId, routeFactory);
+    }
+
+    /**
+     * 获取下游地址的指标，地址数超过上限时返回 null
+     */
+    public RequestMetrics getBackendMetrics(String address) {
+        RequestMetrics metrics = backends.get(address);
+        if (metrics != null) {
+            return metrics;
+        }
+        return backends.size() < MAX_BACKENDS ? backends.computeIfAbsent(address, backendFactory) : null;
+    }
+
+    /**
+     * 输出所有指标
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        PrometheusWriter writer = new PrometheusWriter(out);
+
+        writer.family("gateway_requests_inflight", "gauge", "Requests being processed");
+        writer.sample("gateway_requests_inflight", null, inflight.sum());
+        writer.family("gateway_connections", "gauge", "Open client connections");
+        writer.sample("gateway_connections", null, connections.sum());
+        writer.family("gateway_connections_total", "counter", "Accepted client connections");
+        writer.sample("gateway_connections_total", null, connectionsTotal.sum());
+
+        writeRequestMetrics(writer, "gateway_route", "route", routes);
+        writeRequestMetrics(writer, "gateway_backend", "backend", backends);
+
+        writer.family("gateway_route_stage_seconds", "histogram", "Request latency by route and processing stage");
+        routes.values().forEach(metrics -> metrics.writeStageHistograms(writer, "gateway_route_stage_seconds"));
+        writer.family("gateway_route_stage_quantile_seconds", "gauge", "Request latency quantiles by route and processing stage");
+        routes.values().forEach(metrics -> metrics.writeStageQuantiles(writer, "gateway_route_stage_quantile_seconds"));
+
+        for (MetricsCollector collector : collectors) {
+            try {
+                collector.collect(writer);
+            } catch (Throwable t) {
+                log.warn("collect metrics error, {}", collector, t);
+            }
+        }
+        return out.toString();
+    }
+
+    private static void writeRequestMetrics(PrometheusWriter writer, String prefix, String target,
+                                            Map<String, RequestMetrics> metricsMap) {
+        String requests = prefix + "_requests_total";
+        writer.family(requests, "counter", "Requests by " + target);
+        metricsMap.values().forEach(metrics -> writer.sample(requests, metrics.getLabels(), metrics.getRequestCount()));
+
+        String errors = prefix + "_errors_total";
+        writer.family(errors, "counter", "Requests completed with an exception by " + target);
+        metricsMap.values().forEach(metrics -> writer.sample(errors, metrics.getLabels(), metrics.getErrorCount()));
+
+        String responses = prefix + "_responses_total";
+        writer.family(responses, "counter", "Responses by " + target + " and status code");
+        metricsMap.values().forEach(metrics -> metrics.writeStatusCounts(writer, responses));
+
+        String latency = prefix + "_latency_seconds";
+        writer.family(latency, "histogram", "Request latency by " + target);
+        metricsMap.values().forEach(metrics -> metrics.getLatency().writeHistogram(writer, latency, metrics.getLabels()));
+
+        String quantiles = prefix + "_latency_quantile_seconds";
+        writer.family(quantiles, "gauge", "Request latency quantiles by " + target);
+        metricsMap.values().forEach(metrics -> metrics.getLatency().writeQuantiles(writer, quantiles, metrics.getLabels()));
+    }
+}
@@ -0,0 +1,142 @@
+package com.dogsong.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的对数线性直方图（HDR 风格），单位微秒
+ * <p>
+ * 小于 64us 的值每 1us 一个桶，之后每个 2 的幂区间再均分为 32 个桶，相对误差约 3%，
+ * 1024 个桶覆盖到约 19 小时。记录只是一次桶下标计算和一次 AtomicLongArray 自增，不分配对象、不加锁；
+ * 导出时按桶累加成 Prometheus 的 le 区间和分位数。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKET_COUNT = 1024;
+
+    private static final long MAX_VALUE = bucketUpperBound(BUCKET_COUNT - 1);
+
+    /** 导出的 le 区间，单位秒 */
+    private static final double[] LE_SECONDS = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.9", "0.99", "0.999"};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sumMicros = new LongAdder();
+
+    /**
+     * 记录一次耗时
+     *
+     * @param micros 耗时，单位微秒
+     */
+    public void record(long micros) {
+        long value = micros < 0 ? 0 : Math.min(micros, MAX_VALUE);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sumMicros.add(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 按 Prometheus histogram 格式输出 name_bucket、name_sum、name_count
+     *
+     * @param writer 输出
+     * @param name   指标名，单位为秒
+     * @param labels 已经格式化好的标签，例如 route="r1"
+     */
+    public void writeHistogram(PrometheusWriter writer, String name, String labels) {
+        long[] snapshot = snapshot();
+        String bucketName = name + "_bucket";
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        int index = 0;
+        for (int i = 0; i < LE_SECONDS.length; i++) {
+            long bound = (long) (LE_SECONDS[i] * 1_000_000);
+            while (index < BUCKET_COUNT && bucketUpperBound(index) <= bound) {
+                cumulative += snapshot[index++];
+            }
+            writer.sample(bucketName, prefix + "le=\"" + LE_SECONDS[i] + "\"", cumulative);
+        }
+        long total = cumulative;
+        while (index < BUCKET_COUNT) {
+            total += snapshot[index++];
+        }
+        writer.sample(bucketName, prefix + "le=\"+Inf\"", total);
+        writer.sample(name + "_sum", labels, sumMicros.sum() / 1_000_000.0);
+        writer.sample(name + "_count", labels, total);
+    }
+
+    /**
+     * 输出分位数，单位秒，取分位所在桶的上界
+     *
+     * @param writer 输出
+     * @param name   指标名
+     * @param labels 已经格式化好的标签
+     */
+    public void writeQuantiles(PrometheusWriter writer, String name, String labels) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long bucket : snapshot) {
+            total += bucket;
+        }
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (int q = 0; q < QUANTILES.length; q++) {
+            double value = 0;
+            if (total > 0) {
+                long rank = (long) Math.ceil(QUANTILES[q] * total);
+                long seen = 0;
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    seen += snapshot[i];
+                    if (seen >= rank) {
+                        value = bucketUpperBound(i) / 1_000_000.0;
+                        break;
+                    }
+                }
+            }
+            writer.sample(name, prefix + "quantile=\"" + QUANTILE_LABELS[q] + "\"", value);
+        }
+    }
+
+    private long[] snapshot() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+        }
+        return snapshot;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT << 1) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT << 1) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long mantissa = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
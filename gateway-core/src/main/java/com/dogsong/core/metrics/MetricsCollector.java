@@ -0,0 +1,18 @@
+package com.dogsong.core.metrics;
+
+/**
+ * 指标收集器，抓取时把自己的指标写到输出中，注册到 {@link GatewayMetrics}
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@FunctionalInterface
+public interface MetricsCollector {
+
+    /**
+     * 输出指标
+     *
+     * @param writer 输出
+     */
+    void collect(PrometheusWriter writer);
+}
@@ -0,0 +1,70 @@
+package com.dogsong.core.metrics;
+
+/**
+ * Prometheus 文本格式（0.0.4）输出
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public final class PrometheusWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder out;
+
+    public PrometheusWriter(StringBuilder out) {
+        this.out = out;
+    }
+
+    /**
+     * 输出指标族的 HELP 和 TYPE
+     *
+     * @param name 指标名
+     * @param type counter、gauge、histogram、summary
+     * @param help 说明
+     */
+    public PrometheusWriter family(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    public PrometheusWriter sample(String name, String labels, long value) {
+        appendName(name, labels).append(value).append('\n');
+        return this;
+    }
+
+    public PrometheusWriter sample(String name, String labels, double value) {
+        appendName(name, labels).append(value).append('\n');
+        return this;
+    }
+
+    /**
+     * 格式化一个标签，转义反斜杠、双引号和换行
+     *
+     * @param name  标签名
+     * @param value 标签值
+     */
+    public static String label(String name, String value) {
+        StringBuilder label = new StringBuilder(name.length() + value.length() + 3).append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                label.append('\\').append(c);
+            } else if (c == '\n') {
+                label.append("\\n");
+            } else {
+                label.append(c);
+            }
+        }
+        return label.append('"').toString();
+    }
+
+    private StringBuilder appendName(String name, String labels) {
+        out.append(name);
+        if (labels != null && !labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        return out.append(' ');
+    }
+}
@@ -0,0 +1,151 @@
+package com.dogsong.core.metrics;
+
+import com.dogsong.core.context.BasicContext;
+import com.dogsong.core.context.RequestPhase;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个路由或者一个下游地址的请求指标：耗时直方图、请求数、按状态码的计数、失败数，
+ * 路由另外按处理阶段（解码、排队、过滤器、连接、等待下游、写回等）各有一个耗时直方图
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class RequestMetrics {
+
+    private static final int MAX_STATUS = 600;
+
+    private static final RequestPhase[] PHASES = RequestPhase.values();
+
+    /** 格式化好的标签，例如 route="r1" */
+    private final String labels;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    /** 按状态码计数，下标即状态码 */
+    private final AtomicLongArray statusCounts = new AtomicLongArray(MAX_STATUS);
+
+    /** 按时间点下标的阶段耗时直方图，不按阶段统计时为 null */
+    private final LatencyHistogram[] stages;
+
+    /** 阶段耗时直方图的标签，例如 route="r1",stage="decode" */
+    private final String[] stageLabels;
+
+    RequestMetrics(String labels, boolean withStages) {
+        this.labels = labels;
+        if (withStages) {
+            this.stages = new LatencyHistogram[PHASES.length];
+            this.stageLabels = new String[PHASES.length];
+            for (RequestPhase phase : PHASES) {
+                if (phase.getStage() != null) {
+                    stages[phase.ordinal()] = new LatencyHistogram();
+                    stageLabels[phase.ordinal()] = labels + "," + PrometheusWriter.label("stage", phase.getStage());
+                }
+            }
+        } else {
+            this.stages = null;
+            this.stageLabels = null;
+        }
+    }
+
+    /**
+     * 记录一次请求
+     *
+     * @param micros 耗时，单位微秒
+     * @param status 响应状态码
+     * @param failed 是否发生异常
+     */
+    public void record(long micros, int status, boolean failed) {
+        requests.increment();
+        latency.record(micros);
+        if (status > 0 && status < MAX_STATUS) {
+            statusCounts.incrementAndGet(status);
+        }
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * 记录一次请求各个阶段的耗时，没有经过的阶段不记录
+     *
+     * @param ctx 上下文
+     */
+    public void recordStages(BasicContext ctx) {
+        if (stages == null) {
+            return;
+        }
+        for (RequestPhase phase : PHASES) {
+            LatencyHistogram histogram = stages[phase.ordinal()];
+            if (histogram != null) {
+                long nanos = ctx.getStageNanos(phase);
+                if (nanos >= 0) {
+                    histogram.record(nanos / 1000);
+                }
+            }
+        }
+    }
+
+    public String getLabels() {
+        return labels;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * 输出各个阶段的耗时直方图，不按阶段统计时什么也不输出
+     */
+    void writeStageHistograms(PrometheusWriter writer, String name) {
+        if (stages == null) {
+            return;
+        }
+        for (int i = 0; i < stages.length; i++) {
+            if (stages[i] != null) {
+                stages[i].writeHistogram(writer, name, stageLabels[i]);
+            }
+        }
+    }
+
+    /**
+     * 输出各个阶段的耗时分位数，不按阶段统计时什么也不输出
+     */
+    void writeStageQuantiles(PrometheusWriter writer, String name) {
+        if (stages == null) {
+            return;
+        }
+        for (int i = 0; i < stages.length; i++) {
+            if (stages[i] != null) {
+                stages[i].writeQuantiles(writer, name, stageLabels[i]);
+            }
+        }
+    }
+
+    /**
+     * 输出非零的状态码计数
+     */
+    void writeStatusCounts(PrometheusWriter writer, String name) {
+        String prefix = labels + ",code=\"";
+        for (int status = 0; status < MAX_STATUS; status++) {
+            long value = statusCounts.get(status);
+            if (value > 0) {
+                writer.sample(name, prefix + status + "\"", value);
+            }
+        }
+    }
+}
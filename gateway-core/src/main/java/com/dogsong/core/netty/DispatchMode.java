@@ -0,0 +1,33 @@
+package com.dogsong.core.netty;
+
+/**
+ * 请求从 I/O 线程交给业务处理的方式
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/30
+ */
+public enum DispatchMode {
+
+    /** 直接在 EventLoop 上执行，过滤器里不能有阻塞操作 */
+    INLINE,
+
+    /** 投递到固定数量的业务线程，每个线程一个有界 MPSC 队列 */
+    WORKER,
+
+    /** 每个请求一个虚拟线程，需要 JDK 21，低版本自动退化为 WORKER */
+    VIRTUAL;
+
+    /**
+     * 按名称解析，忽略大小写，无法识别时使用 INLINE
+     *
+     * @param name 名称
+     */
+    public static DispatchMode of(String name) {
+        for (DispatchMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        return INLINE;
+    }
+}
@@ -0,0 +1,99 @@
+package com.dogsong.core.netty;
+
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.BaseException;
+import com.dogsong.core.Config;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.HttpRequestWrapper;
+import com.dogsong.core.context.RequestPhase;
+import com.dogsong.core.filter.GatewayFilterChainFactory;
+import com.dogsong.core.helper.RequestHelper;
+import com.dogsong.core.helper.ResponseHelper;
+import com.dogsong.core.metrics.GatewayMetrics;
+import com.dogsong.core.response.GatewayResponse;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 核心处理器：构建上下文并执行规则对应的过滤器链
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/28
+ */
+@Slf4j
+public class NettyCoreProcessor implements NettyProcessor {
+
+    private final GatewayFilterChainFactory filterFactory = GatewayFilterChainFactory.getInstance();
+
+    /** 是否使用对象池 */
+    private final boolean pooled;
+
+    public NettyCoreProcessor(Config config) {
+        this.pooled = config.isContextPoolEnabled();
+    }
+
+    @Override
+    public void process(HttpRequestWrapper wrapper) {
+        FullHttpRequest request = wrapper.getRequest();
+        ChannelHandlerContext ctx = wrapper.getCtx();
+        long receivedNanos = wrapper.getReceivedNanos();
+        long decodedNanos = wrapper.getDecodedNanos();
+        long dispatchedNanos = System.nanoTime();
+        wrapper.recycle();
+
+        GatewayContext gatewayContext = null;
+        try {
+            gatewayContext = RequestHelper.doContext(request, ctx, pooled);
+            gatewayContext.markPhase(RequestPhase.RECEIVED, receivedNanos);
+            gatewayContext.markPhase(RequestPhase.DECODED, decodedNanos);
+            gatewayContext.markPhase(RequestPhase.DISPATCHED, dispatchedNanos);
+            gatewayContext.markPhase(RequestPhase.CONTEXT_READY);
+            GatewayMetrics.getInstance().onRequestStart();
+            filterFactory.buildFilterChain(gatewayContext.getRule()).doFilter(gatewayContext);
+        } catch (BaseException e) {
+            if (isRejection(e.getCode())) {
+                // 黑白名单、流控、熔断等预期内的拒绝，压力大时量很大，不按错误输出
+                log.debug("process rejected {} {}", e.getCode().getCode(), e.getCode().getMessage());
+            } else {
+                log.error("process error {} {}", e.getCode().getCode(), e.getCode().getMessage());
+            }
+            doWriteAndRelease(ctx, request, gatewayContext, e.getCode(), e);
+        } catch (Throwable t) {
+            log.error("process unknown error", t);
+            doWriteAndRelease(ctx, request, gatewayContext, ResponseCode.INTERNAL_ERROR, t);
+        }
+    }
+
+    /**
+     * 是否为预期内的拒绝：4xx 是请求本身的问题，503 是流控、熔断、分发队列满时的主动拒绝
+     */
+    private static boolean isRejection(ResponseCode code) {
+        int status = code.getStatus().code();
+        return status < 500 || status == HttpResponseStatus.SERVICE_UNAVAILABLE.code();
+    }
+
+    /**
+     * 写回错误响应并释放资源
+     */
+    private void doWriteAndRelease(ChannelHandlerContext ctx, FullHttpRequest request,
+                                   GatewayContext gatewayContext, ResponseCode code, Throwable t) {
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        ChannelFuture future = ctx.writeAndFlush(ResponseHelper.getHttpResponse(code));
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+        if (gatewayContext == null) {
+            ReferenceCountUtil.release(request);
+            return;
+        }
+        gatewayContext.setThrowable(t);
+        gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(code));
+        ResponseHelper.completeResponse(gatewayContext);
+    }
+}
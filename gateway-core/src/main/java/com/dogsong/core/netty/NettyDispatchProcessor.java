@@ -0,0 +1,268 @@
+package com.dogsong.core.netty;
+
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.core.Config;
+import com.dogsong.core.LifeCycle;
+import com.dogsong.core.context.HttpRequestWrapper;
+import com.dogsong.core.helper.ResponseHelper;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.PlatformDependent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 把请求从 I/O 线程分发给业务处理器
+ * <p>
+ * INLINE：直接在 EventLoop 上调用被代理的处理器，和原来一样。
+ * WORKER：固定数量的业务线程，每个线程独占一个有界 MPSC 队列，按连接选择线程，同一连接上的请求保持顺序。
+ * VIRTUAL：每个请求一个虚拟线程，用信号量限制同时在途的请求数；项目按 JDK 8 编译，通过反射创建，
+ * 当前 JDK 不支持时退化为 WORKER。
+ * </p>
+ * 队列满（或在途请求达到上限）时不再排队，直接在 I/O 线程上返回 SERVICE_UNAVAILABLE。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/30
+ */
+@Slf4j
+public class NettyDispatchProcessor implements NettyProcessor, LifeCycle {
+
+    private final Config config;
+
+    private final NettyProcessor delegate;
+
+    private DispatchMode mode;
+
+    private Worker[] workers;
+
+    private ExecutorService virtualExecutor;
+
+    /** VIRTUAL 模式下的在途请求许可 */
+    private Semaphore virtualPermits;
+
+    /** 被快速拒绝的请求数 */
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public NettyDispatchProcessor(Config config, NettyProcessor delegate) {
+        this.config = config;
+        this.delegate = delegate;
+        init();
+    }
+
+    /**
+     * 初始化
+     */
+    @Override
+    public void init() {
+        this.mode = DispatchMode.of(config.getDispatchMode());
+        if (mode == DispatchMode.VIRTUAL) {
+            this.virtualExecutor = newVirtualThreadExecutor();
+            if (virtualExecutor == null) {
+                log.warn("virtual threads are not supported by current jdk, fall back to WORKER dispatch mode");
+                this.mode = DispatchMode.WORKER;
+            } else {
+                this.virtualPermits = new Semaphore(config.getDispatchQueueSize());
+            }
+        }
+        if (mode == DispatchMode.WORKER) {
+            DefaultThreadFactory threadFactory = new DefaultThreadFactory("gateway-dispatch", true);
+            this.workers = new Worker[config.getDispatchWorkerNum()];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Worker(config.getDispatchQueueSize());
+                workers[i].thread = threadFactory.newThread(workers[i]);
+            }
+        }
+    }
+
+    /**
+     * 启动
+     */
+    @Override
+    public void start() {
+        if (workers != null) {
+            for (Worker worker : workers) {
+                worker.thread.start();
+            }
+        }
+        log.info("netty dispatch processor started, mode: {}", mode);
+    }
+
+    /**
+     * 关闭，已经入队的请求处理完再退出
+     */
+    @Override
+    public void shutdown() {
+        if (workers != null) {
+            for (Worker worker : workers) {
+                worker.running = false;
+                LockSupport.unpark(worker.thread);
+            }
+            for (Worker worker : workers) {
+                try {
+                    worker.thread.join(TimeUnit.SECONDS.toMillis(5));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public void process(HttpRequestWrapper wrapper) {
+        switch (mode) {
+            case WORKER:
+                Worker worker = workers[(wrapper.getCtx().channel().hashCode() & Integer.MAX_VALUE) % workers.length];
+                if (!worker.offer(wrapper)) {
+                    reject(wrapper);
+                }
+                break;
+            case VIRTUAL:
+                if (!virtualPermits.tryAcquire()) {
+                    reject(wrapper);
+                    break;
+                }
+                virtualExecutor.execute(() -> {
+                    try {
+                        delegate.process(wrapper);
+                    } finally {
+                        virtualPermits.release();
+                    }
+                });
+                break;
+            default:
+                delegate.process(wrapper);
+        }
+    }
+
+    /**
+     * 当前的分发方式，VIRTUAL 不可用时这里返回 WORKER
+     */
+    public DispatchMode getMode() {
+        return mode;
+    }
+
+    /**
+     * 所有业务队列中等待处理的请求数，VIRTUAL 模式下为在途请求数
+     */
+    public int getQueueDepth() {
+        if (mode == DispatchMode.VIRTUAL) {
+            return config.getDispatchQueueSize() - virtualPermits.availablePermits();
+        }
+        if (mode == DispatchMode.WORKER) {
+            int depth = 0;
+            for (Worker worker : workers) {
+                depth += worker.queue.size();
+            }
+            return depth;
+        }
+        return 0;
+    }
+
+    /**
+     * 因为队列满被快速拒绝的请求数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * 队列已满，在 I/O 线程上直接返回 SERVICE_UNAVAILABLE
+     */
+    private void reject(HttpRequestWrapper wrapper) {
+        FullHttpRequest request = wrapper.getRequest();
+        ChannelHandlerContext ctx = wrapper.getCtx();
+        wrapper.recycle();
+        rejectedCount.increment();
+
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        ChannelFuture future = ctx.writeAndFlush(ResponseHelper.getHttpResponse(ResponseCode.SERVICE_UNAVAILABLE));
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+        ReferenceCountUtil.release(request);
+    }
+
+    /**
+     * 通过反射调用 Executors.newVirtualThreadPerTaskExecutor()，不支持时返回 null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * 业务线程，单消费者消费自己的有界 MPSC 队列，队列空时 park，生产者入队后按需 unpark
+     */
+    private final class Worker implements Runnable {
+
+        private final Queue<HttpRequestWrapper> queue;
+
+        private Thread thread;
+
+        private volatile boolean running = true;
+
+        /** 消费者是否准备 park，生产者据此决定是否需要 unpark */
+        private volatile boolean sleeping;
+
+        Worker(int capacity) {
+            this.queue = PlatformDependent.newFixedMpscQueue(capacity);
+        }
+
+        boolean offer(HttpRequestWrapper wrapper) {
+            if (!queue.offer(wrapper)) {
+                return false;
+            }
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                HttpRequestWrapper wrapper = queue.poll();
+                if (wrapper != null) {
+                    processQuietly(wrapper);
+                    continue;
+                }
+                sleeping = true;
+                // 置位之后再检查一次，避免和生产者的入队交错导致错过唤醒
+                if (queue.isEmpty() && running) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+            }
+            HttpRequestWrapper wrapper;
+            while ((wrapper = queue.poll()) != null) {
+                processQuietly(wrapper);
+            }
+        }
+
+        private void processQuietly(HttpRequestWrapper wrapper) {
+            try {
+                delegate.process(wrapper);
+            } catch (Throwable t) {
+                log.error("dispatch process error", t);
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.dogsong.core.netty;
+
+import com.dogsong.common.dubbo.DubboCodec;
+import com.dogsong.common.dubbo.DubboRequest;
+import com.dogsong.common.dubbo.DubboResponse;
+import com.dogsong.core.Config;
+import com.dogsong.core.LifeCycle;
+import com.dogsong.core.dubbo.DubboConnection;
+import com.dogsong.core.helper.DubboHelper;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.AttributeKey;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下游 Dubbo 客户端，和 NettyHttpServer 共用 worker EventLoopGroup
+ * <p>
+ * 每个服务提供方地址一个长连接，所有服务、所有请求按请求ID复用，和 Dubbo 默认的共享连接一致；
+ * 连接断开后从缓存中移除，下一次请求时重新建立。请求超时由一个 HashedWheelTimer 统一处理。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Slf4j
+public class NettyDubboClient implements LifeCycle {
+
+    private static final AttributeKey<DubboConnection> CONNECTION = AttributeKey.valueOf("dubboConnection");
+
+    private final Config config;
+
+    private final EventLoopGroup eventLoopGroupWorker;
+
+    private Bootstrap bootstrap;
+
+    private HashedWheelTimer timer;
+
+    /** 地址 -> 连接，连接建立中的也在这里，同一地址只建立一个连接 */
+    private final Map<String, CompletableFuture<DubboConnection>> connections = new ConcurrentHashMap<>();
+
+    private final ClientHandler clientHandler = new ClientHandler();
+
+    public NettyDubboClient(Config config, EventLoopGroup eventLoopGroupWorker) {
+        this.config = config;
+        this.eventLoopGroupWorker = eventLoopGroupWorker;
+        init();
+    }
+
+    /**
+     * 初始化
+     */
+    @Override
+    public void init() {
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("dubbo-timer", true), 10, TimeUnit.MILLISECONDS);
+        this.bootstrap = new Bootstrap()
+                .group(eventLoopGroupWorker)
+                .channel(eventLoopGroupWorker instanceof EpollEventLoopGroup ? EpollSocketChannel.class : NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getDubboConnectTimeout())
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new DubboCodec(config.getDubboMaxPayload()), clientHandler);
+                    }
+                });
+    }
+
+    /**
+     * 启动
+     */
+    @Override
+    public void start() {
+        DubboHelper.getInstance().initialized(this);
+    }
+
+    /**
+     * 关闭
+     */
+    @Override
+    public void shutdown() {
+        for (CompletableFuture<DubboConnection> future : connections.values()) {
+            future.thenAccept(connection -> connection.getChannel().close());
+        }
+        connections.clear();
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * 获取到服务提供方地址的连接，没有时建立
+     *
+     * @param address 地址，例如 127.0.0.1:20880
+     */
+    public CompletableFuture<DubboConnection> getConnection(String address) {
+        CompletableFuture<DubboConnection> future = connections.get(address);
+        if (future != null) {
+            return future;
+        }
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0 || !StringUtils.isNumeric(address.substring(colon + 1))) {
+            CompletableFuture<DubboConnection> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException("invalid dubbo address: " + address));
+            return failed;
+        }
+        CompletableFuture<DubboConnection> created = new CompletableFuture<>();
+        future = connections.putIfAbsent(address, created);
+        if (future != null) {
+            return future;
+        }
+        // 不在 Map 的原子操作里建立连接，连接失败的回调可能同步执行并移除这个 key
+        connect(address, address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)), created);
+        return created;
+    }
+
+    private void connect(String address, String host, int port, CompletableFuture<DubboConnection> future) {
+        ChannelFuture connectFuture = bootstrap.connect(host, port);
+        connectFuture.addListener((ChannelFuture f) -> {
+            if (!f.isSuccess()) {
+                connections.remove(address, future);
+                future.completeExceptionally(f.cause());
+                return;
+            }
+            Channel channel = f.channel();
+            DubboConnection connection = new DubboConnection(address, channel, timer);
+            channel.attr(CONNECTION).set(connection);
+            channel.closeFuture().addListener(closed -> {
+                connections.remove(address, future);
+                connection.closed();
+            });
+            log.info("dubbo connection established {}", address);
+            future.complete(connection);
+        });
+    }
+
+    /**
+     * 所有连接共享的处理器：把响应交给对应的连接，回复服务提供方的心跳
+     */
+    @ChannelHandler.Sharable
+    private static final class ClientHandler extends SimpleChannelInboundHandler<Object> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof DubboResponse) {
+                DubboResponse response = (DubboResponse) msg;
+                DubboConnection connection = ctx.channel().attr(CONNECTION).get();
+                if (!response.isEvent() && connection != null) {
+                    connection.received(response);
+                }
+            } else if (msg instanceof DubboRequest) {
+                DubboRequest request = (DubboRequest) msg;
+                if (request.isEvent() && request.isTwoWay()) {
+                    DubboResponse heartbeat = new DubboResponse();
+                    heartbeat.setId(request.getId());
+                    heartbeat.setEvent(true);
+                    ctx.writeAndFlush(heartbeat, ctx.voidPromise());
+                }
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.warn("dubbo connection error, close {}", ctx.channel(), cause);
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.dogsong.core.netty;
+
+import com.dogsong.core.Config;
+import com.dogsong.core.LifeCycle;
+import com.dogsong.core.grpc.GrpcConnection;
+import com.dogsong.core.helper.GrpcHelper;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http2.DefaultHttp2WindowUpdateFrame;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2GoAwayFrame;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.util.AttributeKey;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下游 gRPC 客户端，和 NettyHttpServer 共用 worker EventLoopGroup
+ * <p>
+ * 每个服务地址一个明文 HTTP/2（h2c，prior knowledge）连接，所有调用各开一个流在这个连接上多路复用；
+ * 流和连接的初始流控窗口都调大到 Config.grpcInitialWindowSize，避免大消息在默认的 64KB 窗口上来回等待 WINDOW_UPDATE。
+ * 收到 GOAWAY 或者连接断开后从缓存中移除，下一次调用时重新建立，已经在途的流按服务端的处理继续完成或者失败。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Slf4j
+public class NettyGrpcClient implements LifeCycle {
+
+    private static final AttributeKey<String> ADDRESS = AttributeKey.valueOf("grpcAddress");
+
+    private final Config config;
+
+    private final EventLoopGroup eventLoopGroupWorker;
+
+    private Bootstrap bootstrap;
+
+    private HashedWheelTimer timer;
+
+    /** 地址 -> 连接，连接建立中的也在这里，同一地址只建立一个连接 */
+    private final Map<String, CompletableFuture<GrpcConnection>> connections = new ConcurrentHashMap<>();
+
+    private final ConnectionHandler connectionHandler = new ConnectionHandler();
+
+    public NettyGrpcClient(Config config, EventLoopGroup eventLoopGroupWorker) {
+        this.config = config;
+        this.eventLoopGroupWorker = eventLoopGroupWorker;
+        init();
+    }
+
+    /**
+     * 初始化
+     */
+    @Override
+    public void init() {
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("grpc-timer", true), 10, TimeUnit.MILLISECONDS);
+        Http2Settings settings = Http2Settings.defaultSettings()
+                .pushEnabled(false)
+                .initialWindowSize(config.getGrpcInitialWindowSize())
+                .maxFrameSize(Http2CodecUtil.DEFAULT_MAX_FRAME_SIZE);
+        this.bootstrap = new Bootstrap()
+                .group(eventLoopGroupWorker)
+                .channel(eventLoopGroupWorker instanceof EpollEventLoopGroup ? EpollSocketChannel.class : NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getGrpcConnectTimeout())
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(
+                                Http2FrameCodecBuilder.forClient().initialSettings(settings).build(),
+                                new Http2MultiplexHandler(connectionHandler),
+                                connectionHandler);
+                    }
+                });
+    }
+
+    /**
+     * 启动
+     */
+    @Override
+    public void start() {
+        GrpcHelper.getInstance().initialized(this);
+    }
+
+    /**
+     * 关闭
+     */
+    @Override
+    public void shutdown() {
+        for (CompletableFuture<GrpcConnection> future : connections.values()) {
+            future.thenAccept(connection -> connection.getChannel().close());
+        }
+        connections.clear();
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * 获取到服务地址的连接，没有时建立
+     *
+     * @param address 地址，例如 127.0.0.1:50051
+     */
+    public CompletableFuture<GrpcConnection> getConnection(String address) {
+        CompletableFuture<GrpcConnection> future = connections.get(address);
+        if (future != null) {
+            return future;
+        }
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0 || !StringUtils.isNumeric(address.substring(colon + 1))) {
+            CompletableFuture<GrpcConnection> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException("invalid grpc address: " + address));
+            return failed;
+        }
+        CompletableFuture<GrpcConnection> created = new CompletableFuture<>();
+        future = connections.putIfAbsent(address, created);
+        if (future != null) {
+            return future;
+        }
+        // 不在 Map 的原子操作里建立连接，连接失败的回调可能同步执行并移除这个 key
+        connect(address, address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)), created);
+        return created;
+    }
+
+    private void connect(String address, String host, int port, CompletableFuture<GrpcConnection> future) {
+        ChannelFuture connectFuture = bootstrap.connect(host, port);
+        connectFuture.addListener((ChannelFuture f) -> {
+            if (!f.isSuccess()) {
+                connections.remove(address, future);
+                future.completeExceptionally(f.cause());
+                return;
+            }
+            Channel channel = f.channel();
+            channel.attr(ADDRESS).set(address);
+            channel.closeFuture().addListener(closed -> connections.remove(address, future));
+            // 连接建立的回调在 channelActive 之前执行，此时 HTTP/2 客户端前言还没有发出，
+            // 放到 EventLoop 的下一个任务里，保证窗口更新和第一个流都在前言之后
+            channel.eventLoop().execute(() -> {
+                // 连接级窗口只能通过 WINDOW_UPDATE 扩大
+                int windowDelta = config.getGrpcInitialWindowSize() - Http2CodecUtil.DEFAULT_WINDOW_SIZE;
+                if (windowDelta > 0) {
+                    channel.writeAndFlush(new DefaultHttp2WindowUpdateFrame(windowDelta));
+                }
+                log.info("grpc connection established {}", address);
+                future.complete(new GrpcConnection(address, channel, timer, config.getGrpcMaxMessageSize()));
+            });
+        });
+    }
+
+    /**
+     * 所有连接共享的处理器：收到 GOAWAY 后不再把新调用分配到这个连接；同时拒绝服务端发起的流
+     */
+    @ChannelHandler.Sharable
+    private final class ConnectionHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            try {
+                if (msg instanceof Http2GoAwayFrame) {
+                    String address = ctx.channel().parent() == null ? ctx.channel().attr(ADDRESS).get() : null;
+                    if (address != null) {
+                        log.info("grpc connection {} received GOAWAY, error code {}", address, ((Http2GoAwayFrame) msg).errorCode());
+                        connections.computeIfPresent(address, (key, future) ->
+                                future.isDone() && !future.isCompletedExceptionally()
+                                        && future.join().getChannel() == ctx.channel() ? null : future);
+                    }
+                } else if (ctx.channel().parent() != null) {
+                    // 服务端发起的流
+                    ctx.close();
+                }
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.warn("grpc connection error, close {}", ctx.channel(), cause);
+            ctx.close();
+        }
+    }
+}
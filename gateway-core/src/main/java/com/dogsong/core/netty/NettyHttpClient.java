@@ -0,0 +1,88 @@
+package com.dogsong.core.netty;
+
+import com.dogsong.core.Config;
+import com.dogsong.core.LifeCycle;
+import com.dogsong.core.helper.AsyncHttpHelper;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import lombok.extern.slf4j.Slf4j;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
+import org.asynchttpclient.DefaultAsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
+import org.asynchttpclient.netty.channel.ChannelManager;
+
+import java.io.IOException;
+
+/**
+ * 下游 http 客户端，和 NettyHttpServer 共用 worker EventLoopGroup，不额外创建 I/O 线程
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/29
+ */
+@Slf4j
+public class NettyHttpClient implements LifeCycle {
+
+    private final Config config;
+
+    private final EventLoopGroup eventLoopGroupWorker;
+
+    private AsyncHttpClient asyncHttpClient;
+
+    public NettyHttpClient(Config config, EventLoopGroup eventLoopGroupWorker) {
+        this.config = config;
+        this.eventLoopGroupWorker = eventLoopGroupWorker;
+        init();
+    }
+
+    /**
+     * 初始化
+     */
+    @Override
+    public void init() {
+        DefaultAsyncHttpClientConfig.Builder builder = new DefaultAsyncHttpClientConfig.Builder()
+                .setFollowRedirect(false)
+                .setEventLoopGroup(eventLoopGroupWorker)
+                .setUseNativeTransport(eventLoopGroupWorker instanceof EpollEventLoopGroup)
+                .setConnectTimeout(config.getHttpConnectTimeout())
+                .setRequestTimeout(config.getHttpRequestTimeout())
+                .setMaxRequestRetry(config.getHttpMaxRequestRetry())
+                .setAllocator(PooledByteBufAllocator.DEFAULT)
+                // 响应体分片直接交付下游连接读到的 ByteBuf，由 HttpResponseWriter 原样写回客户端
+                .setResponseBodyPartFactory(AsyncHttpClientConfig.ResponseBodyPartFactory.LAZY)
+                // 不改写 Accept-Encoding，下游按客户端自己的 Accept-Encoding 压缩，压缩后的响应体原样写回客户端；
+                // 加上读取开关，客户端写不动时由 HttpResponseWriter 暂停读取下游
+                .setHttpAdditionalChannelInitializer(channel -> {
+                    channel.pipeline().remove(ChannelManager.INFLATER_HANDLER);
+                    channel.pipeline().addFirst(new NettyUpstreamReadGate());
+                })
+                .setKeepAlive(config.isHttpKeepAlive())
+                .setMaxConnections(config.getHttpMaxConnections())
+                .setMaxConnectionsPerHost(config.getHttpConnectionsPerHost())
+                .setPooledConnectionIdleTimeout(config.getHttpPooledConnectionIdleTimeout());
+        this.asyncHttpClient = new DefaultAsyncHttpClient(builder.build());
+    }
+
+    /**
+     * 启动
+     */
+    @Override
+    public void start() {
+        AsyncHttpHelper.getInstance().initialized(asyncHttpClient);
+    }
+
+    /**
+     * 关闭
+     */
+    @Override
+    public void shutdown() {
+        if (asyncHttpClient != null) {
+            try {
+                this.asyncHttpClient.close();
+            } catch (IOException e) {
+                log.error("NettyHttpClient shutdown error", e);
+            }
+        }
+    }
+}
@@ -4,23 +4,25 @@ import com.dogsong.common.utils.RemotingUtil;
 import com.dogsong.core.Config;
 import com.dogsong.core.LifeCycle;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.Channel;
-import io.netty.channel.ChannelInitializer;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.http.HttpObjectAggregator;
-import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
 
 /**
- * TODO
+ * 接收客户端连接的服务端，连接参数、空闲检测都来自 Config
  *
  * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
  * @since 2023/7/23
@@ -32,15 +34,25 @@ public class NettyHttpServer implements LifeCycle {
 
     private final NettyProcessor nettyProcessor;
 
+    private final StreamingMatcher streamingMatcher;
+
     private ServerBootstrap serverBootstrap;
 
     private EventLoopGroup eventLoopGroupBoss;
 
     private EventLoopGroup eventLoopGroupWorker;
 
+    /** TLS 端口的证书管理，没有开启 TLS 时为 null */
+    private SslContextManager sslContextManager;
+
     public NettyHttpServer(Config config, NettyProcessor nettyProcessor) {
+        this(config, nettyProcessor, new RouteStreamingMatcher());
+    }
+
+    public NettyHttpServer(Config config, NettyProcessor nettyProcessor, StreamingMatcher streamingMatcher) {
         this.config = config;
         this.nettyProcessor = nettyProcessor;
+        this.streamingMatcher = streamingMatcher;
         init();
     }
 
@@ -65,7 +77,13 @@ public class NettyHttpServer implements LifeCycle {
                     config.getEventLoopGroupWorkerNum(), new DefaultThreadFactory("netty-worker-nio")
             );
         }
+        if (config.getTlsPort() > 0) {
+            this.sslContextManager = new SslContextManager(config);
+        }
+    }
 
+    public EventLoopGroup getEventLoopGroupWorker() {
+        return eventLoopGroupWorker;
     }
 
     public boolean useEpoll() {
@@ -77,26 +95,60 @@ public class NettyHttpServer implements LifeCycle {
      */
     @Override
     public void start() {
+        ByteBufAllocator allocator = config.isPooledAllocatorEnabled()
+                ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT;
         this.serverBootstrap.group(eventLoopGroupBoss, eventLoopGroupWorker)
                 .channel(useEpoll()? EpollServerSocketChannel.class : NioServerSocketChannel.class)
                 .localAddress(new InetSocketAddress(config.getPort()))
-                .childHandler(new ChannelInitializer<Channel>() {
-                    @Override
-                    protected void initChannel(Channel ch) {
-                        ch.pipeline().addLast(
-                                new HttpServerCodec(),
-                                new HttpObjectAggregator(config.getMaxContentLength()),
-                                new NettyServerConnectManagerHandler(),
-                                new NettyHttpServerHandler(nettyProcessor)
-                        );
-                    }
-                });
+                .option(ChannelOption.SO_BACKLOG, config.getServerBacklog())
+                .option(ChannelOption.SO_REUSEADDR, true)
+                .option(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                        new WriteBufferWaterMark(config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark()))
+                .childOption(ChannelOption.ALLOCATOR, allocator)
+                .childHandler(new NettyHttpServerInitializer(config, nettyProcessor, streamingMatcher));
+        if (useReusePort()) {
+            this.serverBootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
         try {
-            this.serverBootstrap.bind().sync();
+            bind(this.serverBootstrap);
             log.info("server startup on port {}", this.config.getPort());
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        if (sslContextManager != null) {
+            startTls();
+        }
+    }
+
+    /**
+     * TLS 端口和明文端口共用 EventLoopGroup 和 channel 配置，只是 pipeline 前面多了 TLS 握手和 ALPN 协商
+     */
+    private void startTls() {
+        sslContextManager.start();
+        try {
+            bind(this.serverBootstrap.clone()
+                    .localAddress(new InetSocketAddress(config.getTlsPort()))
+                    .childHandler(new NettyHttpServerInitializer(config, nettyProcessor, streamingMatcher, sslContextManager)));
+            log.info("server startup on tls port {}", this.config.getTlsPort());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean useReusePort() {
+        return config.isServerReusePort() && useEpoll();
+    }
+
+    /**
+     * 绑定端口；开启 SO_REUSEPORT 时按 boss 线程数绑定多次，每个监听 channel 注册到不同的 boss 线程上
+     */
+    private void bind(ServerBootstrap bootstrap) throws InterruptedException {
+        int bindNum = useReusePort() ? Math.max(1, config.getEventLoopGroupBossNum()) : 1;
+        for (int i = 0; i < bindNum; i++) {
+            bootstrap.bind().sync();
+        }
     }
 
     /**
@@ -104,6 +156,9 @@ public class NettyHttpServer implements LifeCycle {
      */
     @Override
     public void shutdown() {
+        if (sslContextManager != null) {
+            sslContextManager.shutdown();
+        }
         if (eventLoopGroupBoss != null) {
             eventLoopGroupBoss.shutdownGracefully();
         }
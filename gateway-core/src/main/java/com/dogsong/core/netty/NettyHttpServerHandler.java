@@ -1,6 +1,7 @@
 package com.dogsong.core.netty;
 
 import com.dogsong.core.context.HttpRequestWrapper;
+import com.dogsong.core.response.HttpResponseWriter;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.http.FullHttpRequest;
@@ -15,17 +16,54 @@ public class NettyHttpServerHandler extends ChannelInboundHandlerAdapter {
 
     private final NettyProcessor nettyProcessor;
 
+    /** 是否从对象池中获取 HttpRequestWrapper */
+    private final boolean pooled;
+
+    /** 同一连接上记录请求开始时间的处理器，可以为 null */
+    private final NettyRequestTimingHandler timingHandler;
+
     public NettyHttpServerHandler(NettyProcessor nettyProcessor) {
+        this(nettyProcessor, false, null);
+    }
+
+    public NettyHttpServerHandler(NettyProcessor nettyProcessor, boolean pooled) {
+        this(nettyProcessor, pooled, null);
+    }
+
+    public NettyHttpServerHandler(NettyProcessor nettyProcessor, boolean pooled,
+                                  NettyRequestTimingHandler timingHandler) {
         this.nettyProcessor = nettyProcessor;
+        this.pooled = pooled;
+        this.timingHandler = timingHandler;
     }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         FullHttpRequest request = (FullHttpRequest) msg;
-        HttpRequestWrapper httpRequestWrapper = new HttpRequestWrapper();
-        httpRequestWrapper.setCtx(ctx);
-        httpRequestWrapper.setRequest(request);
+        HttpRequestWrapper httpRequestWrapper;
+        if (pooled) {
+            httpRequestWrapper = HttpRequestWrapper.newInstance(request, ctx);
+        } else {
+            httpRequestWrapper = new HttpRequestWrapper();
+            httpRequestWrapper.setCtx(ctx);
+            httpRequestWrapper.setRequest(request);
+        }
+        long decodedNanos = System.nanoTime();
+        httpRequestWrapper.setDecodedNanos(decodedNanos);
+        httpRequestWrapper.setReceivedNanos(timingHandler != null ? timingHandler.takeReceivedNanos() : decodedNanos);
 
         nettyProcessor.process(httpRequestWrapper);
     }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // 客户端恢复可写，继续读取被 HttpResponseWriter 暂停的下游连接
+        if (ctx.channel().isWritable()) {
+            Runnable callback = ctx.channel().attr(HttpResponseWriter.WRITABLE_CALLBACK).getAndSet(null);
+            if (callback != null) {
+                callback.run();
+            }
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
 }
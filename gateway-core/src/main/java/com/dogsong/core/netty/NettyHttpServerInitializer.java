@@ -0,0 +1,200 @@
+package com.dogsong.core.netty;
+
+import com.dogsong.core.Config;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.DefaultHttp2WindowUpdateFrame;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import io.netty.handler.ssl.SniHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AsciiString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端连接的 pipeline 初始化
+ * <p>
+ * 关闭 HTTP/2 时和原来一样只有 HTTP/1.1。开启后同一个端口同时支持 HTTP/1.1、h2c 升级（Upgrade: h2c）
+ * 和 h2c prior knowledge：CleartextHttp2ServerUpgradeHandler 根据连接的第一批字节判断协议，
+ * 切换到 HTTP/2 时由 {@link Http2Switch} 换上 HTTP/2 的帧编解码和多路复用处理器，移除 HTTP/1.1 的处理器。
+ * </p>
+ * HTTP/2 的每个流是一个子 channel，子 channel 的 pipeline 先把帧转换成 HTTP/1.1 的消息对象，
+ * 之后的流式转发、聚合、NettyHttpServerHandler 和 HTTP/1.1 完全一样，每个流各自走一遍 GatewayContext 流程；
+ * 流的响应按流控窗口写回，不会被同一连接上其他慢的响应阻塞。
+ * <p>
+ * TLS 端口上先由 SniHandler 按域名选择证书完成握手，再按 ALPN 协商的结果换上 HTTP/2 或者 HTTP/1.1 的处理器，
+ * 之后和明文端口完全一样。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class NettyHttpServerInitializer extends ChannelInitializer<Channel> {
+
+    private static final String TIMING_HANDLER = "timingHandler";
+    private static final String STREAMING_HANDLER = "streamingHandler";
+    private static final String AGGREGATOR = "aggregator";
+    private static final String SERVER_HANDLER = "serverHandler";
+
+    private final Config config;
+
+    private final NettyProcessor nettyProcessor;
+
+    private final StreamingMatcher streamingMatcher;
+
+    /** TLS 端口的证书管理，明文端口为 null */
+    private final SslContextManager sslContextManager;
+
+    /** 所有 HTTP/2 连接共用的流初始化器 */
+    private final ChannelInitializer<Channel> streamInitializer = new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(Channel ch) {
+            NettyRequestTimingHandler timingHandler = new NettyRequestTimingHandler();
+            ch.pipeline().addLast(
+                    timingHandler,
+                    new Http2StreamFrameToHttpObjectCodec(true),
+                    new NettyStreamingProxyHandler(config, streamingMatcher),
+                    new HttpObjectAggregator(config.getMaxContentLength()),
+                    new NettyHttpServerHandler(nettyProcessor, config.isContextPoolEnabled(), timingHandler)
+            );
+        }
+    };
+
+    public NettyHttpServerInitializer(Config config, NettyProcessor nettyProcessor, StreamingMatcher streamingMatcher) {
+        this(config, nettyProcessor, streamingMatcher, null);
+    }
+
+    public NettyHttpServerInitializer(Config config, NettyProcessor nettyProcessor, StreamingMatcher streamingMatcher,
+                                      SslContextManager sslContextManager) {
+        this.config = config;
+        this.nettyProcessor = nettyProcessor;
+        this.streamingMatcher = streamingMatcher;
+        this.sslContextManager = sslContextManager;
+    }
+
+    @Override
+    protected void initChannel(Channel ch) {
+        ChannelPipeline pipeline = ch.pipeline();
+        NettyRequestTimingHandler timingHandler = new NettyRequestTimingHandler();
+        if (config.getServerIdleTimeout() > 0) {
+            // 放在连接上，HTTP/2 时所有流共用一个连接的空闲检测；超时事件由 NettyServerConnectManagerHandler 关闭连接
+            pipeline.addLast(new IdleStateHandler(0, 0, config.getServerIdleTimeout(), TimeUnit.MILLISECONDS));
+        }
+        if (sslContextManager != null) {
+            // 握手完成后 SniHandler 替换成 SslHandler，计时处理器在它后面，只统计解密后的请求
+            pipeline.addLast(new SniHandler(sslContextManager));
+        }
+        pipeline.addLast(TIMING_HANDLER, timingHandler);
+        if (sslContextManager != null) {
+            pipeline.addLast(new ProtocolNegotiationHandler());
+        } else if (config.isHttp2Enabled()) {
+            HttpServerCodec httpServerCodec = new HttpServerCodec();
+            HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(httpServerCodec, protocol ->
+                    AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)
+                            ? new Http2ServerUpgradeCodec(newHttp2FrameCodec(), newHttp2MultiplexHandler(), new Http2Switch(false))
+                            : null,
+                    config.getMaxContentLength());
+            pipeline.addLast(new CleartextHttp2ServerUpgradeHandler(httpServerCodec, upgradeHandler, new Http2Switch(true)));
+        } else {
+            pipeline.addLast(new HttpServerCodec());
+        }
+        pipeline.addLast(STREAMING_HANDLER, new NettyStreamingProxyHandler(config, streamingMatcher));
+        pipeline.addLast(AGGREGATOR, new HttpObjectAggregator(config.getMaxContentLength()));
+        pipeline.addLast(new NettyServerConnectManagerHandler());
+        pipeline.addLast(SERVER_HANDLER, new NettyHttpServerHandler(nettyProcessor, config.isContextPoolEnabled(), timingHandler));
+    }
+
+    private Http2FrameCodec newHttp2FrameCodec() {
+        Http2Settings settings = Http2Settings.defaultSettings()
+                .maxConcurrentStreams(config.getHttp2MaxConcurrentStreams())
+                .initialWindowSize(config.getHttp2InitialWindowSize());
+        return Http2FrameCodecBuilder.forServer().initialSettings(settings).build();
+    }
+
+    private Http2MultiplexHandler newHttp2MultiplexHandler() {
+        return new Http2MultiplexHandler(streamInitializer);
+    }
+
+    /**
+     * TLS 握手完成后按 ALPN 协商的协议配置连接，客户端不支持 ALPN 时按 HTTP/1.1 处理
+     */
+    final class ProtocolNegotiationHandler extends ApplicationProtocolNegotiationHandler {
+
+        ProtocolNegotiationHandler() {
+            super(ApplicationProtocolNames.HTTP_1_1);
+        }
+
+        @Override
+        protected void configurePipeline(ChannelHandlerContext ctx, String protocol) {
+            if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                ctx.pipeline().addAfter(ctx.name(), null, new Http2Switch(true));
+            } else if (ApplicationProtocolNames.HTTP_1_1.equals(protocol)) {
+                ctx.pipeline().addAfter(ctx.name(), null, new HttpServerCodec());
+            } else {
+                throw new IllegalStateException("unsupported application protocol: " + protocol);
+            }
+        }
+    }
+
+    /**
+     * 连接切换到 HTTP/2：移除连接上 HTTP/1.1 的请求处理器，扩大连接级流控窗口
+     * <p>
+     * prior knowledge 和 TLS ALPN 协商出 h2 时由它在自己的位置换上 HTTP/2 处理器；h2c 升级时 HTTP/2 处理器已经由 Http2ServerUpgradeCodec 加好。
+     * 连接管理处理器保留在连接上，继续统计连接数、处理异常。
+     * </p>
+     */
+    final class Http2Switch extends ChannelHandlerAdapter {
+
+        private final boolean addHttp2Handlers;
+
+        Http2Switch(boolean addHttp2Handlers) {
+            this.addHttp2Handlers = addHttp2Handlers;
+        }
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            ChannelPipeline pipeline = ctx.pipeline();
+            Http2FrameCodec frameCodec;
+            if (addHttp2Handlers) {
+                // 多路复用处理器加入时要求帧编解码器已经在它前面
+                frameCodec = newHttp2FrameCodec();
+                pipeline.addAfter(ctx.name(), null, frameCodec);
+                pipeline.addAfter(pipeline.context(frameCodec).name(), null, newHttp2MultiplexHandler());
+            } else {
+                frameCodec = pipeline.get(Http2FrameCodec.class);
+            }
+            for (String name : new String[]{TIMING_HANDLER, STREAMING_HANDLER, AGGREGATOR, SERVER_HANDLER}) {
+                ChannelHandler handler = pipeline.get(name);
+                if (handler != null) {
+                    pipeline.remove(handler);
+                }
+            }
+            pipeline.remove(this);
+            // 连接级窗口不在 SETTINGS 里，只能通过 WINDOW_UPDATE 扩大；服务端前言在帧编解码器加入时已经发出，
+            // 帧编解码器自己会把连接窗口扩大到流的初始窗口，这里只补上和配置的差值
+            Http2Connection connection = frameCodec.connection();
+            int windowDelta = config.getHttp2ConnectionWindowSize()
+                    - connection.local().flowController().windowSize(connection.connectionStream());
+            if (windowDelta > 0) {
+                ctx.channel().writeAndFlush(new DefaultHttp2WindowUpdateFrame(windowDelta));
+            }
+        }
+    }
+}
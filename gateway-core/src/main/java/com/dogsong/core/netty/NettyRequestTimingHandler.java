@@ -0,0 +1,36 @@
+package com.dogsong.core.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+/**
+ * 放在 pipeline 最前面，记录每个请求第一批字节到达的时间
+ * <p>
+ * 每个连接一个实例，只在 EventLoop 上访问。请求解码完成后由 {@link NettyHttpServerHandler} 取走并清零，
+ * 之后的第一次读取算作下一个请求的开始；流水线请求和上一个请求在同一次读取里到达时，会从取走的时刻算起。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class NettyRequestTimingHandler extends ChannelInboundHandlerAdapter {
+
+    private long receivedNanos;
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (receivedNanos == 0) {
+            receivedNanos = System.nanoTime();
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    /**
+     * 取出当前请求的开始时间并清零
+     */
+    public long takeReceivedNanos() {
+        long nanos = receivedNanos;
+        receivedNanos = 0;
+        return nanos;
+    }
+}
@@ -1,6 +1,7 @@
 package com.dogsong.core.netty;
 
 import com.dogsong.common.utils.RemotingHelper;
+import com.dogsong.core.metrics.GatewayMetrics;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.timeout.IdleState;
@@ -38,6 +39,7 @@ public class NettyServerConnectManagerHandler extends ChannelDuplexHandler {
         // 当 Channel 处理于活动状态时被调用，可以接收与发送数据
         final String remoteAddr = RemotingHelper.parseChannelRemoteAddr(ctx.channel());
         log.debug("NETTY SERVER PIPELINE: channelActive {}", remoteAddr);
+        GatewayMetrics.getInstance().onConnectionOpened();
         super.channelActive(ctx);
     }
 
@@ -46,6 +48,7 @@ public class NettyServerConnectManagerHandler extends ChannelDuplexHandler {
         // 不再是活动状态且不再连接它的远程节点时被调用
         final String remoteAddr = RemotingHelper.parseChannelRemoteAddr(ctx.channel());
         log.debug("NETTY SERVER PIPELINE: channelInactive {}", remoteAddr);
+        GatewayMetrics.getInstance().onConnectionClosed();
         super.channelInactive(ctx);
     }
 
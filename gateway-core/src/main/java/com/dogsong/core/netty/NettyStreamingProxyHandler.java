@@ -0,0 +1,369 @@
+package com.dogsong.core.netty;
+
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.BaseException;
+import com.dogsong.common.utils.RemotingHelper;
+import com.dogsong.core.Config;
+import com.dogsong.core.helper.ResponseHelper;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 流式转发处理器，位于 HttpServerCodec 和 HttpObjectAggregator 之间
+ * <p>
+ * 命中流式转发的请求不再聚合，HttpContent 按块直接写到下游连接，
+ * 通过切换两端 channel 的 autoRead 实现背压，网关只占用写缓冲水位线大小的内存。
+ * 未命中的请求原样交给后面的聚合器处理。
+ * </p>
+ * 匹配器在请求头到达时执行规则的前置过滤器，被拒绝的请求直接写回错误响应，请求体到达后丢弃。
+ * <p>
+ * 下游连接使用 httpConnectTimeout 作为连接超时；连接建立后两个方向超过 httpRequestTimeout 没有任何读写时，
+ * 返回 504（响应已经开始时直接关闭客户端连接）并关闭下游连接，不会一直占着客户端连接和熔断、隔离的名额。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/25
+ */
+@Slf4j
+public class NettyStreamingProxyHandler extends ChannelInboundHandlerAdapter {
+
+    private final StreamingMatcher streamingMatcher;
+
+    /** 下游连接超时，毫秒 */
+    private final int connectTimeout;
+
+    /** 下游连接上读写都空闲的超时，毫秒，小于等于 0 时不检测 */
+    private final int requestTimeout;
+
+    /** 当前请求是否处于流式转发中 */
+    private boolean streaming;
+
+    /** 当前请求的请求体是否已经全部转发 */
+    private boolean requestCompleted;
+
+    /** 下游连接是否已经建立 */
+    private boolean connected;
+
+    /** 客户端是否保持长连接 */
+    private boolean keepAlive;
+
+    /** 下游连接 */
+    private Channel outboundChannel;
+
+    /** 下游连接建立之前到达的请求块 */
+    private final Queue<HttpObject> pending = new ArrayDeque<>();
+
+    public NettyStreamingProxyHandler(Config config, StreamingMatcher streamingMatcher) {
+        this.streamingMatcher = streamingMatcher;
+        this.connectTimeout = config.getHttpConnectTimeout();
+        this.requestTimeout = config.getHttpRequestTimeout();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            StreamingCall call;
+            try {
+                call = streamingMatcher.match(ctx, request);
+            } catch (BaseException e) {
+                reject(ctx, request, e.getCode());
+                return;
+            }
+            if (call == null) {
+                streaming = false;
+                ctx.fireChannelRead(msg);
+                return;
+            }
+            streaming = true;
+            requestCompleted = false;
+            keepAlive = HttpUtil.isKeepAlive(request);
+            pending.add(request);
+            connect(ctx, call);
+            if (msg instanceof LastHttpContent) {
+                requestCompleted(ctx);
+            }
+            return;
+        }
+
+        if (!streaming || !(msg instanceof HttpContent)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        HttpContent content = (HttpContent) msg;
+        if (connected) {
+            outboundChannel.writeAndFlush(content);
+            if (!outboundChannel.isWritable()) {
+                // 下游写不动了，暂停读取客户端
+                ctx.channel().config().setAutoRead(false);
+            }
+        } else if (outboundChannel != null) {
+            pending.add(content);
+        } else {
+            // 下游已经提前返回了响应，剩余的请求体直接丢弃
+            content.release();
+        }
+        if (content instanceof LastHttpContent) {
+            requestCompleted(ctx);
+        }
+    }
+
+    /**
+     * 过滤器拒绝了请求：写回错误响应，之后到达的请求体直接丢弃
+     */
+    private void reject(ChannelHandlerContext ctx, HttpRequest request, ResponseCode code) {
+        streaming = true;
+        requestCompleted = false;
+        keepAlive = HttpUtil.isKeepAlive(request);
+        ChannelFuture future = ctx.writeAndFlush(ResponseHelper.getHttpResponse(code));
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+        ReferenceCountUtil.release(request);
+        if (request instanceof LastHttpContent) {
+            requestCompleted(ctx);
+        }
+    }
+
+    /**
+     * 在客户端所在的 EventLoop 上建立下游连接，连接建立前暂停读取客户端
+     */
+    private void connect(ChannelHandlerContext ctx, StreamingCall call) {
+        Channel inbound = ctx.channel();
+        inbound.config().setAutoRead(false);
+        // HTTP/2 的流是子 channel，按所在的 TCP 连接选择传输类型
+        Channel transport = inbound instanceof Http2StreamChannel ? inbound.parent() : inbound;
+
+        Bootstrap bootstrap = new Bootstrap()
+                .group(inbound.eventLoop())
+                .channel(transport instanceof EpollSocketChannel ? EpollSocketChannel.class : NioSocketChannel.class)
+                // 和客户端连接使用同一个分配器（Config.pooledAllocatorEnabled）
+                .option(ChannelOption.ALLOCATOR, transport.alloc())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        if (requestTimeout > 0) {
+                            ch.pipeline().addLast(new IdleStateHandler(0, 0, requestTimeout, TimeUnit.MILLISECONDS));
+                        }
+                        ch.pipeline().addLast(
+                                new HttpClientCodec(),
+                                new OutboundHandler(ctx, call)
+                        );
+                    }
+                });
+        ChannelFuture future = bootstrap.connect(call.getTarget());
+        outboundChannel = future.channel();
+        future.addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess()) {
+                log.warn("streaming connect to {} failed", call.getTarget(), f.cause());
+                ResponseCode code = f.cause() instanceof ConnectTimeoutException
+                        ? ResponseCode.REQUEST_TIMEOUT : ResponseCode.SERVICE_UNAVAILABLE;
+                releasePending();
+                ctx.writeAndFlush(ResponseHelper.getHttpResponse(code))
+                        .addListener(ChannelFutureListener.CLOSE);
+                call.fail(code, f.cause());
+                return;
+            }
+            call.onConnected();
+            connected = true;
+            HttpObject obj;
+            while ((obj = pending.poll()) != null) {
+                outboundChannel.write(obj);
+            }
+            outboundChannel.flush();
+            if (!requestCompleted && outboundChannel.isWritable()) {
+                inbound.config().setAutoRead(true);
+            }
+        });
+    }
+
+    /**
+     * 请求体转发完毕后，在响应写回之前不再读取客户端，保证同一连接上的响应顺序；
+     * 下游已经提前返回响应时，读取已经由 responseCompleted 恢复，不能再关掉
+     */
+    private void requestCompleted(ChannelHandlerContext ctx) {
+        streaming = false;
+        requestCompleted = true;
+        if (outboundChannel != null) {
+            ctx.channel().config().setAutoRead(false);
+        }
+        // 流式请求不经过 NettyHttpServerHandler，在这里清掉请求开始时间，避免算到下一个请求上
+        NettyRequestTimingHandler timingHandler = ctx.pipeline().get(NettyRequestTimingHandler.class);
+        if (timingHandler != null) {
+            timingHandler.takeReceivedNanos();
+        }
+    }
+
+    /**
+     * 一次流式转发结束，恢复客户端连接的读取
+     */
+    private void responseCompleted(ChannelHandlerContext ctx) {
+        connected = false;
+        outboundChannel = null;
+        if (keepAlive) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    private void releasePending() {
+        HttpObject obj;
+        while ((obj = pending.poll()) != null) {
+            ReferenceCountUtil.release(obj);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // 客户端恢复可写，继续读取下游响应
+        if (outboundChannel != null && ctx.channel().isWritable()) {
+            outboundChannel.config().setAutoRead(true);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        releasePending();
+        if (outboundChannel != null) {
+            outboundChannel.close();
+        }
+        ctx.fireChannelInactive();
+    }
+
+    /**
+     * 下游连接的处理器，将响应按块写回客户端
+     */
+    private class OutboundHandler extends ChannelInboundHandlerAdapter {
+
+        private final ChannelHandlerContext inboundCtx;
+
+        private final StreamingCall call;
+
+        private boolean responseStarted;
+
+        private boolean responseCompleted;
+
+        /** 是否因为读写空闲超时结束了转发 */
+        private boolean timedOut;
+
+        /** 当前是否在转发 1xx 中间响应，例如请求带 Expect: 100-continue 时下游返回的 100 Continue */
+        private boolean interim;
+
+        OutboundHandler(ChannelHandlerContext inboundCtx, StreamingCall call) {
+            this.inboundCtx = inboundCtx;
+            this.call = call;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof HttpResponse) {
+                HttpResponse response = (HttpResponse) msg;
+                interim = response.status().codeClass() == HttpStatusClass.INFORMATIONAL
+                        && response.status().code() != HttpResponseStatus.SWITCHING_PROTOCOLS.code();
+                if (!interim) {
+                    responseStarted = true;
+                    if (!keepAlive) {
+                        HttpUtil.setKeepAlive(response, false);
+                    }
+                    call.onResponse(response);
+                }
+            }
+            if (interim) {
+                // 中间响应原样写回，之后还有最终响应，转发没有结束
+                inboundCtx.writeAndFlush(msg);
+                if (msg instanceof LastHttpContent) {
+                    interim = false;
+                }
+                return;
+            }
+            if (!(msg instanceof LastHttpContent)) {
+                inboundCtx.writeAndFlush(msg);
+                if (!inboundCtx.channel().isWritable()) {
+                    // 客户端读得慢，暂停读取下游
+                    ctx.channel().config().setAutoRead(false);
+                }
+                return;
+            }
+
+            responseCompleted = true;
+            ChannelFuture future = inboundCtx.writeAndFlush(msg);
+            if (!keepAlive) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+            ctx.close();
+            responseCompleted(inboundCtx);
+            call.complete();
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+            // 下游恢复可写，继续读取客户端请求体
+            if (ctx.channel().isWritable() && !requestCompleted) {
+                inboundCtx.channel().config().setAutoRead(true);
+            }
+            ctx.fireChannelWritabilityChanged();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+            if (!(evt instanceof IdleStateEvent)) {
+                ctx.fireUserEventTriggered(evt);
+                return;
+            }
+            if (responseCompleted || timedOut) {
+                return;
+            }
+            // 下游接受了连接但是迟迟不响应，或者响应写到一半停住
+            timedOut = true;
+            log.warn("streaming downstream {} idle for {}ms, closing",
+                    RemotingHelper.parseChannelRemoteAddr(ctx.channel()), requestTimeout);
+            if (responseStarted) {
+                inboundCtx.close();
+            } else {
+                inboundCtx.writeAndFlush(ResponseHelper.getHttpResponse(ResponseCode.REQUEST_TIMEOUT))
+                        .addListener(ChannelFutureListener.CLOSE);
+            }
+            ctx.close();
+            call.fail(ResponseCode.REQUEST_TIMEOUT,
+                    new TimeoutException("streaming downstream idle for " + requestTimeout + "ms"));
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (responseCompleted || timedOut) {
+                return;
+            }
+            log.warn("streaming downstream {} closed before response completed",
+                    RemotingHelper.parseChannelRemoteAddr(ctx.channel()));
+            if (responseStarted) {
+                inboundCtx.close();
+            } else {
+                inboundCtx.writeAndFlush(ResponseHelper.getHttpResponse(ResponseCode.HTTP_RESPONSE_ERROR))
+                        .addListener(ChannelFutureListener.CLOSE);
+            }
+            call.fail(ResponseCode.HTTP_RESPONSE_ERROR, null);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.warn("streaming downstream {} exceptionCaught",
+                    RemotingHelper.parseChannelRemoteAddr(ctx.channel()), cause);
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.dogsong.core.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+
+/**
+ * 下游 http 连接的读取开关，由 NettyHttpClient 加到 AsyncHttpClient 的每个连接上
+ * <p>
+ * AsyncHttpClient 在每次 channelReadComplete 时都会主动调用 read()，只关 autoRead 停不下来，
+ * 暂停期间这里把 read() 拦下，恢复时重新打开 autoRead 继续读取。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class NettyUpstreamReadGate extends ChannelOutboundHandlerAdapter {
+
+    private volatile boolean paused;
+
+    @Override
+    public void read(ChannelHandlerContext ctx) throws Exception {
+        if (!paused) {
+            ctx.read();
+        }
+    }
+
+    /**
+     * 暂停读取下游连接
+     *
+     * @param channel 下游连接
+     */
+    public static void pause(Channel channel) {
+        NettyUpstreamReadGate gate = channel.pipeline().get(NettyUpstreamReadGate.class);
+        if (gate != null) {
+            gate.paused = true;
+        }
+        channel.config().setAutoRead(false);
+    }
+
+    /**
+     * 恢复读取下游连接
+     *
+     * @param channel 下游连接
+     */
+    public static void resume(Channel channel) {
+        NettyUpstreamReadGate gate = channel.pipeline().get(NettyUpstreamReadGate.class);
+        if (gate != null) {
+            gate.paused = false;
+        }
+        channel.config().setAutoRead(true);
+    }
+}
@@ -0,0 +1,98 @@
+package com.dogsong.core.netty;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.config.ServiceInstance;
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.BaseException;
+import com.dogsong.common.exception.ResponseException;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.RequestPhase;
+import com.dogsong.core.filter.GatewayFilterChain;
+import com.dogsong.core.filter.GatewayFilterChainFactory;
+import com.dogsong.core.filter.loadbalance.LoadBalanceFilter;
+import com.dogsong.core.helper.RequestHelper;
+import com.dogsong.core.helper.ResponseHelper;
+import com.dogsong.core.metrics.GatewayMetrics;
+import com.dogsong.core.response.GatewayResponse;
+import com.dogsong.core.route.RouteManager;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 根据路由匹配到的规则决定是否流式转发
+ * <p>
+ * 规则开启了流式转发、配置了 serviceId，并且过滤器链中的过滤器都支持流式转发时，用请求头构建网关上下文，
+ * 执行规则的前置过滤器，下游地址取负载均衡过滤器从服务实例中选出的地址，不使用客户端传来的 Host；
+ * 其余情况走聚合模式，由 NettyCoreProcessor 执行完整的过滤器链。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/27
+ */
+@Slf4j
+public class RouteStreamingMatcher implements StreamingMatcher {
+
+    private final GatewayFilterChainFactory filterFactory = GatewayFilterChainFactory.getInstance();
+
+    @Override
+    public StreamingCall match(ChannelHandlerContext ctx, HttpRequest request) {
+        String host = request.headers().get(HttpHeaderNames.HOST);
+        if (StringUtils.isEmpty(host)) {
+            return null;
+        }
+        Rule rule = RouteManager.getInstance().match(host, request.uri());
+        if (rule == null || !rule.isStreaming()) {
+            return null;
+        }
+        GatewayFilterChain chain = filterFactory.buildFilterChain(rule);
+        if (!chain.isStreamable()) {
+            return null;
+        }
+
+        // 请求体不经过网关，上下文中只有请求头
+        FullHttpRequest headers = new DefaultFullHttpRequest(request.protocolVersion(), request.method(),
+                request.uri(), Unpooled.EMPTY_BUFFER, request.headers(), EmptyHttpHeaders.INSTANCE);
+        GatewayContext gatewayContext = RequestHelper.doContext(headers, ctx, false);
+        NettyRequestTimingHandler timingHandler = ctx.pipeline().get(NettyRequestTimingHandler.class);
+        if (timingHandler != null) {
+            gatewayContext.markPhase(RequestPhase.RECEIVED, timingHandler.takeReceivedNanos());
+        }
+        gatewayContext.markPhase(RequestPhase.DECODED);
+        gatewayContext.markPhase(RequestPhase.CONTEXT_READY);
+        GatewayMetrics.getInstance().onRequestStart();
+        try {
+            chain.doPreFilter(gatewayContext);
+            gatewayContext.markPhase(RequestPhase.ROUTE_START);
+            ServiceInstance instance = gatewayContext.getAttribute(LoadBalanceFilter.SELECTED_INSTANCE);
+            if (instance == null) {
+                throw new ResponseException(ResponseCode.SERVICE_INSTANCE_NOT_FOUND);
+            }
+            return new StreamingCall(new InetSocketAddress(instance.getIp(), instance.getPort()), gatewayContext);
+        } catch (BaseException e) {
+            reject(gatewayContext, e.getCode(), e);
+            throw e;
+        } catch (Throwable t) {
+            log.error("streaming filter error", t);
+            reject(gatewayContext, ResponseCode.INTERNAL_ERROR, t);
+            throw new ResponseException(t, ResponseCode.INTERNAL_ERROR);
+        }
+    }
+
+    /**
+     * 过滤器拒绝了请求，错误响应由流式转发处理器写回，这里收尾
+     */
+    private static void reject(GatewayContext gatewayContext, ResponseCode code, Throwable t) {
+        gatewayContext.setThrowable(t);
+        gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(code));
+        ResponseHelper.completeResponse(gatewayContext);
+    }
+}
@@ -0,0 +1,303 @@
+package com.dogsong.core.netty;
+
+import com.dogsong.common.utils.FileWatcher;
+import com.dogsong.core.Config;
+import com.dogsong.core.LifeCycle;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+import io.netty.util.Mapping;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * TLS 证书管理，按 SNI 域名选择 SslContext
+ * <p>
+ * 证书目录下每个域名一对文件：域名.crt（证书链）和域名.key（PKCS#8 私钥），泛域名写成 *.dogsong.com.crt；
+ * 查找顺序是完整域名、泛域名、default，没有 default 时使用按文件名排序的第一个证书。
+ * 通过 FileWatcher 监听目录变化，只重新加载修改时间变化的证书，加载失败时保留这个域名原来的证书。
+ * </p>
+ * 优先使用 OpenSSL（需要 netty-tcnative，打包时开启 openssl profile），握手的 CPU 开销比 JDK 实现低很多，
+ * 不可用时使用 JDK 实现。两种实现都开启服务端会话缓存；OpenSSL 下所有证书共用一组会话票据密钥，
+ * 证书重新加载后之前签发的票据仍然可以恢复会话。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Slf4j
+public class SslContextManager implements LifeCycle, Mapping<String, SslContext> {
+
+    private static final String CERT_SUFFIX = ".crt";
+
+    private static final String KEY_SUFFIX = ".key";
+
+    private static final String DEFAULT_HOST = "default";
+
+    private static final String WILDCARD_PREFIX = "*.";
+
+    /** TLSv1.3 的密码套件加上 h2 要求的 TLSv1.2 密码套件（RFC 7540 9.2.2），HTTP/1.1 客户端同样适用 */
+    private static final List<String> CIPHERS;
+
+    static {
+        List<String> ciphers = new ArrayList<>(Arrays.asList(
+                "TLS_AES_128_GCM_SHA256", "TLS_AES_256_GCM_SHA384", "TLS_CHACHA20_POLY1305_SHA256"));
+        ciphers.addAll(Http2SecurityUtil.CIPHERS);
+        CIPHERS = Collections.unmodifiableList(ciphers);
+    }
+
+    private final Config config;
+
+    private Path certDir;
+
+    private SslProvider provider;
+
+    /** 是否通过 ALPN 协商 h2 */
+    private boolean alpnEnabled;
+
+    private String[] protocols;
+
+    private final byte[] ticketKeyName = new byte[OpenSslSessionTicketKey.NAME_SIZE];
+
+    private final byte[] ticketHmacKey = new byte[OpenSslSessionTicketKey.HMAC_KEY_SIZE];
+
+    private final byte[] ticketAesKey = new byte[OpenSslSessionTicketKey.AES_KEY_SIZE];
+
+    /** 域名 -> 已加载的证书，每次加载整体替换 */
+    private volatile Map<String, LoadedCertificate> certificates = Collections.emptyMap();
+
+    private volatile SslContext defaultContext;
+
+    private FileWatcher watcher;
+
+    public SslContextManager(Config config) {
+        this.config = config;
+        init();
+    }
+
+    /**
+     * 初始化
+     */
+    @Override
+    public void init() {
+        this.certDir = Paths.get(config.getTlsCertDir()).toAbsolutePath();
+        this.provider = selectProvider();
+        this.alpnEnabled = config.isHttp2Enabled() && SslProvider.isAlpnSupported(provider);
+        this.protocols = selectProtocols();
+        SecureRandom random = new SecureRandom();
+        random.nextBytes(ticketKeyName);
+        random.nextBytes(ticketHmacKey);
+        random.nextBytes(ticketAesKey);
+    }
+
+    /**
+     * 启动：加载全部证书并开始监听目录，没有可用证书时启动失败
+     */
+    @Override
+    public void start() {
+        if (!Files.isDirectory(certDir)) {
+            throw new IllegalStateException("tls certificate directory not found: " + certDir);
+        }
+        reload();
+        if (defaultContext == null) {
+            throw new IllegalStateException("no tls certificate found in " + certDir);
+        }
+        // 证书和私钥通常一起替换，稍等一下合并成一次加载，避免读到只更新了一半的一对文件
+        this.watcher = new FileWatcher("tls-certificate-watcher", certDir,
+                SslContextManager::isCertificateFile, 500, this::reload);
+        watcher.start();
+    }
+
+    /**
+     * 关闭
+     */
+    @Override
+    public void shutdown() {
+        if (watcher != null) {
+            watcher.shutdown();
+        }
+    }
+
+    /**
+     * 按 SNI 域名选择证书，客户端没有发送 SNI 时 hostname 为 null
+     */
+    @Override
+    public SslContext map(String hostname) {
+        if (hostname != null) {
+            Map<String, LoadedCertificate> current = certificates;
+            LoadedCertificate certificate = current.get(hostname);
+            if (certificate == null) {
+                int dot = hostname.indexOf('.');
+                if (dot > 0) {
+                    certificate = current.get(WILDCARD_PREFIX + hostname.substring(dot + 1));
+                }
+            }
+            if (certificate != null) {
+                return certificate.context;
+            }
+        }
+        return defaultContext;
+    }
+
+    public boolean isAlpnEnabled() {
+        return alpnEnabled;
+    }
+
+    private SslProvider selectProvider() {
+        if (config.isTlsOpenSslEnabled()) {
+            if (OpenSsl.isAvailable()) {
+                log.info("tls provider: openssl {}", OpenSsl.versionString());
+                return SslProvider.OPENSSL;
+            }
+            log.warn("openssl is not available, fall back to jdk tls provider: {}", String.valueOf(OpenSsl.unavailabilityCause()));
+        }
+        log.info("tls provider: jdk");
+        return SslProvider.JDK;
+    }
+
+    /**
+     * 配置的协议版本；不显式指定时 JDK 实现默认不开启 TLSv1.3
+     */
+    private String[] selectProtocols() {
+        List<String> configured = new ArrayList<>();
+        for (String protocol : StringUtils.split(config.getTlsProtocols(), ',')) {
+            if (StringUtils.isNotBlank(protocol)) {
+                configured.add(protocol.trim());
+            }
+        }
+        if (provider == SslProvider.JDK) {
+            try {
+                List<String> supported = Arrays.asList(SSLContext.getDefault().getSupportedSSLParameters().getProtocols());
+                configured.retainAll(supported);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("jdk tls is not available", e);
+            }
+        }
+        if (configured.isEmpty()) {
+            throw new IllegalStateException("no supported tls protocol in " + config.getTlsProtocols());
+        }
+        log.info("tls protocols: {}", configured);
+        return configured.toArray(new String[0]);
+    }
+
+    private static boolean isCertificateFile(Path file) {
+        String name = file.toString();
+        return name.endsWith(CERT_SUFFIX) || name.endsWith(KEY_SUFFIX);
+    }
+
+    /**
+     * 重新加载证书目录，修改时间没有变化的证书直接复用
+     */
+    private synchronized void reload() {
+        long start = System.nanoTime();
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(certDir)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(CERT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.error("list tls certificate directory error, keep current certificates: {}", certDir, e);
+            return;
+        }
+        Map<String, LoadedCertificate> current = certificates;
+        Map<String, LoadedCertificate> latest = new HashMap<>();
+        SslContext firstContext = null;
+        int reloaded = 0;
+        for (Path certPath : files) {
+            String fileName = certPath.getFileName().toString();
+            String host = fileName.substring(0, fileName.length() - CERT_SUFFIX.length()).toLowerCase(Locale.ROOT);
+            File certFile = certPath.toFile();
+            File keyFile = certDir.resolve(fileName.substring(0, fileName.length() - CERT_SUFFIX.length()) + KEY_SUFFIX).toFile();
+            LoadedCertificate previous = current.get(host);
+            LoadedCertificate certificate = previous;
+            if (previous == null || previous.certModified != certFile.lastModified()
+                    || previous.keyModified != keyFile.lastModified()) {
+                try {
+                    certificate = new LoadedCertificate(certFile.lastModified(), keyFile.lastModified(),
+                            build(certFile, keyFile));
+                    reloaded++;
+                } catch (Exception e) {
+                    log.error("load tls certificate {} error{}", host,
+                            previous != null ? ", keep current certificate" : "", e);
+                }
+            }
+            if (certificate != null) {
+                latest.put(host, certificate);
+                if (firstContext == null) {
+                    firstContext = certificate.context;
+                }
+            }
+        }
+        if (latest.isEmpty() && !current.isEmpty()) {
+            log.error("no tls certificate loaded, keep current certificates: {}", certDir);
+            return;
+        }
+        LoadedCertificate defaultCertificate = latest.get(DEFAULT_HOST);
+        this.certificates = Collections.unmodifiableMap(latest);
+        this.defaultContext = defaultCertificate != null ? defaultCertificate.context : firstContext;
+        log.info("load tls certificates from {}, hosts: {}, reloaded: {}, provider: {}, alpn: {}, cost: {}ms",
+                certDir, latest.keySet(), reloaded, provider, alpnEnabled, (System.nanoTime() - start) / 1000_000);
+    }
+
+    private SslContext build(File certFile, File keyFile) throws IOException {
+        SslContextBuilder builder = SslContextBuilder.forServer(certFile, keyFile)
+                .sslProvider(provider)
+                .protocols(protocols)
+                .sessionCacheSize(config.getTlsSessionCacheSize())
+                .sessionTimeout(config.getTlsSessionTimeout());
+        if (alpnEnabled) {
+            builder.ciphers(CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+                    .applicationProtocolConfig(new ApplicationProtocolConfig(
+                            ApplicationProtocolConfig.Protocol.ALPN,
+                            ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                            ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                            ApplicationProtocolNames.HTTP_2,
+                            ApplicationProtocolNames.HTTP_1_1));
+        }
+        SslContext context = builder.build();
+        if (context.sessionContext() instanceof OpenSslSessionContext) {
+            ((OpenSslSessionContext) context.sessionContext()).setTicketKeys(
+                    new OpenSslSessionTicketKey(ticketKeyName, ticketHmacKey, ticketAesKey));
+        }
+        return context;
+    }
+
+    private static final class LoadedCertificate {
+
+        private final long certModified;
+
+        private final long keyModified;
+
+        private final SslContext context;
+
+        LoadedCertificate(long certModified, long keyModified, SslContext context) {
+            this.certModified = certModified;
+            this.keyModified = keyModified;
+            this.context = context;
+        }
+    }
+}
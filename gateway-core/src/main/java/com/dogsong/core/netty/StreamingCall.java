@@ -0,0 +1,91 @@
+package com.dogsong.core.netty;
+
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.ResponseException;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.RequestPhase;
+import com.dogsong.core.helper.ResponseHelper;
+import com.dogsong.core.response.GatewayResponse;
+import io.netty.handler.codec.http.HttpResponse;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 一次流式转发：下游地址和请求的网关上下文
+ * <p>
+ * 上下文只有请求行和请求头，规则的前置过滤器已经执行完；转发结束时由 {@link NettyStreamingProxyHandler}
+ * 调用 {@link #complete()} 或者 {@link #fail}，和聚合模式一样执行完成回调、记录指标和访问日志。
+ * 没有上下文时只转发，不收尾。只在客户端连接的 EventLoop 上访问。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class StreamingCall {
+
+    private final InetSocketAddress target;
+
+    private final GatewayContext context;
+
+    private boolean completed;
+
+    public StreamingCall(InetSocketAddress target) {
+        this(target, null);
+    }
+
+    public StreamingCall(InetSocketAddress target, GatewayContext context) {
+        this.target = target;
+        this.context = context;
+    }
+
+    public InetSocketAddress getTarget() {
+        return target;
+    }
+
+    /**
+     * 下游连接建立
+     */
+    void onConnected() {
+        if (context != null) {
+            context.markPhase(RequestPhase.UPSTREAM_CONNECTED);
+        }
+    }
+
+    /**
+     * 收到下游的响应头
+     */
+    void onResponse(HttpResponse response) {
+        if (context != null) {
+            context.markPhase(RequestPhase.UPSTREAM_RESPONSE);
+            context.setResponse(GatewayResponse.builderGatewayResponse(response.status(), response.headers()));
+        }
+    }
+
+    /**
+     * 响应已经全部写回客户端
+     */
+    void complete() {
+        if (context == null || completed) {
+            return;
+        }
+        completed = true;
+        ResponseHelper.completeResponse(context);
+    }
+
+    /**
+     * 转发失败，下游连接失败或者响应没有写完
+     *
+     * @param code  失败原因
+     * @param cause 异常，可以为 null
+     */
+    void fail(ResponseCode code, Throwable cause) {
+        if (context == null || completed) {
+            return;
+        }
+        context.setThrowable(cause != null ? new ResponseException(cause, code) : new ResponseException(code));
+        if (context.getResponse() == null) {
+            context.setResponse(GatewayResponse.buildGatewayResponse(code));
+        }
+        complete();
+    }
+}
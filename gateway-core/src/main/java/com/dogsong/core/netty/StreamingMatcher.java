@@ -0,0 +1,30 @@
+package com.dogsong.core.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpRequest;
+
+/**
+ * 流式转发匹配器，在请求头到达时决定请求是否绕过 HttpObjectAggregator
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/25
+ */
+@FunctionalInterface
+public interface StreamingMatcher {
+
+    /**
+     * 所有请求都走聚合模式
+     */
+    StreamingMatcher NONE = (ctx, request) -> null;
+
+    /**
+     * 匹配流式转发，需要流式转发时在返回之前执行完规则的前置过滤器
+     *
+     * @param ctx     客户端连接的上下文
+     * @param request 只包含请求行和请求头的请求
+     * @return 需要流式转发时返回本次转发，否则返回 null 走聚合模式
+     * @throws com.dogsong.common.exception.BaseException 过滤器拒绝了请求
+     */
+    StreamingCall match(ChannelHandlerContext ctx, HttpRequest request);
+
+}
@@ -5,8 +5,10 @@ import com.dogsong.common.utils.TimeUtil;
 import com.google.common.collect.Lists;
 import com.jayway.jsonpath.JsonPath;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
+import io.netty.util.Recycler;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -28,56 +30,56 @@ public class GatewayRequest implements IGatewayRequest {
 
     /** 服务ID */
     @Getter
-    private final String uniqueId;
+    private String uniqueId;
 
     /** 请求进入网关时间 */
     @Getter
-    private final long beginTime;
+    private long beginTime;
 
     /** 字符集 */
     @Getter
-    private final Charset charset;
+    private Charset charset;
 
     /** 客户端的IP，主要用于做流控、黑白名单 */
     @Getter
-    private final String clientIp;
+    private String clientIp;
 
     /** 请求的地址：ip:port */
     @Getter
-    private final String host;
+    private String host;
 
     /** 请求的路径 /XXX/XXX/XX */
     @Getter
-    private final String path;
+    private String path;
 
     /**
      * URI：统一资源标识符，/XXX/XXX/XXX?attr1=value&attr2=value2
      * URL：统一资源定位符，它只是URI的子集一个实现
      */
     @Getter
-    private final String uri;
+    private String uri;
 
     /**
      * 请求方法 post/put/GET
      */
     @Getter
-    private final HttpMethod method;
+    private HttpMethod method;
 
     /** 请求的格式 */
     @Getter
-    private final String contentType;
+    private String contentType;
 
     /** 请求头信息 */
     @Getter
-    private final HttpHeaders headers;
+    private HttpHeaders headers;
 
     /** 参数解析器 */
     @Getter
-    private final QueryStringDecoder queryStringDecoder;
+    private QueryStringDecoder queryStringDecoder;
 
     /** FullHttpRequest */
     @Getter
-    private final FullHttpRequest fullHttpRequest;
+    private FullHttpRequest fullHttpRequest;
 
     /** 请求体 */
     private String body;
@@ -102,13 +104,50 @@ public class GatewayRequest implements IGatewayRequest {
     /** 服务ID */
     private String modifyPath;
 
-    /** 构建下游请求是的http请求构建器 */
-    private final RequestBuilder requestBuilder;
+    /** 构建下游请求是的http请求构建器，第一次使用时才创建 */
+    private RequestBuilder requestBuilder;
+
+    /** Cookie 是否已经解析过 */
+    private boolean cookieDecoded;
+
+    private static final Recycler<GatewayRequest> RECYCLER = new Recycler<GatewayRequest>() {
+        @Override
+        protected GatewayRequest newObject(Handle<GatewayRequest> handle) {
+            return new GatewayRequest(handle);
+        }
+    };
+
+    /** 对象池回收句柄，非池化创建的对象为 null */
+    private final Recycler.Handle<GatewayRequest> handle;
 
     public GatewayRequest(String uniqueId, Charset charset,
                           String clientIp, String host, String path,
                           String uri, HttpMethod method, String contentType, HttpHeaders headers,
                           QueryStringDecoder queryStringDecoder, FullHttpRequest fullHttpRequest) {
+        this.handle = null;
+        init(uniqueId, charset, clientIp, host, uri, method, contentType, headers, fullHttpRequest);
+    }
+
+    private GatewayRequest(Recycler.Handle<GatewayRequest> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 从当前线程（EventLoop）的对象池中获取一个请求对象，使用完后通过 {@link #recycle()} 归还
+     */
+    public static GatewayRequest newInstance(String uniqueId, Charset charset,
+                                             String clientIp, String host,
+                                             String uri, HttpMethod method, String contentType,
+                                             HttpHeaders headers, FullHttpRequest fullHttpRequest) {
+        GatewayRequest request = RECYCLER.get();
+        request.init(uniqueId, charset, clientIp, host, uri, method, contentType, headers, fullHttpRequest);
+        return request;
+    }
+
+    private void init(String uniqueId, Charset charset,
+                      String clientIp, String host,
+                      String uri, HttpMethod method, String contentType,
+                      HttpHeaders headers, FullHttpRequest fullHttpRequest) {
         this.uniqueId = uniqueId;
         this.beginTime = TimeUtil.currentTimeMillis();
         this.charset = charset;
@@ -125,20 +164,70 @@ public class GatewayRequest implements IGatewayRequest {
         this.modifyHost = host;
         this.modifyPath = path;
         this.modifyScheme = BasicConst.HTTP_PREFIX_SEPARATOR;
+    }
 
-        this.requestBuilder = new RequestBuilder();
-        this.requestBuilder.setMethod(getMethod().name());
-        this.requestBuilder.setHeaders(getHeaders());
-        this.requestBuilder.setQueryParams(queryStringDecoder.parameters());
+    /**
+     * 归还到对象池，非池化创建的对象什么也不做
+     */
+    public void recycle() {
+        if (handle == null) {
+            return;
+        }
+        uniqueId = null;
+        charset = null;
+        clientIp = null;
+        host = null;
+        path = null;
+        uri = null;
+        method = null;
+        contentType = null;
+        headers = null;
+        queryStringDecoder = null;
+        fullHttpRequest = null;
+        body = null;
+        postParameters = null;
+        modifyScheme = null;
+        modifyHost = null;
+        modifyPath = null;
+        requestBuilder = null;
+        if (cookieMap != null) {
+            cookieMap.clear();
+        }
+        cookieDecoded = false;
+        handle.recycle(this);
+    }
 
-        ByteBuf contentBuffer = fullHttpRequest.content();
-        if(Objects.nonNull(contentBuffer)){
-            this.requestBuilder.setBody(contentBuffer.nioBuffer());
+    /**
+     * 获取下游请求构建器，只有真正需要修改或者构建下游请求时才创建
+     */
+    private RequestBuilder requestBuilder() {
+        if (requestBuilder == null) {
+            requestBuilder = new RequestBuilder();
+            requestBuilder.setMethod(getMethod().name());
+            requestBuilder.setHeaders(getHeaders());
+            requestBuilder.setQueryParams(queryStringDecoder.parameters());
+
+            ByteBuf contentBuffer = fullHttpRequest.content();
+            if(Objects.nonNull(contentBuffer)){
+                // AsyncHttpClient 2.0 只能以 ByteBuffer 的形式接收请求体：它按 Netty 4.0 编译，
+                // BodyGenerator 对应的 BodyChunkedInput、BodyFileRegion 缺少 Netty 4.1 的接口方法，不能用来直接写 ByteBuf。
+                // 单段时 nioBuffer() 只是原始内存的视图，下游写出时直接包装；聚合出的多段 CompositeByteBuf
+                // 先用它自己的分配器（池化的直接内存）合并成一段，避免 nioBuffer() 每次在堆上复制一份。
+                // 合并后的内存归请求所有，和视图一样在上下文 releaseRequest() 时释放
+                if (contentBuffer instanceof CompositeByteBuf && ((CompositeByteBuf) contentBuffer).numComponents() > 1) {
+                    ((CompositeByteBuf) contentBuffer).consolidate();
+                }
+                requestBuilder.setBody(contentBuffer.nioBuffer());
+            }
         }
+        return requestBuilder;
     }
 
+    /**
+     * 获取字符串形式的请求体，只有过滤器真正读取时才解码，解码结果缓存复用
+     */
     public String getBody() {
-        if (StringUtils.isEmpty(body)) {
+        if (body == null) {
             body = fullHttpRequest.content().toString(charset);
         }
         return body;
@@ -150,11 +239,16 @@ public class GatewayRequest implements IGatewayRequest {
      * @param name name
      */
     public io.netty.handler.codec.http.cookie.Cookie getCookie(String name) {
-        if (cookieMap == null) {
-            cookieMap = new HashMap<>();
+        if (!cookieDecoded) {
+            cookieDecoded = true;
+            if (cookieMap == null) {
+                cookieMap = new HashMap<>();
+            }
             String cookieStr = getHeaders().get(HttpHeaderNames.COOKIE);
-            Set<io.netty.handler.codec.http.cookie.Cookie> cookies = ServerCookieDecoder.STRICT.decode(cookieStr);
-            cookies.forEach(cookie -> cookieMap.put(name, cookie));
+            if (StringUtils.isNotEmpty(cookieStr)) {
+                Set<io.netty.handler.codec.http.cookie.Cookie> cookies = ServerCookieDecoder.STRICT.decode(cookieStr);
+                cookies.forEach(cookie -> cookieMap.put(cookie.name(), cookie));
+            }
         }
         return cookieMap.get(name);
     }
@@ -174,10 +268,9 @@ public class GatewayRequest implements IGatewayRequest {
      * @param name key
      */
     public List<String> getPostParametersMultiples(String name) {
-        String body = getBody();
         if (isFormPost()) {
             if (postParameters == null) {
-                QueryStringDecoder paramDecoder = new QueryStringDecoder(body, false);
+                QueryStringDecoder paramDecoder = new QueryStringDecoder(getBody(), false);
                 postParameters = paramDecoder.parameters();
             }
             if (postParameters == null || postParameters.isEmpty()) {
@@ -185,6 +278,7 @@ public class GatewayRequest implements IGatewayRequest {
             }
             return postParameters.get(name);
         } else if (isJsonPost()) {
+            String body = getBody();
             try {
                 return Lists.newArrayList(JsonPath.read(body, name).toString());
             } catch (Exception e) {
@@ -250,7 +344,7 @@ public class GatewayRequest implements IGatewayRequest {
      */
     @Override
     public void addHeader(CharSequence name, String value) {
-        requestBuilder.addHeader(name, value);
+        requestBuilder().addHeader(name, value);
     }
 
     /**
@@ -261,7 +355,7 @@ public class GatewayRequest implements IGatewayRequest {
      */
     @Override
     public void setHeader(CharSequence name, String value) {
-        requestBuilder.setHeader(name, value);
+        requestBuilder().setHeader(name, value);
     }
 
     /**
@@ -272,7 +366,7 @@ public class GatewayRequest implements IGatewayRequest {
      */
     @Override
     public void addQueryParam(String name, String value) {
-        requestBuilder.addQueryParam(name, value);
+        requestBuilder().addQueryParam(name, value);
     }
 
     /**
@@ -284,7 +378,7 @@ public class GatewayRequest implements IGatewayRequest {
     @Override
     public void addFormParam(String name, String value) {
         if (isFormPost()){
-            requestBuilder.addFormParam(name, value);
+            requestBuilder().addFormParam(name, value);
         }
     }
 
@@ -295,7 +389,7 @@ public class GatewayRequest implements IGatewayRequest {
      */
     @Override
     public void addOrReplaceCookie(Cookie cookie) {
-        requestBuilder.addOrReplaceCookie(cookie);
+        requestBuilder().addOrReplaceCookie(cookie);
     }
 
     /**
@@ -305,7 +399,7 @@ public class GatewayRequest implements IGatewayRequest {
      */
     @Override
     public void setRequestTimeout(int requestTimeout) {
-        requestBuilder.setRequestTimeout(requestTimeout);
+        requestBuilder().setRequestTimeout(requestTimeout);
     }
 
     /**
@@ -321,7 +415,7 @@ public class GatewayRequest implements IGatewayRequest {
      */
     @Override
     public Request build() {
-        requestBuilder.setUrl(getFinalUrl());
-        return requestBuilder.build();
+        requestBuilder().setUrl(getFinalUrl());
+        return requestBuilder().build();
     }
 }
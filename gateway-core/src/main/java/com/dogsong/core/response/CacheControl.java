@@ -0,0 +1,109 @@
+package com.dogsong.core.response;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+
+/**
+ * Cache-Control 头中和网关缓存、合并请求相关的指令，解析后不可变，{@link #EMPTY} 可以放心共享
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public final class CacheControl {
+
+    public static final CacheControl EMPTY = new CacheControl(false, false, false, false, false, -1, -1);
+
+    public final boolean noStore;
+
+    public final boolean noCache;
+
+    public final boolean isPrivate;
+
+    public final boolean isPublic;
+
+    public final boolean mustRevalidate;
+
+    /** 秒，-1 表示没有 */
+    public final long maxAge;
+
+    /** 秒，-1 表示没有 */
+    public final long sMaxAge;
+
+    private CacheControl(boolean noStore, boolean noCache, boolean isPrivate, boolean isPublic, boolean mustRevalidate,
+                         long maxAge, long sMaxAge) {
+        this.noStore = noStore;
+        this.noCache = noCache;
+        this.isPrivate = isPrivate;
+        this.isPublic = isPublic;
+        this.mustRevalidate = mustRevalidate;
+        this.maxAge = maxAge;
+        this.sMaxAge = sMaxAge;
+    }
+
+    /**
+     * 解析 Cache-Control 头，忽略不认识的指令
+     *
+     * @param value 头的值，可以为 null
+     */
+    public static CacheControl parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return EMPTY;
+        }
+        boolean noStore = false;
+        boolean noCache = false;
+        boolean isPrivate = false;
+        boolean isPublic = false;
+        boolean mustRevalidate = false;
+        long maxAge = -1;
+        long sMaxAge = -1;
+        for (String directive : value.split(",")) {
+            String token = directive.trim();
+            int eq = token.indexOf('=');
+            String name = (eq < 0 ? token : token.substring(0, eq)).trim();
+            if ("no-store".equalsIgnoreCase(name)) {
+                noStore = true;
+            } else if ("no-cache".equalsIgnoreCase(name)) {
+                noCache = true;
+            } else if ("private".equalsIgnoreCase(name)) {
+                isPrivate = true;
+            } else if ("public".equalsIgnoreCase(name)) {
+                isPublic = true;
+            } else if ("must-revalidate".equalsIgnoreCase(name)) {
+                mustRevalidate = true;
+            } else if ("max-age".equalsIgnoreCase(name)) {
+                maxAge = seconds(token, eq);
+            } else if ("s-maxage".equalsIgnoreCase(name)) {
+                sMaxAge = seconds(token, eq);
+            }
+        }
+        return new CacheControl(noStore, noCache, isPrivate, isPublic, mustRevalidate, maxAge, sMaxAge);
+    }
+
+    /**
+     * 带 Authorization、Cookie 的请求拿到的响应能否放进共享缓存：响应需要有 public、s-maxage 或者 must-revalidate
+     * （RFC 7234 3.2）
+     */
+    public boolean isSharedWithCredentials() {
+        return isPublic || sMaxAge >= 0 || mustRevalidate;
+    }
+
+    /**
+     * 请求是否带了 Authorization 或者 Cookie
+     *
+     * @param headers 请求头
+     */
+    public static boolean hasCredentials(HttpHeaders headers) {
+        return headers.contains(HttpHeaderNames.AUTHORIZATION) || headers.contains(HttpHeaderNames.COOKIE);
+    }
+
+    private static long seconds(String token, int eq) {
+        if (eq < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.substring(eq + 1).trim().replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.dogsong.core.response;
+
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.utils.JSONUtil;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 预先序列化好的错误响应
+ * <p>
+ * 类加载时为每个 ResponseCode 生成一次 json 内容，编码后放到共享的只读直接内存里，
+ * 同时准备好对应的响应头。故障期间大量出现的超时、限流、黑名单等错误响应，
+ * 每次只需要 duplicate 一下缓冲区再写出，不再走 Jackson 序列化，也不再拷贝字节。
+ * </p>
+ * 缓冲区用 unreleasableBuffer 包装，写出后 Netty 的 release 不会真正释放共享内存。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/30
+ */
+public final class ErrorResponses {
+
+    private ErrorResponses() {}
+
+    private static final Map<ResponseCode, String> CONTENTS = new EnumMap<>(ResponseCode.class);
+
+    private static final Map<ResponseCode, ByteBuf> BUFFERS = new EnumMap<>(ResponseCode.class);
+
+    private static final Map<ResponseCode, HttpHeaders> HEADERS = new EnumMap<>(ResponseCode.class);
+
+    static {
+        for (ResponseCode code : ResponseCode.values()) {
+            ObjectNode objectNode = JSONUtil.createObjectNode();
+            objectNode.put(JSONUtil.STATUS, code.getStatus().code());
+            objectNode.put(JSONUtil.CODE, code.getCode());
+            objectNode.put(JSONUtil.MESSAGE, code.getMessage());
+            String content = JSONUtil.toJSONString(objectNode);
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+
+            ByteBuf buffer = Unpooled.directBuffer(bytes.length, bytes.length).writeBytes(bytes);
+            HttpHeaders headers = new DefaultHttpHeaders()
+                    .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON + ";charset=utf-8")
+                    .set(HttpHeaderNames.CONTENT_LENGTH, bytes.length);
+
+            CONTENTS.put(code, content);
+            BUFFERS.put(code, Unpooled.unreleasableBuffer(buffer.asReadOnly()));
+            HEADERS.put(code, headers);
+        }
+    }
+
+    /**
+     * 启动时调用，提前触发类加载完成预编码，避免第一次出错时再做
+     */
+    public static void init() {
+    }
+
+    /**
+     * 获取响应码对应的 json 内容
+     *
+     * @param code 响应码
+     */
+    public static String getContent(ResponseCode code) {
+        return CONTENTS.get(code);
+    }
+
+    /**
+     * 构建响应码对应的 FullHttpResponse，响应体共享预先编码好的内存，响应头可以继续修改
+     *
+     * @param code 响应码
+     */
+    public static FullHttpResponse newHttpResponse(ResponseCode code) {
+        DefaultFullHttpResponse httpResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                code.getStatus(), BUFFERS.get(code).duplicate());
+        httpResponse.headers().set(HEADERS.get(code));
+        return httpResponse;
+    }
+}
@@ -28,6 +28,9 @@ public class GatewayResponse {
     /** 返回的响应状态码 */
     private HttpResponseStatus httpResponseStatus;
 
+    /** 失败时的响应码，由 buildGatewayResponse 设置 */
+    private ResponseCode responseCode;
+
     /** 异步的返回对象 */
     private Response futureResponse;
 
@@ -54,22 +57,43 @@ public class GatewayResponse {
         return response;
     }
 
+    /**
+     * 构建流式写回的网关响应对象，只记录状态码和响应头，响应体由 HttpResponseWriter 直接写回客户端
+     *
+     * @param status  下游响应状态码
+     * @param headers 下游响应头
+     */
+    public static GatewayResponse builderGatewayResponse(HttpResponseStatus status, HttpHeaders headers) {
+        GatewayResponse response = new GatewayResponse();
+        response.setHttpResponseStatus(status);
+        response.setResponseHeaders(headers);
+        return response;
+    }
+
     /**
      * 返回一个json类型的响应信息，失败时候使用
+     * <p>
+     * 单独声明不带可变参数的重载，否则 buildGatewayResponse(code) 会优先匹配到成功时使用的 Object 重载
+     * </p>
      */
-    public static GatewayResponse buildGatewayResponse(ResponseCode code, Object... args) {
-        ObjectNode objectNode = JSONUtil.createObjectNode();
-        objectNode.put(JSONUtil.STATUS, code.getStatus().code());
-        objectNode.put(JSONUtil.CODE, code.getCode());
-        objectNode.put(JSONUtil.MESSAGE, code.getMessage());
+    public static GatewayResponse buildGatewayResponse(ResponseCode code) {
         GatewayResponse response = new GatewayResponse();
+        response.setResponseCode(code);
         response.setHttpResponseStatus(code.getStatus());
         response.putHeader(HttpHeaderNames.CONTENT_TYPE,
                 HttpHeaderValues.APPLICATION_JSON + ";charset=utf-8");
-        response.setContent(JSONUtil.toJSONString(objectNode));
+        // 使用预先序列化好的内容，写回时直接复用 ErrorResponses 中编码好的缓冲区
+        response.setContent(ErrorResponses.getContent(code));
         return response;
     }
 
+    /**
+     * 返回一个json类型的响应信息，失败时候使用
+     */
+    public static GatewayResponse buildGatewayResponse(ResponseCode code, Object... args) {
+        return buildGatewayResponse(code);
+    }
+
     /**
      * 返回一个json类型的响应信息, 成功时候使用
      */
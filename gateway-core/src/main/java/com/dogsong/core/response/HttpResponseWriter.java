@@ -0,0 +1,283 @@
+package com.dogsong.core.response;
+
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.context.RequestPhase;
+import com.dogsong.core.helper.ResponseHelper;
+import com.dogsong.core.netty.NettyUpstreamReadGate;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.*;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.handler.AsyncHandlerExtensions;
+import org.asynchttpclient.netty.LazyResponseBodyPart;
+import org.asynchttpclient.netty.request.NettyRequest;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * 把下游响应边收边写回客户端
+ * <p>
+ * 收到响应头时先写出 HttpResponse，之后每个响应体分片的 ByteBuf 增加引用计数后直接交给客户端连接，
+ * 网关不聚合、不转成字符串，分片由客户端连接写出后释放。
+ * 客户端配置为 ResponseBodyPartFactory.LAZY 时分片就是下游连接读到的原始 ByteBuf，否则退化为包装字节数组。
+ * </p>
+ * 回调都在 AsyncHttpClient 的 I/O 线程上执行，写操作由 Netty 投递到客户端连接的 EventLoop 上按顺序完成。
+ * 响应头写出之后下游出错已经无法再返回错误信息，只能关闭客户端连接。
+ * 客户端连接写缓冲超过高水位时暂停读取下游连接，由 NettyHttpServerHandler 在客户端恢复可写时执行
+ * {@link #WRITABLE_CALLBACK} 继续读取，网关为一个慢客户端缓存的响应不超过写缓冲水位线。
+ * 同时通过 AsyncHandlerExtensions 记录拿到下游连接、请求发出、收到响应的时间，请求完成时由
+ * {@link #recordPhases()} 写入上下文；回调期间不直接写上下文，避免超时完成、上下文复用之后迟到的回调改到别的请求上。
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/30
+ */
+@Slf4j
+public class HttpResponseWriter implements AsyncHandler<GatewayResponse>, AsyncHandlerExtensions {
+
+    /** 客户端连接的属性：连接恢复可写时执行的回调 */
+    public static final AttributeKey<Runnable> WRITABLE_CALLBACK = AttributeKey.valueOf("writableCallback");
+
+    private final GatewayContext gatewayContext;
+
+    private final ChannelHandlerContext ctx;
+
+    private final boolean keepAlive;
+
+    /** 是否为 HEAD 请求 */
+    private final boolean head;
+
+    /** 旁路监听，没有时为 null */
+    private final ResponseListener listener;
+
+    private io.netty.handler.codec.http.HttpResponseStatus status;
+
+    private GatewayResponse response;
+
+    /** 响应头是否已经写给客户端 */
+    private volatile boolean headerWritten;
+
+    /** 当前使用的下游连接 */
+    private volatile Channel upstream;
+
+    /** 恢复读取下游连接，每个 writer 一个实例，用于比较后清除客户端连接上的回调 */
+    private final Runnable resume = this::resume;
+
+    /** 拿到下游连接的时间 */
+    private volatile long connectedNanos;
+
+    /** 请求写到下游连接的时间 */
+    private volatile long requestSentNanos;
+
+    /** 收到下游响应状态行的时间 */
+    private volatile long responseNanos;
+
+    public HttpResponseWriter(GatewayContext gatewayContext) {
+        this.gatewayContext = gatewayContext;
+        this.ctx = gatewayContext.getNettyCtx();
+        this.keepAlive = gatewayContext.isKeepAlive();
+        this.head = HttpMethod.HEAD.equals(gatewayContext.getRequest().getMethod());
+        this.listener = gatewayContext.getAttribute(ResponseListener.ATTRIBUTE_KEY);
+    }
+
+    /**
+     * 响应头是否已经写出，写出之后不能再返回错误响应
+     */
+    public boolean isHeaderWritten() {
+        return headerWritten;
+    }
+
+    /**
+     * 把下游相关的时间点写入上下文，在请求完成、写回响应之前调用
+     */
+    public void recordPhases() {
+        gatewayContext.markPhase(RequestPhase.UPSTREAM_CONNECTED, connectedNanos);
+        gatewayContext.markPhase(RequestPhase.UPSTREAM_REQUEST_SENT, requestSentNanos);
+        gatewayContext.markPhase(RequestPhase.UPSTREAM_RESPONSE, responseNanos);
+    }
+
+    @Override
+    public State onStatusReceived(HttpResponseStatus responseStatus) {
+        if (headerWritten) {
+            // 已经开始写回客户端，不能再重试
+            return State.ABORT;
+        }
+        responseNanos = System.nanoTime();
+        status = io.netty.handler.codec.http.HttpResponseStatus.valueOf(responseStatus.getStatusCode());
+        return State.CONTINUE;
+    }
+
+    @Override
+    public State onHeadersReceived(HttpResponseHeaders responseHeaders) {
+        HttpHeaders headers = responseHeaders.getHeaders();
+        response = GatewayResponse.builderGatewayResponse(status, headers);
+        if (listener != null) {
+            listener.onHeaders(status, headers);
+        }
+
+        DefaultHttpResponse httpResponse = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+        httpResponse.headers().add(headers);
+        // 连接相关的头只对下游连接有效，按客户端连接重新设置；下游的分块编码已经被客户端解开，没有长度时重新分块
+        ResponseHelper.removeHopByHopHeaders(httpResponse.headers());
+        if (mayHaveBody() && !HttpUtil.isContentLengthSet(httpResponse)) {
+            HttpUtil.setTransferEncodingChunked(httpResponse, true);
+        }
+        if (keepAlive) {
+            httpResponse.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        }
+        headerWritten = true;
+        gatewayContext.setWritten();
+        ctx.write(httpResponse);
+        return State.CONTINUE;
+    }
+
+    @Override
+    public State onBodyPartReceived(HttpResponseBodyPart bodyPart) {
+        ByteBuf content = bodyPart instanceof LazyResponseBodyPart
+                ? ((LazyResponseBodyPart) bodyPart).getBuf().retain()
+                : Unpooled.wrappedBuffer(bodyPart.getBodyPartBytes());
+        if (listener != null) {
+            listener.onBodyPart(content);
+        }
+        ctx.writeAndFlush(new DefaultHttpContent(content));
+        if (!ctx.channel().isWritable()) {
+            pause();
+        }
+        return State.CONTINUE;
+    }
+
+    /**
+     * 响应是否可能有响应体：HEAD 请求以及 1xx、204、304 响应没有响应体，不能加 Transfer-Encoding: chunked
+     */
+    private boolean mayHaveBody() {
+        int code = status.code();
+        return code >= 200 && code != io.netty.handler.codec.http.HttpResponseStatus.NO_CONTENT.code()
+                && code != io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED.code()
+                && !head;
+    }
+
+    /**
+     * 客户端写不动了，暂停读取下游连接，等客户端恢复可写
+     */
+    private void pause() {
+        Channel channel = upstream;
+        if (channel == null) {
+            return;
+        }
+        NettyUpstreamReadGate.pause(channel);
+        ctx.channel().attr(WRITABLE_CALLBACK).set(resume);
+        if (ctx.channel().isWritable()) {
+            // 设置回调之前客户端已经恢复可写，不会再有事件
+            resume();
+        }
+    }
+
+    /**
+     * 恢复读取下游连接
+     */
+    private void resume() {
+        ctx.channel().attr(WRITABLE_CALLBACK).compareAndSet(resume, null);
+        Channel channel = upstream;
+        if (channel != null) {
+            NettyUpstreamReadGate.resume(channel);
+        }
+    }
+
+    @Override
+    public GatewayResponse onCompleted() {
+        resume();
+        if (listener != null) {
+            listener.onCompleted();
+        }
+        ChannelFuture future = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+        return response;
+    }
+
+    @Override
+    public void onThrowable(Throwable t) {
+        resume();
+        if (listener != null) {
+            listener.onThrowable(t);
+        }
+        if (headerWritten) {
+            log.warn("downstream failed after response header written, close {}", ctx.channel(), t);
+            ctx.close();
+        }
+    }
+
+    @Override
+    public void onConnectionPooled(Channel connection) {
+        connectedNanos = System.nanoTime();
+        upstream = connection;
+    }
+
+    @Override
+    public void onTcpConnectSuccess(InetSocketAddress remoteAddress, Channel connection) {
+        connectedNanos = System.nanoTime();
+        upstream = connection;
+    }
+
+    @Override
+    public void onTlsHandshakeSuccess() {
+        connectedNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onRequestSend(NettyRequest request) {
+        requestSentNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onHostnameResolutionAttempt(String name) {
+    }
+
+    @Override
+    public void onHostnameResolutionSuccess(String name, List<InetSocketAddress> addresses) {
+    }
+
+    @Override
+    public void onHostnameResolutionFailure(String name, Throwable cause) {
+    }
+
+    @Override
+    public void onTcpConnectAttempt(InetSocketAddress remoteAddress) {
+    }
+
+    @Override
+    public void onTcpConnectFailure(InetSocketAddress remoteAddress, Throwable cause) {
+    }
+
+    @Override
+    public void onTlsHandshakeAttempt() {
+    }
+
+    @Override
+    public void onTlsHandshakeFailure(Throwable cause) {
+    }
+
+    @Override
+    public void onConnectionPoolAttempt() {
+    }
+
+    @Override
+    public void onConnectionOffer(Channel connection) {
+        // 放回连接池的连接不能处于暂停读取的状态
+        NettyUpstreamReadGate.resume(connection);
+    }
+
+    @Override
+    public void onRetry() {
+    }
+}
@@ -0,0 +1,48 @@
+package com.dogsong.core.response;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+/**
+ * 下游响应旁路监听
+ * <p>
+ * 放在上下文属性 {@link #ATTRIBUTE_KEY} 中，{@link HttpResponseWriter} 流式写回客户端的同时把状态码、
+ * 响应头和每一段响应体交给监听器，例如响应缓存在写回的同时把响应体复制一份。
+ * 回调在下游连接的 I/O 线程上顺序执行，不能阻塞。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public interface ResponseListener {
+
+    String ATTRIBUTE_KEY = "responseListener";
+
+    /**
+     * 收到响应头
+     *
+     * @param status  下游响应状态码
+     * @param headers 下游响应头
+     */
+    void onHeaders(HttpResponseStatus status, HttpHeaders headers);
+
+    /**
+     * 收到一段响应体，回调返回后缓冲区会写给客户端并释放，需要保留时自行复制
+     *
+     * @param content 响应体片段
+     */
+    void onBodyPart(ByteBuf content);
+
+    /**
+     * 响应体接收完成
+     */
+    void onCompleted();
+
+    /**
+     * 下游调用失败
+     *
+     * @param t 异常
+     */
+    void onThrowable(Throwable t);
+}
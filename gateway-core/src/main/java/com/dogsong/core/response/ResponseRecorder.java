@@ -0,0 +1,166 @@
+package com.dogsong.core.response;
+
+import com.dogsong.common.utils.TimeUtil;
+import com.dogsong.core.helper.ResponseHelper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在响应流式写回客户端的同时，把响应体复制到一块堆外内存里
+ * <p>
+ * 超过最大长度时放弃复制并立即释放已经复制的部分，不影响写回客户端。
+ * HEAD 请求的响应没有响应体，保留下游的 Content-Length；带 Authorization、Cookie 的请求只在响应明确允许共享时才放进缓存。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class ResponseRecorder implements ResponseListener {
+
+    private final int maxBodyBytes;
+
+    /** 是否为 HEAD 请求 */
+    private final boolean head;
+
+    /** 请求是否带了 Authorization 或者 Cookie */
+    private final boolean credentialed;
+
+    private HttpResponseStatus status;
+
+    private HttpHeaders headers;
+
+    private ByteBuf body;
+
+    /** 响应体过大或者下游调用失败，本次响应不可复用 */
+    private boolean discarded;
+
+    private boolean completed;
+
+    /**
+     * @param maxBodyBytes   可复制的最大响应体
+     * @param method         请求方法
+     * @param requestHeaders 请求头
+     */
+    public ResponseRecorder(int maxBodyBytes, HttpMethod method, HttpHeaders requestHeaders) {
+        this.maxBodyBytes = maxBodyBytes;
+        this.head = HttpMethod.HEAD.equals(method);
+        this.credentialed = CacheControl.hasCredentials(requestHeaders);
+    }
+
+    @Override
+    public void onHeaders(HttpResponseStatus status, HttpHeaders headers) {
+        this.status = status;
+        this.headers = headers;
+        if (head) {
+            // Content-Length 是 GET 响应体的长度，HEAD 响应本身没有响应体
+            body = Unpooled.directBuffer(0, 0);
+            return;
+        }
+        Integer contentLength = headers.getInt(HttpHeaderNames.CONTENT_LENGTH);
+        if (contentLength != null && (contentLength < 0 || contentLength > maxBodyBytes)) {
+            discarded = true;
+            return;
+        }
+        int initialCapacity = contentLength != null ? contentLength : Math.min(maxBodyBytes, 4096);
+        body = Unpooled.directBuffer(initialCapacity, maxBodyBytes);
+    }
+
+    @Override
+    public void onBodyPart(ByteBuf content) {
+        if (discarded || body == null) {
+            return;
+        }
+        int readable = content.readableBytes();
+        if (readable > body.maxWritableBytes()) {
+            discard();
+            return;
+        }
+        body.writeBytes(content, content.readerIndex(), readable);
+    }
+
+    @Override
+    public void onCompleted() {
+        completed = true;
+    }
+
+    @Override
+    public void onThrowable(Throwable t) {
+        discard();
+    }
+
+    /**
+     * 请求结束后生成可复用的响应，响应体的所有权交给返回值；不可复用时释放响应体并返回 null
+     *
+     * @param ruleId     规则ID
+     * @param keyHeaders 参与 key 的请求头，响应 Vary 了其它头时不可复用
+     * @param ttlMillis  响应没有通过 Cache-Control 指定有效期时的缓存时间
+     */
+    public SharedResponse finish(String ruleId, List<String> keyHeaders, long ttlMillis) {
+        if (!completed || discarded || body == null) {
+            discard();
+            return null;
+        }
+        CacheControl cacheControl = CacheControl.parse(headers.get(HttpHeaderNames.CACHE_CONTROL));
+        if (cacheControl.noStore || cacheControl.isPrivate || headers.contains(HttpHeaderNames.SET_COOKIE)
+                || !varyCovered(headers.get(HttpHeaderNames.VARY), keyHeaders)) {
+            // 响应只属于当前客户端，既不缓存也不共享
+            discard();
+            return null;
+        }
+        long ttlNanos = cacheControl.sMaxAge >= 0 ? TimeUnit.SECONDS.toNanos(cacheControl.sMaxAge)
+                : cacheControl.maxAge >= 0 ? TimeUnit.SECONDS.toNanos(cacheControl.maxAge)
+                : TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        boolean cacheable = status.code() == HttpResponseStatus.OK.code() && !cacheControl.noCache && ttlNanos > 0
+                && (!credentialed || cacheControl.isSharedWithCredentials());
+
+        HttpHeaders cachedHeaders = new DefaultHttpHeaders().add(headers);
+        ResponseHelper.removeHopByHopHeaders(cachedHeaders);
+        if (!head) {
+            cachedHeaders.set(HttpHeaderNames.CONTENT_LENGTH, body.readableBytes());
+        }
+        if (body.capacity() > body.readableBytes()) {
+            // 按实际长度收缩，避免缓存里长期占着多分配的容量
+            body.capacity(body.readableBytes());
+        }
+        SharedResponse response = new SharedResponse(ruleId, status, cachedHeaders, body,
+                TimeUtil.currentTimeMillis(), ttlNanos, cacheable);
+        body = null;
+        return response;
+    }
+
+    private void discard() {
+        discarded = true;
+        if (body != null) {
+            body.release();
+            body = null;
+        }
+    }
+
+    /**
+     * 响应的 Vary 头是否都在缓存 key 里
+     */
+    private static boolean varyCovered(String vary, List<String> keyHeaders) {
+        if (vary == null || vary.isEmpty()) {
+            return true;
+        }
+        for (String name : vary.split(",")) {
+            String header = name.trim();
+            if (header.isEmpty()) {
+                continue;
+            }
+            if ("*".equals(header) || keyHeaders == null
+                    || keyHeaders.stream().noneMatch(header::equalsIgnoreCase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package com.dogsong.core.response;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.IllegalReferenceCountException;
+import lombok.Getter;
+
+/**
+ * 可以在多个请求之间共享的下游响应，响应体放在堆外内存中
+ * <p>
+ * 响应缓存（或者合并请求的发起者）持有响应体的一个引用，用完（被淘汰）时释放。每次使用先 retain 一份再写回，
+ * 如果恰好已经被释放，retain 会失败，调用方按没有可用响应处理。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+@Getter
+public class SharedResponse {
+
+    private final String ruleId;
+
+    private final HttpResponseStatus status;
+
+    /** 已经去掉连接相关的头，并按缓存的响应体设置了 Content-Length */
+    private final HttpHeaders headers;
+
+    private final ByteBuf body;
+
+    private final long createdMillis;
+
+    private final long ttlNanos;
+
+    /** 是否可以放入缓存，不可以时只共享给同时在等待的请求 */
+    private final boolean cacheable;
+
+    SharedResponse(String ruleId, HttpResponseStatus status, HttpHeaders headers, ByteBuf body,
+                   long createdMillis, long ttlNanos, boolean cacheable) {
+        this.ruleId = ruleId;
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.createdMillis = createdMillis;
+        this.ttlNanos = ttlNanos;
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * 获取响应体的一份引用，用完由写出方释放；响应体已经被释放时返回 null
+     */
+    public ByteBuf retainedBody() {
+        try {
+            return body.retainedDuplicate();
+        } catch (IllegalReferenceCountException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 占用的内存，用于缓存容量计算
+     */
+    public int weight() {
+        return body.capacity() + 512;
+    }
+}
@@ -0,0 +1,145 @@
+package com.dogsong.core.route;
+
+import com.dogsong.common.config.Rule;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * 路由管理器
+ * <p>
+ * 规则变更时整体重新编译一份新的 {@link RouteTable}，和规则表一起作为一个版本化的快照替换引用（写时复制），
+ * 请求线程只做一次 volatile 读，匹配过程不加锁。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/27
+ */
+@Slf4j
+public class RouteManager {
+
+    private static final RouteManager INSTANCE = new RouteManager();
+
+    private RouteManager() {}
+
+    public static RouteManager getInstance() {
+        return INSTANCE;
+    }
+
+    /** 当前生效的规则快照 */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * 全量替换规则，版本号在当前版本上递增
+     *
+     * @param rules 规则集合
+     */
+    public synchronized void putAllRules(Collection<Rule> rules) {
+        putAllRules(snapshot.version + 1, rules);
+    }
+
+    /**
+     * 按指定版本全量替换规则，版本号不大于当前版本时认为是过期的变更，直接忽略
+     * <p>
+     * 新的规则表和路由表在调用线程上构建好之后一次替换（RCU），
+     * 正在处理的请求继续使用它已经拿到的旧规则，新请求直接看到完整的新版本，不会读到一半的状态。
+     * </p>
+     *
+     * @param version 规则版本
+     * @param rules   规则集合
+     * @return 是否生效
+     */
+    public synchronized boolean putAllRules(long version, Collection<Rule> rules) {
+        if (version <= snapshot.version) {
+            log.warn("ignore stale rules, version: {}, current version: {}", version, snapshot.version);
+            return false;
+        }
+        Map<String, Rule> ruleMap = new HashMap<>(rules.size() * 2);
+        rules.forEach(rule -> {
+            rule.indexFilterConfigs();
+            ruleMap.put(rule.getId(), rule);
+        });
+        swap(version, ruleMap);
+        return true;
+    }
+
+    /**
+     * 新增或者修改规则
+     *
+     * @param rule 规则
+     */
+    public synchronized void putRule(Rule rule) {
+        rule.indexFilterConfigs();
+        Map<String, Rule> ruleMap = new HashMap<>(snapshot.ruleMap);
+        ruleMap.put(rule.getId(), rule);
+        swap(snapshot.version + 1, ruleMap);
+    }
+
+    /**
+     * 删除规则
+     *
+     * @param ruleId 规则ID
+     */
+    public synchronized void removeRule(String ruleId) {
+        if (!snapshot.ruleMap.containsKey(ruleId)) {
+            return;
+        }
+        Map<String, Rule> ruleMap = new HashMap<>(snapshot.ruleMap);
+        ruleMap.remove(ruleId);
+        swap(snapshot.version + 1, ruleMap);
+    }
+
+    public Rule getRule(String ruleId) {
+        return snapshot.ruleMap.get(ruleId);
+    }
+
+    /**
+     * 根据 host 和路径匹配规则
+     *
+     * @param host host
+     * @param path 请求路径或者 uri
+     * @return 没有匹配时返回 null
+     */
+    public Rule match(String host, String path) {
+        return snapshot.routeTable.match(host, path);
+    }
+
+    public RouteTable getRouteTable() {
+        return snapshot.routeTable;
+    }
+
+    /**
+     * 当前生效的规则版本
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    private void swap(long version, Map<String, Rule> ruleMap) {
+        long start = System.nanoTime();
+        RouteTable routeTable = RouteTable.compile(new ArrayList<>(ruleMap.values()));
+        snapshot = new Snapshot(version, Collections.unmodifiableMap(ruleMap), routeTable);
+        log.info("route table rebuilt, version: {}, rules: {}, cost: {}us",
+                version, ruleMap.size(), (System.nanoTime() - start) / 1000);
+    }
+
+    /**
+     * 规则表和路由表的不可变快照，两者总是一起替换
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(0, Collections.emptyMap(), RouteTable.EMPTY);
+
+        final long version;
+
+        final Map<String, Rule> ruleMap;
+
+        final RouteTable routeTable;
+
+        Snapshot(long version, Map<String, Rule> ruleMap, RouteTable routeTable) {
+            this.version = version;
+            this.ruleMap = ruleMap;
+            this.routeTable = routeTable;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.dogsong.core.route;
+
+import com.dogsong.common.config.Rule;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+
+/**
+ * 编译后的路由表，按 host + 路径段构建的前缀树，构建完成后不可变
+ * <p>
+ * 匹配时按路径段逐层向下查找，查找过程不加锁、不分配对象，耗时只和路径长度有关，和路由数量无关。
+ * 同一层优先级：精确段 > * > **，同一个匹配模式上有多个规则时取优先级最高的（order 小的优先）。
+ * 指定了 host 的规则优先于不区分 host 的规则。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/27
+ */
+public final class RouteTable {
+
+    private static final String WILDCARD = "*";
+
+    private static final String CATCH_ALL = "**";
+
+    private static final char SEPARATOR = '/';
+
+    public static final RouteTable EMPTY = compile(Collections.emptyList());
+
+    /** 不区分 host 的路由 */
+    private final Node anyHost;
+
+    /** 按 host 区分的路由 */
+    private final SegmentTable<Node> hosts;
+
+    /** 参与编译的规则数量 */
+    private final int size;
+
+    private RouteTable(Node anyHost, SegmentTable<Node> hosts, int size) {
+        this.anyHost = anyHost;
+        this.hosts = hosts;
+        this.size = size;
+    }
+
+    /**
+     * 编译路由表
+     *
+     * @param rules 规则集合
+     */
+    public static RouteTable compile(Collection<Rule> rules) {
+        Node anyHost = new Node();
+        Map<String, Node> hostRoots = new HashMap<>();
+        for (Rule rule : rules) {
+            Node root = StringUtils.isBlank(rule.getHost())
+                    ? anyHost
+                    : hostRoots.computeIfAbsent(rule.getHost().trim().toLowerCase(Locale.ROOT), k -> new Node());
+            if (StringUtils.isNotBlank(rule.getPrefix())) {
+                Node node = insert(root, rule.getPrefix());
+                node.exact = pick(node.exact, rule);
+                node.catchAll = pick(node.catchAll, rule);
+            }
+            if (rule.getPaths() != null) {
+                for (String path : rule.getPaths()) {
+                    if (StringUtils.isNotBlank(path)) {
+                        insertPattern(root, path, rule);
+                    }
+                }
+            }
+        }
+
+        Map<String, Node> frozenHosts = new HashMap<>(hostRoots.size());
+        hostRoots.forEach((host, node) -> frozenHosts.put(host, node.freeze()));
+        return new RouteTable(anyHost.freeze(), new SegmentTable<>(frozenHosts, true), rules.size());
+    }
+
+    /**
+     * 按路径段插入，遇到 * 和 ** 时转为通配节点
+     */
+    private static void insertPattern(Node root, String pattern, Rule rule) {
+        Node node = root;
+        int len = pattern.length();
+        int pos = 0;
+        while (true) {
+            while (pos < len && pattern.charAt(pos) == SEPARATOR) {
+                pos++;
+            }
+            if (pos >= len) {
+                break;
+            }
+            int end = pattern.indexOf(SEPARATOR, pos);
+            if (end < 0) {
+                end = len;
+            }
+            String segment = pattern.substring(pos, end);
+            if (CATCH_ALL.equals(segment)) {
+                // ** 只能出现在末尾，之后的段忽略
+                node.catchAll = pick(node.catchAll, rule);
+                return;
+            }
+            if (WILDCARD.equals(segment)) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            } else {
+                node = node.building.computeIfAbsent(segment, k -> new Node());
+            }
+            pos = end;
+        }
+        node.exact = pick(node.exact, rule);
+    }
+
+    /**
+     * 按字面路径插入，不识别通配符
+     */
+    private static Node insert(Node root, String path) {
+        Node node = root;
+        for (String segment : StringUtils.split(path, SEPARATOR)) {
+            node = node.building.computeIfAbsent(segment, k -> new Node());
+        }
+        return node;
+    }
+
+    /**
+     * 同一个位置上取优先级更高的规则
+     */
+    private static Rule pick(Rule current, Rule candidate) {
+        if (current == null) {
+            return candidate;
+        }
+        int compare = Integer.compare(orderOf(candidate), orderOf(current));
+        if (compare == 0) {
+            compare = StringUtils.compare(candidate.getId(), current.getId());
+        }
+        return compare < 0 ? candidate : current;
+    }
+
+    private static int orderOf(Rule rule) {
+        return rule.getOrder() == null ? Integer.MAX_VALUE : rule.getOrder();
+    }
+
+    /**
+     * 匹配规则
+     *
+     * @param host 请求头中的 host，可以带端口
+     * @param path 请求路径，遇到 ? 时结束，因此也可以直接传入 uri
+     * @return 优先级最高的规则，没有匹配时返回 null
+     */
+    public Rule match(String host, String path) {
+        if (path == null) {
+            return null;
+        }
+        int len = path.indexOf('?');
+        if (len < 0) {
+            len = path.length();
+        }
+        if (host != null && hosts.size() > 0) {
+            Node root = hosts.get(host, 0, hostEnd(host));
+            if (root != null) {
+                Rule rule = match(root, path, 0, len);
+                if (rule != null) {
+                    return rule;
+                }
+            }
+        }
+        return match(anyHost, path, 0, len);
+    }
+
+    private static Rule match(Node node, String path, int pos, int len) {
+        while (pos < len && path.charAt(pos) == SEPARATOR) {
+            pos++;
+        }
+        if (pos >= len) {
+            return node.exact != null ? node.exact : node.catchAll;
+        }
+        int end = path.indexOf(SEPARATOR, pos);
+        if (end < 0 || end > len) {
+            end = len;
+        }
+
+        Rule rule;
+        Node child = node.children.get(path, pos, end);
+        if (child != null && (rule = match(child, path, end, len)) != null) {
+            return rule;
+        }
+        if (node.wildcard != null && (rule = match(node.wildcard, path, end, len)) != null) {
+            return rule;
+        }
+        return node.catchAll;
+    }
+
+    /**
+     * 去掉 host 中的端口，兼容 [::1]:8080 形式
+     */
+    private static int hostEnd(String host) {
+        if (host.startsWith("[")) {
+            int index = host.indexOf(']');
+            return index < 0 ? host.length() : index + 1;
+        }
+        int index = host.indexOf(':');
+        return index < 0 ? host.length() : index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 前缀树节点
+     */
+    private static final class Node {
+
+        /** 构建期间的子节点，冻结后清空 */
+        private Map<String, Node> building = new HashMap<>();
+
+        /** 冻结后的精确子节点 */
+        private SegmentTable<Node> children;
+
+        /** * 子节点 */
+        private Node wildcard;
+
+        /** 路径恰好在此结束时命中的规则 */
+        private Rule exact;
+
+        /** ** 命中的规则，匹配此节点下剩余的所有段（包括零段） */
+        private Rule catchAll;
+
+        private Node freeze() {
+            for (Node child : building.values()) {
+                child.freeze();
+            }
+            if (wildcard != null) {
+                wildcard.freeze();
+            }
+            children = building.isEmpty() ? SegmentTable.empty() : new SegmentTable<>(building, false);
+            building = null;
+            return this;
+        }
+    }
+
+    /**
+     * 只读的开放寻址哈希表，可以直接用字符串的一段区间查找，查找时不需要截取子串
+     */
+    private static final class SegmentTable<V> {
+
+        private static final SegmentTable<?> EMPTY = new SegmentTable<>(Collections.emptyMap(), false);
+
+        private final String[] keys;
+
+        private final Object[] values;
+
+        private final int mask;
+
+        private final boolean ignoreCase;
+
+        private final int size;
+
+        SegmentTable(Map<String, V> map, boolean ignoreCase) {
+            int capacity = 2;
+            while (capacity < map.size() * 2) {
+                capacity <<= 1;
+            }
+            this.keys = new String[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+            this.ignoreCase = ignoreCase;
+            this.size = map.size();
+            for (Map.Entry<String, V> entry : map.entrySet()) {
+                String key = entry.getKey();
+                int i = hash(key, 0, key.length()) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = entry.getValue();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        static <V> SegmentTable<V> empty() {
+            return (SegmentTable<V>) EMPTY;
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(String s, int start, int end) {
+            int len = end - start;
+            for (int i = hash(s, start, end) & mask; ; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key == null) {
+                    return null;
+                }
+                if (key.length() == len && key.regionMatches(ignoreCase, 0, s, start, len)) {
+                    return (V) values[i];
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        private int hash(String s, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                char c = s.charAt(i);
+                h = 31 * h + (ignoreCase ? Character.toLowerCase(c) : c);
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
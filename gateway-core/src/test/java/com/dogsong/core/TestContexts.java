@@ -0,0 +1,66 @@
+package com.dogsong.core;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.constants.BasicConst;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.helper.RequestHelper;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * 测试共用的客户端连接、请求和上下文
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public final class TestContexts {
+
+    /** 客户端连接的直连地址 */
+    public static final String CLIENT_IP = "203.0.113.7";
+
+    private TestContexts() {}
+
+    /**
+     * 不经过网络的客户端连接，远端地址是 {@link #CLIENT_IP}，用完调用 finishAndReleaseAll
+     */
+    public static EmbeddedChannel clientChannel() {
+        return new EmbeddedChannel(new ChannelInboundHandlerAdapter()) {
+            @Override
+            protected SocketAddress remoteAddress0() {
+                return new InetSocketAddress(CLIENT_IP, 40000);
+            }
+        };
+    }
+
+    /**
+     * 没有请求体、Host 为 gateway 的请求，调用方再按需要添加请求头
+     */
+    public static FullHttpRequest request(HttpMethod method, String uri) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, uri);
+        request.headers().set(HttpHeaderNames.HOST, "gateway");
+        return request;
+    }
+
+    /**
+     * 按 NettyHttpServerHandler 的方式构建长连接上的 http 请求上下文
+     */
+    public static GatewayContext context(EmbeddedChannel channel, FullHttpRequest request, Rule rule) {
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        return new GatewayContext.Builder()
+                .setProtocol(BasicConst.PROTOCOL_HTTP)
+                .setNettyCtx(ctx)
+                .setKeepAlive(true)
+                .setGatewayRequest(RequestHelper.doRequest(request, ctx, false))
+                .setRule(rule)
+                .build();
+    }
+}
@@ -0,0 +1,159 @@
+package com.dogsong.core.filter.cache;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.core.ConfigLoader;
+import com.dogsong.core.TestContexts;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.response.ResponseListener;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 响应缓存过滤器的测试：HEAD 和 GET 之间的共享，带凭证请求的缓存
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class ResponseCacheFilterTest {
+
+    private static final String BODY = "hello";
+
+    private final ResponseCacheFilter filter = new ResponseCacheFilter();
+
+    private EmbeddedChannel channel;
+
+    private Rule rule;
+
+    @BeforeClass
+    public static void loadConfig() {
+        ConfigLoader.getInstance().load(new String[0]);
+    }
+
+    @Before
+    public void setUp() {
+        channel = TestContexts.clientChannel();
+        Rule.FilterConfig filterConfig = new Rule.FilterConfig();
+        filterConfig.setId(ResponseCacheFilter.FILTER_ID);
+        filterConfig.setConfig("{}");
+        rule = new Rule();
+        rule.setId("response-cache-test");
+        rule.addFilterConfig(filterConfig);
+    }
+
+    @After
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void headKeepsUpstreamContentLength() throws Exception {
+        respond(context(HttpMethod.HEAD, "/head", null), "max-age=60", "");
+
+        FullHttpResponse response = hit(context(HttpMethod.HEAD, "/head", null));
+        assertEquals("5", response.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertEquals(0, response.content().readableBytes());
+        response.release();
+    }
+
+    @Test
+    public void headIsAnsweredFromGet() throws Exception {
+        respond(context(HttpMethod.GET, "/get", null), "max-age=60", BODY);
+
+        FullHttpResponse response = hit(context(HttpMethod.HEAD, "/get", null));
+        assertEquals("5", response.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertEquals(0, response.content().readableBytes());
+        response.release();
+    }
+
+    @Test
+    public void getIsNotAnsweredFromHead() throws Exception {
+        respond(context(HttpMethod.HEAD, "/head-only", null), "max-age=60", "");
+
+        GatewayContext get = context(HttpMethod.GET, "/head-only", null);
+        filter.doFilter(get);
+        assertMiss(get);
+    }
+
+    @Test
+    public void credentialedResponseIsNotStoredWithoutPublic() throws Exception {
+        respond(context(HttpMethod.GET, "/private", "Bearer alice"), "max-age=60", BODY);
+
+        GatewayContext again = context(HttpMethod.GET, "/private", "Bearer alice");
+        filter.doFilter(again);
+        assertMiss(again);
+    }
+
+    @Test
+    public void credentialedResponseIsStoredWhenPublic() throws Exception {
+        respond(context(HttpMethod.GET, "/public", "Bearer alice"), "public, max-age=60", BODY);
+
+        FullHttpResponse response = hit(context(HttpMethod.GET, "/public", "Bearer alice"));
+        assertEquals(BODY, response.content().toString(StandardCharsets.UTF_8));
+        response.release();
+    }
+
+    /**
+     * 请求未命中，作为发起者拿到下游响应后结束
+     */
+    private void respond(GatewayContext ctx, String cacheControl, String body) throws Exception {
+        filter.doFilter(ctx);
+        ResponseListener listener = ctx.getAttribute(ResponseListener.ATTRIBUTE_KEY);
+        assertNotNull(listener);
+        HttpHeaders headers = new DefaultHttpHeaders()
+                .set(HttpHeaderNames.CONTENT_LENGTH, BODY.length())
+                .set(HttpHeaderNames.CACHE_CONTROL, cacheControl);
+        listener.onHeaders(HttpResponseStatus.OK, headers);
+        if (!body.isEmpty()) {
+            ByteBuf content = Unpooled.copiedBuffer(body, StandardCharsets.UTF_8);
+            listener.onBodyPart(content);
+            content.release();
+        }
+        listener.onCompleted();
+        ctx.invokeCompletedCallBack();
+    }
+
+    /**
+     * 请求命中缓存，返回写回客户端的响应
+     */
+    private FullHttpResponse hit(GatewayContext ctx) throws Exception {
+        filter.doFilter(ctx);
+        Runnable action = ctx.takeSuspendedAction();
+        assertNotNull(action);
+        action.run();
+        FullHttpResponse response = channel.readOutbound();
+        assertNotNull(response);
+        return response;
+    }
+
+    private void assertMiss(GatewayContext ctx) {
+        assertNotNull(ctx.getAttribute(ResponseListener.ATTRIBUTE_KEY));
+        assertNull(ctx.takeSuspendedAction());
+        ctx.invokeCompletedCallBack();
+    }
+
+    private GatewayContext context(HttpMethod method, String uri, String authorization) {
+        FullHttpRequest request = TestContexts.request(method, uri);
+        if (authorization != null) {
+            request.headers().set(HttpHeaderNames.AUTHORIZATION, authorization);
+        }
+        return TestContexts.context(channel, request, rule);
+    }
+}
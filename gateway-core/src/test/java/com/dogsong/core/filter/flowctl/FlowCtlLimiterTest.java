@@ -0,0 +1,59 @@
+package com.dogsong.core.filter.flowctl;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.common.constants.BasicConst;
+import com.dogsong.core.TestContexts;
+import com.dogsong.core.context.GatewayContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按客户端IP 限流的测试
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class FlowCtlLimiterTest {
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        channel = TestContexts.clientChannel();
+    }
+
+    @After
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void rotatingForwardedForDoesNotEscapeIpLimit() {
+        FlowCtlConfig.FlowCtlRule flowCtlRule = new FlowCtlConfig.FlowCtlRule();
+        flowCtlRule.setType(FlowCtlConfig.TYPE_IP);
+        flowCtlRule.setPermits(2);
+        flowCtlRule.setPeriodMillis(60_000);
+        FlowCtlLimiter limiter = new FlowCtlLimiter("r1", flowCtlRule, null, 100);
+
+        long now = System.nanoTime();
+        assertTrue(limiter.tryAcquire(context("1.1.1.1"), now));
+        assertTrue(limiter.tryAcquire(context("2.2.2.2"), now));
+        // 同一个直连地址每次换一个伪造的 X-Forwarded-For，仍然按直连地址计数
+        assertFalse(limiter.tryAcquire(context("3.3.3.3"), now));
+    }
+
+    private GatewayContext context(String forwardedFor) {
+        FullHttpRequest request = TestContexts.request(HttpMethod.GET, "/");
+        request.headers().set(BasicConst.HTTP_FORWARD_SEPARATOR, forwardedFor);
+        Rule rule = new Rule();
+        rule.setId("r1");
+        return TestContexts.context(channel, request, rule);
+    }
+}
@@ -0,0 +1,80 @@
+package com.dogsong.core.filter.ipaccess;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 网段前缀树的测试：网段少时逐位查找，网段多时先查前 16 位的 roots 表，两种方式结果一致
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class CidrTrieTest {
+
+    private static final String[] CIDRS = {
+            "10.0.0.0/8", "172.16.0.0/12", "192.168.1.1", "198.51.100.0/24", "2001:db8::/32", "::1"
+    };
+
+    @Test
+    public void smallTrieMatchesByDescent() {
+        assertMatches(build(CIDRS));
+    }
+
+    @Test
+    public void largeTrieMatchesThroughRootTable() {
+        CidrTrie trie = new CidrTrie();
+        for (String cidr : CIDRS) {
+            trie.add(cidr);
+        }
+        // 足够多的 /32 把树撑过建表的阈值，都落在 100.64.0.0/16 里
+        for (int i = 0; i < 2048; i++) {
+            trie.add("100.64." + (i >>> 8) + "." + (i & 0xFF));
+        }
+        trie.compact();
+        assertMatches(trie);
+        assertTrue(trie.contains("100.64.7.255"));
+        assertFalse(trie.contains("100.64.8.0"));
+        assertEquals(CIDRS.length + 2048, trie.size());
+    }
+
+    @Test
+    public void emptyTrieMatchesNothing() {
+        CidrTrie trie = new CidrTrie().compact();
+        assertFalse(trie.contains("10.0.0.1"));
+        assertFalse(trie.contains("::1"));
+    }
+
+    @Test
+    public void zeroPrefixMatchesEverything() {
+        CidrTrie trie = build("0.0.0.0/0");
+        assertTrue(trie.contains("1.2.3.4"));
+        assertTrue(trie.contains("255.255.255.255"));
+        assertFalse(trie.contains("2001:db8::1"));
+    }
+
+    private static void assertMatches(CidrTrie trie) {
+        assertTrue(trie.contains("10.255.0.1"));
+        assertTrue(trie.contains("172.31.255.255"));
+        assertFalse(trie.contains("172.32.0.0"));
+        assertTrue(trie.contains("192.168.1.1"));
+        assertFalse(trie.contains("192.168.1.2"));
+        assertTrue(trie.contains("198.51.100.200"));
+        assertTrue(trie.contains("::ffff:10.1.2.3"));
+        assertTrue(trie.contains("2001:db8:1::1"));
+        assertFalse(trie.contains("2001:db9::1"));
+        assertTrue(trie.contains("::1"));
+        assertFalse(trie.contains("::2"));
+        assertFalse(trie.contains("not-an-ip"));
+    }
+
+    private static CidrTrie build(String... cidrs) {
+        CidrTrie trie = new CidrTrie();
+        for (String cidr : cidrs) {
+            trie.add(cidr);
+        }
+        return trie.compact();
+    }
+}
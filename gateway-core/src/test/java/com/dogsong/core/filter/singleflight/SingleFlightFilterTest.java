@@ -0,0 +1,101 @@
+package com.dogsong.core.filter.singleflight;
+
+import com.dogsong.common.config.Rule;
+import com.dogsong.core.ConfigLoader;
+import com.dogsong.core.TestContexts;
+import com.dogsong.core.context.GatewayContext;
+import com.dogsong.core.response.ResponseListener;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 合并请求过滤器的测试
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class SingleFlightFilterTest {
+
+    private final SingleFlightFilter filter = new SingleFlightFilter();
+
+    private final List<GatewayContext> leaders = new ArrayList<>();
+
+    private EmbeddedChannel channel;
+
+    private Rule rule;
+
+    @BeforeClass
+    public static void loadConfig() {
+        ConfigLoader.getInstance().load(new String[0]);
+    }
+
+    @Before
+    public void setUp() {
+        channel = TestContexts.clientChannel();
+        Rule.FilterConfig filterConfig = new Rule.FilterConfig();
+        filterConfig.setId(SingleFlightFilter.FILTER_ID);
+        filterConfig.setConfig("{}");
+        rule = new Rule();
+        rule.setId("single-flight-test");
+        rule.addFilterConfig(filterConfig);
+    }
+
+    @After
+    public void tearDown() {
+        // 发起者没有拿到响应，结束合并，等待者各自继续
+        for (GatewayContext leader : leaders) {
+            leader.invokeCompletedCallBack();
+        }
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void differentAuthorizationBothReachUpstream() throws Exception {
+        GatewayContext alice = context("/profile", "Bearer alice");
+        GatewayContext bob = context("/profile", "Bearer bob");
+
+        filter.doFilter(alice);
+        filter.doFilter(bob);
+
+        assertLeader(alice);
+        assertLeader(bob);
+    }
+
+    @Test
+    public void sameAuthorizationIsCoalesced() throws Exception {
+        GatewayContext first = context("/orders", "Bearer alice");
+        GatewayContext second = context("/orders", "Bearer alice");
+
+        filter.doFilter(first);
+        filter.doFilter(second);
+
+        assertLeader(first);
+        assertTrue(second.isTerminated());
+        assertNull(second.getAttribute(ResponseListener.ATTRIBUTE_KEY));
+    }
+
+    private void assertLeader(GatewayContext ctx) {
+        // 发起者挂上了响应记录器，继续执行后面的过滤器去请求下游
+        assertNotNull(ctx.getAttribute(ResponseListener.ATTRIBUTE_KEY));
+        leaders.add(ctx);
+    }
+
+    private GatewayContext context(String uri, String authorization) {
+        FullHttpRequest request = TestContexts.request(HttpMethod.GET, uri);
+        request.headers().set(HttpHeaderNames.AUTHORIZATION, authorization);
+        return TestContexts.context(channel, request, rule);
+    }
+}
@@ -0,0 +1,75 @@
+package com.dogsong.core.helper;
+
+import com.dogsong.common.constants.BasicConst;
+import com.dogsong.core.TestContexts;
+import com.dogsong.core.filter.ipaccess.CidrTrie;
+import com.dogsong.core.request.GatewayRequest;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 客户端地址解析的测试
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class RequestHelperTest {
+
+    private static final CidrTrie TRUSTED = trusted("10.0.0.0/8", "192.168.1.1");
+
+    @Test
+    public void untrustedPeerCannotSpoofForwardedFor() {
+        assertEquals("203.0.113.7", RequestHelper.getClientIp("203.0.113.7",
+                Collections.singletonList("1.2.3.4"), TRUSTED));
+    }
+
+    @Test
+    public void trustedPeerUsesRightMostUntrustedHop() {
+        // 客户端自己在最左边伪造了 6.6.6.6，可信代理在右边追加了它看到的真实地址
+        assertEquals("203.0.113.7", RequestHelper.getClientIp("10.0.0.1",
+                Collections.singletonList("6.6.6.6, 203.0.113.7"), TRUSTED));
+        assertEquals("203.0.113.7", RequestHelper.getClientIp("10.0.0.1",
+                Arrays.asList("6.6.6.6, 203.0.113.7", "192.168.1.1"), TRUSTED));
+    }
+
+    @Test
+    public void invalidHopStopsAtLastVerifiedAddress() {
+        assertEquals("10.0.0.1", RequestHelper.getClientIp("10.0.0.1",
+                Collections.singletonList("6.6.6.6, unknown"), TRUSTED));
+        assertEquals("10.0.0.2", RequestHelper.getClientIp("10.0.0.1",
+                Collections.singletonList("garbage, 10.0.0.2"), TRUSTED));
+    }
+
+    @Test
+    public void allTrustedHopsUseLeftMost() {
+        assertEquals("10.0.0.3", RequestHelper.getClientIp("10.0.0.1",
+                Collections.singletonList("10.0.0.3, 10.0.0.2"), TRUSTED));
+    }
+
+    @Test
+    public void requestIgnoresForwardedForWithoutTrustedProxies() {
+        EmbeddedChannel channel = TestContexts.clientChannel();
+        FullHttpRequest request = TestContexts.request(HttpMethod.GET, "/");
+        request.headers().set(BasicConst.HTTP_FORWARD_SEPARATOR, "1.2.3.4");
+
+        GatewayRequest gatewayRequest = RequestHelper.doRequest(request, channel.pipeline().firstContext(), false);
+        assertEquals(TestContexts.CLIENT_IP, gatewayRequest.getClientIp());
+        request.release();
+        channel.finishAndReleaseAll();
+    }
+
+    private static CidrTrie trusted(String... cidrs) {
+        CidrTrie trie = new CidrTrie();
+        for (String cidr : cidrs) {
+            trie.add(cidr);
+        }
+        return trie.compact();
+    }
+}
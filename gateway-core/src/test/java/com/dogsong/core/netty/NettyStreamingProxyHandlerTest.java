@@ -0,0 +1,266 @@
+package com.dogsong.core.netty;
+
+import com.dogsong.common.enums.ResponseCode;
+import com.dogsong.common.exception.ResponseException;
+import com.dogsong.core.Config;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 流式转发处理器的测试
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/8/2
+ */
+public class NettyStreamingProxyHandlerTest {
+
+    private EventLoopGroup group;
+
+    private Channel upstream;
+
+    private Channel server;
+
+    @Before
+    public void setUp() throws Exception {
+        group = new NioEventLoopGroup(2);
+        // 下游收到 /upload 的请求头就返回 413，不读请求体；/continue 先返回 100 Continue，读完请求体返回 200；
+        // /silent 接受请求但是一直不响应
+        upstream = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new HttpServerCodec(), new SimpleChannelInboundHandler<HttpObject>() {
+
+                            private boolean early;
+
+                            private boolean silent;
+
+                            @Override
+                            protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+                                if (msg instanceof HttpRequest) {
+                                    HttpRequest request = (HttpRequest) msg;
+                                    early = request.uri().startsWith("/upload");
+                                    silent = request.uri().startsWith("/silent");
+                                    if (early) {
+                                        writeResponse(ctx, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE);
+                                    } else if (HttpUtil.is100ContinueExpected(request)) {
+                                        ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                                                HttpResponseStatus.CONTINUE));
+                                    }
+                                }
+                                if (msg instanceof LastHttpContent && !early && !silent) {
+                                    writeResponse(ctx, HttpResponseStatus.OK);
+                                }
+                            }
+                        });
+                    }
+                })
+                .bind(0).sync().channel();
+        InetSocketAddress target = (InetSocketAddress) upstream.localAddress();
+        // /upload 流式转发到下游，/limited 被过滤器拒绝
+        StreamingMatcher matcher = (ctx, request) -> {
+            if (request.uri().startsWith("/limited")) {
+                throw new ResponseException(ResponseCode.FLOW_CONTROL_ERROR);
+            }
+            return request.uri().startsWith("/upload") || request.uri().startsWith("/continue")
+                    || request.uri().startsWith("/silent") ? new StreamingCall(target) : null;
+        };
+        Config config = new Config();
+        config.setHttpConnectTimeout(1_000);
+        config.setHttpRequestTimeout(500);
+
+        // 没有命中流式转发的请求聚合后直接返回 200
+        server = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(
+                                new HttpServerCodec(),
+                                new NettyStreamingProxyHandler(config, matcher),
+                                new HttpObjectAggregator(1024 * 1024),
+                                new SimpleChannelInboundHandler<FullHttpRequest>() {
+                                    @Override
+                                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest msg) {
+                                        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                                                HttpResponseStatus.OK, Unpooled.copiedBuffer("ok", StandardCharsets.UTF_8));
+                                        HttpUtil.setContentLength(response, 2);
+                                        ctx.writeAndFlush(response);
+                                    }
+                                });
+                    }
+                })
+                .bind(0).sync().channel();
+    }
+
+    @After
+    public void tearDown() {
+        server.close().syncUninterruptibly();
+        upstream.close().syncUninterruptibly();
+        group.shutdownGracefully().syncUninterruptibly();
+    }
+
+    @Test(timeout = 10_000)
+    public void earlyResponseKeepsConnectionReadable() throws Exception {
+        int port = ((InetSocketAddress) server.localAddress()).getPort();
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5_000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            byte[] chunk = new byte[16 * 1024];
+            int chunks = 64;
+
+            out.write(("POST /upload HTTP/1.1\r\nHost: test\r\nContent-Length: " + chunk.length * chunks
+                    + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(chunk);
+            out.flush();
+            assertEquals(413, readResponseStatus(in));
+
+            // 下游已经返回，剩余的请求体被丢弃
+            for (int i = 1; i < chunks; i++) {
+                out.write(chunk);
+            }
+            out.flush();
+            // 等请求体读完再发下一个请求，保证两者不在同一次读取里
+            Thread.sleep(500);
+            out.write("GET /next HTTP/1.1\r\nHost: test\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertEquals(200, readResponseStatus(in));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void rejectedRequestDiscardsBody() throws Exception {
+        int port = ((InetSocketAddress) server.localAddress()).getPort();
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5_000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            byte[] body = new byte[256 * 1024];
+
+            out.write(("POST /limited HTTP/1.1\r\nHost: test\r\nContent-Length: " + body.length
+                    + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertEquals(429, readResponseStatus(in));
+
+            out.write(body);
+            out.flush();
+            Thread.sleep(500);
+            out.write("GET /next HTTP/1.1\r\nHost: test\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertEquals(200, readResponseStatus(in));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void interimResponseDoesNotEndForwarding() throws Exception {
+        int port = ((InetSocketAddress) server.localAddress()).getPort();
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5_000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            byte[] body = new byte[64 * 1024];
+
+            out.write(("POST /continue HTTP/1.1\r\nHost: test\r\nExpect: 100-continue\r\nContent-Length: "
+                    + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertEquals(100, readResponseStatus(in));
+
+            out.write(body);
+            out.flush();
+            assertEquals(200, readResponseStatus(in));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void silentUpstreamTimesOut() throws Exception {
+        int port = ((InetSocketAddress) server.localAddress()).getPort();
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5_000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            out.write("GET /silent HTTP/1.1\r\nHost: test\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertEquals(504, readResponseStatus(in));
+            // 超时之后客户端连接被关闭
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private static void writeResponse(ChannelHandlerContext ctx, HttpResponseStatus status) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status);
+        HttpUtil.setContentLength(response, 0);
+        ctx.writeAndFlush(response);
+    }
+
+    /**
+     * 读一个带 Content-Length 的响应，返回状态码
+     */
+    private static int readResponseStatus(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        int contentLength = 0;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int index = line.indexOf(':');
+            if (HttpHeaderNames.CONTENT_LENGTH.contentEqualsIgnoreCase(line.substring(0, index).trim())) {
+                contentLength = Integer.parseInt(line.substring(index + 1).trim());
+            }
+        }
+        for (int i = 0; i < contentLength; i++) {
+            if (in.read() < 0) {
+                throw new IOException("unexpected end of stream");
+            }
+        }
+        return Integer.parseInt(statusLine.split(" ")[1]);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("unexpected end of stream");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,52 @@
+package com.dogsong.register.center;
+
+import com.dogsong.common.config.ServiceDefinition;
+import com.dogsong.common.config.ServiceInstance;
+
+/**
+ * 注册中心接口
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/31
+ */
+public interface RegisterCenter {
+
+    /**
+     * 初始化
+     *
+     * @param registryAddress 注册中心地址
+     * @param env             环境
+     */
+    void init(String registryAddress, String env);
+
+    /**
+     * 注册
+     *
+     * @param serviceDefinition 服务定义
+     * @param serviceInstance   服务实例
+     */
+    void register(ServiceDefinition serviceDefinition, ServiceInstance serviceInstance);
+
+    /**
+     * 注销
+     *
+     * @param serviceDefinition 服务定义
+     * @param serviceInstance   服务实例
+     */
+    void deregister(ServiceDefinition serviceDefinition, ServiceInstance serviceInstance);
+
+    /**
+     * 订阅所有服务变更
+     * <p>
+     * 订阅时先把当前所有服务推送一遍，之后只推送发生变化的服务
+     * </p>
+     *
+     * @param registerCenterListener 监听器
+     */
+    void subscribeAllServices(RegisterCenterListener registerCenterListener);
+
+    /**
+     * 关闭
+     */
+    void shutdown();
+}
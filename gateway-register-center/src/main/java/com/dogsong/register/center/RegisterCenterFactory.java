@@ -0,0 +1,40 @@
+package com.dogsong.register.center;
+
+import com.dogsong.register.center.local.FileRegisterCenter;
+import com.dogsong.register.center.local.LocalRegisterCenter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 根据注册中心地址选择注册中心实现
+ * <p>
+ * file: 开头的地址使用本地文件注册中心，其余地址使用进程内的内存注册中心
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/31
+ */
+@Slf4j
+public class RegisterCenterFactory {
+
+    public static final String FILE_PREFIX = "file:";
+
+    private RegisterCenterFactory() {}
+
+    /**
+     * 创建并初始化注册中心
+     *
+     * @param registryAddress 注册中心地址
+     * @param env             环境
+     */
+    public static RegisterCenter create(String registryAddress, String env) {
+        RegisterCenter registerCenter;
+        if (registryAddress != null && registryAddress.startsWith(FILE_PREFIX)) {
+            registerCenter = new FileRegisterCenter();
+        } else {
+            log.info("no remote register center bundled, use local register center, address: {}", registryAddress);
+            registerCenter = new LocalRegisterCenter();
+        }
+        registerCenter.init(registryAddress, env);
+        return registerCenter;
+    }
+}
@@ -0,0 +1,23 @@
+package com.dogsong.register.center;
+
+import com.dogsong.common.config.ServiceDefinition;
+import com.dogsong.common.config.ServiceInstance;
+
+import java.util.Set;
+
+/**
+ * 注册中心服务变更监听器
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/31
+ */
+public interface RegisterCenterListener {
+
+    /**
+     * 某个服务的定义或实例发生变化
+     *
+     * @param serviceDefinition  服务定义
+     * @param serviceInstanceSet 该服务变化后的全部实例，只读；为空表示服务已经没有实例
+     */
+    void onChange(ServiceDefinition serviceDefinition, Set<ServiceInstance> serviceInstanceSet);
+}
@@ -0,0 +1,125 @@
+package com.dogsong.register.center.local;
+
+import com.dogsong.common.config.ServiceDefinition;
+import com.dogsong.common.config.ServiceInstance;
+import com.dogsong.common.utils.FileWatcher;
+import com.dogsong.common.utils.JSONUtil;
+import com.dogsong.register.center.RegisterCenterFactory;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * 基于本地文件的注册中心，用于没有远程注册中心时的替代
+ * <p>
+ * 地址格式为 file:/path/services.json，文件内容是 ServiceEntry 的 json 数组。
+ * 通过 FileWatcher 监听文件变化，变化后重新加载全量服务表，和当前服务表对比后只推送有差异的服务。
+ * 通过 register 注册的服务（例如网关自身）只保存在内存中，不写回文件，重新加载时合并进去。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/31
+ */
+@Slf4j
+public class FileRegisterCenter extends LocalRegisterCenter {
+
+    private Path file;
+
+    private FileWatcher watcher;
+
+    /** 通过 register 注册到内存中的服务定义，key 为 uniqueId */
+    private final Map<String, ServiceDefinition> registeredDefinitions = new HashMap<>();
+
+    /** 通过 register 注册到内存中的服务实例，key 为 uniqueId */
+    private final Map<String, Map<String, ServiceInstance>> registeredInstances = new HashMap<>();
+
+    @Override
+    public void init(String registryAddress, String env) {
+        super.init(registryAddress, env);
+        this.file = Paths.get(registryAddress.substring(RegisterCenterFactory.FILE_PREFIX.length()))
+                .toAbsolutePath();
+        reload();
+        // 编辑器保存文件时可能连续触发多次事件，稍等一下合并成一次加载
+        this.watcher = new FileWatcher("register-center-file-watcher", file.getParent(),
+                name -> file.getFileName().equals(name), 100, this::reload);
+        watcher.start();
+    }
+
+    @Override
+    public synchronized void register(ServiceDefinition serviceDefinition, ServiceInstance serviceInstance) {
+        registeredDefinitions.put(serviceDefinition.getUniqueId(), serviceDefinition);
+        registeredInstances.computeIfAbsent(serviceDefinition.getUniqueId(), k -> new LinkedHashMap<>())
+                .put(serviceInstance.getServiceInstanceId(), serviceInstance);
+        super.register(serviceDefinition, serviceInstance);
+    }
+
+    @Override
+    public synchronized void deregister(ServiceDefinition serviceDefinition, ServiceInstance serviceInstance) {
+        Map<String, ServiceInstance> instances = registeredInstances.get(serviceDefinition.getUniqueId());
+        if (instances != null) {
+            instances.remove(serviceInstance.getServiceInstanceId());
+        }
+        super.deregister(serviceDefinition, serviceInstance);
+    }
+
+    @Override
+    public void shutdown() {
+        if (watcher != null) {
+            watcher.shutdown();
+        }
+        super.shutdown();
+    }
+
+    /**
+     * 重新加载文件，解析失败时保留当前的服务表
+     */
+    private synchronized void reload() {
+        List<ServiceEntry> entries;
+        try {
+            entries = Files.exists(file)
+                    ? JSONUtil.parseToList(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), ServiceEntry.class)
+                    : Collections.emptyList();
+        } catch (Throwable t) {
+            log.error("load register center file error, keep current services: {}", file, t);
+            return;
+        }
+
+        Map<String, ServiceDefinition> latestDefinitions = new HashMap<>();
+        Map<String, Set<ServiceInstance>> latestInstances = new HashMap<>();
+        for (ServiceEntry entry : entries) {
+            ServiceDefinition definition = entry.getServiceDefinition();
+            if (definition == null || definition.getUniqueId() == null) {
+                continue;
+            }
+            latestDefinitions.put(definition.getUniqueId(), definition);
+            Set<ServiceInstance> instances = latestInstances.computeIfAbsent(definition.getUniqueId(),
+                    k -> new LinkedHashSet<>());
+            if (entry.getServiceInstances() != null) {
+                instances.addAll(entry.getServiceInstances());
+            }
+        }
+        for (Map.Entry<String, ServiceDefinition> entry : registeredDefinitions.entrySet()) {
+            latestDefinitions.putIfAbsent(entry.getKey(), entry.getValue());
+            latestInstances.computeIfAbsent(entry.getKey(), k -> new LinkedHashSet<>())
+                    .addAll(registeredInstances.getOrDefault(entry.getKey(), Collections.emptyMap()).values());
+        }
+        applyServices(latestDefinitions, latestInstances);
+        log.info("load register center file {}, services: {}", file, latestDefinitions.size());
+    }
+
+    /**
+     * 文件中的一项：服务定义和它的实例
+     */
+    @Data
+    public static class ServiceEntry {
+
+        private ServiceDefinition serviceDefinition;
+
+        private List<ServiceInstance> serviceInstances;
+    }
+}
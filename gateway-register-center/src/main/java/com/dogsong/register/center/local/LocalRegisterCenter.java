@@ -0,0 +1,143 @@
+package com.dogsong.register.center.local;
+
+import com.dogsong.common.config.ServiceDefinition;
+import com.dogsong.common.config.ServiceInstance;
+import com.dogsong.register.center.RegisterCenter;
+import com.dogsong.register.center.RegisterCenterListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内的内存注册中心
+ * <p>
+ * 注册、注销直接修改内存中的服务表，并把发生变化的服务推送给所有订阅者，订阅者不需要轮询。
+ * 所有修改和推送在同一把锁内完成，订阅者收到的变更顺序和发生顺序一致。
+ * </p>
+ *
+ * @author <a href="mailto:dogsong99@gmail.com">dogsong</a>
+ * @since 2023/7/31
+ */
+@Slf4j
+public class LocalRegisterCenter implements RegisterCenter {
+
+    protected String registryAddress;
+
+    protected String env;
+
+    /** 服务定义，key 为 uniqueId */
+    private final Map<String, ServiceDefinition> serviceDefinitionMap = new HashMap<>();
+
+    /** 服务实例，key 为 uniqueId，value 为只读集合 */
+    private final Map<String, Set<ServiceInstance>> serviceInstanceMap = new HashMap<>();
+
+    private final List<RegisterCenterListener> registerCenterListenerList = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void init(String registryAddress, String env) {
+        this.registryAddress = registryAddress;
+        this.env = env;
+    }
+
+    @Override
+    public synchronized void register(ServiceDefinition serviceDefinition, ServiceInstance serviceInstance) {
+        String uniqueId = serviceDefinition.getUniqueId();
+        Set<ServiceInstance> instances = copyWithout(serviceInstanceMap.get(uniqueId), serviceInstance);
+        instances.add(serviceInstance);
+        publish(serviceDefinition, instances);
+        log.info("register {} {}", uniqueId, serviceInstance.getServiceInstanceId());
+    }
+
+    @Override
+    public synchronized void deregister(ServiceDefinition serviceDefinition, ServiceInstance serviceInstance) {
+        String uniqueId = serviceDefinition.getUniqueId();
+        if (!serviceDefinitionMap.containsKey(uniqueId)) {
+            return;
+        }
+        publish(serviceDefinition, copyWithout(serviceInstanceMap.get(uniqueId), serviceInstance));
+        log.info("deregister {} {}", uniqueId, serviceInstance.getServiceInstanceId());
+    }
+
+    @Override
+    public synchronized void subscribeAllServices(RegisterCenterListener registerCenterListener) {
+        registerCenterListenerList.add(registerCenterListener);
+        for (ServiceDefinition serviceDefinition : serviceDefinitionMap.values()) {
+            notify(registerCenterListener, serviceDefinition,
+                    serviceInstanceMap.get(serviceDefinition.getUniqueId()));
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        registerCenterListenerList.clear();
+    }
+
+    /**
+     * 用最新的全量服务表替换当前服务表，只推送有差异的服务，已经不存在的服务推送空实例集合
+     *
+     * @param latestDefinitions 最新的服务定义，key 为 uniqueId
+     * @param latestInstances   最新的服务实例，key 为 uniqueId
+     */
+    protected synchronized void applyServices(Map<String, ServiceDefinition> latestDefinitions,
+                                              Map<String, Set<ServiceInstance>> latestInstances) {
+        for (Map.Entry<String, ServiceDefinition> entry : latestDefinitions.entrySet()) {
+            String uniqueId = entry.getKey();
+            Set<ServiceInstance> instances = latestInstances.getOrDefault(uniqueId, Collections.emptySet());
+            if (entry.getValue().equals(serviceDefinitionMap.get(uniqueId))
+                    && instances.equals(serviceInstanceMap.get(uniqueId))) {
+                continue;
+            }
+            publish(entry.getValue(), new LinkedHashSet<>(instances));
+        }
+
+        Iterator<Map.Entry<String, ServiceDefinition>> iterator = serviceDefinitionMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ServiceDefinition> entry = iterator.next();
+            if (latestDefinitions.containsKey(entry.getKey())) {
+                continue;
+            }
+            iterator.remove();
+            serviceInstanceMap.remove(entry.getKey());
+            for (RegisterCenterListener listener : registerCenterListenerList) {
+                notify(listener, entry.getValue(), Collections.emptySet());
+            }
+        }
+    }
+
+    /**
+     * 保存服务并推送给所有订阅者
+     */
+    private void publish(ServiceDefinition serviceDefinition, Set<ServiceInstance> instances) {
+        Set<ServiceInstance> readOnly = Collections.unmodifiableSet(instances);
+        serviceDefinitionMap.put(serviceDefinition.getUniqueId(), serviceDefinition);
+        serviceInstanceMap.put(serviceDefinition.getUniqueId(), readOnly);
+        for (RegisterCenterListener listener : registerCenterListenerList) {
+            notify(listener, serviceDefinition, readOnly);
+        }
+    }
+
+    private static void notify(RegisterCenterListener listener, ServiceDefinition serviceDefinition,
+                               Set<ServiceInstance> instances) {
+        try {
+            listener.onChange(serviceDefinition, instances);
+        } catch (Throwable t) {
+            log.error("notify register center listener error, service: {}", serviceDefinition.getUniqueId(), t);
+        }
+    }
+
+    /**
+     * 复制实例集合，并去掉和 serviceInstance 相同实例ID的旧实例
+     */
+    private static Set<ServiceInstance> copyWithout(Set<ServiceInstance> instances, ServiceInstance serviceInstance) {
+        Set<ServiceInstance> copy = new LinkedHashSet<>();
+        if (instances != null) {
+            for (ServiceInstance instance : instances) {
+                if (!Objects.equals(instance.getServiceInstanceId(), serviceInstance.getServiceInstanceId())) {
+                    copy.add(instance);
+                }
+            }
+        }
+        return copy;
+    }
+}